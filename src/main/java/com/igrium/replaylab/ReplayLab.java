@@ -6,6 +6,7 @@ import com.igrium.replaylab.config.ReplayLabConfig;
 import com.igrium.replaylab.debug.PrintCameraCommand;
 import com.igrium.replaylab.entity.EmptyObjectRenderer;
 import com.igrium.replaylab.entity.ReplayLabEntities;
+import com.igrium.replaylab.render.headless.HeadlessRender;
 import com.igrium.replaylab.ui.ReplayLabUI;
 import com.replaymod.core.ReplayMod;
 import com.replaymod.replay.ReplayModReplay;
@@ -77,6 +78,8 @@ public class ReplayLab implements ModInitializer, ClientModInitializer {
                 ReplayLabEntities.EMPTY,
                 EmptyObjectRenderer::new
         );
+
+        HeadlessRender.init(FabricLoader.getInstance().getLaunchArguments(true));
     }
 
     public boolean isEditorOpen() {
@@ -45,6 +45,8 @@ public class Keybinds {
     private int nextKey = ImGuiKey.Period;
     private int quickMode = ImGuiKey.ImGuiMod_Alt | ImGuiKey.Q;
 
+    private int toggleProfiler = ImGuiKey.ImGuiMod_Ctrl | ImGuiKey.ImGuiMod_Shift | ImGuiKey.P;
+
     public void copyFrom(Keybinds other) {
         this.undo = other.undo;
         this.redo = other.redo;
@@ -82,6 +84,8 @@ public class Keybinds {
         this.prevKey = other.prevKey;
         this.nextKey = other.nextKey;
         this.quickMode = other.quickMode;
+
+        this.toggleProfiler = other.toggleProfiler;
     }
 
     public void reset() {
@@ -204,6 +208,10 @@ public class Keybinds {
         return getKeybinds().getQuickMode();
     }
 
+    public static int toggleProfiler() {
+        return getKeybinds().getToggleProfiler();
+    }
+
     private static Keybinds getKeybinds() {
         return ReplayLabConfig.getInstance().getKeybinds();
     }
@@ -71,6 +71,17 @@ public class ReplayLabConfig {
     private RotationMode defaultRotMode = RotationMode.EULER_YXZ;
     private boolean rotModeConvert = true;
 
+    // Export
+    /**
+     * How many times a second to redraw the progress window during an export
+     */
+    private int exportUiFps = 10;
+
+    /**
+     * Show a small preview of the frames being exported in the progress window
+     */
+    private boolean exportPreview = true;
+
     public synchronized void saveConfig(Path path) throws IOException {
         LOGGER.info("Saving ReplayLab config to {}", path);
         try(BufferedWriter writer = Files.newBufferedWriter(path)) {
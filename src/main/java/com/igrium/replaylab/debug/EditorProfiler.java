@@ -0,0 +1,262 @@
+package com.igrium.replaylab.debug;
+
+import lombok.Getter;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * A lightweight, render-thread-only profiler for the editor UI.
+ * <p>
+ * Sections are opened with {@link #push} and closed with {@link #pop}, and may be nested. Time spent in each section
+ * is summed over the course of a frame; when {@link #endFrame} is called, that total is pushed into a rolling window
+ * so the debug screen can show averages and catch spikes. Sections that run outside the UI draw (scene evaluation
+ * from the scene player, for instance) simply get attributed to the frame they happened in.
+ * <p>
+ * When disabled, {@link #push} and {@link #pop} return immediately.
+ */
+@UtilityClass
+public class EditorProfiler {
+
+    /**
+     * How many frames the rolling average is taken over.
+     */
+    public static final int WINDOW_SIZE = 120;
+
+    /**
+     * A frame counts as a spike if it takes this many times longer than the rolling average...
+     */
+    private static final double SPIKE_FACTOR = 3;
+
+    /**
+     * ...and is at least this long (ms). Keeps sub-millisecond jitter out of the spike list.
+     */
+    private static final double SPIKE_MIN_MS = 2;
+
+    private static final int MAX_SPIKES = 32;
+
+    /**
+     * A single profiled section. Sections are identified by their full path, so the same name under different parents
+     * is tracked separately.
+     */
+    public static final class Section {
+        @Getter
+        private final String name;
+
+        @Getter
+        private final @Nullable Section parent;
+
+        @Getter
+        private final int depth;
+
+        private final Map<String, Section> children = new LinkedHashMap<>();
+        private final Collection<Section> childrenUnmod = Collections.unmodifiableCollection(children.values());
+
+        private final double[] samples = new double[WINDOW_SIZE];
+        private int sampleCount;
+        private int sampleHead;
+        private double sampleSum;
+
+        private long frameNanos;
+        private int frameCalls;
+
+        private long startNanos;
+
+        /**
+         * The number of times this section was entered during the most recent frame.
+         */
+        @Getter
+        private int lastCalls;
+
+        /**
+         * The duration of the most recent frame (ms).
+         */
+        @Getter
+        private double lastMs;
+
+        /**
+         * The longest frame currently in the rolling window (ms).
+         */
+        @Getter
+        private double maxMs;
+
+        private Section(String name, @Nullable Section parent) {
+            this.name = name;
+            this.parent = parent;
+            this.depth = parent != null ? parent.depth + 1 : 0;
+        }
+
+        public Collection<Section> getChildren() {
+            return childrenUnmod;
+        }
+
+        private Section getOrCreateChild(String name) {
+            Section child = children.get(name);
+            if (child == null) {
+                child = new Section(name, this);
+                children.put(name, child);
+            }
+            return child;
+        }
+
+        /**
+         * The average time spent in this section per frame, over the rolling window (ms).
+         */
+        public double getAverageMs() {
+            return sampleCount > 0 ? sampleSum / sampleCount : 0;
+        }
+
+        public String getPath() {
+            return parent != null && parent.parent != null ? parent.getPath() + "/" + name : name;
+        }
+
+        private void commitFrame(long frameIdx) {
+            double ms = frameNanos / 1_000_000d;
+            double avg = getAverageMs();
+
+            if (sampleCount >= WINDOW_SIZE / 4 && ms >= SPIKE_MIN_MS && ms > avg * SPIKE_FACTOR) {
+                recordSpike(new Spike(frameIdx, getPath(), ms, avg));
+            }
+
+            if (sampleCount == WINDOW_SIZE) {
+                sampleSum -= samples[sampleHead];
+            } else {
+                sampleCount++;
+            }
+            samples[sampleHead] = ms;
+            sampleSum += ms;
+            sampleHead = (sampleHead + 1) % WINDOW_SIZE;
+
+            double max = 0;
+            for (int i = 0; i < sampleCount; i++) {
+                max = Math.max(max, samples[i]);
+            }
+            maxMs = max;
+
+            lastMs = ms;
+            lastCalls = frameCalls;
+            frameNanos = 0;
+            frameCalls = 0;
+
+            for (Section child : children.values()) {
+                child.commitFrame(frameIdx);
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(samples, 0);
+            sampleCount = 0;
+            sampleHead = 0;
+            sampleSum = 0;
+            frameNanos = 0;
+            frameCalls = 0;
+            lastMs = 0;
+            maxMs = 0;
+            lastCalls = 0;
+            children.clear();
+        }
+    }
+
+    /**
+     * A frame in which a section took much longer than its rolling average.
+     *
+     * @param frame     The profiler frame it happened on.
+     * @param path      Path of the offending section.
+     * @param ms        How long the section took that frame.
+     * @param averageMs The rolling average at the time.
+     */
+    public record Spike(long frame, String path, double ms, double averageMs) {}
+
+    @Getter
+    private static boolean enabled;
+
+    /**
+     * The root of the section tree. Its own timing covers the whole editor frame.
+     */
+    @Getter
+    private static final Section root = new Section("frame", null);
+
+    private static final Deque<Spike> spikes = new ArrayDeque<>();
+
+    private static Section current = root;
+
+    @Getter
+    private static long frameIdx;
+
+    public static void setEnabled(boolean enabled) {
+        if (EditorProfiler.enabled == enabled) return;
+        EditorProfiler.enabled = enabled;
+        // Stale samples from the last session would only skew the averages.
+        reset();
+    }
+
+    public static void toggle() {
+        setEnabled(!enabled);
+    }
+
+    /**
+     * Clear all collected timings.
+     */
+    public static void reset() {
+        root.clear();
+        spikes.clear();
+        current = root;
+        frameIdx = 0;
+        root.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Get all recorded spikes, most recent first.
+     */
+    public static Collection<Spike> getSpikes() {
+        return Collections.unmodifiableCollection(spikes);
+    }
+
+    private static void recordSpike(Spike spike) {
+        spikes.addFirst(spike);
+        while (spikes.size() > MAX_SPIKES) {
+            spikes.removeLast();
+        }
+    }
+
+    /**
+     * Mark the end of an editor frame and commit everything that was timed during it. The root section measures the
+     * time between consecutive calls, so it covers the whole game frame and not just the editor UI.
+     */
+    public static void endFrame() {
+        if (!enabled) return;
+        // Anything left open was either mismatched or threw; don't let it leak into the next frame.
+        while (current != root) {
+            pop();
+        }
+        long now = System.nanoTime();
+        root.frameNanos += now - root.startNanos;
+        root.frameCalls++;
+        root.commitFrame(frameIdx++);
+        root.startNanos = now;
+    }
+
+    /**
+     * Open a profiler section, nested under the current one.
+     *
+     * @param name Section name.
+     */
+    public static void push(String name) {
+        if (!enabled) return;
+        Section section = current.getOrCreateChild(name);
+        section.startNanos = System.nanoTime();
+        current = section;
+    }
+
+    /**
+     * Close the most recently opened profiler section.
+     */
+    public static void pop() {
+        if (!enabled || current == root) return;
+        Section section = current;
+        section.frameNanos += System.nanoTime() - section.startNanos;
+        section.frameCalls++;
+        current = section.parent != null ? section.parent : root;
+    }
+}
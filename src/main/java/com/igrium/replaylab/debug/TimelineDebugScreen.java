@@ -1,6 +1,11 @@
 package com.igrium.replaylab.debug;
 
+import imgui.ImDrawList;
 import imgui.ImGui;
+import imgui.flag.ImGuiCol;
+import imgui.flag.ImGuiTableFlags;
+import imgui.flag.ImGuiTreeNodeFlags;
+import imgui.type.ImBoolean;
 import lombok.Getter;
 import lombok.experimental.UtilityClass;
 
@@ -12,6 +17,10 @@ public class TimelineDebugScreen {
     @Getter
     private static final List<String> sampling = new ArrayList<>();
 
+    private static final float FLAME_ROW_HEIGHT = 18;
+
+    private static final ImBoolean open = new ImBoolean();
+
     public static void drawDebugScreen() {
         if (ImGui.begin("Timeline Debugger")) {
             if (ImGui.treeNode("Sampling")) {
@@ -24,4 +33,144 @@ public class TimelineDebugScreen {
         ImGui.end();
         sampling.clear();
     }
+
+    /**
+     * Draw the profiler window if the profiler is enabled. Closing the window disables the profiler.
+     */
+    public static void drawProfilerWindow() {
+        if (!EditorProfiler.isEnabled()) return;
+        open.set(true);
+        if (ImGui.begin("Editor Profiler", open)) {
+            drawProfiler();
+        }
+        ImGui.end();
+        if (!open.get()) {
+            EditorProfiler.setEnabled(false);
+        }
+    }
+
+    private static void drawProfiler() {
+        EditorProfiler.Section root = EditorProfiler.getRoot();
+        double frameMs = root.getAverageMs();
+        ImGui.text(String.format("Frame: %.2f ms avg (%.1f fps), %.2f ms max", frameMs,
+                frameMs > 0 ? 1000 / frameMs : 0, root.getMaxMs()));
+
+        if (ImGui.button("Reset")) {
+            EditorProfiler.reset();
+            return;
+        }
+
+        ImGui.separatorText("Flame (rolling average)");
+        drawFlame(root);
+
+        ImGui.separatorText("Sections");
+        if (ImGui.beginTable("##profiler_sections", 5, ImGuiTableFlags.RowBg | ImGuiTableFlags.BordersInnerV
+                | ImGuiTableFlags.Resizable)) {
+            ImGui.tableSetupColumn("Section");
+            ImGui.tableSetupColumn("Avg (ms)");
+            ImGui.tableSetupColumn("Max (ms)");
+            ImGui.tableSetupColumn("Last (ms)");
+            ImGui.tableSetupColumn("Calls");
+            ImGui.tableHeadersRow();
+            for (var child : root.getChildren()) {
+                drawSectionRow(child);
+            }
+            ImGui.endTable();
+        }
+
+        ImGui.separatorText("Spikes");
+        var spikes = EditorProfiler.getSpikes();
+        if (spikes.isEmpty()) {
+            ImGui.textDisabled("None yet");
+        }
+        for (var spike : spikes) {
+            ImGui.bulletText(String.format("#%d  %s: %.2f ms (avg %.2f)",
+                    spike.frame(), spike.path(), spike.ms(), spike.averageMs()));
+        }
+    }
+
+    private static void drawSectionRow(EditorProfiler.Section section) {
+        ImGui.tableNextRow();
+        ImGui.tableNextColumn();
+
+        boolean leaf = section.getChildren().isEmpty();
+        int flags = ImGuiTreeNodeFlags.SpanFullWidth | ImGuiTreeNodeFlags.DefaultOpen;
+        if (leaf) {
+            flags |= ImGuiTreeNodeFlags.Leaf | ImGuiTreeNodeFlags.NoTreePushOnOpen;
+        }
+        boolean expanded = ImGui.treeNodeEx(section.getPath(), flags, section.getName());
+
+        ImGui.tableNextColumn();
+        ImGui.text(String.format("%.3f", section.getAverageMs()));
+        ImGui.tableNextColumn();
+        ImGui.text(String.format("%.3f", section.getMaxMs()));
+        ImGui.tableNextColumn();
+        ImGui.text(String.format("%.3f", section.getLastMs()));
+        ImGui.tableNextColumn();
+        ImGui.text(String.valueOf(section.getLastCalls()));
+
+        if (expanded && !leaf) {
+            for (var child : section.getChildren()) {
+                drawSectionRow(child);
+            }
+            ImGui.treePop();
+        }
+    }
+
+    /**
+     * Draw a flame graph of the section tree: each row is a nesting level, and each bar's width is proportional to
+     * its share of the average frame time.
+     */
+    private static void drawFlame(EditorProfiler.Section root) {
+        float width = ImGui.getContentRegionAvailX();
+        float x = ImGui.getCursorScreenPosX();
+        float y = ImGui.getCursorScreenPosY();
+
+        int depth = maxDepth(root);
+        float height = (depth + 1) * FLAME_ROW_HEIGHT;
+
+        double total = root.getAverageMs();
+        if (total > 0) {
+            ImDrawList drawList = ImGui.getWindowDrawList();
+            drawFlameSection(drawList, root, x, y, (float) (width / total));
+        }
+
+        ImGui.dummy(width, height);
+    }
+
+    private static void drawFlameSection(ImDrawList drawList, EditorProfiler.Section section,
+                                         float x, float y, float pixelsPerMs) {
+        float width = (float) section.getAverageMs() * pixelsPerMs;
+        float barY = y + section.getDepth() * FLAME_ROW_HEIGHT;
+        int color = ImGui.getColorU32(section.getDepth() % 2 == 0 ? ImGuiCol.PlotHistogram : ImGuiCol.PlotLines);
+        drawList.addRectFilled(x, barY, x + width - 1, barY + FLAME_ROW_HEIGHT - 1, color);
+
+        String label = String.format("%s %.2f", section.getName(), section.getAverageMs());
+        if (ImGui.calcTextSizeX(label) < width - 4) {
+            drawList.addText(x + 2, barY + 2, ImGui.getColorU32(ImGuiCol.Text), label);
+        }
+
+        if (ImGui.isMouseHoveringRect(x, barY, x + width, barY + FLAME_ROW_HEIGHT)) {
+            ImGui.setTooltip(String.format("%s\navg %.3f ms, max %.3f ms, %d call(s)",
+                    section.getPath(), section.getAverageMs(), section.getMaxMs(), section.getLastCalls()));
+        }
+
+        float childX = x;
+        for (var child : section.getChildren()) {
+            // Children can't be wider than their parent, but timer jitter can make them look that way.
+            if (childX >= x + width) break;
+            if (child.getAverageMs() * pixelsPerMs >= 1) {
+                drawFlameSection(drawList, child, childX, y, pixelsPerMs);
+            }
+            childX += (float) child.getAverageMs() * pixelsPerMs;
+        }
+    }
+
+    private static int maxDepth(EditorProfiler.Section section) {
+        int max = section.getDepth();
+        for (var child : section.getChildren()) {
+            max = Math.max(max, maxDepth(child));
+        }
+        return max;
+    }
 }
@@ -0,0 +1,24 @@
+package com.igrium.replaylab.debug.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted for each frame handed to the encoder. Its duration is how long the render thread was held up by the
+ * encoder's queue.
+ */
+@Name("replaylab.EncoderQueueWait")
+@Label("Encoder Queue Wait")
+@Category({"ReplayLab", "Export"})
+@Description("Time the render thread spent handing a frame to the encoder")
+@StackTrace(false)
+public class EncoderQueueWaitEvent extends Event {
+    @Label("Frame Index")
+    public int frameIdx;
+
+    @Label("Encoder")
+    public String encoder;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,25 @@
+package com.igrium.replaylab.debug.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted for each frame the renderer captures from the game.
+ */
+@Name("replaylab.FrameCapture")
+@Label("Frame Capture")
+@Category({"ReplayLab", "Export"})
+@Description("Rendering a single export frame on the GPU")
+@StackTrace(false)
+public class FrameCaptureEvent extends Event {
+    @Label("Frame Index")
+    public int frameIdx;
+
+    @Label("Object Count")
+    public int objectCount;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+}
@@ -0,0 +1,20 @@
+package com.igrium.replaylab.debug.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted for each frame read back from the GPU, including the wait on its fence.
+ */
+@Name("replaylab.FrameReadback")
+@Label("Frame Readback")
+@Category({"ReplayLab", "Export"})
+@Description("Copying an export frame from the GPU into system memory")
+@StackTrace(false)
+public class FrameReadbackEvent extends Event {
+    @Label("Frame Index")
+    public int frameIdx;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,26 @@
+package com.igrium.replaylab.debug.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted when an operator is executed, undone or redone.
+ */
+@Name("replaylab.Operator")
+@Label("Operator")
+@Category({"ReplayLab", "Editor"})
+@Description("Execution of a replay operator")
+@StackTrace(false)
+public class OperatorEvent extends Event {
+    @Label("Operator")
+    public String operator;
+
+    @Label("Action")
+    @Description("execute, undo or redo")
+    public String action;
+
+    @Label("Success")
+    public boolean success;
+
+    @Label("Object Count")
+    public int objectCount;
+}
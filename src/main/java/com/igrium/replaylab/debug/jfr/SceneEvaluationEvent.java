@@ -0,0 +1,23 @@
+package com.igrium.replaylab.debug.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted each time a scene is sampled and applied to the game.
+ */
+@Name("replaylab.SceneEvaluation")
+@Label("Scene Evaluation")
+@Category({"ReplayLab", "Scene"})
+@Description("Sampling, constraint evaluation and application of a scene to the game")
+@StackTrace(false)
+public class SceneEvaluationEvent extends Event {
+    @Label("Scene Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long sceneTime;
+
+    @Label("Object Count")
+    public int objectCount;
+
+    @Label("Sampled Objects")
+    public int sampledCount;
+}
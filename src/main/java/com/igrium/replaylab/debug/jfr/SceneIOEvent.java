@@ -0,0 +1,27 @@
+package com.igrium.replaylab.debug.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted when a scene is read from or written to the replay file.
+ */
+@Name("replaylab.SceneIO")
+@Label("Scene Save/Load")
+@Category({"ReplayLab", "Scene"})
+@Description("Reading or writing a scene in the replay file")
+@StackTrace(false)
+public class SceneIOEvent extends Event {
+    @Label("Scene")
+    public String scene;
+
+    @Label("Save")
+    @Description("true if the scene was saved, false if it was loaded")
+    public boolean save;
+
+    @Label("Object Count")
+    public int objectCount;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,24 @@
+package com.igrium.replaylab.debug.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * Emitted when the editor jumps the replay to a new point in time.
+ */
+@Name("replaylab.TimeJump")
+@Label("Time Jump")
+@Category({"ReplayLab", "Scene"})
+@Description("A jump of the replay to a new timestamp")
+@StackTrace(false)
+public class TimeJumpEvent extends Event {
+    @Label("Scene Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long sceneTime;
+
+    @Label("Replay Time")
+    @Timespan(Timespan.MILLISECONDS)
+    public long replayTime;
+
+    @Label("Object Count")
+    public int objectCount;
+}
@@ -5,8 +5,11 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.igrium.replaylab.ReplayLab;
 import com.igrium.replaylab.anim.constraint.ConstraintEvaluator;
+import com.igrium.replaylab.debug.EditorProfiler;
+import com.igrium.replaylab.debug.jfr.TimeJumpEvent;
 import com.igrium.replaylab.math.Transform3;
 import com.igrium.replaylab.mixin.AccessorReplayHandler;
 import com.igrium.replaylab.operator.object.CommitObjectUpdateOperator;
@@ -15,13 +18,20 @@ import com.igrium.replaylab.operator.object.PasteObjectsOperator;
 import com.igrium.replaylab.operator.ReplayOperator;
 import com.igrium.replaylab.playback.AbstractScenePlayer;
 import com.igrium.replaylab.playback.RealtimeScenePlayer;
+import com.igrium.replaylab.render.DraftMode;
+import com.igrium.replaylab.render.RenderCheckpoint;
 import com.igrium.replaylab.render.VideoRenderer;
+import com.igrium.replaylab.render.queue.RenderJob;
+import com.igrium.replaylab.render.queue.RenderQueue;
+import com.igrium.replaylab.render.track.CameraTrackFormat;
+import com.igrium.replaylab.render.track.CameraTracks;
 import com.igrium.replaylab.scene.ReplayScene;
 import com.igrium.replaylab.scene.ReplayScenes;
 import com.igrium.replaylab.anim.KeyChannel;
 import com.igrium.replaylab.object.ReplayObject;
 import com.igrium.replaylab.object.ReplayObject3D;
 import com.igrium.replaylab.object.SerializedReplayObject;
+import com.igrium.replaylab.object.types.ObjectRenderSettings;
 import com.igrium.replaylab.object.TransformProvider;
 import com.igrium.replaylab.ui.util.QuickModeInitCallback;
 import com.igrium.replaylab.render.RenderUtils;
@@ -54,9 +64,12 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 /**
@@ -165,6 +178,24 @@ public final class EditorState {
     @Getter @Setter @Nullable
     private VideoRenderer renderer;
 
+    /**
+     * Exports waiting to run. Loaded from the replay file when the editor opens.
+     */
+    @Getter
+    private final RenderQueue renderQueue = new RenderQueue();
+
+    /**
+     * The queued job currently rendering, if the queue is running.
+     */
+    @Getter @Nullable
+    private RenderJob activeJob;
+
+    /**
+     * Set when the render queue finishes, so the UI can show how it went.
+     */
+    @Getter @Setter
+    private boolean wantOpenRenderQueue;
+
     @Getter
     private boolean pilotingCamera;
 
@@ -557,6 +588,13 @@ public final class EditorState {
             setSceneName("Scene");
         }
 
+        try {
+            renderQueue.read(getReplayHandlerOrThrow().getReplayFile());
+        } catch (Exception e) {
+            LOGGER.error("Error loading the render queue: ", e);
+            onException(e);
+        }
+
         Minecraft.getInstance().schedule(() -> {
             startPlaying(0);
         });
@@ -564,6 +602,8 @@ public final class EditorState {
 
 
     public void doTimeJump() {
+        TimeJumpEvent event = new TimeJumpEvent();
+        event.begin();
         // Clear the request no matter what. It used to be cleared only on success, so a throwing
         // jump left the flag set and ReplayLabUI.preRender retried it every single frame.
         try {
@@ -580,6 +620,13 @@ public final class EditorState {
             getReplayHandlerOrThrow().doJump(replayTime, true);
 
             Minecraft.getInstance().schedule(this::applyToGame);
+
+            if (event.shouldCommit()) {
+                event.sceneTime = getPlayhead();
+                event.replayTime = replayTime;
+                event.objectCount = scene.getObjects().size();
+                event.commit();
+            }
         } catch (Exception e) {
             // A failed jump must not propagate out of renderFrame and kill the client. Report it and
             // leave the editor usable -- the next jump may well succeed, and even if it doesn't, the
@@ -768,17 +815,24 @@ public final class EditorState {
     }
 
     public boolean applyOperator(ReplayOperator operator, boolean applyToGame) {
-        if (scene.applyOperator(this, operator)) {
-            saveSceneAsync();
-            if (applyToGame) {
-                applyToGame(operator.wantsSampleCurves());
-            }
-            if (operatorCallback != null) {
-                operatorCallback.accept(operator);
+        EditorProfiler.push("operator");
+        EditorProfiler.push(operator.getClass().getSimpleName());
+        try {
+            if (scene.applyOperator(this, operator)) {
+                saveSceneAsync();
+                if (applyToGame) {
+                    applyToGame(operator.wantsSampleCurves());
+                }
+                if (operatorCallback != null) {
+                    operatorCallback.accept(operator);
+                }
+                return true;
             }
-            return true;
+            return false;
+        } finally {
+            EditorProfiler.pop();
+            EditorProfiler.pop();
         }
-        return false;
     }
 
     public boolean undo() {
@@ -907,20 +961,171 @@ public final class EditorState {
      * Render the scene using the render settings provided by {@link ReplayScene#getRenderSettings()}
      */
     public void render() {
+        render(null);
+    }
+
+    /**
+     * Render the scene using the render settings provided by {@link ReplayScene#getRenderSettings()}
+     *
+     * @param resumeFrom Checkpoint of a stopped export to pick up from, if any.
+     *                   See {@link VideoRenderer#findResumable(ReplayScene)}.
+     */
+    public void render(@Nullable RenderCheckpoint resumeFrom) {
+        if (isRendering()) {
+            LOGGER.warn("Already rendering!");
+            return;
+        }
+        render(VideoRenderer.create(getScene(), resumeFrom));
+    }
+
+    /**
+     * Render a quick, low-quality draft of the scene next to its real export. See {@link DraftMode}.
+     */
+    public void renderDraft() {
+        if (isRendering()) {
+            LOGGER.warn("Already rendering!");
+            return;
+        }
+        render(VideoRenderer.createDraft(getScene(), getScene().getRenderSettings().getDraftMode()));
+    }
+
+    /**
+     * Write the scene camera's track next to the scene's export, without rendering anything. See
+     * {@link CameraTracks#export}.
+     */
+    public void exportCameraTrack() {
         if (isRendering()) {
             LOGGER.warn("Already rendering!");
             return;
         }
-        renderer = VideoRenderer.create(getScene());
+        ObjectRenderSettings settings = getScene().getRenderSettings();
+        CameraTrackFormat format = settings.getCameraTrackFormat();
+        Path file = format.sidecarPath(settings.getOutPath());
+
+        long startTime = Util.getMillis();
+        try {
+            Files.createDirectories(file.getParent());
+            int frames = CameraTracks.export(getScene(), file, format);
+            LOGGER.info("Wrote {} frames of camera track to {} in {} ms", frames, file, Util.getMillis() - startTime);
+        } catch (Exception e) {
+            LOGGER.error("Error exporting camera track", e);
+            onException(e);
+        } finally {
+            // The export leaves the scene evaluated at its last frame.
+            applyToGame();
+        }
+    }
+
+    /**
+     * Run every pending job in the {@link #getRenderQueue() render queue}, in the order that plays through the replay
+     * the least. The scene that was open is opened again afterwards.
+     */
+    public void runRenderQueue() {
+        if (isRendering()) {
+            LOGGER.warn("Already rendering!");
+            return;
+        }
+        ReplayFile file = getReplayHandlerOrThrow().getReplayFile();
+        String openScene = getSceneName();
+        if (openScene != null) {
+            // Jobs are loaded over the open scene, which would lose anything unsaved.
+            try {
+                saveScene();
+            } catch (Exception e) {
+                LOGGER.error("Error saving scene before running the render queue", e);
+                onException(e);
+                return;
+            }
+        }
+
+        // Reading a scene doesn't touch the world; its entities only appear once it's applied.
+        Map<RenderJob, ReplayScene> scenes = new HashMap<>();
+        for (RenderJob job : renderQueue.getPending()) {
+            try {
+                scenes.put(job, ReplayScenes.readScene(job.getSceneName(), file, null));
+            } catch (Exception e) {
+                LOGGER.error("Error loading scene {} for the render queue", job.getSceneName(), e);
+                job.markFailed(e, 0);
+            }
+        }
+        List<RenderJob> loaded = renderQueue.getPending().stream().filter(scenes::containsKey).toList();
+        Function<RenderJob, RenderQueue.ReplaySpan> span = job -> RenderQueue.ReplaySpan.of(scenes.get(job));
+        List<RenderJob> jobs = RenderQueue.order(loaded, span);
+        int restarts = RenderQueue.countRestarts(jobs, span);
+        if (restarts > 0) {
+            LOGGER.info("{} queued jobs overlap the one before them; the replay will start over for each", restarts);
+        }
+
+        renderQueue.setRunning(true);
+        boolean settled = false;
+        try {
+            for (RenderJob job : jobs) {
+                ReplayScene scene = scenes.get(job);
+                setScene(scene, job.getSceneName());
+                job.applySettings(scene.getRenderSettings());
+
+                activeJob = job;
+                long startTime = Util.getMillis();
+                try {
+                    VideoRenderer renderer = VideoRenderer.create(scene);
+                    renderer.setReplaySettled(settled);
+                    this.renderer = renderer;
+                    if (!renderer.render()) {
+                        // Stopped by the user; the job stays queued, and so does everything after it.
+                        break;
+                    }
+                    job.markDone(renderer.getTotalFrames(), Util.getMillis() - startTime);
+                    settled = true;
+                } catch (Exception e) {
+                    LOGGER.error("Error exporting {} from the render queue", job.getSceneName(), e);
+                    job.markFailed(e, Util.getMillis() - startTime);
+                    // No telling where it left the replay.
+                    settled = false;
+                } finally {
+                    this.renderer = null;
+                    activeJob = null;
+                    saveRenderQueueAsync();
+                }
+            }
+        } finally {
+            renderQueue.setRunning(false);
+            saveRenderQueueAsync();
+            if (openScene != null) {
+                loadScene(openScene);
+            }
+            LOGGER.info(renderQueue.summarize());
+            wantOpenRenderQueue = true;
+        }
+    }
+
+    /**
+     * Save the render queue to the replay file in the background.
+     */
+    public CompletableFuture<?> saveRenderQueueAsync() {
+        ReplayHandler handler = getReplayHandler();
+        if (handler == null) return CompletableFuture.completedFuture(null);
+
+        JsonObject json = renderQueue.toJson();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                RenderQueue.write(json, handler.getReplayFile());
+            } catch (Exception e) {
+                LOGGER.error("Error saving the render queue", e);
+                onException(e);
+            }
+        }, Util.ioPool());
+    }
+
+    private void render(VideoRenderer renderer) {
+        this.renderer = renderer;
         try {
             renderer.render();
         } catch (Exception e) {
             LOGGER.error("Error exporting video", e);
             onException(e);
         } finally {
-            renderer = null;
+            this.renderer = null;
         }
-
     }
 
     private class ScrubbingScenePlayer extends AbstractScenePlayer {
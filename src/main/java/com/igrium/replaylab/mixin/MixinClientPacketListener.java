@@ -0,0 +1,34 @@
+package com.igrium.replaylab.mixin;
+
+import com.igrium.replaylab.render.EntityResetLog;
+import com.replaymod.replay.ReplayHandler;
+import com.replaymod.replay.ReplayModReplay;
+import net.minecraft.client.multiplayer.ClientPacketListener;
+import net.minecraft.network.protocol.game.ClientboundAddEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundTeleportEntityPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ClientPacketListener.class)
+public class MixinClientPacketListener {
+
+    // Remember when entities start over, so exports know how far back they need to pre-roll
+    @Inject(method = "handleAddEntity", at = @At("TAIL"))
+    void onAddEntity(ClientboundAddEntityPacket packet, CallbackInfo ci) {
+        recordReset(packet.getId());
+    }
+
+    @Inject(method = "handleTeleportEntity", at = @At("TAIL"))
+    void onTeleportEntity(ClientboundTeleportEntityPacket packet, CallbackInfo ci) {
+        recordReset(packet.id());
+    }
+
+    private static void recordReset(int entityId) {
+        ReplayHandler replay = ReplayModReplay.instance.getReplayHandler();
+        if (replay != null) {
+            EntityResetLog.record(replay, entityId, replay.getReplaySender().currentTimeStamp());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.igrium.replaylab.mixin;
 
+import com.igrium.replaylab.render.capture.TileProjection;
 import com.igrium.replaylab.ui.gizmos.GizmoRenderer;
 import com.llamalad7.mixinextras.sugar.Local;
 import net.minecraft.client.renderer.LevelRenderer;
@@ -20,6 +21,9 @@ public class MixinLevelRenderer {
     void onRender(CallbackInfo ci,
                   @Local(argsOnly = true) Matrix4fc modelView,
                   @Local(argsOnly = true) CameraRenderState cameraState) {
+        // Tiled captures render one piece of the frame at a time. The state is extracted fresh every frame, so this
+        // never stacks up.
+        TileProjection.apply(cameraState.projectionMatrix);
         GizmoRenderer.setupCameraProjection(modelView, cameraState);
     }
 }
@@ -1,6 +1,8 @@
 package com.igrium.replaylab.object.types;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.igrium.craftui.file.FileDialogs;
@@ -8,14 +10,22 @@ import com.igrium.craftui.file.FileDialogs.FileFilter;
 import com.igrium.replaylab.editor.EditorState;
 import com.igrium.replaylab.object.ReplayObject;
 import com.igrium.replaylab.object.ReplayObjectType;
+import com.igrium.replaylab.render.DraftMode;
+import com.igrium.replaylab.render.PreRollPlanner;
 import com.igrium.replaylab.render.RenderUtils;
 import com.igrium.replaylab.render.capture.FrameCapture;
 import com.igrium.replaylab.render.capture.FrameCaptureType;
 import com.igrium.replaylab.render.encoder.EncoderConfig;
 import com.igrium.replaylab.render.encoder.EncoderType;
 import com.igrium.replaylab.render.encoder.EncoderTypes;
+import com.igrium.replaylab.render.frame.MotionBlur;
+import com.igrium.replaylab.render.frame.ShutterCurve;
+import com.igrium.replaylab.render.post.FrameProcessor;
+import com.igrium.replaylab.render.post.FrameProcessorType;
+import com.igrium.replaylab.render.track.CameraTrackFormat;
 import com.igrium.replaylab.scene.ReplayScene;
 import imgui.ImGui;
+import imgui.flag.ImGuiDir;
 import imgui.type.ImString;
 import lombok.Getter;
 import lombok.NonNull;
@@ -27,10 +37,22 @@ import org.apache.commons.io.FilenameUtils;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 public class ObjectRenderSettings extends ReplayObject {
 
+    /**
+     * Keys in the serialized settings that don't affect what the exported frames look like.
+     */
+    public static final Set<String> NON_VISUAL_KEYS = Set.of("outPath", "incremental", "incrementalMargin",
+            "draftStride", "draftScale", "cameraTrack", "cameraTrackFormat");
+
+    public static final int MAX_INCREMENTAL_MARGIN = 120;
+
     @Getter
     @Setter
     @NonNull
@@ -46,6 +68,114 @@ public class ObjectRenderSettings extends ReplayObject {
     @NonNull
     private EncoderConfig encoder = EncoderTypes.PNG.create();
 
+    /**
+     * If set, image sequence exports only render the frames whose scene state changed since the last export to the
+     * same directory, and keep the rest.
+     */
+    @Getter
+    @Setter
+    private boolean incremental;
+
+    /**
+     * How many frames on either side of a changed frame are rendered again as well, in an incremental export.
+     */
+    @Getter
+    private int incrementalMargin = 10;
+
+    public void setIncrementalMargin(int incrementalMargin) {
+        this.incrementalMargin = Math.clamp(incrementalMargin, 0, MAX_INCREMENTAL_MARGIN);
+    }
+
+    /**
+     * How many sub-frames to blend into each frame for motion blur. <code>1</code> disables it.
+     */
+    @Getter
+    private int motionBlurSamples = 1;
+
+    public void setMotionBlurSamples(int motionBlurSamples) {
+        this.motionBlurSamples = Math.clamp(motionBlurSamples, 1, MotionBlur.MAX_SAMPLES);
+    }
+
+    /**
+     * How long the shutter stays open for motion blur, in degrees of a frame. 180&deg; is the usual film look.
+     */
+    @Getter
+    private float shutterAngle = 180;
+
+    public void setShutterAngle(float shutterAngle) {
+        this.shutterAngle = Math.clamp(shutterAngle, 1, 360);
+    }
+
+    @Getter
+    @Setter
+    @NonNull
+    private ShutterCurve shutterCurve = ShutterCurve.BOX;
+
+    public MotionBlur getMotionBlur() {
+        return new MotionBlur(motionBlurSamples, shutterAngle, shutterCurve);
+    }
+
+    /**
+     * How much of the replay to play through before the first frame so entities have settled, in milliseconds. Less
+     * is only used if {@link #shortPreRoll} is set.
+     */
+    @Getter
+    private int preRoll = PreRollPlanner.DEFAULT_PRE_ROLL_MS;
+
+    public void setPreRoll(int preRoll) {
+        this.preRoll = Math.clamp(preRoll, PreRollPlanner.MIN_PRE_ROLL_MS, PreRollPlanner.MAX_PRE_ROLL_MS);
+    }
+
+    /**
+     * If set, pre-rolls are shortened where they're likely to be enough, rather than always the full {@link #preRoll};
+     * see {@link PreRollPlanner}.
+     */
+    @Getter
+    @Setter
+    private boolean shortPreRoll;
+
+    /**
+     * Render one frame out of this many in a draft export.
+     */
+    @Getter
+    private int draftStride = 4;
+
+    public void setDraftStride(int draftStride) {
+        this.draftStride = Math.clamp(draftStride, 1, DraftMode.MAX_STRIDE);
+    }
+
+    /**
+     * How many times smaller than the real export a draft is, on each axis.
+     */
+    @Getter
+    private int draftScale = 2;
+
+    public void setDraftScale(int draftScale) {
+        this.draftScale = Math.clamp(draftScale, 1, DraftMode.MAX_SCALE);
+    }
+
+    public DraftMode getDraftMode() {
+        return new DraftMode(draftStride, draftScale);
+    }
+
+    /**
+     * If set, exports write the scene camera's track next to the video as they go.
+     */
+    @Getter
+    @Setter
+    private boolean cameraTrack;
+
+    @Getter
+    @Setter
+    @NonNull
+    private CameraTrackFormat cameraTrackFormat = CameraTrackFormat.CSV;
+
+    /**
+     * Post-processing applied to every frame before it's encoded, in order.
+     */
+    @Getter
+    private final List<FrameProcessor> postProcessors = new ArrayList<>();
+
     public ObjectRenderSettings(ReplayObjectType<?> type, ReplayScene scene) {
         super(type, scene);
     }
@@ -55,6 +185,23 @@ public class ObjectRenderSettings extends ReplayObject {
         json.addProperty("outPath", outPath.toString());
         json.add("capture", FrameCaptureType.write(frameCapture, context));
         json.add("encoder", EncoderType.write(encoder, context));
+        json.addProperty("incremental", incremental);
+        json.addProperty("incrementalMargin", incrementalMargin);
+        json.addProperty("motionBlurSamples", motionBlurSamples);
+        json.addProperty("shutterAngle", shutterAngle);
+        json.addProperty("shutterCurve", shutterCurve.name());
+        json.addProperty("preRoll", preRoll);
+        json.addProperty("shortPreRoll", shortPreRoll);
+        json.addProperty("draftStride", draftStride);
+        json.addProperty("draftScale", draftScale);
+        json.addProperty("cameraTrack", cameraTrack);
+        json.addProperty("cameraTrackFormat", cameraTrackFormat.name());
+
+        JsonArray post = new JsonArray();
+        for (var processor : postProcessors) {
+            post.add(FrameProcessorType.write(processor, context));
+        }
+        json.add("postProcessing", post);
     }
 
     @Override
@@ -68,6 +215,45 @@ public class ObjectRenderSettings extends ReplayObject {
         if (json.has("encoder")) {
             setEncoder(EncoderType.parse(json.getAsJsonObject("encoder"), context));
         }
+        if (json.has("incremental")) {
+            setIncremental(json.get("incremental").getAsBoolean());
+        }
+        if (json.has("incrementalMargin")) {
+            setIncrementalMargin(json.get("incrementalMargin").getAsInt());
+        }
+        if (json.has("motionBlurSamples")) {
+            setMotionBlurSamples(json.get("motionBlurSamples").getAsInt());
+        }
+        if (json.has("shutterAngle")) {
+            setShutterAngle(json.get("shutterAngle").getAsFloat());
+        }
+        if (json.has("shutterCurve")) {
+            setShutterCurve(ShutterCurve.valueOf(json.get("shutterCurve").getAsString()));
+        }
+        if (json.has("preRoll")) {
+            setPreRoll(json.get("preRoll").getAsInt());
+        }
+        if (json.has("shortPreRoll")) {
+            setShortPreRoll(json.get("shortPreRoll").getAsBoolean());
+        }
+        if (json.has("draftStride")) {
+            setDraftStride(json.get("draftStride").getAsInt());
+        }
+        if (json.has("draftScale")) {
+            setDraftScale(json.get("draftScale").getAsInt());
+        }
+        if (json.has("cameraTrack")) {
+            setCameraTrack(json.get("cameraTrack").getAsBoolean());
+        }
+        if (json.has("cameraTrackFormat")) {
+            setCameraTrackFormat(CameraTrackFormat.valueOf(json.get("cameraTrackFormat").getAsString()));
+        }
+        if (json.has("postProcessing")) {
+            postProcessors.clear();
+            for (JsonElement element : json.getAsJsonArray("postProcessing")) {
+                postProcessors.add(FrameProcessorType.parse(element.getAsJsonObject(), context));
+            }
+        }
     }
 
     @Override
@@ -140,9 +326,167 @@ public class ObjectRenderSettings extends ReplayObject {
         ImGui.separator();
         getEncoder().drawProperties(editor);
 
+        ImGui.separator();
+        Identifier selCaptureId = frameCapture.getType().getId();
+        if (ImGui.beginCombo(t("gui.replaylab.capture"), t(selCaptureId.toLanguageKey("capture")))) {
+            for (var entry : FrameCaptureType.REGISTRY.entrySet()) {
+                Identifier id = entry.getKey();
+                boolean selected = id.equals(selCaptureId);
+
+                if (ImGui.selectable(t(id.toLanguageKey("capture")), selected) && !selected) {
+                    setFrameCapture(entry.getValue().create());
+                }
+                if (selected) {
+                    ImGui.setItemDefaultFocus();
+                }
+            }
+            ImGui.endCombo();
+        }
+        getFrameCapture().drawProperties(editor);
+
+        ImGui.separator();
+        int[] samplesIn = {motionBlurSamples};
+        if (ImGui.sliderInt(t("gui.replaylab.motion_blur.samples"), samplesIn, 1, MotionBlur.MAX_SAMPLES)) {
+            setMotionBlurSamples(samplesIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.motion_blur.samples.tooltip"));
+
+        ImGui.beginDisabled(motionBlurSamples <= 1);
+        float[] angleIn = {shutterAngle};
+        if (ImGui.sliderFloat(t("gui.replaylab.motion_blur.shutter_angle"), angleIn, 1, 360, "%.0f")) {
+            setShutterAngle(angleIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.motion_blur.shutter_angle.tooltip"));
+
+        if (ImGui.beginCombo(t("gui.replaylab.motion_blur.shutter_curve"), t(shutterCurve.langKey()))) {
+            for (var curve : ShutterCurve.values()) {
+                boolean selected = curve == shutterCurve;
+                if (ImGui.selectable(t(curve.langKey()), selected)) {
+                    setShutterCurve(curve);
+                }
+                if (selected) {
+                    ImGui.setItemDefaultFocus();
+                }
+            }
+            ImGui.endCombo();
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.motion_blur.shutter_curve.tooltip"));
+        ImGui.endDisabled();
+
+        ImGui.separator();
+        int[] preRollIn = {preRoll};
+        if (ImGui.sliderInt(t("gui.replaylab.pre_roll"), preRollIn, PreRollPlanner.MIN_PRE_ROLL_MS,
+                PreRollPlanner.MAX_PRE_ROLL_MS, "%d ms")) {
+            setPreRoll(preRollIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.pre_roll.tooltip"));
+        if (ImGui.checkbox(t("gui.replaylab.pre_roll.shorten"), shortPreRoll)) {
+            setShortPreRoll(!shortPreRoll);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.pre_roll.shorten.tooltip"));
+
+        ImGui.separator();
+        if (ImGui.checkbox(t("gui.replaylab.camera_track"), cameraTrack)) {
+            setCameraTrack(!cameraTrack);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.camera_track.tooltip"));
+
+        if (ImGui.beginCombo(t("gui.replaylab.camera_track.format"), t(cameraTrackFormat.langKey()))) {
+            for (var format : CameraTrackFormat.values()) {
+                boolean selected = format == cameraTrackFormat;
+                if (ImGui.selectable(t(format.langKey()), selected)) {
+                    setCameraTrackFormat(format);
+                }
+                if (selected) {
+                    ImGui.setItemDefaultFocus();
+                }
+            }
+            ImGui.endCombo();
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.camera_track.format.tooltip"));
+
+        ImGui.separator();
+        drawPostProcessors(editor);
+
+        if (getEncoder().supportsFrameReuse()) {
+            ImGui.separator();
+            if (ImGui.checkbox(t("gui.replaylab.incremental"), incremental)) {
+                setIncremental(!incremental);
+            }
+            ImGui.setItemTooltip(tt("gui.replaylab.incremental.tooltip"));
+
+            ImGui.beginDisabled(!incremental);
+            int[] marginIn = {incrementalMargin};
+            if (ImGui.sliderInt(t("gui.replaylab.incremental.margin"), marginIn, 0, MAX_INCREMENTAL_MARGIN)) {
+                setIncrementalMargin(marginIn[0]);
+            }
+            ImGui.setItemTooltip(tt("gui.replaylab.incremental.margin.tooltip"));
+            ImGui.endDisabled();
+        }
+
         return 0;
     }
 
+    private void drawPostProcessors(EditorState editor) {
+        ImGui.text(tt("gui.replaylab.post"));
+
+        // The list can't change while it's being drawn, so edits wait until the end.
+        int moveUp = -1;
+        int moveDown = -1;
+        int remove = -1;
+        for (int i = 0; i < postProcessors.size(); i++) {
+            FrameProcessor processor = postProcessors.get(i);
+            ImGui.pushID(i);
+
+            if (ImGui.checkbox("##enabled", processor.isEnabled())) {
+                processor.setEnabled(!processor.isEnabled());
+            }
+            ImGui.setItemTooltip(tt("gui.replaylab.post.enabled.tooltip"));
+            ImGui.sameLine();
+            boolean open = ImGui.treeNode(t(processor.getType().getId().toLanguageKey("postprocessor")));
+
+            ImGui.sameLine();
+            ImGui.beginDisabled(i == 0);
+            if (ImGui.arrowButton("##up", ImGuiDir.Up)) {
+                moveUp = i;
+            }
+            ImGui.endDisabled();
+            ImGui.sameLine();
+            ImGui.beginDisabled(i == postProcessors.size() - 1);
+            if (ImGui.arrowButton("##down", ImGuiDir.Down)) {
+                moveDown = i;
+            }
+            ImGui.endDisabled();
+            ImGui.sameLine();
+            if (ImGui.smallButton(t("gui.replaylab.post.remove"))) {
+                remove = i;
+            }
+
+            if (open) {
+                processor.drawProperties(editor);
+                ImGui.treePop();
+            }
+            ImGui.popID();
+        }
+
+        if (moveUp > 0) {
+            Collections.swap(postProcessors, moveUp, moveUp - 1);
+        } else if (moveDown >= 0) {
+            Collections.swap(postProcessors, moveDown, moveDown + 1);
+        } else if (remove >= 0) {
+            postProcessors.remove(remove);
+        }
+
+        if (ImGui.beginCombo(t("gui.replaylab.post.add"), tt("gui.replaylab.post.add.preview"))) {
+            for (var entry : FrameProcessorType.REGISTRY.entrySet()) {
+                if (ImGui.selectable(t(entry.getKey().toLanguageKey("postprocessor")))) {
+                    postProcessors.add(entry.getValue().create());
+                }
+            }
+            ImGui.endCombo();
+        }
+    }
+
     private static String t(String key) {
         return Language.getInstance().getOrDefault(key) + "###" + key;
     }
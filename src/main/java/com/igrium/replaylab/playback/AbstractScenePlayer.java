@@ -91,6 +91,14 @@ public abstract class AbstractScenePlayer extends EventRegistrations {
         }
     }
 
+    /**
+     * Treat the next update as the first one, so it doesn't try to tick the game through a jump in replay time that
+     * the caller has already played through itself.
+     */
+    public void resetPlaybackTime() {
+        prevReplayTime = 0;
+    }
+
     /**
      * <code>true</code> if the player has started playing and hasn't reached the end.
      */
@@ -0,0 +1,71 @@
+package com.igrium.replaylab.render;
+
+import org.apache.commons.io.FilenameUtils;
+
+import java.nio.file.Path;
+
+/**
+ * Settings for a quick, low-quality export for checking timing. Only every <code>stride</code>th frame is rendered,
+ * at a fraction of the resolution, and the encoder repeats each one to fill the gaps, so the file still plays at the
+ * scene's frame rate and length.
+ * <p>
+ * Drafts go to a file of their own next to the real export, so they never touch its output, checkpoint or frame
+ * hashes.
+ *
+ * @param stride Render one frame out of this many.
+ * @param scale  How many times smaller than the real export the draft is, on each axis.
+ */
+public record DraftMode(int stride, int scale) {
+
+    public static final int MAX_STRIDE = 8;
+    public static final int MAX_SCALE = 4;
+
+    /**
+     * Added to the export's file name to get the draft's.
+     */
+    public static final String SUFFIX = "_draft";
+
+    public DraftMode {
+        if (stride < 1 || stride > MAX_STRIDE) {
+            throw new IllegalArgumentException("Stride must be between 1 and " + MAX_STRIDE);
+        }
+        if (scale < 1 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("Scale must be between 1 and " + MAX_SCALE);
+        }
+    }
+
+    /**
+     * Whether a frame is one that gets rendered.
+     */
+    public boolean isRendered(int frameIdx) {
+        return frameIdx % stride == 0;
+    }
+
+    /**
+     * Get the metadata of the draft of an export.
+     */
+    public RenderMetadata apply(RenderMetadata metadata) {
+        return RenderMetadata.builder()
+                .outPath(outputPath(metadata.outPath()))
+                .width(scaleDimension(metadata.width()))
+                .height(scaleDimension(metadata.height()))
+                .totalFrames(metadata.totalFrames())
+                .fps(metadata.fps())
+                .build();
+    }
+
+    /**
+     * Get where the draft of an export goes. The extension (if any) is kept, so it's written in the same format.
+     */
+    public static Path outputPath(Path outPath) {
+        String name = outPath.getFileName().toString();
+        String ext = FilenameUtils.getExtension(name);
+        String draftName = FilenameUtils.removeExtension(name) + SUFFIX;
+        return outPath.resolveSibling(ext.isEmpty() ? draftName : draftName + "." + ext);
+    }
+
+    private int scaleDimension(int size) {
+        // Rounded down to an even size, which 4:2:0 video needs.
+        return Math.max(2, size / scale & ~1);
+    }
+}
@@ -0,0 +1,55 @@
+package com.igrium.replaylab.render;
+
+import com.replaymod.replay.ReplayHandler;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntAVLTreeSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.OptionalInt;
+
+/**
+ * Remembers when, in replay time, each entity was spawned or teleported, for the {@link PreRollPlanner}. Filled in as
+ * the replay plays (or jumps) past those packets, so it only knows about parts of the replay that have been seen this
+ * session; a replay plays out the same way every time, so what it has learned stays true after jumping back.
+ * <p>
+ * Only touched from the render thread.
+ */
+public final class EntityResetLog {
+
+    private static @Nullable ReplayHandler replay;
+    private static final Int2ObjectMap<IntSortedSet> resets = new Int2ObjectOpenHashMap<>();
+
+    private EntityResetLog() {
+    }
+
+    /**
+     * Record that an entity was spawned or teleported. Forgets everything it knew if this is a different replay from
+     * last time.
+     */
+    public static void record(ReplayHandler replay, int entityId, int replayTime) {
+        if (replay != EntityResetLog.replay) {
+            resets.clear();
+            EntityResetLog.replay = replay;
+        }
+        resets.computeIfAbsent(entityId, id -> new IntAVLTreeSet()).add(replayTime);
+    }
+
+    /**
+     * Find the last time an entity was spawned or teleported in a replay, as far as we know.
+     *
+     * @param replay   The replay.
+     * @param entityId The entity.
+     * @param before   Replay time to look up to, inclusive.
+     * @return The replay time, or nothing if we haven't seen it happen.
+     */
+    public static OptionalInt lastReset(ReplayHandler replay, int entityId, int before) {
+        if (replay != EntityResetLog.replay) return OptionalInt.empty();
+        IntSortedSet times = resets.get(entityId);
+        if (times == null) return OptionalInt.empty();
+
+        IntSortedSet earlier = times.headSet(before + 1);
+        return earlier.isEmpty() ? OptionalInt.empty() : OptionalInt.of(earlier.lastInt());
+    }
+}
@@ -0,0 +1,154 @@
+package com.igrium.replaylab.render;
+
+import com.igrium.replaylab.render.frame.DownscaleFilter;
+import com.igrium.replaylab.render.frame.Downscaler;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.mojang.blaze3d.GpuFormat;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A small copy of the frames being exported, for the progress window.
+ * <p>
+ * Every so often a finished frame is held on to for a moment and scaled down on a worker thread, off the path to the
+ * encoder. The render thread only uploads the result, which is a few hundred kilobytes at most, and only when the
+ * progress window is next drawn.
+ */
+public class ExportPreview implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/ExportPreview");
+
+    /**
+     * The widest the preview gets. The progress window never shows it much bigger than this.
+     */
+    public static final int MAX_WIDTH = 640;
+
+    /**
+     * How long to wait between previews.
+     */
+    public static final long INTERVAL_MS = 250;
+
+    @Getter
+    private final int width;
+
+    @Getter
+    private final int height;
+
+    private final Downscaler downscaler;
+    private final ByteBuffer pixels;
+    private final ExecutorService executor;
+
+    /**
+     * Held by whoever's using {@link #pixels}: the worker while it's scaling a frame into them, or the render thread
+     * while it's uploading them.
+     */
+    private final AtomicBoolean busy = new AtomicBoolean();
+
+    /**
+     * Whether {@link #pixels} has a preview the texture doesn't have yet.
+     */
+    private volatile boolean fresh;
+
+    private volatile long lastOffer;
+
+    private @Nullable SimpleTexture texture;
+
+    /**
+     * Create a preview for an export.
+     *
+     * @param srcWidth  Width of the exported frames.
+     * @param srcHeight Height of the exported frames.
+     */
+    public ExportPreview(int srcWidth, int srcHeight) {
+        // Whatever doesn't divide evenly is cropped off the right and bottom edges; nobody will notice in a preview.
+        int factor = Math.clamp(Math.ceilDiv(srcWidth, MAX_WIDTH), 1, srcHeight);
+        this.width = srcWidth / factor;
+        this.height = srcHeight / factor;
+        this.downscaler = new Downscaler(DownscaleFilter.BOX, factor, width, height, srcWidth, srcHeight, 1);
+        this.pixels = ByteBuffer.allocateDirect(width * height * 4);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ReplayLab export preview");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Due straight away.
+        this.lastOffer = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(INTERVAL_MS);
+    }
+
+    /**
+     * Offer a finished frame, before it's handed to the encoder. If a preview is due and the last one is done, the
+     * frame is retained and scaled down on the worker; otherwise this does nothing.
+     *
+     * @param frame The frame. Still belongs to the caller.
+     */
+    public void offer(FrameBuffer frame) {
+        long now = System.nanoTime();
+        if (now - lastOffer < TimeUnit.MILLISECONDS.toNanos(INTERVAL_MS)) return;
+        if (!busy.compareAndSet(false, true)) return;
+        lastOffer = now;
+
+        frame.retain();
+        try {
+            executor.execute(() -> {
+                try {
+                    downscaler.downscale(frame.pixels(), pixels, false);
+                    fresh = true;
+                } catch (Throwable e) {
+                    // Only the preview suffers; the frame is on its way to the encoder regardless.
+                    LOGGER.warn("Unable to update export preview", e);
+                } finally {
+                    frame.close();
+                    busy.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            frame.close();
+            busy.set(false);
+        }
+    }
+
+    /**
+     * Get the preview texture, uploading the latest preview first if there's a new one. Render thread only.
+     *
+     * @return The texture, or <code>null</code> if no frame has been previewed yet.
+     */
+    public @Nullable SimpleTexture getTexture() {
+        if (fresh && busy.compareAndSet(false, true)) {
+            try {
+                if (texture == null) {
+                    texture = new SimpleTexture(width, height, GpuFormat.RGBA8_UNORM);
+                }
+                texture.upload(pixels);
+                fresh = false;
+            } finally {
+                busy.set(false);
+            }
+        }
+        return texture;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                LOGGER.warn("Export preview didn't stop in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        downscaler.close();
+        if (texture != null) {
+            texture.close();
+            texture = null;
+        }
+    }
+}
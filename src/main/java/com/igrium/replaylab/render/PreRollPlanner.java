@@ -0,0 +1,130 @@
+package com.igrium.replaylab.render;
+
+import it.unimi.dsi.fastutil.ints.IntCollection;
+
+import java.util.OptionalInt;
+
+/**
+ * Works out how much of the replay to play through before the first frame of an export (or after skipping ahead), so
+ * the world has settled by the time it's captured.
+ * <p>
+ * Jumping in the replay puts every entity where it should be, but what's still catching up has to be ticked through:
+ * movement and head rotation are interpolated over a few ticks, and walk cycles blend in over several more. By
+ * default, every pre-roll is the whole configured length, since nothing is known about most of the world.
+ * <p>
+ * Shortening is opt-in. With it, the rest of the world only gets {@link #WORLD_PRE_ROLL_MS}, and entities the scene
+ * follows (its entity proxies) get the whole configured pre-roll unless they were spawned or teleported part way
+ * through it: their state starts over at that point, so there's nothing to gain from playing through what came before.
+ * <p>
+ * If the replay has already been played up to somewhere within the pre-roll, it just plays on from there.
+ */
+public class PreRollPlanner {
+
+    /**
+     * The length of a game tick in replay time.
+     */
+    public static final int TICK_MS = 50;
+
+    /**
+     * The shortest pre-roll after a jump: enough for entities to finish interpolating to where they were sent.
+     */
+    public static final int MIN_PRE_ROLL_MS = 5 * TICK_MS;
+
+    /**
+     * Pre-roll for the world outside followed entities when shortening is on: usually enough for walk cycles to catch
+     * up, but not for anything slower.
+     */
+    public static final int WORLD_PRE_ROLL_MS = 10 * TICK_MS;
+
+    public static final int DEFAULT_PRE_ROLL_MS = 1000;
+
+    public static final int MAX_PRE_ROLL_MS = 5000;
+
+    /**
+     * Looks up when an entity's state was last started over.
+     */
+    @FunctionalInterface
+    public interface ResetTimes {
+        /**
+         * Find the last time an entity was spawned or teleported.
+         *
+         * @param entityId The entity.
+         * @param before   Replay time to look up to, inclusive.
+         * @return The replay time, or nothing if it isn't known.
+         */
+        OptionalInt lastReset(int entityId, int before);
+    }
+
+    /**
+     * A planned pre-roll.
+     *
+     * @param start  Replay time to start ticking from.
+     * @param end    Replay time of the frame.
+     * @param playOn Whether the replay is already at <code>start</code>, so there's no need to jump there.
+     */
+    public record Plan(int start, int end, boolean playOn) {
+
+        /**
+         * How many ticks the pre-roll takes.
+         */
+        public int ticks() {
+            return Math.ceilDiv(end - start, TICK_MS);
+        }
+    }
+
+    private final int maxPreRoll;
+    private final boolean shorten;
+    private final IntCollection followedEntities;
+    private final ResetTimes resetTimes;
+
+    /**
+     * Create a planner.
+     *
+     * @param maxPreRoll       The longest pre-roll to use, in milliseconds. Used whenever it isn't known to be safe
+     *                         to use less.
+     * @param shorten          Whether to use less where it's likely to be enough. If not, every pre-roll is
+     *                         <code>maxPreRoll</code>.
+     * @param followedEntities Every entity the scene proxies.
+     * @param resetTimes       When those entities were last spawned or teleported.
+     */
+    public PreRollPlanner(int maxPreRoll, boolean shorten, IntCollection followedEntities, ResetTimes resetTimes) {
+        this.maxPreRoll = Math.clamp(maxPreRoll, MIN_PRE_ROLL_MS, MAX_PRE_ROLL_MS);
+        this.shorten = shorten;
+        this.followedEntities = followedEntities;
+        this.resetTimes = resetTimes;
+    }
+
+    /**
+     * How much of the replay before a frame has to be played through.
+     *
+     * @param frameTime Replay time of the frame.
+     * @return The pre-roll length in milliseconds.
+     */
+    public int getWindow(int frameTime) {
+        if (!shorten) return maxPreRoll;
+        int window = Math.min(WORLD_PRE_ROLL_MS, maxPreRoll);
+        for (int entityId : followedEntities) {
+            OptionalInt reset = resetTimes.lastReset(entityId, frameTime);
+            int needed = reset.isPresent() ? frameTime - reset.getAsInt() : maxPreRoll;
+            window = Math.max(window, Math.min(needed, maxPreRoll));
+        }
+        return window;
+    }
+
+    /**
+     * Plan the pre-roll before a frame.
+     *
+     * @param frameTime   Replay time of the frame.
+     * @param currentTime Where the replay is now.
+     * @param canPlayOn   Whether the replay has been played through up to where it is now, rather than jumped there,
+     *                    so playing on from it is as good as a pre-roll.
+     * @return The plan.
+     */
+    public Plan plan(int frameTime, int currentTime, boolean canPlayOn) {
+        int start = Math.max(frameTime - getWindow(frameTime), 0);
+        if (canPlayOn && currentTime >= start && currentTime <= frameTime) {
+            return new Plan(currentTime, frameTime, true);
+        }
+        return new Plan(start, frameTime, false);
+    }
+}
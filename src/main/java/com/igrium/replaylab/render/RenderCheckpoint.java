@@ -0,0 +1,138 @@
+package com.igrium.replaylab.render;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A small manifest kept next to an export while it runs, recording how far it got. If the export is cancelled or the
+ * game goes down, it can be resumed from here instead of starting over.
+ *
+ * @param sceneHash     {@link com.igrium.replaylab.scene.ReplayScenes#hashScene Hash} of the scene being exported.
+ *                      Resuming after the scene changed would splice two different videos together.
+ * @param metadata      The export's metadata.
+ * @param durableFrames How many frames, counting from <code>0</code>, are safely on disk.
+ * @param encoderState  Whatever the encoder needs to resume, if anything.
+ */
+public record RenderCheckpoint(String sceneHash, RenderMetadata metadata, int durableFrames,
+                               @Nullable JsonObject encoderState) {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/RenderCheckpoint");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private static final int VERSION = 1;
+
+    /**
+     * Get the file the checkpoint for an export is kept in.
+     *
+     * @param outPath The export's output path.
+     */
+    public static Path getPath(Path outPath) {
+        return outPath.resolveSibling(outPath.getFileName() + ".checkpoint.json");
+    }
+
+    /**
+     * Check whether an export with the given scene and metadata can pick up from this checkpoint.
+     */
+    public boolean canResume(String sceneHash, RenderMetadata metadata) {
+        return durableFrames > 0 && this.sceneHash.equals(sceneHash) && this.metadata.equals(metadata);
+    }
+
+    public JsonObject toJson() {
+        JsonObject meta = new JsonObject();
+        meta.addProperty("outPath", metadata.outPath().toString());
+        meta.addProperty("width", metadata.width());
+        meta.addProperty("height", metadata.height());
+        meta.addProperty("totalFrames", metadata.totalFrames());
+        meta.addProperty("fps", metadata.fps());
+
+        JsonObject json = new JsonObject();
+        json.addProperty("version", VERSION);
+        json.addProperty("sceneHash", sceneHash);
+        json.add("metadata", meta);
+        json.addProperty("durableFrames", durableFrames);
+        if (encoderState != null) {
+            json.add("encoderState", encoderState);
+        }
+        return json;
+    }
+
+    /**
+     * Read a checkpoint from JSON.
+     *
+     * @throws JsonParseException If it's malformed or from a version we don't understand.
+     */
+    public static RenderCheckpoint fromJson(JsonObject json) throws JsonParseException {
+        try {
+            int version = json.get("version").getAsInt();
+            if (version != VERSION) {
+                throw new JsonParseException("Unsupported checkpoint version: " + version);
+            }
+
+            JsonObject meta = json.getAsJsonObject("metadata");
+            RenderMetadata metadata = RenderMetadata.builder()
+                    .outPath(Paths.get(meta.get("outPath").getAsString()))
+                    .width(meta.get("width").getAsInt())
+                    .height(meta.get("height").getAsInt())
+                    .totalFrames(meta.get("totalFrames").getAsInt())
+                    .fps(meta.get("fps").getAsFloat())
+                    .build();
+
+            return new RenderCheckpoint(json.get("sceneHash").getAsString(), metadata,
+                    json.get("durableFrames").getAsInt(),
+                    json.has("encoderState") ? json.getAsJsonObject("encoderState") : null);
+        } catch (NullPointerException | ClassCastException | IllegalStateException e) {
+            throw new JsonParseException("Malformed checkpoint", e);
+        }
+    }
+
+    /**
+     * Write this checkpoint to the given file. The old one is replaced in one go, so a crash mid-write can't leave a
+     * half-written checkpoint behind.
+     */
+    public void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, GSON.toJson(toJson()));
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read the checkpoint from a file, if there is a usable one.
+     *
+     * @return The checkpoint, or <code>null</code> if there isn't one or it can't be read.
+     */
+    public static @Nullable RenderCheckpoint read(Path file) {
+        String json;
+        try {
+            json = Files.readString(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read render checkpoint {}", file, e);
+            return null;
+        }
+
+        try {
+            return fromJson(GSON.fromJson(json, JsonObject.class));
+        } catch (JsonParseException e) {
+            LOGGER.warn("Ignoring malformed render checkpoint {}", file, e);
+            return null;
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.igrium.replaylab.render;
 
 import com.mojang.blaze3d.GpuFormat;
+import com.mojang.blaze3d.platform.NativeImage;
 import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.textures.GpuTexture;
 import com.mojang.blaze3d.textures.GpuTextureView;
 import lombok.Getter;
 
 import java.io.Closeable;
+import java.nio.ByteBuffer;
 
 /**
  * A simple off-screen texture we can render into and read back from.
@@ -57,6 +59,23 @@ public class SimpleTexture implements Closeable {
         this.textureView = RenderSystem.getDevice().createTextureView(texture);
     }
 
+    /**
+     * Replace the texture's contents. Render thread only.
+     *
+     * @param pixels RGBA8 pixels, top row first, read from position 0.
+     */
+    public void upload(ByteBuffer pixels) {
+        RenderSystem.assertOnRenderThread();
+        if (closed) {
+            throw new IllegalStateException("Texture is closed");
+        }
+        if (pixels.capacity() < (long) width * height * 4) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d texture".formatted(width, height));
+        }
+        RenderSystem.getDevice().createCommandEncoder().writeToTexture(texture, pixels.duplicate().clear(),
+                NativeImage.Format.RGBA, 0, 0, 0, 0, width, height);
+    }
+
     @Override
     public void close() {
         if (closed) return;
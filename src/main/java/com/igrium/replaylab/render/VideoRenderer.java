@@ -1,23 +1,46 @@
 package com.igrium.replaylab.render;
 
 import com.igrium.craftui.app.AppManager;
+import com.igrium.replaylab.anim.KeyChannel;
+import com.igrium.replaylab.config.ReplayLabConfig;
+import com.igrium.replaylab.debug.jfr.EncoderQueueWaitEvent;
+import com.igrium.replaylab.debug.jfr.FrameCaptureEvent;
 import com.igrium.replaylab.editor.EditorState;
+import com.igrium.replaylab.object.ReplayObject;
+import com.igrium.replaylab.object.types.ObjectEntityProxy;
 import com.igrium.replaylab.object.types.ObjectRenderSettings;
 import com.igrium.replaylab.object.types.ObjectSceneProps;
 import com.igrium.replaylab.playback.AbstractScenePlayer;
 import com.igrium.replaylab.render.capture.FrameCapture;
+import com.igrium.replaylab.render.capture.TileGrid;
 import com.igrium.replaylab.render.encoder.EncoderConfig;
+import com.igrium.replaylab.render.encoder.EncoderException;
 import com.igrium.replaylab.render.encoder.EncoderProcess;
+import com.igrium.replaylab.render.encoder.StrideEncoderProcess;
+import com.igrium.replaylab.render.frame.Downscaler;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.FramePool;
+import com.igrium.replaylab.render.frame.MotionBlur;
+import com.igrium.replaylab.render.frame.MotionBlurStage;
+import com.igrium.replaylab.render.frame.PixelTransfer;
+import com.igrium.replaylab.render.frame.SubframeAccumulator;
+import com.igrium.replaylab.render.incremental.FrameHashes;
+import com.igrium.replaylab.render.incremental.FrameStateHasher;
+import com.igrium.replaylab.render.incremental.IncrementalPlan;
+import com.igrium.replaylab.render.post.FramePipeline;
+import com.igrium.replaylab.render.post.FrameProcessor;
+import com.igrium.replaylab.render.post.FrameStage;
+import com.igrium.replaylab.render.readback.GpuReadbackSlot;
+import com.igrium.replaylab.render.readback.ReadbackRing;
+import com.igrium.replaylab.render.track.CameraSample;
+import com.igrium.replaylab.render.track.CameraTrackFormat;
+import com.igrium.replaylab.render.track.CameraTrackWriter;
+import com.igrium.replaylab.render.track.CameraTracks;
 import com.igrium.replaylab.scene.ReplayScene;
-import com.mojang.blaze3d.buffers.GpuBuffer;
-import com.mojang.blaze3d.buffers.GpuBufferSlice;
-import com.mojang.blaze3d.buffers.GpuFence;
-import com.mojang.blaze3d.systems.CommandEncoder;
+import com.igrium.replaylab.scene.ReplayScenes;
 import com.mojang.blaze3d.pipeline.RenderTarget;
-import com.mojang.blaze3d.platform.NativeImage;
 import com.mojang.blaze3d.platform.Window;
 import com.mojang.blaze3d.systems.RenderSystem;
-import com.mojang.blaze3d.textures.GpuTexture;
 import com.replaymod.core.mixin.BlockableEventLoopAccessor;
 import com.replaymod.core.mixin.MinecraftAccessor;
 import com.replaymod.core.mixin.TimerAccessor;
@@ -27,9 +50,14 @@ import com.replaymod.pathing.player.ReplayTimer;
 import com.replaymod.render.gui.progress.VirtualWindow;
 import com.replaymod.render.hooks.ForceChunkLoadingHook;
 import com.replaymod.replay.ReplayHandler;
+import com.replaymod.replay.ReplaySender;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import net.minecraft.ReportedException;
+import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.util.Util;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.state.WindowRenderState;
@@ -44,9 +72,22 @@ import org.lwjgl.glfw.GLFW;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 public class VideoRenderer {
     private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/VideoRenderer");
@@ -54,6 +95,27 @@ public class VideoRenderer {
     /** Per-attempt wait for the frame readback fence. Looped, so a slow frame just waits again. */
     private static final long FENCE_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(5);
 
+    /**
+     * How many frames may be in flight between the GPU copy and the encoder. Each slot holds a full frame of mapped
+     * GPU memory (32 MiB at 4K).
+     */
+    private static final int READBACK_RING_SIZE = 3;
+
+    /**
+     * How long to wait for a free frame buffer before checking whether the encoder has died.
+     */
+    private static final long FRAME_POOL_POLL_MS = 100;
+
+    /**
+     * How often to update the checkpoint while rendering.
+     */
+    private static final long CHECKPOINT_INTERVAL_MS = 2000;
+
+    /**
+     * How many captured sub-frames may wait for the motion blur accumulator.
+     */
+    private static final int MOTION_BLUR_QUEUE = 2;
+
     @Getter
     private static boolean renderingVideo;
 
@@ -84,9 +146,65 @@ public class VideoRenderer {
     @Getter
     private final EncoderConfig encoder;
 
+    /**
+     * The encoder process of the current export. <code>null</code> until rendering starts.
+     */
+    @Getter
+    private @Nullable EncoderProcess encoderProcess;
+
     @Getter
     private int frameIdx = 0;
 
+    /**
+     * The sub-frame of the current frame being rendered, with motion blur.
+     */
+    private int sampleIdx = 0;
+
+    private @Nullable MotionBlur motionBlur;
+
+    /**
+     * The checkpoint of the stopped export this one resumes, if any.
+     */
+    @Getter
+    private final @Nullable RenderCheckpoint resumeFrom;
+
+    /**
+     * The frame this export started at. <code>0</code> unless it's resuming.
+     */
+    @Getter
+    private int firstFrame = 0;
+
+    /**
+     * The draft settings, if this is a draft export. Its metadata is already scaled down.
+     */
+    @Getter
+    private final @Nullable DraftMode draft;
+
+    /**
+     * Set if the replay has been played through up to where it is now, as it has after the previous export in a
+     * {@link com.igrium.replaylab.render.queue.RenderQueue queue}, rather than jumped there. The pre-roll can carry on
+     * from there instead of going back.
+     */
+    @Getter
+    @Setter
+    private boolean replaySettled;
+
+    /**
+     * Decides how much to play through before the first frame. <code>null</code> until rendering starts.
+     */
+    private @Nullable PreRollPlanner preRollPlanner;
+
+    private String sceneHash = "";
+    private long lastCheckpointTime;
+    private int lastCheckpointFrames = -1;
+    private CompletableFuture<?> pendingCheckpoint = CompletableFuture.completedFuture(null);
+
+    /**
+     * Which frames to render, for encoders that can keep frames from an earlier export. <code>null</code> otherwise.
+     */
+    @Getter
+    private @Nullable IncrementalPlan incrementalPlan;
+
     public int getTotalFrames() {
         return renderMetadata.totalFrames();
     }
@@ -103,34 +221,150 @@ public class VideoRenderer {
     private @Nullable SimpleTexture renderTexture;
 
     /**
-     * Persistent buffer for reading from gpu into cpu.
+     * Persistent buffers for reading from gpu into cpu.
+     */
+    private @Nullable ReadbackRing<SimpleTexture> readbackRing;
+
+    /**
+     * Frame buffers shared between the readback and the encoder.
+     */
+    private @Nullable FramePool framePool;
+
+    /**
+     * Blends sub-frames into frames, if motion blur is on.
+     */
+    private @Nullable MotionBlurStage motionBlurStage;
+
+    /**
+     * Buffers for sub-frames on their way to the motion blur stage.
+     */
+    private @Nullable FramePool subframePool;
+
+    /**
+     * Brings supersampled frames down to the output resolution, if supersampling is on.
+     */
+    private @Nullable Downscaler downscaler;
+
+    /**
+     * Post-processing from the render settings, if there is any.
+     */
+    private @Nullable FramePipeline postPipeline;
+
+    /**
+     * Scaled-down copies of finished frames for the progress window.
+     */
+    @Getter
+    private @Nullable ExportPreview preview;
+
+    /**
+     * The scene camera's track, if it's being written alongside the export.
+     */
+    private @Nullable CameraTrackWriter cameraTrack;
+
+    /**
+     * The least time between progress window redraws.
+     */
+    private long guiIntervalNs;
+
+    private long lastGuiDraw;
+
+    /**
+     * Skip drawing the progress window, for exports nobody is watching. The window's events are still handled, and
+     * closing it stops the export as {@link #abort()} would.
+     */
+    @Getter
+    @Setter
+    private boolean headless;
+
+    /**
+     * Called with this renderer whenever the progress window would be redrawn, drawn or not.
      */
-    private @Nullable GpuBuffer readbackBuffer;
+    @Setter
+    private @Nullable Consumer<? super VideoRenderer> progressListener;
 
     public VideoRenderer(RenderMetadata renderMetadata, ReplayHandler replay, ReplayScene scene, FrameCapture frameCapture, EncoderConfig encoder) {
+        this(renderMetadata, replay, scene, frameCapture, encoder, null);
+    }
+
+    public VideoRenderer(RenderMetadata renderMetadata, ReplayHandler replay, ReplayScene scene, FrameCapture frameCapture,
+                         EncoderConfig encoder, @Nullable RenderCheckpoint resumeFrom) {
+        this(renderMetadata, replay, scene, frameCapture, encoder, resumeFrom, null);
+    }
+
+    public VideoRenderer(RenderMetadata renderMetadata, ReplayHandler replay, ReplayScene scene, FrameCapture frameCapture,
+                         EncoderConfig encoder, @Nullable RenderCheckpoint resumeFrom, @Nullable DraftMode draft) {
+        if (resumeFrom != null && draft != null) {
+            throw new IllegalArgumentException("Draft exports can't be resumed");
+        }
         this.renderMetadata = renderMetadata;
         this.replay = replay;
         this.scene = scene;
         this.frameCapture = frameCapture;
         this.encoder = encoder;
+        this.resumeFrom = resumeFrom;
+        this.draft = draft;
     }
 
     public static VideoRenderer create(ReplayScene scene) {
+        return create(scene, null);
+    }
+
+    /**
+     * Create a renderer for a scene's render settings.
+     *
+     * @param scene      Scene to render.
+     * @param resumeFrom Checkpoint of a stopped export of the same scene to pick up from, if any.
+     */
+    public static VideoRenderer create(ReplayScene scene, @Nullable RenderCheckpoint resumeFrom) {
         ReplayHandler replayHandler = EditorState.getReplayHandlerOrThrow();
-        ObjectSceneProps sceneProps = scene.getSceneProps();
         ObjectRenderSettings renderSettings = scene.getRenderSettings();
 
+        return new VideoRenderer(createMetadata(scene), replayHandler, scene, renderSettings.getFrameCapture(),
+                renderSettings.getEncoder(), resumeFrom);
+    }
+
+    /**
+     * Create a renderer for a draft of a scene's render settings. See {@link DraftMode}.
+     *
+     * @param scene Scene to render.
+     * @param draft Draft settings.
+     */
+    public static VideoRenderer createDraft(ReplayScene scene, DraftMode draft) {
+        ReplayHandler replayHandler = EditorState.getReplayHandlerOrThrow();
+        ObjectRenderSettings renderSettings = scene.getRenderSettings();
+
+        return new VideoRenderer(draft.apply(createMetadata(scene)), replayHandler, scene,
+                renderSettings.getFrameCapture(), renderSettings.getEncoder(), null, draft);
+    }
+
+    /**
+     * Build the render metadata for a scene's current settings.
+     */
+    public static RenderMetadata createMetadata(ReplayScene scene) {
+        ObjectSceneProps sceneProps = scene.getSceneProps();
         int totalFrames = (int) (sceneProps.getLength() * sceneProps.getFps() / 1000);
 
-        RenderMetadata metadata = RenderMetadata.builder()
-                .outPath(renderSettings.getOutPath())
+        return RenderMetadata.builder()
+                .outPath(scene.getRenderSettings().getOutPath())
                 .width(sceneProps.getResolutionX())
                 .height(sceneProps.getResolutionY())
                 .fps(sceneProps.getFps())
                 .totalFrames(totalFrames)
                 .build();
+    }
 
-        return new VideoRenderer(metadata, replayHandler, scene, renderSettings.getFrameCapture(), renderSettings.getEncoder());
+    /**
+     * Find the checkpoint of a stopped export that a new export of this scene could resume.
+     *
+     * @return The checkpoint, or <code>null</code> if there isn't one or the scene has changed since.
+     */
+    public static @Nullable RenderCheckpoint findResumable(ReplayScene scene) {
+        RenderMetadata metadata = createMetadata(scene);
+        RenderCheckpoint checkpoint = RenderCheckpoint.read(RenderCheckpoint.getPath(metadata.outPath()));
+        if (checkpoint == null || !checkpoint.canResume(ReplayScenes.hashScene(scene), metadata)) {
+            return null;
+        }
+        return checkpoint;
     }
 
     public void abort() {
@@ -155,12 +389,34 @@ public class VideoRenderer {
         ForceChunkLoadingHook forceChunkLoadingHook = null;
 
         RenderScenePlayer scenePlayer = null;
+        boolean completed = false;
         try {
             /// === SETUP ===
 
             frameCapture.setMetadata(renderMetadata);
+            frameCapture.setDraft(draft != null);
 
-            EncoderProcess encoder = getEncoder().spawnEncoder();
+            // Drafts only render every few frames; the wrapper fills in the rest so the timing is still right.
+            EncoderProcess encoder = draft != null
+                    ? new StrideEncoderProcess(getEncoder().spawnDraftEncoder(), draft.stride())
+                    : getEncoder().spawnEncoder();
+            encoderProcess = encoder;
+
+            motionBlur = scene.getRenderSettings().getMotionBlur();
+            if (draft != null) {
+                motionBlur = new MotionBlur(1, motionBlur.shutterAngle(), motionBlur.curve());
+            }
+            // Loaded up front so a missing LUT or overlay fails the export before anything is rendered.
+            postPipeline = createPostPipeline(renderMetadata.width(), renderMetadata.height());
+            sceneHash = ReplayScenes.hashScene(scene);
+            if (resumeFrom != null) {
+                if (!resumeFrom.canResume(sceneHash, renderMetadata)) {
+                    throw new IllegalStateException("The scene has changed since the export was stopped");
+                }
+                firstFrame = Math.min(resumeFrom.durableFrames(), renderMetadata.totalFrames());
+                frameIdx = firstFrame;
+                LOGGER.info("Resuming export at frame {} of {}", firstFrame, renderMetadata.totalFrames());
+            }
 
             scenePlayer = new RenderScenePlayer(replay);
             scenePlayer.start(scene);
@@ -176,6 +432,9 @@ public class VideoRenderer {
             MCVer.resizeMainWindow(mc, realWidth[0], realHeight[0]);
 
             guiWindow = new VirtualWindow(mc);
+            // Read once; changing it mid-export takes effect next time.
+            guiIntervalNs = TimeUnit.SECONDS.toNanos(1) / Math.clamp(ReplayLabConfig.getInstance().getExportUiFps(), 1, 60);
+            lastGuiDraw = System.nanoTime() - guiIntervalNs;
 
             mc.mouseHandler.releaseMouse();
 
@@ -188,56 +447,214 @@ public class VideoRenderer {
 
             forceChunkLoadingHook = new ForceChunkLoadingHook(mc.levelRenderer);
 
-            /// === TIMELINE SETUP ===
-            // I have no idea what mixin bullshit replay mod is doing, but I'll just copy it
-            ReplayTimer timer = (ReplayTimer) ((MinecraftAccessor) mc).getTimer();
+            // Started before the pre-roll, so we know which frames it can keep before deciding where to start.
+            encoder.start(renderMetadata, firstFrame, resumeFrom != null ? resumeFrom.encoderState() : null);
+            saveCheckpoint(true);
+            // A draft has its own output, so it mustn't touch the real export's frame hashes.
+            incrementalPlan = draft == null ? planIncremental(encoder) : null;
+            if (incrementalPlan != null) {
+                reuseFrames(encoder, incrementalPlan.nextRendered(frameIdx));
+            }
+            cameraTrack = openCameraTrack();
 
-            // Play up to one second before starting render to set entity positions
-            int videoStart = scene.getStartTime();
+            /// === TIMELINE SETUP ===
+            preRollPlanner = createPreRollPlanner();
+            preRoll();
 
-            if (videoStart > 1000) {
-                int replayTime = videoStart - 1000;
-                timer.tickDelta = 0;
+            /// === RENDERING PIPELINE ===
+            TileGrid tileGrid = frameCapture.getTileGrid();
+            if ((long) tileGrid.width() * tileGrid.height() * 4 > Integer.MAX_VALUE) {
+                throw new IllegalStateException("%dx%d is too big to capture; lower the supersampling or resolution."
+                        .formatted(tileGrid.width(), tileGrid.height()));
+            }
+            renderTexture = frameCapture.generateTexture();
+            readbackRing = new ReadbackRing<>(READBACK_RING_SIZE,
+                    i -> new GpuReadbackSlot("ReplayLab frame readback " + i), FENCE_TIMEOUT_NS);
+
+            // Supersampled captures are brought down to size on the way out of the readback, straight from the
+            // mapped buffer, so nothing downstream (pools included) ever holds a full-size frame.
+            int scale = frameCapture.getCaptureScale();
+            int width = tileGrid.width() / scale;
+            int height = tileGrid.height() / scale;
+            BiConsumer<ByteBuffer, ByteBuffer> transfer;
+            if (scale > 1) {
+                Downscaler downscaler = new Downscaler(frameCapture.getDownscaleFilter(), scale, width, height,
+                        Runtime.getRuntime().availableProcessors());
+                this.downscaler = downscaler;
+                transfer = (src, dst) -> downscaler.downscale(src, dst, true);
+            } else {
+                transfer = (src, dst) -> PixelTransfer.copyFlipOpaque(src, dst, width, height);
+            }
 
-                ((TimerAccessor) timer).setTickLength(Utils.DEFAULT_MS_PER_TICK);
-                while (replayTime < videoStart) {
-                    replayTime += 50;
-                    replay.getReplaySender().sendPacketsTill(replayTime);
-                    mc.tick();
+            // Always made, so the preview can be switched back on mid-export; it costs next to nothing until then.
+            preview = new ExportPreview(width, height);
+
+            // Two frames on top of what the encoder can hold: the one being filled from the readback, and one the
+            // preview may be scaling down.
+            FramePool framePool = new FramePool(width, height, encoder.getQueueCapacity() + 2);
+            framePool.setLeakDetection(FabricLoader.getInstance().isDevelopmentEnvironment()
+                    || Boolean.getBoolean("replaylab.debugFramePool"));
+            this.framePool = framePool;
+
+            IntFunction<FrameBuffer> leaseFrame = idx -> {
+                // Waiting here when the pool runs dry is what holds the renderer back to the encoder's pace.
+                EncoderQueueWaitEvent queueEvent = new EncoderQueueWaitEvent();
+                queueEvent.begin();
+                framePool.setLimit(encoder.getQueueDepth() + 2);
+                FrameBuffer frame = acquireFrame(framePool, encoder::getFailureReason);
+                if (queueEvent.shouldCommit()) {
+                    queueEvent.frameIdx = idx;
+                    queueEvent.encoder = encoder.getClass().getSimpleName();
+                    queueEvent.bytes = framePool.getFrameBytes();
+                    queueEvent.commit();
+                }
+                return frame;
+            };
+
+            // Post-processing runs on finished frames, in place, just before they're handed to the encoder.
+            FramePipeline postPipeline = this.postPipeline;
+            MotionBlurStage.Output toEncoder = (frame, idx) -> {
+                if (postPipeline != null) {
+                    try {
+                        postPipeline.process(frame.pixels());
+                    } catch (Throwable t) {
+                        frame.close();
+                        throw t;
+                    }
                 }
+                offerPreview(frame);
+                encoder.accept(frame, idx);
+            };
+
+            MotionBlur motionBlur = this.motionBlur;
+            int samples = motionBlur.samples();
+            ReadbackRing.Consumer deliver;
+            if (motionBlur.isEnabled()) {
+                // The accumulator's worker hands finished frames on to the encoder.
+                MotionBlurStage stage = new MotionBlurStage(
+                        new SubframeAccumulator(width, height, Runtime.getRuntime().availableProcessors()),
+                        motionBlur.weights(), leaseFrame, toEncoder, MOTION_BLUR_QUEUE);
+                motionBlurStage = stage;
+                // One more than the stage can hold: the one being filled from the readback.
+                FramePool subframePool = new FramePool(width, height, stage.getQueueCapacity() + 1);
+                this.subframePool = subframePool;
+
+                deliver = (idx, data) -> {
+                    FrameBuffer subframe = acquireFrame(subframePool, stage::getFailureReason);
+                    try {
+                        transfer.accept(data, subframe.pixels());
+                    } catch (Throwable t) {
+                        subframe.close();
+                        throw t;
+                    }
+                    stage.submit(subframe, idx / samples, idx % samples);
+                };
+            } else {
+                deliver = (idx, data) -> {
+                    FrameBuffer frame = leaseFrame.apply(idx);
+                    try {
+                        transfer.accept(data, frame.pixels());
+                        if (postPipeline != null) {
+                            postPipeline.process(frame.pixels());
+                        }
+                    } catch (Throwable t) {
+                        frame.close();
+                        throw t;
+                    }
+                    offerPreview(frame);
+                    // Ownership passes to the encoder, which returns it to the pool once the frame is written.
+                    encoder.accept(frame, idx);
+                };
             }
 
-            /// === RENDERING PIPELINE ===
-            encoder.start(renderMetadata);
-            renderTexture = frameCapture.generateTexture();
+            // Tiles are read back through the ring like anything else, so each is stitched in while the GPU is already
+            // busy with the next. The frame goes on once its last tile is in; the ring delivers in order.
+            int tiles = tileGrid.size();
+            ReadbackRing.Consumer readTile;
+            if (tileGrid.isSingle()) {
+                readTile = deliver;
+            } else {
+                ByteBuffer stitched = ByteBuffer.allocateDirect(tileGrid.width() * tileGrid.height() * 4);
+                readTile = (key, data) -> {
+                    int tile = key % tiles;
+                    tileGrid.stitch(tile, data, stitched);
+                    if (tile == tiles - 1) {
+                        deliver.accept(key / tiles, stitched);
+                    }
+                };
+            }
 
             renderState = RenderState.RENDERING;
             while (frameIdx < renderMetadata.totalFrames() && !abort) {
+                if (headless && getDelayedCrash() == null && GLFW.glfwWindowShouldClose(mc.getWindow().handle())) {
+                    // Nobody is watching to stop it any other way; stopping leaves a checkpoint to resume from.
+                    abort();
+                    break;
+                }
                 if (GLFW.glfwWindowShouldClose(mc.getWindow().handle()) || getDelayedCrash() != null) {
                     encoder.finish().get(10, TimeUnit.SECONDS);
                 }
+                if (incrementalPlan != null && !incrementalPlan.needsRender(frameIdx)) {
+                    skipUnchanged(encoder, incrementalPlan, scenePlayer);
+                    readbackRing.pollCompleted(readTile);
+                    drawGui();
+                    continue;
+                }
+                if (draft != null && !draft.isRendered(frameIdx)) {
+                    // Played through like any other frame, so the game ends up in the same state; just not captured.
+                    queueFrame(0, 1);
+                    readbackRing.pollCompleted(readTile);
+                    drawGui();
+                    continue;
+                }
                 int curIdx = frameIdx;
-                queueFrame(frameIdx, 1);
-                frameCapture.captureFrame(curIdx, renderTexture);
-
-                // TODO: if the texture is downloaded async under-the-hood,
-                // can we write it async as well?
-                NativeImage nImage = downloadTexture(renderTexture);
+                for (int sample = 0; sample < samples; sample++) {
+                    FrameCaptureEvent captureEvent = new FrameCaptureEvent();
+                    captureEvent.begin();
+                    queueFrame(sample, samples);
+                    for (int tile = 0; tile < tiles; tile++) {
+                        frameCapture.captureTile(curIdx, tileGrid.tile(tile), renderTexture);
+
+                        // The copy runs behind the next few (sub-)frames; we only block here once the ring is full.
+                        readbackRing.submit((curIdx * samples + sample) * tiles + tile, renderTexture, readTile);
+                        readbackRing.pollCompleted(readTile);
+                    }
+                    if (captureEvent.shouldCommit()) {
+                        captureEvent.frameIdx = curIdx;
+                        captureEvent.objectCount = scene.getObjects().size();
+                        captureEvent.width = tileGrid.width();
+                        captureEvent.height = tileGrid.height();
+                        captureEvent.commit();
+                    }
+                }
 
                 drawGui();
+                saveCheckpoint(false);
 
-                Throwable e = encoder.getFailureReason();
+                Throwable e = getFailureReason(encoder);
                 if (e != null) {
-                    nImage.close();
                     throw (Exception) e;
                 }
-                // Ownership passes to the encoder, which closes it once the frame is written.
-                encoder.accept(nImage, curIdx);
+            }
+
+            if (!abort) {
+                readbackRing.drainAll(readTile);
+                if (motionBlurStage != null) {
+                    try {
+                        motionBlurStage.finish(30, TimeUnit.SECONDS);
+                    } catch (ExecutionException ex) {
+                        throw ex.getCause() instanceof Exception cause ? cause : ex;
+                    }
+                }
             }
 
             /// === FINISH ===
             renderState = RenderState.FINISHING;
-            CompletableFuture<?> finishFuture = encoder.finish().orTimeout(30000, TimeUnit.MILLISECONDS);
+            CompletableFuture<?> finishFuture = encoder.finish();
+            long finishTimeout = encoder.getFinishTimeout();
+            if (finishTimeout > 0) {
+                finishFuture = finishFuture.orTimeout(finishTimeout, TimeUnit.MILLISECONDS);
+            }
             while (!finishFuture.isDone()) {
                 drawGui();
                 //noinspection BusyWait
@@ -259,11 +676,16 @@ public class VideoRenderer {
 
             // TODO: spherical metadata
 
-
+            completed = !abort;
             return !abort;
         } finally {
             /// === CLEANUP ===
 
+            finishCheckpoint(completed);
+            saveFrameHashes();
+            closeCameraTrack();
+            frameCapture.setDraft(false);
+
             renderingVideo = false;
             renderState = RenderState.DONE;
 
@@ -272,9 +694,42 @@ public class VideoRenderer {
                 renderTexture = null;
             }
 
-            if (readbackBuffer != null) {
-                readbackBuffer.close();
-                readbackBuffer = null;
+            if (readbackRing != null) {
+                readbackRing.close();
+                readbackRing = null;
+            }
+
+            if (downscaler != null) {
+                downscaler.close();
+                downscaler = null;
+            }
+
+            // The stage goes first; it may be holding frames from both pools.
+            if (motionBlurStage != null) {
+                motionBlurStage.close();
+                motionBlurStage = null;
+            }
+
+            // After the stage, whose worker may still be using it.
+            if (postPipeline != null) {
+                postPipeline.close();
+                postPipeline = null;
+            }
+
+            // After the stage, whose worker may still be offering it frames; before the pools it borrows from.
+            if (preview != null) {
+                preview.close();
+                preview = null;
+            }
+
+            if (subframePool != null) {
+                subframePool.close();
+                subframePool = null;
+            }
+
+            if (framePool != null) {
+                framePool.close();
+                framePool = null;
             }
 
 
@@ -311,68 +766,318 @@ public class VideoRenderer {
         }
     }
 
-    private @Nullable java.util.function.Supplier<net.minecraft.CrashReport> getDelayedCrash() {
-        return ((BlockableEventLoopAccessor) mc).getDelayedCrash();
+    /**
+     * Set up the post-processing chain from the render settings.
+     *
+     * @return The pipeline, or <code>null</code> if no processors are enabled.
+     * @throws IOException If a processor's file can't be read.
+     */
+    private @Nullable FramePipeline createPostPipeline(int width, int height) throws IOException {
+        List<FrameStage> stages = new ArrayList<>();
+        for (FrameProcessor processor : scene.getRenderSettings().getPostProcessors()) {
+            if (processor.isEnabled()) {
+                stages.add(processor.createStage(width, height));
+            }
+        }
+        if (stages.isEmpty()) return null;
+        return new FramePipeline(stages, width, height, Runtime.getRuntime().availableProcessors());
+    }
+
+    private PreRollPlanner createPreRollPlanner() {
+        IntList followed = new IntArrayList();
+        for (ReplayObject object : scene.getObjects().values()) {
+            if (object instanceof ObjectEntityProxy proxy) {
+                followed.add(proxy.getEntId());
+            }
+        }
+        ObjectRenderSettings settings = scene.getRenderSettings();
+        return new PreRollPlanner(settings.getPreRoll(), settings.isShortPreRoll(), followed,
+                (entityId, before) -> EntityResetLog.lastReset(replay, entityId, before));
     }
 
     /**
-     * Read a rendered frame back off the GPU into a {@link NativeImage}.
-     * <p>
-     * The copy is asynchronous on both backends -- GL turns it into a PBO {@code glReadPixels} and
-     * defers the callback to a fence, Vulkan records it into the in-flight command buffer -- so we
-     * must block on a fence before mapping. Mapping straight away yields a partially written buffer,
-     * which shows up as the bottom of the frame being cut off by a different amount each time.
-     * Vanilla's {@link net.minecraft.client.Screenshot} sidesteps this by reading inside the
-     * callback; the export loop needs the pixels synchronously, so it waits instead.
+     * Play the replay up to the current frame, ticking through the part just before it so entities have settled. How
+     * much that is comes from the {@link PreRollPlanner}.
      * <p>
-     * Minecraft's offscreen render target leaves alpha at 0, so alpha is forced opaque here. The
-     * vertical flip that {@code NativeImage.flipY} used to do is folded into the row indexing.
+     * Everything before the pre-roll is sent in one go, as none of it needs ticking through. When the replay is
+     * already within the pre-roll, drafts (for which the editor parked at the start of the scene is good enough) and
+     * exports with a {@link #isReplaySettled() settled} replay just play on from there instead.
      */
-    private NativeImage downloadTexture(SimpleTexture texture) {
-        RenderSystem.assertOnRenderThread();
+    private void preRoll() {
+        // I have no idea what mixin bullshit replay mod is doing, but I'll just copy it
+        ReplayTimer timer = (ReplayTimer) ((MinecraftAccessor) mc).getTimer();
+        ReplaySender sender = replay.getReplaySender();
+
+        int videoStart = scene.sceneToReplayTime(getVideoTime());
+        //noinspection DataFlowIssue
+        PreRollPlanner.Plan plan = preRollPlanner.plan(videoStart, sender.currentTimeStamp(),
+                draft != null || replaySettled);
+        if (plan.end() <= 0) return;
+
+        timer.tickDelta = 0;
+        ((TimerAccessor) timer).setTickLength(Utils.DEFAULT_MS_PER_TICK);
+
+        if (!plan.playOn()) {
+            sender.sendPacketsTill(plan.start());
+        }
+        int replayTime = plan.start();
+        for (int tick = 0; tick < plan.ticks(); tick++) {
+            replayTime = Math.min(replayTime + PreRollPlanner.TICK_MS, plan.end());
+            sender.sendPacketsTill(replayTime);
+            mc.tick();
+        }
+        LOGGER.debug("Pre-rolled {} ticks up to {} ms{}", plan.ticks(), plan.end(),
+                plan.playOn() ? ", playing on" : "");
+    }
 
-        int width = texture.getWidth();
-        int height = texture.getHeight();
-        GpuTexture gpuTexture = texture.getTexture();
-        int blockSize = gpuTexture.getFormat().blockSize();
+    /**
+     * Hash every frame's scene state and work out which ones an earlier export already has.
+     *
+     * @return The plan, or <code>null</code> if the encoder can't keep frames.
+     */
+    private @Nullable IncrementalPlan planIncremental(EncoderProcess encoder) {
+        ObjectRenderSettings settings = scene.getRenderSettings();
+        if (!settings.getEncoder().supportsFrameReuse()) return null;
 
-        // Kept for the whole export rather than allocated per frame; it's 32 MiB at 4K.
-        if (readbackBuffer == null) {
-            readbackBuffer = RenderSystem.getDevice().createBuffer(() -> "ReplayLab frame readback",
-                    GpuBuffer.USAGE_MAP_READ | GpuBuffer.USAGE_COPY_DST, (long) width * height * blockSize);
+        Map<String, Map<String, KeyChannel>> channels = new HashMap<>();
+        for (var entry : scene.getObjects().entrySet()) {
+            channels.put(entry.getKey(), entry.getValue().getChannels());
         }
-        GpuBuffer buffer = readbackBuffer;
+        long[] hashes = new FrameStateHasher(ReplayScenes.hashStaticState(scene), channels, scene::sceneToReplayTime)
+                .hashFrames(renderMetadata.totalFrames(), renderMetadata.fps());
 
-        NativeImage image = new NativeImage(width, height, false);
+        // Hashes are still recorded when we're not incremental, so the next export can be.
+        Path hashFile = renderMetadata.outPath().resolve(FrameHashes.FILE_NAME);
+        IncrementalPlan plan = settings.isIncremental()
+                ? IncrementalPlan.create(FrameHashes.read(hashFile), hashes, settings.getIncrementalMargin(),
+                        encoder::hasFrame)
+                : IncrementalPlan.full(hashes);
+
+        // Until they've been written, the frames we're about to render can't be trusted to match any hash.
         try {
-            CommandEncoder encoder = RenderSystem.getDevice().createCommandEncoder();
-            encoder.copyTextureToBuffer(gpuTexture, buffer, 0, () -> {}, 0);
-
-            // The fence has to be created before the submit: Vulkan's implementation pins it to the
-            // submission that is currently being built, which is the one holding the copy.
-            try (GpuFence fence = encoder.createFence()) {
-                encoder.submit();
-                //noinspection StatementWithEmptyBody
-                while (!fence.awaitCompletion(FENCE_TIMEOUT_NS)) {}
-            }
-
-            try (GpuBufferSlice.MappedView view = buffer.map(true, false)) {
-                for (int y = 0; y < height; y++) {
-                    for (int x = 0; x < width; x++) {
-                        int argb = view.data().getInt((x + y * width) * blockSize);
-                        image.setPixelABGR(x, height - y - 1, argb | 0xFF000000);
-                    }
-                }
+            FrameHashes.write(hashFile, plan.getHashes(0));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write frame hashes; the next export won't be able to skip frames", e);
+        }
+
+        if (settings.isIncremental()) {
+            LOGGER.info("Incremental export: rendering {} of {} frames in {} ranges", plan.getRenderedFrames(),
+                    plan.getTotalFrames(), plan.getRenderedRanges().size());
+        }
+        return plan;
+    }
+
+    /**
+     * Keep the earlier export's copies of the frames from the current one up to (excluding) the given one.
+     */
+    private void reuseFrames(EncoderProcess encoder, int end) {
+        for (; frameIdx < end; frameIdx++) {
+            encoder.reuseFrame(frameIdx);
+        }
+    }
+
+    /**
+     * Skip over a run of frames the earlier export already has. Runs no longer than the pre-roll are played through
+     * without capturing; past that, it's quicker to jump ahead and pre-roll again.
+     */
+    private void skipUnchanged(EncoderProcess encoder, IncrementalPlan plan, RenderScenePlayer scenePlayer) {
+        int next = plan.nextRendered(frameIdx);
+        if (next >= getTotalFrames()) {
+            // Nothing left to render.
+            reuseFrames(encoder, next);
+            return;
+        }
+
+        int nextReplayTime = scene.sceneToReplayTime(getFrameTime(next));
+        int replayGap = nextReplayTime - scene.sceneToReplayTime(getVideoTime());
+        //noinspection DataFlowIssue
+        if (replayGap > preRollPlanner.getWindow(nextReplayTime)) {
+            reuseFrames(encoder, next);
+            preRoll();
+            scenePlayer.resetPlaybackTime();
+            return;
+        }
+
+        while (frameIdx < next) {
+            encoder.reuseFrame(frameIdx);
+            queueFrame(0, 1);
+        }
+    }
+
+    /**
+     * Start the camera track, if the render settings ask for one. Frames the export doesn't play through (before where
+     * it resumed, or jumped over by an incremental export) are left out of it; {@link CameraTracks#export} writes
+     * every frame.
+     */
+    private @Nullable CameraTrackWriter openCameraTrack() {
+        ObjectRenderSettings settings = scene.getRenderSettings();
+        // Drafts are for checking timing; the camera moves are the real export's.
+        if (draft != null || !settings.isCameraTrack()) return null;
+
+        CameraTrackFormat format = settings.getCameraTrackFormat();
+        Path file = format.sidecarPath(renderMetadata.outPath());
+        try {
+            return format.open(file, CameraTracks.header(renderMetadata));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write camera track to {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Add the frame being played to the camera track, if there is one, as the camera is at the frame's own time. That's
+     * where {@link CameraTracks#export} samples it too; with motion blur, the first sub-frame is a little later, so the
+     * scene is evaluated at the frame time for the sample and then put back.
+     */
+    private void recordCamera() {
+        CameraTrackWriter track = cameraTrack;
+        if (track == null) return;
+        int frameTime = getFrameTime(frameIdx);
+        int evaluatedTime = getVideoTime();
+        CameraSample sample;
+        if (evaluatedTime == frameTime) {
+            sample = CameraTracks.sample(scene, frameIdx, frameTime);
+        } else {
+            scene.evaluate(frameTime);
+            sample = CameraTracks.sample(scene, frameIdx, frameTime);
+            scene.evaluate(evaluatedTime);
+        }
+        if (sample == null) return;
+
+        try {
+            track.write(sample);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write camera track; the rest of it is lost", e);
+            closeCameraTrack();
+        }
+    }
+
+    private void closeCameraTrack() {
+        CameraTrackWriter track = cameraTrack;
+        if (track == null) return;
+        cameraTrack = null;
+        try {
+            track.close();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to finish camera track", e);
+        }
+    }
+
+    /**
+     * Record which state each frame on disk was rendered from.
+     */
+    private void saveFrameHashes() {
+        EncoderProcess encoder = encoderProcess;
+        IncrementalPlan plan = incrementalPlan;
+        if (encoder == null || plan == null) return;
+
+        try {
+            FrameHashes.write(renderMetadata.outPath().resolve(FrameHashes.FILE_NAME),
+                    plan.getHashes(encoder.getDurableFrames()));
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write frame hashes", e);
+        }
+    }
+
+    /**
+     * Update the checkpoint in the background, if the encoder has written anything new since the last update.
+     *
+     * @param force Update even if the last update was recent.
+     */
+    private void saveCheckpoint(boolean force) {
+        EncoderProcess encoder = encoderProcess;
+        if (encoder == null || !encoder.supportsResume() || !pendingCheckpoint.isDone()) return;
+
+        long now = Util.getMillis();
+        if (!force && now - lastCheckpointTime < CHECKPOINT_INTERVAL_MS) return;
+        lastCheckpointTime = now;
+
+        int durableFrames = encoder.getDurableFrames();
+        if (!force && durableFrames == lastCheckpointFrames) return;
+        lastCheckpointFrames = durableFrames;
+
+        RenderCheckpoint checkpoint = new RenderCheckpoint(sceneHash, renderMetadata, durableFrames,
+                encoder.saveResumeState());
+        pendingCheckpoint = CompletableFuture.runAsync(() -> {
+            try {
+                checkpoint.write(RenderCheckpoint.getPath(renderMetadata.outPath()));
+            } catch (IOException e) {
+                LOGGER.warn("Unable to write render checkpoint", e);
             }
-        } catch (Throwable t) {
-            image.close();
-            throw t;
+        }, Util.ioPool());
+    }
+
+    /**
+     * Remove the checkpoint if the export completed; otherwise, record how far it got.
+     */
+    private void finishCheckpoint(boolean completed) {
+        EncoderProcess encoder = encoderProcess;
+        // If the encoder never started, an earlier checkpoint may still be good.
+        if (encoder == null || !encoder.supportsResume() || encoder.getState() == EncoderProcess.EncodingState.READY) {
+            return;
+        }
+
+        // Don't let a stale background write land on top of this.
+        pendingCheckpoint.exceptionally(e -> null).join();
+        Path file = RenderCheckpoint.getPath(renderMetadata.outPath());
+        try {
+            if (completed) {
+                Files.deleteIfExists(file);
+            } else {
+                int durableFrames = encoder.getDurableFrames();
+                new RenderCheckpoint(sceneHash, renderMetadata, durableFrames, encoder.saveResumeState()).write(file);
+                LOGGER.info("Export stopped; {} of {} frames can be resumed from {}",
+                        durableFrames, renderMetadata.totalFrames(), file);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to update render checkpoint", e);
+        }
+    }
+
+    private @Nullable java.util.function.Supplier<net.minecraft.CrashReport> getDelayedCrash() {
+        return ((BlockableEventLoopAccessor) mc).getDelayedCrash();
+    }
+
+    /**
+     * Get why the encoder, or the motion blur stage in front of it, failed.
+     */
+    private @Nullable Throwable getFailureReason(EncoderProcess encoder) {
+        Throwable e = encoder.getFailureReason();
+        if (e == null && motionBlurStage != null) {
+            e = motionBlurStage.getFailureReason();
         }
+        return e;
+    }
 
-        return image;
+    /**
+     * Lease a frame from the pool, giving up if whoever returns frames to it fails while we wait (it won't be
+     * returning any).
+     */
+    private static FrameBuffer acquireFrame(FramePool pool, Supplier<@Nullable Throwable> failureReason) {
+        try {
+            FrameBuffer frame;
+            while ((frame = pool.tryAcquire(FRAME_POOL_POLL_MS, TimeUnit.MILLISECONDS)) == null) {
+                Throwable e = failureReason.get();
+                if (e != null) {
+                    throw new EncoderException(e);
+                }
+            }
+            return frame;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncoderException("Interrupted waiting for a frame buffer", e);
+        }
     }
 
+    /**
+     * Advance the game to a (sub-)frame.
+     *
+     * @param sampleIdx    Which of the frame's sub-frames to advance to.
+     * @param totalSamples How many sub-frames the frame has. The next frame is started after the last one.
+     * @return The game's tick delta.
+     */
     public float queueFrame(int sampleIdx, int totalSamples) {
+        this.sampleIdx = sampleIdx;
         guiWindow.bind();
 
         // Updating the timer will cause the timeline player to update the game state
@@ -394,9 +1099,14 @@ public class VideoRenderer {
             guiWindow.unbind();
         }
 
-        // TODO: camera path exporter
         scene.spectateCamera();
-        frameIdx++;
+        if (sampleIdx == 0) {
+            recordCamera();
+        }
+        if (sampleIdx >= totalSamples - 1) {
+            frameIdx++;
+            this.sampleIdx = 0;
+        }
 
         return timer.tickDelta;
     }
@@ -429,14 +1139,26 @@ public class VideoRenderer {
         // Minecraft's main loop isn't running during export; without this the OS window stops responding.
         RenderSystem.pollEvents();
 
-        // captureFrame leaves Window sized to the video resolution. The progress UI is drawn at the
-        // window's real size (ImGui takes its display size straight from GLFW), so bind the virtual
-        // window for the duration -- otherwise everything is laid out against the video resolution.
-        guiWindow.bind();
-        try {
-            drawGuiBound();
-        } finally {
-            guiWindow.unbind();
+        // Events are cheap, but drawing the UI and presenting it can cost as much as a small frame, and may wait on
+        // vsync; at most a few redraws a second are worth that.
+        long now = System.nanoTime();
+        if (now - lastGuiDraw >= guiIntervalNs) {
+            lastGuiDraw = now;
+
+            // captureFrame leaves Window sized to the video resolution. The progress UI is drawn at the
+            // window's real size (ImGui takes its display size straight from GLFW), so bind the virtual
+            // window for the duration -- otherwise everything is laid out against the video resolution.
+            if (!headless) {
+                guiWindow.bind();
+                try {
+                    drawGuiBound();
+                } finally {
+                    guiWindow.unbind();
+                }
+            }
+            if (progressListener != null) {
+                progressListener.accept(this);
+            }
         }
 
         if (mc.mouseHandler.isMouseGrabbed()) {
@@ -475,14 +1197,31 @@ public class VideoRenderer {
         guiWindow.flip();
     }
 
+    /**
+     * Give a finished frame to the preview, if it's on, before it goes to the encoder.
+     */
+    private void offerPreview(FrameBuffer frame) {
+        ExportPreview preview = this.preview;
+        if (preview != null && !headless && ReplayLabConfig.getInstance().isExportPreview()) {
+            preview.offer(frame);
+        }
+    }
+
     private void clearMainRenderTarget() {
         RenderTarget target = mc.gameRenderer.mainRenderTarget();
         RenderSystem.getDevice().createCommandEncoder().clearColorAndDepthTextures(
                 target.getColorTexture(), new Vector4f(), target.getDepthTexture(), 0);
     }
 
+    /**
+     * Get the scene time of the (sub-)frame being rendered.
+     */
     public int getVideoTime() {
-        return (int) (frameIdx * 1000 / scene.getFps());
+        return motionBlur != null ? motionBlur.sampleTime(frameIdx, sampleIdx, scene.getFps()) : getFrameTime(frameIdx);
+    }
+
+    private int getFrameTime(int frame) {
+        return FrameStateHasher.frameTime(frame, scene.getFps());
     }
 
     private class RenderScenePlayer extends AbstractScenePlayer {
@@ -3,47 +3,118 @@ package com.igrium.replaylab.render.capture;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
+import com.igrium.replaylab.editor.EditorState;
 import com.igrium.replaylab.render.RenderMetadata;
 import com.igrium.replaylab.render.SimpleTexture;
+import com.igrium.replaylab.render.frame.DownscaleFilter;
 import com.mojang.blaze3d.pipeline.RenderTarget;
 import com.mojang.blaze3d.systems.CommandEncoder;
 import com.mojang.blaze3d.systems.RenderSystem;
 import com.replaymod.core.events.PostRenderCallback;
 import com.replaymod.core.events.PreRenderCallback;
 import com.replaymod.core.versions.MCVer;
+import imgui.ImGui;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.screens.Screen;
+import net.minecraft.locale.Language;
 import org.joml.Vector4f;
 
 public class BasicFrameCapture extends FrameCapture {
+
+    public static final int MAX_SUPERSAMPLING = 3;
+
+    /**
+     * Render at this many times the output resolution on each axis, for anti-aliasing. <code>1</code> disables it.
+     */
+    @Getter
+    private int supersampling = 1;
+
+    public void setSupersampling(int supersampling) {
+        this.supersampling = Math.clamp(supersampling, 1, MAX_SUPERSAMPLING);
+    }
+
+    @Getter
+    @Setter
+    @NonNull
+    private DownscaleFilter downscaleFilter = DownscaleFilter.LANCZOS;
+
     public BasicFrameCapture(FrameCaptureType<?> type) {
         super(type);
     }
 
     @Override
     public void writeJson(JsonObject json, JsonSerializationContext context) {
-
+        json.addProperty("supersampling", supersampling);
+        json.addProperty("downscaleFilter", downscaleFilter.name());
     }
 
     @Override
     public void readJson(JsonObject json, JsonDeserializationContext context) {
-
+        if (json.has("supersampling")) {
+            setSupersampling(json.get("supersampling").getAsInt());
+        }
+        if (json.has("downscaleFilter")) {
+            setDownscaleFilter(DownscaleFilter.valueOf(json.get("downscaleFilter").getAsString()));
+        }
     }
 
     @Override
-    public SimpleTexture generateTexture() {
-        return super.generateTexture();
+    public void drawProperties(EditorState editorState) {
+        int[] supersamplingIn = {supersampling};
+        if (ImGui.sliderInt(t("gui.replaylab.capture.supersampling"), supersamplingIn, 1, MAX_SUPERSAMPLING, "%dx")) {
+            setSupersampling(supersamplingIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.capture.supersampling.tooltip"));
+
+        ImGui.beginDisabled(supersampling <= 1);
+        if (ImGui.beginCombo(t("gui.replaylab.capture.downscale_filter"), t(downscaleFilter.langKey()))) {
+            for (var filter : DownscaleFilter.values()) {
+                boolean selected = filter == downscaleFilter;
+                if (ImGui.selectable(t(filter.langKey()), selected)) {
+                    setDownscaleFilter(filter);
+                }
+                if (selected) {
+                    ImGui.setItemDefaultFocus();
+                }
+            }
+            ImGui.endCombo();
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.capture.downscale_filter.tooltip"));
+        ImGui.endDisabled();
+    }
+
+    private static String t(String key) {
+        return Language.getInstance().getOrDefault(key) + "###" + key;
+    }
+
+    private static String tt(String key) {
+        return Language.getInstance().getOrDefault(key);
     }
 
     @Override
     public void captureFrame(int frameIdx, SimpleTexture texture) {
+        RenderMetadata meta = getMetadata();
+        int scale = getCaptureScale();
+        render(meta.width() * scale, meta.height() * scale, texture);
+    }
+
+    /**
+     * Render the game at a given size and copy the result into a texture.
+     *
+     * @param width   Width to resize the window to.
+     * @param height  Height to resize the window to.
+     * @param texture Texture to copy the frame into.
+     */
+    protected void render(int width, int height, SimpleTexture texture) {
         RenderSystem.assertOnRenderThread();
 
-        RenderMetadata meta = getMetadata();
         Minecraft mc = Minecraft.getInstance();
 
         /// === RENDER ===
-        MCVer.resizeMainWindow(mc, meta.width(), meta.height());
+        MCVer.resizeMainWindow(mc, width, height);
         RenderTarget target = mc.gameRenderer.mainRenderTarget();
 
         RenderSystem.getDevice().createCommandEncoder().clearColorAndDepthTextures(
@@ -86,10 +157,8 @@ public class BasicFrameCapture extends FrameCapture {
 
         /// === SAVE FRAME ===
         CommandEncoder encoder = RenderSystem.getDevice().createCommandEncoder();
-        int width = Math.min(target.width, texture.getWidth());
-        int height = Math.min(target.height, texture.getHeight());
         encoder.copyTextureToTexture(target.getColorTexture(), texture.getTexture(), 0,
-                0, 0, 0, 0, width, height);
+                0, 0, 0, 0, Math.min(target.width, texture.getWidth()), Math.min(target.height, texture.getHeight()));
     }
 
 }
@@ -7,6 +7,7 @@ import com.igrium.replaylab.editor.EditorState;
 import com.igrium.replaylab.render.RenderMetadata;
 import com.igrium.replaylab.render.SimpleTexture;
 import com.igrium.replaylab.render.encoder.EncoderProcess;
+import com.igrium.replaylab.render.frame.DownscaleFilter;
 import com.mojang.blaze3d.GpuFormat;
 import imgui.ImGui;
 import lombok.Getter;
@@ -18,7 +19,8 @@ import org.jetbrains.annotations.Nullable;
 /**
  * Captures the framebuffer into a texture during replay rendering.
  * <p>
- * Unlike {@link EncoderProcess}, frame captures are stateless (aside from <code>setMetadata</code>)
+ * Unlike {@link EncoderProcess}, frame captures are stateless (aside from <code>setMetadata</code> and
+ * <code>setDraft</code>)
  * <p>
  * Render configuration is persisted via {@link #writeJson} / {@link #readJson},
  * and optional UI controls can be exposed through {@link #drawProperties}.
@@ -40,6 +42,14 @@ public abstract class FrameCapture {
         return metadata;
     }
 
+    /**
+     * Set for {@link com.igrium.replaylab.render.DraftMode draft} exports, which skip anything that only adds
+     * quality. Not saved.
+     */
+    @Getter
+    @Setter
+    private transient boolean draft;
+
     public FrameCapture(FrameCaptureType<?> type) {
         this.type = type;
     }
@@ -54,9 +64,45 @@ public abstract class FrameCapture {
 
     public abstract void readJson(JsonObject json, JsonDeserializationContext context);
 
-    public SimpleTexture generateTexture() {
+    /**
+     * How many times the output resolution frames are captured at, on each axis. Captured frames are brought back
+     * down with {@link #getDownscaleFilter} before they're encoded.
+     */
+    public int getSupersampling() {
+        return 1;
+    }
+
+    /**
+     * How many times the output resolution this export actually captures at: the {@link #getSupersampling()
+     * supersampling}, or <code>1</code> for drafts.
+     */
+    public final int getCaptureScale() {
+        return draft ? 1 : getSupersampling();
+    }
+
+    /**
+     * The filter supersampled frames are brought back down with.
+     */
+    public DownscaleFilter getDownscaleFilter() {
+        return DownscaleFilter.BOX;
+    }
+
+    /**
+     * How frames are split up to be rendered, at the {@link #getCaptureScale() capture scale}. Most captures render
+     * the whole frame in one go.
+     */
+    public TileGrid getTileGrid() {
         var meta = getMetadata();
-        return new SimpleTexture(meta.width(), meta.height(), GpuFormat.RGBA8_UNORM);
+        int scale = getCaptureScale();
+        return TileGrid.single(meta.width() * scale, meta.height() * scale);
+    }
+
+    /**
+     * Make a texture to capture into: the size of one {@link #getTileGrid() tile}.
+     */
+    public SimpleTexture generateTexture() {
+        TileGrid grid = getTileGrid();
+        return new SimpleTexture(grid.tileWidth(), grid.tileHeight(), GpuFormat.RGBA8_UNORM);
     }
 
     /**
@@ -67,6 +113,17 @@ public abstract class FrameCapture {
      */
     public abstract void captureFrame(int frameIdx, SimpleTexture texture);
 
+    /**
+     * Capture one tile of a frame. Captures that don't tile only have the one tile, so this just captures the frame.
+     *
+     * @param frameIdx The index of the frame to capture.
+     * @param tile     The tile of {@link #getTileGrid()} to capture.
+     * @param texture  Texture to render into (on the GPU)
+     */
+    public void captureTile(int frameIdx, TileGrid.Tile tile, SimpleTexture texture) {
+        captureFrame(frameIdx, texture);
+    }
+
     public void drawProperties(EditorState editorState) {
         ImGui.text(Language.getInstance().getOrDefault("gui.replaylab.capture.noProps"));
     }
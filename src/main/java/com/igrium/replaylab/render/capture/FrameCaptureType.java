@@ -28,6 +28,9 @@ public final class FrameCaptureType<T extends FrameCapture> {
     public static final FrameCaptureType<BasicFrameCapture> BASIC = register(new FrameCaptureType<>(BasicFrameCapture::new),
             Identifier.parse("replaylab:basic"));
 
+    public static final FrameCaptureType<TiledFrameCapture> TILED = register(new FrameCaptureType<>(TiledFrameCapture::new),
+            Identifier.parse("replaylab:tiled"));
+
     /// === FIELDS ===
 
     @Getter @NonNull
@@ -0,0 +1,149 @@
+package com.igrium.replaylab.render.capture;
+
+import java.nio.ByteBuffer;
+
+/**
+ * How a frame is split into tiles for rendering, so frames bigger than the window (or than the GPU will allocate) can
+ * be rendered a piece at a time.
+ * <p>
+ * Tiles are all rendered at the same size and numbered row by row from the top left. Tiles on the right and bottom
+ * edges may hang off the frame; the part that does is cropped off when they're {@link #stitch stitched}.
+ * <p>
+ * Each tile is rendered with the full frame's projection narrowed down to its part of the frame: scaled up by
+ * {@link #getScaleX()}/{@link #getScaleY()} and shifted by {@link #getOffsetX}/{@link #getOffsetY}, in normalized
+ * device coordinates. Since that happens before the perspective divide, it's pixel-exact: tile pixels land on exactly
+ * the same spots the full frame's would.
+ *
+ * @param width      Width of the whole frame.
+ * @param height     Height of the whole frame.
+ * @param tileWidth  Width each tile is rendered at.
+ * @param tileHeight Height each tile is rendered at.
+ * @param columns    Tiles across.
+ * @param rows       Tiles down.
+ */
+public record TileGrid(int width, int height, int tileWidth, int tileHeight, int columns, int rows) {
+
+    /**
+     * One tile of a frame.
+     *
+     * @param index  The tile's index.
+     * @param x      Left edge, in frame pixels.
+     * @param y      Top edge, in frame pixels.
+     * @param width  Width of the part that's within the frame.
+     * @param height Height of the part that's within the frame.
+     */
+    public record Tile(int index, int x, int y, int width, int height) {
+    }
+
+    public TileGrid {
+        if (width < 1 || height < 1 || tileWidth < 1 || tileHeight < 1) {
+            throw new IllegalArgumentException("Sizes must be positive");
+        }
+        if ((long) tileWidth * columns < width || (long) tileHeight * rows < height
+                || (long) tileWidth * (columns - 1) >= width || (long) tileHeight * (rows - 1) >= height) {
+            throw new IllegalArgumentException("%dx%d tiles of %dx%d don't cover a %dx%d frame exactly"
+                    .formatted(columns, rows, tileWidth, tileHeight, width, height));
+        }
+    }
+
+    /**
+     * A grid with just the one tile: the whole frame.
+     */
+    public static TileGrid single(int width, int height) {
+        return new TileGrid(width, height, width, height, 1, 1);
+    }
+
+    /**
+     * Split a frame into as few tiles as it takes to keep them to a maximum size, as evenly as possible.
+     *
+     * @param width       Width of the frame.
+     * @param height      Height of the frame.
+     * @param maxTileSize The most pixels a tile may be on either side.
+     */
+    public static TileGrid fit(int width, int height, int maxTileSize) {
+        if (maxTileSize < 1) {
+            throw new IllegalArgumentException("Tile size must be positive");
+        }
+        int columns = Math.ceilDiv(width, maxTileSize);
+        int rows = Math.ceilDiv(height, maxTileSize);
+        return new TileGrid(width, height, Math.ceilDiv(width, columns), Math.ceilDiv(height, rows), columns, rows);
+    }
+
+    /**
+     * How many tiles there are.
+     */
+    public int size() {
+        return columns * rows;
+    }
+
+    public boolean isSingle() {
+        return size() == 1;
+    }
+
+    public Tile tile(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int x = index % columns * tileWidth;
+        int y = index / columns * tileHeight;
+        return new Tile(index, x, y, Math.min(tileWidth, width - x), Math.min(tileHeight, height - y));
+    }
+
+    /**
+     * How much a tile's projection is stretched horizontally compared to the frame's.
+     */
+    public float getScaleX() {
+        return (float) width / tileWidth;
+    }
+
+    /**
+     * How much a tile's projection is stretched vertically compared to the frame's.
+     */
+    public float getScaleY() {
+        return (float) height / tileHeight;
+    }
+
+    /**
+     * How far a tile's projection is shifted horizontally, after scaling, in normalized device coordinates.
+     */
+    public float getOffsetX(Tile tile) {
+        // Where the middle of the tile is in the frame, from -1 (left) to 1 (right).
+        double center = 2.0 * (tile.x() + tileWidth / 2.0) / width - 1;
+        return (float) (-center * width / tileWidth);
+    }
+
+    /**
+     * How far a tile's projection is shifted vertically, after scaling, in normalized device coordinates.
+     */
+    public float getOffsetY(Tile tile) {
+        // Device coordinates point up; frame rows count down.
+        double center = 1 - 2.0 * (tile.y() + tileHeight / 2.0) / height;
+        return (float) (-center * height / tileHeight);
+    }
+
+    /**
+     * Copy a tile into the frame, cropping whatever hangs off it. Both are RGBA8 and stored bottom row first, as they
+     * come off the GPU.
+     *
+     * @param index Which tile it is.
+     * @param src   The tile, <code>tileWidth</code> by <code>tileHeight</code>, read from position 0.
+     * @param dst   The frame, <code>width</code> by <code>height</code>, written from position 0.
+     * @throws IllegalArgumentException If either buffer is too small.
+     */
+    public void stitch(int index, ByteBuffer src, ByteBuffer dst) {
+        if (src.capacity() < (long) tileWidth * tileHeight * 4) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d tile".formatted(tileWidth, tileHeight));
+        }
+        if (dst.capacity() < (long) width * height * 4) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d frame".formatted(width, height));
+        }
+        Tile tile = tile(index);
+        int rowBytes = tile.width() * 4;
+        for (int row = 0; row < tile.height(); row++) {
+            // Counted from the top of the tile; the overhang, if any, is at the bottom.
+            int srcRow = tileHeight - 1 - row;
+            int dstRow = height - 1 - (tile.y() + row);
+            dst.put(((dstRow * width) + tile.x()) * 4, src, srcRow * tileWidth * 4, rowBytes);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.igrium.replaylab.render.capture;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Matrix4f;
+
+/**
+ * Narrows the game's projection down to one tile of a {@link TileGrid} while that tile renders. Render thread only.
+ */
+@UtilityClass
+public class TileProjection {
+
+    private static @Nullable Matrix4f tileMatrix;
+
+    /**
+     * Start rendering a tile. Every world render until {@link #end()} is narrowed down to it.
+     */
+    public static void begin(TileGrid grid, TileGrid.Tile tile) {
+        RenderSystem.assertOnRenderThread();
+        tileMatrix = new Matrix4f()
+                .translation(grid.getOffsetX(tile), grid.getOffsetY(tile), 0)
+                .scale(grid.getScaleX(), grid.getScaleY(), 1);
+    }
+
+    public static void end() {
+        tileMatrix = null;
+    }
+
+    /**
+     * Narrow a projection matrix down to the current tile, if there is one.
+     */
+    public static void apply(Matrix4f projection) {
+        if (tileMatrix != null) {
+            projection.mulLocal(tileMatrix);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.igrium.replaylab.render.capture;
+
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.igrium.replaylab.editor.EditorState;
+import com.igrium.replaylab.render.SimpleTexture;
+import imgui.ImGui;
+import lombok.Getter;
+import net.minecraft.locale.Language;
+
+/**
+ * Renders frames a {@link TileGrid tile} at a time and has them stitched back together, for exports bigger than the
+ * window or the GPU can manage in one go. Each tile is a full render of the world with the projection narrowed down
+ * to its part of the frame, so it costs roughly one frame's CPU time per tile.
+ * <p>
+ * Screen-space effects that look at neighbouring pixels (vignettes, post effect shaders) only see their own tile, and
+ * may show seams.
+ */
+public class TiledFrameCapture extends BasicFrameCapture {
+
+    public static final int MIN_TILE_SIZE = 256;
+    public static final int MAX_TILE_SIZE = 8192;
+
+    /**
+     * The most pixels a tile may be on either side. Frames within it aren't tiled at all.
+     */
+    @Getter
+    private int maxTileSize = 2048;
+
+    public void setMaxTileSize(int maxTileSize) {
+        this.maxTileSize = Math.clamp(maxTileSize, MIN_TILE_SIZE, MAX_TILE_SIZE);
+    }
+
+    public TiledFrameCapture(FrameCaptureType<?> type) {
+        super(type);
+    }
+
+    @Override
+    public void writeJson(JsonObject json, JsonSerializationContext context) {
+        super.writeJson(json, context);
+        json.addProperty("maxTileSize", maxTileSize);
+    }
+
+    @Override
+    public void readJson(JsonObject json, JsonDeserializationContext context) {
+        super.readJson(json, context);
+        if (json.has("maxTileSize")) {
+            setMaxTileSize(json.get("maxTileSize").getAsInt());
+        }
+    }
+
+    @Override
+    public TileGrid getTileGrid() {
+        var meta = getMetadata();
+        int scale = getCaptureScale();
+        return TileGrid.fit(meta.width() * scale, meta.height() * scale, maxTileSize);
+    }
+
+    @Override
+    public void captureTile(int frameIdx, TileGrid.Tile tile, SimpleTexture texture) {
+        TileGrid grid = getTileGrid();
+        if (grid.isSingle()) {
+            captureFrame(frameIdx, texture);
+            return;
+        }
+        TileProjection.begin(grid, tile);
+        try {
+            render(grid.tileWidth(), grid.tileHeight(), texture);
+        } finally {
+            TileProjection.end();
+        }
+    }
+
+    @Override
+    public void drawProperties(EditorState editorState) {
+        super.drawProperties(editorState);
+
+        int[] tileSizeIn = {maxTileSize};
+        if (ImGui.sliderInt(t("gui.replaylab.capture.max_tile_size"), tileSizeIn,
+                MIN_TILE_SIZE, MAX_TILE_SIZE, "%dpx")) {
+            setMaxTileSize(tileSizeIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.capture.max_tile_size.tooltip"));
+    }
+
+    private static String t(String key) {
+        return Language.getInstance().getOrDefault(key) + "###" + key;
+    }
+
+    private static String tt(String key) {
+        return Language.getInstance().getOrDefault(key);
+    }
+}
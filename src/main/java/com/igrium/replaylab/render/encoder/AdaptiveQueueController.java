@@ -0,0 +1,87 @@
+package com.igrium.replaylab.render.encoder;
+
+import lombok.Getter;
+
+/**
+ * Decides how many frames should be buffered ahead of an encoder, based on how the producer (the render thread) and
+ * the consumer (the encoder) are keeping up with each other.
+ * <p>
+ * Buffering only helps when the encoder is as fast as the renderer <em>on average</em> but the two jitter against
+ * each other; then a deeper queue soaks up the bursts. If the encoder is simply slower, any queue fills up and stays
+ * full, so the extra frames are wasted memory and the depth is walked back down.
+ */
+public class AdaptiveQueueController {
+
+    /**
+     * The encoder counts as keeping up if it's within this fraction of the producer's rate.
+     */
+    private static final double RATE_TOLERANCE = 0.1;
+
+    /**
+     * If the producer spent more than this fraction of its time blocked while the encoder was keeping up, grow.
+     */
+    private static final double STALL_THRESHOLD = 0.2;
+
+    /**
+     * After this many consecutive updates without stalls, shrink by one.
+     */
+    private static final int CALM_UPDATES = 4;
+
+    @Getter
+    private final int minDepth;
+
+    @Getter
+    private final int maxDepth;
+
+    private volatile int depth;
+
+    private int calmUpdates;
+
+    public AdaptiveQueueController(int minDepth, int maxDepth, int initialDepth) {
+        if (minDepth < 1 || maxDepth < minDepth) {
+            throw new IllegalArgumentException("Invalid depth range: " + minDepth + " - " + maxDepth);
+        }
+        this.minDepth = minDepth;
+        this.maxDepth = maxDepth;
+        this.depth = Math.clamp(initialDepth, minDepth, maxDepth);
+    }
+
+    /**
+     * The number of frames that should currently be allowed to queue up ahead of the encoder.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Feed the controller one measurement window.
+     *
+     * @param producerFps   Rate frames were submitted over the window.
+     * @param consumerFps   Rate the encoder finished frames over the window.
+     * @param stallFraction Fraction of the window (0-1) the producer spent blocked on the encoder.
+     * @return The new depth.
+     */
+    public synchronized int update(double producerFps, double consumerFps, double stallFraction) {
+        // Nothing meaningful to go on yet (encoder still warming up, or paused).
+        if (!(producerFps > 0) || !(consumerFps > 0)) {
+            return depth;
+        }
+
+        int newDepth = depth;
+        if (consumerFps < producerFps * (1 - RATE_TOLERANCE)) {
+            // Encoder is the bottleneck; a deeper queue would just sit full.
+            newDepth = Math.max(minDepth, newDepth / 2);
+            calmUpdates = 0;
+        } else if (stallFraction > STALL_THRESHOLD) {
+            // Encoder keeps up on average but we still blocked: that's jitter, which buffering absorbs.
+            newDepth = Math.min(maxDepth, newDepth * 2);
+            calmUpdates = 0;
+        } else if (++calmUpdates >= CALM_UPDATES) {
+            newDepth = Math.max(minDepth, newDepth - 1);
+            calmUpdates = 0;
+        }
+
+        depth = newDepth;
+        return newDepth;
+    }
+}
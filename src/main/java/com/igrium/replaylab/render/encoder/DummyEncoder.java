@@ -4,8 +4,7 @@ import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.igrium.replaylab.editor.EditorState;
-import com.mojang.blaze3d.platform.NativeImage;
-import com.igrium.replaylab.render.RenderMetadata;
+import com.igrium.replaylab.render.frame.FrameBuffer;
 import imgui.ImGui;
 import imgui.type.ImString;
 import lombok.Getter;
@@ -59,7 +58,7 @@ public class DummyEncoder extends EncoderConfig {
         }
 
         @Override
-        protected void encodeFrame(NativeImage frame, int frameIdx) throws Exception {
+        protected void encodeFrame(FrameBuffer frame, int frameIdx) throws Exception {
             frame.close();
         }
 
@@ -30,6 +30,22 @@ public abstract class EncoderConfig {
 
     public abstract EncoderProcess spawnEncoder();
 
+    /**
+     * Spawn an encoder for a {@link com.igrium.replaylab.render.DraftMode draft} export. Drafts are only for
+     * checking timing, so encoders with a speed/quality trade-off should pick their fastest setting here.
+     */
+    public EncoderProcess spawnDraftEncoder() {
+        return spawnEncoder();
+    }
+
+    /**
+     * Whether this encoder's exports can keep frames from an earlier export to the same output instead of encoding
+     * them again. See {@link EncoderProcess#reuseFrame(int)}.
+     */
+    public boolean supportsFrameReuse() {
+        return false;
+    }
+
     /**
      * Get the extension(s) the file should use given the encoder's current config.
      * @return The extensions, excluding "."; An empty array if the encoder doesn't care.
@@ -1,7 +1,8 @@
 package com.igrium.replaylab.render.encoder;
 
+import com.google.gson.JsonObject;
 import com.igrium.replaylab.render.RenderMetadata;
-import com.mojang.blaze3d.platform.NativeImage;
+import com.igrium.replaylab.render.frame.FrameBuffer;
 import lombok.Getter;
 import lombok.NonNull;
 import org.jetbrains.annotations.Nullable;
@@ -41,6 +42,21 @@ public abstract class EncoderProcess {
         return metadata;
     }
 
+    /**
+     * Index of the first frame this run encodes. <code>0</code> unless resuming an earlier export.
+     */
+    @Getter
+    private int firstFrame;
+
+    private @Nullable JsonObject resumeState;
+
+    /**
+     * The state the earlier export left behind when resuming, from {@link #saveResumeState()}.
+     */
+    protected @Nullable JsonObject getResumeState() {
+        return resumeState;
+    }
+
     /**
      * Mark this encoder as having failed. Useful for exceptions raised out-of-thread.
      *
@@ -59,12 +75,32 @@ public abstract class EncoderProcess {
      * @param metadata Encoding metadata
      * @throws IllegalStateException If the encoder isn't ready to start
      */
-    public synchronized void start(RenderMetadata metadata) throws IllegalStateException, EncoderException {
+    public void start(RenderMetadata metadata) throws IllegalStateException, EncoderException {
+        start(metadata, 0, null);
+    }
+
+    /**
+     * Initialize and begin encoding, picking up where an earlier export of the same scene left off.
+     *
+     * @param metadata    Encoding metadata. Must match the earlier export's.
+     * @param firstFrame  The first frame that will be submitted. At most the earlier export's
+     *                    {@link #getDurableFrames()}.
+     * @param resumeState The earlier export's {@link #saveResumeState()}, if any.
+     * @throws IllegalStateException If the encoder isn't ready to start, or can't resume and
+     *                               <code>firstFrame</code> isn't <code>0</code>
+     */
+    public synchronized void start(RenderMetadata metadata, int firstFrame, @Nullable JsonObject resumeState)
+            throws IllegalStateException, EncoderException {
         if (state == EncodingState.ENCODING || state == EncodingState.FINISHED) {
             throw new IllegalStateException("Encoder is not ready to start! (Current state: " + state + ")");
         }
+        if (firstFrame != 0 && !supportsResume()) {
+            throw new IllegalStateException(getClass().getSimpleName() + " can't resume exports");
+        }
 
         this.metadata = metadata;
+        this.firstFrame = firstFrame;
+        this.resumeState = resumeState;
         failureReason.set(null);
         state = EncodingState.ENCODING;
 
@@ -82,14 +118,14 @@ public abstract class EncoderProcess {
     /**
      * Queue a frame to be encoded.
      * <p>
-     * <strong>Takes ownership of the frame.</strong> The encoder <em>must call</em> {@link NativeImage#close()
-     * close} at some point after it's done.
+     * <strong>Takes ownership of the frame.</strong> The encoder <em>must call</em> {@link FrameBuffer#close()
+     * close} at some point after it's done, which returns it to its pool.
      *
      * @param frame The frame to encode. Do not touch it after this call.
      * @throws IllegalStateException If we're not in state {@link EncodingState#ENCODING}
      * @apiNote If the encoder is not ready to receive the frame (buffer is full, etc.), blocks until it's ready
      */
-    public final void accept(NativeImage frame, int frameIdx) throws IllegalStateException, EncoderException {
+    public final void accept(FrameBuffer frame, int frameIdx) throws IllegalStateException, EncoderException {
         try {
             ensureNotFailed();
             if (state != EncodingState.ENCODING) {
@@ -112,7 +148,23 @@ public abstract class EncoderProcess {
     /**
      * Encode a single frame, taking ownership of it. See {@link #accept}.
      */
-    protected abstract void encodeFrame(NativeImage frame, int frameIdx) throws Exception;
+    protected abstract void encodeFrame(FrameBuffer frame, int frameIdx) throws Exception;
+
+    /**
+     * The most frames this encoder will ever hold on to at once (queued or being written). The renderer sizes its
+     * frame pool from this, so it's only called after {@link #start}.
+     */
+    public int getQueueCapacity() {
+        return 1;
+    }
+
+    /**
+     * How many frames this encoder currently wants to hold. Never more than {@link #getQueueCapacity()}; encoders
+     * that adapt to their own throughput can lower it to save memory.
+     */
+    public int getQueueDepth() {
+        return getQueueCapacity();
+    }
 
     /**
      * Asynchronously finalize this 
@@ -148,6 +200,67 @@ public abstract class EncoderProcess {
 
     protected abstract CompletableFuture<?> finishEncoding() throws Exception;
 
+    /**
+     * How long the renderer waits on {@link #finish()} before giving up on the export.
+     *
+     * @return The timeout in milliseconds, or <code>0</code> to wait for however long finishing takes.
+     */
+    public long getFinishTimeout() {
+        return 30000;
+    }
+
+    /**
+     * Get live statistics about how the encoder is keeping up, if it reports any.
+     *
+     * @return The latest stats, or <code>null</code> if this encoder doesn't track them.
+     */
+    public @Nullable EncoderStats getStats() {
+        return null;
+    }
+
+    /**
+     * Whether this encoder can pick up a stopped export with {@link #start(RenderMetadata, int, JsonObject)}.
+     */
+    public boolean supportsResume() {
+        return false;
+    }
+
+    /**
+     * How many frames, counting from frame <code>0</code>, are safely on disk and would survive the game going down
+     * right now. An export resumed from here loses nothing. Safe to call from any thread.
+     */
+    public int getDurableFrames() {
+        return firstFrame;
+    }
+
+    /**
+     * Save whatever this encoder needs, on top of {@link #getDurableFrames()}, to resume the export later. Safe to
+     * call from any thread.
+     *
+     * @return The state, or <code>null</code> if there's nothing to save.
+     */
+    public @Nullable JsonObject saveResumeState() {
+        return null;
+    }
+
+    /**
+     * Check whether a frame from an earlier export to the same output is still on disk. Only called after
+     * {@link #start}.
+     */
+    public boolean hasFrame(int frameIdx) {
+        return false;
+    }
+
+    /**
+     * Keep the earlier export's copy of a frame instead of encoding it, as if it had been written. Only for encoders
+     * whose config {@link EncoderConfig#supportsFrameReuse() supports it}.
+     *
+     * @param frameIdx The frame. Must be one that {@link #hasFrame} is <code>true</code> for.
+     */
+    public void reuseFrame(int frameIdx) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't reuse frames");
+    }
+
     protected abstract void onFailed(Throwable reason);
 
     private void ensureNotFailed() throws EncoderException {
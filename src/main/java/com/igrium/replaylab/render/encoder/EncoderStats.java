@@ -0,0 +1,14 @@
+package com.igrium.replaylab.render.encoder;
+
+/**
+ * A snapshot of how an encoder is keeping up, for display while exporting.
+ *
+ * @param framesEncoded How many frames the encoder has finished so far.
+ * @param fps           Current encoding rate, in frames per second.
+ * @param speed         Encoding rate relative to the video's own frame rate (<code>1</code> = realtime). May be
+ *                      <code>NaN</code> if the encoder can't tell.
+ * @param bitrateKbps   Current output bitrate in kbit/s. May be <code>NaN</code> if unknown.
+ * @param queueDepth    How many frames the encoder currently wants buffered ahead of it.
+ */
+public record EncoderStats(int framesEncoded, double fps, double speed, double bitrateKbps, int queueDepth) {
+}
@@ -18,6 +18,18 @@ public class EncoderTypes {
     public static final EncoderType<PNGEncoder> PNG = register(new EncoderType<>(PNGEncoder::new),
             Identifier.parse("replaylab:png"));
 
+    public static final EncoderType<QOIEncoder> QOI = register(new EncoderType<>(QOIEncoder::new),
+            Identifier.parse("replaylab:qoi"));
+
+    public static final EncoderType<TGAEncoder> TGA = register(new EncoderType<>(TGAEncoder::new),
+            Identifier.parse("replaylab:tga"));
+
+    public static final EncoderType<RawEncoder> RAW = register(new EncoderType<>(RawEncoder::new),
+            Identifier.parse("replaylab:raw"));
+
+    public static final EncoderType<TeeEncoder> TEE = register(new EncoderType<>(TeeEncoder::new),
+            Identifier.parse("replaylab:tee"));
+
     public static <T extends EncoderConfig> EncoderType<T> register(EncoderType<T> type, Identifier id) {
         REGISTRY.put(id, type);
         return type;
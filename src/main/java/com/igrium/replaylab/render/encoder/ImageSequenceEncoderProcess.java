@@ -0,0 +1,335 @@
+package com.igrium.replaylab.render.encoder;
+
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.util.SimpleBlockingQueue;
+import net.minecraft.util.Util;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base for encoders that write every frame to its own file in the output directory, using a pool of worker threads.
+ * <p>
+ * Each frame goes through two steps on a worker: {@link #prepare} reads the pooled pixels into whatever the format
+ * needs, after which the frame goes straight back to its pool, and {@link #write} does the (usually slower) rest.
+ * <p>
+ * Every frame is a file of its own, so exports can always be resumed: frames from an earlier run are simply left
+ * where they are.
+ * <p>
+ * Frames that come out exactly the same as the one before them, like a title card or a camera held over a paused
+ * replay, are hard-linked to the previous frame's file instead of being encoded again. The worker compares
+ * {@link FrameBuffer#contentHash() content hashes}, so the render thread never touches the pixels.
+ *
+ * @param <T> Whatever {@link #prepare} hands to {@link #write}.
+ */
+public abstract class ImageSequenceEncoderProcess<T> extends EncoderProcess {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/ImageSequenceEncoderProcess");
+
+    /**
+     * Rough ceiling on how much frame data may sit in the write queue at once.
+     */
+    private static final long MAX_QUEUED_BYTES = 512L * 1024 * 1024;
+
+    private ExecutorService executor;
+
+    private int queueCapacity = 1;
+
+    /**
+     * Frames that have been written this run, relative to {@link #getFirstFrame()}. Workers finish out of order, so
+     * this is what tells us how far the unbroken run of written frames reaches.
+     */
+    private final BitSet written = new BitSet();
+
+    /**
+     * Frames submitted this run, for the frame after each to compare itself against. Each frame's task removes the
+     * one before it once it's done with it.
+     */
+    private final Map<Integer, FrameResult> results = new ConcurrentHashMap<>();
+
+    private final AtomicInteger duplicateFrames = new AtomicInteger();
+
+    /**
+     * Cleared the first time the output's file system turns out not to support hard links, after which duplicates
+     * are copied instead.
+     */
+    private volatile boolean canLink = true;
+
+    /**
+     * The file extension frames are written with, excluding ".".
+     */
+    protected abstract String getExtension();
+
+    /**
+     * Read a frame's pixels into whatever {@link #write} needs. Called on a worker thread; the frame is closed as soon
+     * as this returns, so nothing may keep a reference to its pixels.
+     */
+    protected abstract T prepare(FrameBuffer frame) throws Exception;
+
+    /**
+     * Write a prepared frame. Called on the same worker thread as {@link #prepare}.
+     *
+     * @param prepared The result of {@link #prepare}.
+     * @param out      The frame's file. Closed by the caller.
+     */
+    protected abstract void write(T prepared, OutputStream out) throws Exception;
+
+    /**
+     * How many frames to work on at once.
+     */
+    protected int getFrameWorkers(int availableProcessors) {
+        return availableProcessors;
+    }
+
+    /**
+     * Called at the start of {@link #startEncoding()}, after the output directory has been created.
+     */
+    protected void onStart() throws Exception {
+    }
+
+    /**
+     * Called once every frame has been written, on the thread that waited for them.
+     */
+    protected void onFinished() throws Exception {
+    }
+
+    @Override
+    protected void startEncoding() throws Exception {
+        Files.createDirectories(getMetadata().outPath());
+        results.clear();
+        duplicateFrames.set(0);
+        onStart();
+
+        int frameWorkers = getFrameWorkers(Runtime.getRuntime().availableProcessors());
+
+        // Bound queue by bytes so it scales cleanly with resolution (and therefore memory usage)
+        long frameBytes = (long) getMetadata().width() * getMetadata().height() * 4;
+        int queueSize = Math.clamp(MAX_QUEUED_BYTES / Math.max(frameBytes, 1), 4, 32);
+
+        // Every queued frame plus one in the hands of each worker.
+        queueCapacity = queueSize + frameWorkers;
+
+        executor = new ThreadPoolExecutor(
+                frameWorkers,
+                frameWorkers,
+                20,
+                TimeUnit.MILLISECONDS,
+                new SimpleBlockingQueue<>(queueSize)
+        );
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    protected void encodeFrame(FrameBuffer frame, int frameIdx) {
+        FrameTask task = new FrameTask(frame, frameIdx);
+        results.put(frameIdx, task.result);
+        try {
+            // execute rather than submit, so shutdownNow hands back FrameTasks we can free.
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Nobody took ownership, so it's still ours to free.
+            task.result.complete(false);
+            frame.close();
+            throw e;
+        }
+    }
+
+    /**
+     * How many frames this run were linked to the frame before them instead of being encoded.
+     */
+    public int getDuplicateFrames() {
+        return duplicateFrames.get();
+    }
+
+    /**
+     * Get the file a frame is written to.
+     */
+    protected Path getFramePath(int frameIdx) {
+        return getMetadata().outPath().resolve(getFileNamePattern().formatted(frameIdx));
+    }
+
+    /**
+     * Get the <code>printf</code>-style pattern frame files are named with, such as <code>%04d.png</code>.
+     */
+    protected String getFileNamePattern() {
+        int maxDigits = (int) (Math.log10(getMetadata().totalFrames()) + 1);
+        return "%0" + maxDigits + "d." + getExtension();
+    }
+
+    /**
+     * What became of a submitted frame, as far as the frame after it needs to know.
+     */
+    private static class FrameResult {
+        /**
+         * The frame's content hash, or <code>null</code> if it never got that far.
+         */
+        final CompletableFuture<Long> hash = new CompletableFuture<>();
+
+        /**
+         * Whether the frame's file was fully written.
+         */
+        final CompletableFuture<Boolean> written = new CompletableFuture<>();
+
+        void complete(boolean success) {
+            hash.complete(null);
+            written.complete(success);
+        }
+    }
+
+    private class FrameTask implements Runnable {
+        final FrameBuffer frame;
+        final int frameIdx;
+        final FrameResult result = new FrameResult();
+
+        FrameTask(FrameBuffer frame, int frameIdx) {
+            this.frame = frame;
+            this.frameIdx = frameIdx;
+        }
+
+        @Override
+        public void run() {
+            boolean success = false;
+            try {
+                success = encode();
+            } catch (Exception e) {
+                fail(e);
+            } finally {
+                // Whatever happened, the next frame mustn't be left waiting on this one.
+                result.complete(success);
+                results.remove(frameIdx - 1);
+            }
+
+            if (success) {
+                synchronized (written) {
+                    written.set(frameIdx - getFirstFrame());
+                }
+            }
+        }
+
+        private boolean encode() throws Exception {
+            FrameResult previous = results.get(frameIdx - 1);
+            boolean duplicate = false;
+            T prepared = null;
+            try {
+                if (getState() != EncodingState.ENCODING && getState() != EncodingState.FINALIZING)
+                    return false;
+
+                long hash = frame.contentHash();
+                result.hash.complete(hash);
+                if (previous != null) {
+                    // Tasks start in the order they were submitted, so the previous frame is already being hashed.
+                    Long previousHash = previous.hash.join();
+                    duplicate = previousHash != null && previousHash == hash;
+                }
+                if (!duplicate) {
+                    prepared = prepare(frame);
+                }
+            } finally {
+                // Give the pooled buffer back before the (slow) write step.
+                frame.close();
+            }
+
+            Path path = getFramePath(frameIdx);
+            // An earlier export may have left a link here, and writing through it would change the linked frame too.
+            Files.deleteIfExists(path);
+
+            if (duplicate) {
+                // If the previous frame failed, so has the export.
+                if (!previous.written.join()) return false;
+                linkToPrevious(path);
+                duplicateFrames.incrementAndGet();
+                return true;
+            }
+
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+                write(prepared, out);
+            }
+            return true;
+        }
+
+        private void linkToPrevious(Path path) throws IOException {
+            Path previous = getFramePath(frameIdx - 1);
+            if (canLink) {
+                try {
+                    Files.createLink(path, previous);
+                    return;
+                } catch (UnsupportedOperationException | IOException e) {
+                    LOGGER.warn("Can't hard link frames in {}; copying duplicates instead", path.getParent(), e);
+                    canLink = false;
+                }
+            }
+            Files.copy(previous, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public boolean supportsResume() {
+        return true;
+    }
+
+    @Override
+    public boolean hasFrame(int frameIdx) {
+        return Files.isRegularFile(getFramePath(frameIdx));
+    }
+
+    @Override
+    public void reuseFrame(int frameIdx) {
+        synchronized (written) {
+            written.set(frameIdx - getFirstFrame());
+        }
+    }
+
+    @Override
+    public int getDurableFrames() {
+        synchronized (written) {
+            return getFirstFrame() + written.nextClearBit(0);
+        }
+    }
+
+    @Override
+    protected CompletableFuture<?> finishEncoding() {
+        executor.shutdown();
+        // Because awaitTermination is blocking and doesn't offer a future-based alternative,
+        // we need to do this. It's dumb.
+        return CompletableFuture.runAsync(() -> {
+            try {
+                if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                    throw new TimeoutException("Image sequence writer timed out.");
+                }
+                if (duplicateFrames.get() > 0) {
+                    LOGGER.info("Linked {} duplicate frames instead of encoding them", duplicateFrames.get());
+                }
+                onFinished();
+            } catch (Exception e) {
+                // There's absolutely no reason runAsync shouldn't handle checked exceptions
+                throw ExceptionUtils.asRuntimeException(e);
+            }
+        }, Util.ioPool());
+    }
+
+    @Override
+    protected void onFailed(Throwable reason) {
+        if (executor == null) return;
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof ImageSequenceEncoderProcess<?>.FrameTask frameTask) {
+                frameTask.result.complete(false);
+                frameTask.frame.close();
+            }
+        }
+    }
+}
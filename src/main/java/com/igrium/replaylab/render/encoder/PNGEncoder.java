@@ -3,33 +3,123 @@ package com.igrium.replaylab.render.encoder;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
-import com.mojang.blaze3d.platform.NativeImage;
-import com.igrium.replaylab.render.RenderMetadata;
-import com.igrium.replaylab.util.SimpleBlockingQueue;
-import net.minecraft.util.Util;
-import org.apache.commons.lang3.exception.ExceptionUtils;
-
-import java.nio.file.Files;
-import java.util.concurrent.*;
+import com.igrium.replaylab.editor.EditorState;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.image.PngFilter;
+import com.igrium.replaylab.render.image.PngWriter;
+import imgui.ImGui;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import net.minecraft.locale.Language;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PNGEncoder extends EncoderConfig {
     protected PNGEncoder(EncoderType<?> type) {
         super(type);
     }
 
+    /**
+     * zlib compression level, 0-9.
+     */
+    @Getter
+    private int compressionLevel = 6;
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = Math.clamp(compressionLevel, 0, 9);
+    }
+
+    @Getter
+    @Setter
+    @NonNull
+    private PngFilter filter = PngFilter.ADAPTIVE;
+
+    /**
+     * If set, frames are written with 16 bits per channel instead of 8.
+     */
+    @Getter
+    @Setter
+    private boolean sixteenBit;
+
+    /**
+     * If set, each frame is compressed in parallel blocks instead of one frame per thread.
+     */
+    @Getter
+    @Setter
+    private boolean parallelCompression = true;
+
+    public void copyFrom(PNGEncoder other) {
+        setCompressionLevel(other.compressionLevel);
+        this.filter = other.filter != null ? other.filter : PngFilter.ADAPTIVE;
+        this.sixteenBit = other.sixteenBit;
+        this.parallelCompression = other.parallelCompression;
+    }
+
     @Override
     public void readJson(JsonObject json, JsonDeserializationContext context) {
-
+        copyFrom(context.deserialize(json, PNGEncoder.class));
     }
 
     @Override
     public JsonObject writeJson(JsonSerializationContext context) {
-        return new JsonObject();
+        return context.serialize(this).getAsJsonObject();
     }
 
     @Override
     public PNGEncoderProcess spawnEncoder() {
-        return new PNGEncoderProcess();
+        return new PNGEncoderProcess(compressionLevel, filter, sixteenBit ? 16 : 8, parallelCompression);
+    }
+
+    @Override
+    public PNGEncoderProcess spawnDraftEncoder() {
+        return new PNGEncoderProcess(Math.min(compressionLevel, 1), filter, sixteenBit ? 16 : 8, parallelCompression);
+    }
+
+    @Override
+    public void drawProperties(EditorState editor) {
+        int[] levelIn = {compressionLevel};
+        if (ImGui.sliderInt(t("gui.replaylab.png.compression"), levelIn, 0, 9)) {
+            setCompressionLevel(levelIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.png.compression.tooltip"));
+
+        if (ImGui.beginCombo(t("gui.replaylab.png.filter"), t(filter.langKey()))) {
+            for (var f : PngFilter.values()) {
+                boolean selected = f == this.filter;
+                if (ImGui.selectable(t(f.langKey()), selected)) {
+                    setFilter(f);
+                }
+                if (selected) {
+                    ImGui.setItemDefaultFocus();
+                }
+            }
+            ImGui.endCombo();
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.png.filter.tooltip"));
+
+        if (ImGui.checkbox(t("gui.replaylab.png.sixteen_bit"), sixteenBit)) {
+            setSixteenBit(!sixteenBit);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.png.sixteen_bit.tooltip"));
+
+        if (ImGui.checkbox(t("gui.replaylab.png.parallel"), parallelCompression)) {
+            setParallelCompression(!parallelCompression);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.png.parallel.tooltip"));
+    }
+
+    private static String t(String key) {
+        return Language.getInstance().getOrDefault(key) + "###" + key;
+    }
+
+    private static String tt(String key) {
+        return Language.getInstance().getOrDefault(key);
     }
 
     @Override
@@ -37,82 +127,78 @@ public class PNGEncoder extends EncoderConfig {
         return true;
     }
 
+    @Override
+    public boolean supportsFrameReuse() {
+        return true;
+    }
+
     /**
      * An encoder that simply writes PNG files.
      */
-    public static class PNGEncoderProcess extends EncoderProcess {
+    public static class PNGEncoderProcess extends ImageSequenceEncoderProcess<PngWriter.FilteredImage> {
 
-        /**
-         * Rough ceiling on how much frame data may sit in the write queue at once.
-         */
-        private static final long MAX_QUEUED_BYTES = 512L * 1024 * 1024;
+        private static final AtomicInteger THREAD_ID = new AtomicInteger();
 
-        private ExecutorService executor;
+        private final int compressionLevel;
+        private final PngFilter filter;
+        private final int bitDepth;
+        private final boolean parallelCompression;
 
+        private @Nullable ExecutorService blockExecutor;
+        private PngWriter pngWriter;
+
+        public PNGEncoderProcess(int compressionLevel, PngFilter filter, int bitDepth, boolean parallelCompression) {
+            this.compressionLevel = compressionLevel;
+            this.filter = filter;
+            this.bitDepth = bitDepth;
+            this.parallelCompression = parallelCompression;
+        }
 
         @Override
-        protected void startEncoding() throws Exception {
-            Files.createDirectories(getMetadata().outPath());
-            int availableProcessors = Runtime.getRuntime().availableProcessors();
-
-            // Bound queue by bytes so it scales cleanly with resolution (and therefore memory usage)
-            long frameBytes = (long) getMetadata().width() * getMetadata().height() * 4;
-            int queueSize = Math.clamp(MAX_QUEUED_BYTES / Math.max(frameBytes, 1), 4, 32);
-
-            executor = new ThreadPoolExecutor(
-                    availableProcessors,
-                    availableProcessors,
-                    20,
-                    TimeUnit.MILLISECONDS,
-                    new SimpleBlockingQueue<>(queueSize)
-            );
+        protected String getExtension() {
+            return "png";
         }
 
         @Override
-        protected void encodeFrame(NativeImage frame, int frameIdx) {
-            try {
-                executor.submit(() -> {
-                    try {
-                        if (getState() != EncodingState.ENCODING)
-                            return;
-
-                        int maxDigits = (int) (Math.log10(getMetadata().totalFrames()) + 1);
-                        String prefix = String.format("%0" + maxDigits + "d", frameIdx);
-                        var path = getMetadata().outPath().resolve(prefix + ".png");
-                        frame.writeToFile(path);
-                    } catch (Exception e) {
-                        fail(e);
-                    } finally {
-                        frame.close();
-                    }
+        protected void onStart() {
+            if (parallelCompression) {
+                blockExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                    Thread thread = new Thread(r, "ReplayLab PNG compressor " + THREAD_ID.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
                 });
-            } catch (RejectedExecutionException e) {
-                // Nobody took ownership, so it's still ours to free.
-                frame.close();
-                throw e;
             }
+            pngWriter = new PngWriter(compressionLevel, filter, bitDepth, blockExecutor);
         }
 
         @Override
-        protected CompletableFuture<?> finishEncoding() {
-            executor.shutdown();
-            // Because awaitTermination is blocking and doesn't offer a future-based alternative,
-            // we need to do this. It's dumb.
-            return CompletableFuture.runAsync(() -> {
-                try {
-                    if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
-                        throw new TimeoutException("PNG writer timed out.");
-                    }
-                } catch (InterruptedException | TimeoutException e) {
-                    // There's absolutely no reason runAsync shouldn't handle checked exceptions
-                    throw ExceptionUtils.asRuntimeException(e);
-                }
-            }, Util.ioPool());
+        protected int getFrameWorkers(int availableProcessors) {
+            // Each frame already keeps every core busy; a couple of frames in flight covers the gaps between them
+            // without holding on to a frame per core.
+            return parallelCompression ? Math.min(2, availableProcessors) : availableProcessors;
+        }
+
+        @Override
+        protected PngWriter.FilteredImage prepare(FrameBuffer frame) {
+            // Filtering copies everything it needs, so the pooled buffer can go back before compression.
+            return pngWriter.filter(frame.pixels(), frame.getWidth(), frame.getHeight());
+        }
+
+        @Override
+        protected void write(PngWriter.FilteredImage prepared, OutputStream out) throws IOException {
+            pngWriter.write(prepared, out);
+        }
+
+        @Override
+        protected void onFinished() {
+            // Only once the frame workers are done; they still hand it blocks until then.
+            if (blockExecutor != null) blockExecutor.shutdown();
         }
 
         @Override
         protected void onFailed(Throwable reason) {
-            executor.shutdownNow();
+            super.onFailed(reason);
+            if (blockExecutor != null) blockExecutor.shutdownNow();
         }
     }
 }
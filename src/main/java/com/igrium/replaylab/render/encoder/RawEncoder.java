@@ -0,0 +1,94 @@
+package com.igrium.replaylab.render.encoder;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.image.PlanarWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Dumps frames as headerless planar RGB, described by a JSON sidecar in the output directory. The fastest way to get
+ * frames out of the game when something else is going to process them anyway.
+ */
+public class RawEncoder extends EncoderConfig {
+
+    /**
+     * Name of the sidecar file describing the frames.
+     */
+    public static final String SIDECAR_NAME = "frames.json";
+
+    protected RawEncoder(EncoderType<?> type) {
+        super(type);
+    }
+
+    @Override
+    public void readJson(JsonObject json, JsonDeserializationContext context) {
+    }
+
+    @Override
+    public JsonObject writeJson(JsonSerializationContext context) {
+        return new JsonObject();
+    }
+
+    @Override
+    public RawEncoderProcess spawnEncoder() {
+        return new RawEncoderProcess();
+    }
+
+    @Override
+    public boolean wantsDirectory() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsFrameReuse() {
+        return true;
+    }
+
+    public static class RawEncoderProcess extends ImageSequenceEncoderProcess<byte[]> {
+        private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+        @Override
+        protected String getExtension() {
+            return "rgb";
+        }
+
+        @Override
+        protected void onStart() throws IOException {
+            var meta = getMetadata();
+
+            JsonObject json = new JsonObject();
+            json.addProperty("format", "planar_rgb8");
+            json.addProperty("width", meta.width());
+            json.addProperty("height", meta.height());
+            json.addProperty("fps", meta.fps());
+            json.addProperty("frames", meta.totalFrames());
+            json.addProperty("pattern", getFileNamePattern());
+
+            JsonArray planes = new JsonArray();
+            planes.add("r");
+            planes.add("g");
+            planes.add("b");
+            json.add("planes", planes);
+
+            Files.writeString(meta.outPath().resolve(SIDECAR_NAME), GSON.toJson(json));
+        }
+
+        @Override
+        protected byte[] prepare(FrameBuffer frame) {
+            return PlanarWriter.toPlanes(frame.pixels(), frame.getWidth(), frame.getHeight());
+        }
+
+        @Override
+        protected void write(byte[] prepared, OutputStream out) throws IOException {
+            out.write(prepared);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.igrium.replaylab.render.encoder;
+
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wraps an encoder for exports that only render every <code>stride</code>th frame. Each frame it's given is passed on
+ * once for every index up to the next rendered one, so the output keeps the scene's frame rate and length. The copies
+ * share the same buffer; nothing is copied.
+ */
+public class StrideEncoderProcess extends EncoderProcess {
+
+    @Getter
+    private final EncoderProcess inner;
+
+    @Getter
+    private final int stride;
+
+    public StrideEncoderProcess(EncoderProcess inner, int stride) {
+        if (stride < 1) {
+            throw new IllegalArgumentException("Stride must be at least 1");
+        }
+        this.inner = inner;
+        this.stride = stride;
+    }
+
+    @Override
+    protected void startEncoding() throws Exception {
+        inner.start(getMetadata());
+    }
+
+    @Override
+    protected void encodeFrame(FrameBuffer frame, int frameIdx) throws Exception {
+        int copies = Math.min(stride, getMetadata().totalFrames() - frameIdx);
+        if (copies <= 0) {
+            frame.close();
+            throw new IllegalArgumentException("Frame " + frameIdx + " is past the end of the export");
+        }
+
+        // One reference for each copy; the inner encoder closes each of them.
+        for (int i = 1; i < copies; i++) {
+            frame.retain();
+        }
+
+        int i = 0;
+        try {
+            for (; i < copies; i++) {
+                inner.accept(frame, frameIdx + i);
+            }
+        } finally {
+            // accept() has already released the reference it was given, even if it threw.
+            for (int j = i + 1; j < copies; j++) {
+                frame.close();
+            }
+        }
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return inner.getQueueCapacity();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return inner.getQueueDepth();
+    }
+
+    @Override
+    public @Nullable EncoderStats getStats() {
+        return inner.getStats();
+    }
+
+    @Override
+    public long getFinishTimeout() {
+        return inner.getFinishTimeout();
+    }
+
+    @Override
+    protected CompletableFuture<?> finishEncoding() throws Exception {
+        return inner.finish();
+    }
+
+    @Override
+    protected void onFailed(Throwable reason) {
+        EncodingState innerState = inner.getState();
+        if (innerState != EncodingState.READY && innerState != EncodingState.FINISHED) {
+            inner.fail(reason);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.igrium.replaylab.render.encoder;
+
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.igrium.replaylab.editor.EditorState;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.image.TgaWriter;
+import imgui.ImGui;
+import lombok.Getter;
+import lombok.Setter;
+import net.minecraft.locale.Language;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes frames as 24-bit TGA images, optionally run-length encoded. Almost free to encode, at the cost of disk space.
+ */
+public class TGAEncoder extends EncoderConfig {
+    protected TGAEncoder(EncoderType<?> type) {
+        super(type);
+    }
+
+    /**
+     * If set, frames are run-length encoded. Helps a lot with flat colors and very little with anything else.
+     */
+    @Getter
+    @Setter
+    private boolean rle = true;
+
+    public void copyFrom(TGAEncoder other) {
+        this.rle = other.rle;
+    }
+
+    @Override
+    public void readJson(JsonObject json, JsonDeserializationContext context) {
+        copyFrom(context.deserialize(json, TGAEncoder.class));
+    }
+
+    @Override
+    public JsonObject writeJson(JsonSerializationContext context) {
+        return context.serialize(this).getAsJsonObject();
+    }
+
+    @Override
+    public TGAEncoderProcess spawnEncoder() {
+        return new TGAEncoderProcess(rle);
+    }
+
+    @Override
+    public void drawProperties(EditorState editor) {
+        if (ImGui.checkbox(t("gui.replaylab.tga.rle"), rle)) {
+            setRle(!rle);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.tga.rle.tooltip"));
+    }
+
+    private static String t(String key) {
+        return Language.getInstance().getOrDefault(key) + "###" + key;
+    }
+
+    private static String tt(String key) {
+        return Language.getInstance().getOrDefault(key);
+    }
+
+    @Override
+    public boolean wantsDirectory() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsFrameReuse() {
+        return true;
+    }
+
+    public static class TGAEncoderProcess extends ImageSequenceEncoderProcess<ByteBuffer> {
+        private final boolean rle;
+
+        public TGAEncoderProcess(boolean rle) {
+            this.rle = rle;
+        }
+
+        @Override
+        protected String getExtension() {
+            return "tga";
+        }
+
+        @Override
+        protected ByteBuffer prepare(FrameBuffer frame) {
+            return TgaWriter.encode(frame.pixels(), frame.getWidth(), frame.getHeight(), rle);
+        }
+
+        @Override
+        protected void write(ByteBuffer prepared, OutputStream out) throws IOException {
+            out.write(prepared.array(), prepared.arrayOffset() + prepared.position(), prepared.remaining());
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.igrium.replaylab.render.encoder;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.igrium.replaylab.editor.EditorState;
+import com.igrium.replaylab.render.frame.DownscaleFilter;
+import imgui.ImGui;
+import imgui.type.ImString;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import net.minecraft.locale.Language;
+import net.minecraft.resources.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the same render to several outputs at once, such as a full-size master and a half-size proxy. Each output
+ * has an encoder config of its own and goes to the export path with a suffix added.
+ */
+public class TeeEncoder extends EncoderConfig {
+
+    public static final int MAX_DOWNSCALE = 4;
+
+    /**
+     * Frames that may wait for each output while it's busy.
+     */
+    private static final int QUEUE_SIZE = 4;
+
+    public static class Output {
+        @Getter
+        @NonNull
+        private EncoderConfig encoder;
+
+        @Getter
+        @Setter
+        @NonNull
+        private String suffix;
+
+        @Getter
+        private int downscale;
+
+        @Getter
+        @Setter
+        @NonNull
+        private DownscaleFilter filter = DownscaleFilter.LANCZOS;
+
+        private transient final ImString suffixIn = new ImString(64);
+
+        public Output(@NonNull EncoderConfig encoder, @NonNull String suffix, int downscale) {
+            setEncoder(encoder);
+            this.suffix = suffix;
+            setDownscale(downscale);
+        }
+
+        public void setEncoder(@NonNull EncoderConfig encoder) {
+            if (encoder instanceof TeeEncoder) {
+                throw new IllegalArgumentException("Tees can't be nested");
+            }
+            this.encoder = encoder;
+        }
+
+        public void setDownscale(int downscale) {
+            this.downscale = Math.clamp(downscale, 1, MAX_DOWNSCALE);
+        }
+
+        /**
+         * The extension this output's files get, or <code>null</code> if it writes a directory.
+         */
+        public @Nullable String getExtension() {
+            if (encoder.wantsDirectory()) return null;
+            String[] exts = encoder.getSupportedExtensions();
+            return exts.length > 0 ? exts[0] : null;
+        }
+    }
+
+    @Getter
+    private final List<Output> outputs = new ArrayList<>();
+
+    @Getter
+    @Setter
+    @NonNull
+    private TeeFailurePolicy failurePolicy = TeeFailurePolicy.DROP_OUTPUT;
+
+    protected TeeEncoder(EncoderType<?> type) {
+        super(type);
+        outputs.add(new Output(EncoderTypes.FFMPEG.create(), "_master", 1));
+        outputs.add(new Output(EncoderTypes.FFMPEG.create(), "_proxy", 2));
+    }
+
+    @Override
+    public void readJson(JsonObject json, JsonDeserializationContext context) {
+        if (json.has("failurePolicy")) {
+            failurePolicy = context.deserialize(json.get("failurePolicy"), TeeFailurePolicy.class);
+            if (failurePolicy == null) {
+                failurePolicy = TeeFailurePolicy.DROP_OUTPUT;
+            }
+        }
+        if (json.has("outputs")) {
+            outputs.clear();
+            for (var element : json.getAsJsonArray("outputs")) {
+                JsonObject obj = element.getAsJsonObject();
+                Output output = new Output(EncoderType.parse(obj.getAsJsonObject("encoder"), context),
+                        obj.has("suffix") ? obj.get("suffix").getAsString() : "",
+                        obj.has("downscale") ? obj.get("downscale").getAsInt() : 1);
+                if (obj.has("filter")) {
+                    DownscaleFilter filter = context.deserialize(obj.get("filter"), DownscaleFilter.class);
+                    if (filter != null) {
+                        output.setFilter(filter);
+                    }
+                }
+                outputs.add(output);
+            }
+        }
+    }
+
+    @Override
+    public JsonObject writeJson(JsonSerializationContext context) {
+        JsonObject json = new JsonObject();
+        json.add("failurePolicy", context.serialize(failurePolicy));
+        JsonArray array = new JsonArray();
+        for (var output : outputs) {
+            JsonObject obj = new JsonObject();
+            obj.add("encoder", EncoderType.write(output.encoder, context));
+            obj.addProperty("suffix", output.suffix);
+            obj.addProperty("downscale", output.downscale);
+            obj.add("filter", context.serialize(output.filter));
+            array.add(obj);
+        }
+        json.add("outputs", array);
+        return json;
+    }
+
+    @Override
+    public TeeEncoderProcess spawnEncoder() {
+        return spawn(false);
+    }
+
+    @Override
+    public TeeEncoderProcess spawnDraftEncoder() {
+        return spawn(true);
+    }
+
+    private TeeEncoderProcess spawn(boolean draft) {
+        List<TeeEncoderProcess.Output> processes = new ArrayList<>(outputs.size());
+        for (var output : outputs) {
+            EncoderProcess process = draft ? output.encoder.spawnDraftEncoder() : output.encoder.spawnEncoder();
+            processes.add(new TeeEncoderProcess.Output(process, output.suffix,
+                    output.getExtension(), output.downscale, output.filter));
+        }
+        return new TeeEncoderProcess(processes, failurePolicy, QUEUE_SIZE);
+    }
+
+    @Override
+    public boolean mayExport() {
+        if (outputs.isEmpty()) return false;
+        for (var output : outputs) {
+            if (!output.encoder.mayExport()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void drawProperties(EditorState editor) {
+        if (ImGui.beginCombo(t("gui.replaylab.tee.failure_policy"), t(failurePolicy.langKey()))) {
+            for (var policy : TeeFailurePolicy.values()) {
+                boolean selected = policy == failurePolicy;
+                if (ImGui.selectable(t(policy.langKey()), selected)) {
+                    setFailurePolicy(policy);
+                }
+                if (selected) {
+                    ImGui.setItemDefaultFocus();
+                }
+            }
+            ImGui.endCombo();
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.tee.failure_policy.tooltip"));
+
+        int remove = -1;
+        for (int i = 0; i < outputs.size(); i++) {
+            Output output = outputs.get(i);
+            ImGui.pushID(i);
+
+            String label = tt("gui.replaylab.tee.output").formatted(i + 1, output.suffix);
+            boolean open = ImGui.treeNode(label + "###output");
+            ImGui.sameLine();
+            if (ImGui.smallButton(t("gui.replaylab.tee.remove"))) {
+                remove = i;
+            }
+
+            if (open) {
+                drawOutput(output, editor);
+                ImGui.treePop();
+            }
+            ImGui.popID();
+        }
+
+        if (remove >= 0) {
+            outputs.remove(remove);
+        }
+
+        if (ImGui.button(t("gui.replaylab.tee.add"))) {
+            outputs.add(new Output(EncoderTypes.FFMPEG.create(), "_" + (outputs.size() + 1), 1));
+        }
+    }
+
+    private void drawOutput(Output output, EditorState editor) {
+        Identifier selId = output.encoder.getType().getId();
+        if (ImGui.beginCombo(t("gui.replaylab.encoder"), t(selId.toLanguageKey("encoder")))) {
+            for (var entry : EncoderTypes.REGISTRY.entrySet()) {
+                if (entry.getValue() == EncoderTypes.TEE) continue;
+                Identifier id = entry.getKey();
+                boolean selected = id.equals(selId);
+
+                if (ImGui.selectable(t(id.toLanguageKey("encoder")), selected) && !selected) {
+                    output.setEncoder(entry.getValue().create());
+                }
+                if (selected) {
+                    ImGui.setItemDefaultFocus();
+                }
+            }
+            ImGui.endCombo();
+        }
+
+        output.suffixIn.set(output.suffix);
+        if (ImGui.inputText(t("gui.replaylab.tee.suffix"), output.suffixIn)) {
+            output.setSuffix(output.suffixIn.get());
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.tee.suffix.tooltip"));
+
+        int[] downscaleIn = {output.downscale};
+        if (ImGui.sliderInt(t("gui.replaylab.tee.downscale"), downscaleIn, 1, MAX_DOWNSCALE, "1/%d")) {
+            output.setDownscale(downscaleIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.tee.downscale.tooltip"));
+
+        if (output.downscale > 1) {
+            if (ImGui.beginCombo(t("gui.replaylab.capture.downscale_filter"), t(output.filter.langKey()))) {
+                for (var f : DownscaleFilter.values()) {
+                    boolean selected = f == output.filter;
+                    if (ImGui.selectable(t(f.langKey()), selected)) {
+                        output.setFilter(f);
+                    }
+                    if (selected) {
+                        ImGui.setItemDefaultFocus();
+                    }
+                }
+                ImGui.endCombo();
+            }
+            ImGui.setItemTooltip(tt("gui.replaylab.capture.downscale_filter.tooltip"));
+        }
+
+        ImGui.separator();
+        output.encoder.drawProperties(editor);
+    }
+
+    private static String t(String key) {
+        return Language.getInstance().getOrDefault(key) + "###" + key;
+    }
+
+    private static String tt(String key) {
+        return Language.getInstance().getOrDefault(key);
+    }
+}
@@ -0,0 +1,370 @@
+package com.igrium.replaylab.render.encoder;
+
+import com.igrium.replaylab.render.RenderMetadata;
+import com.igrium.replaylab.render.frame.DownscaleFilter;
+import com.igrium.replaylab.render.frame.Downscaler;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.FramePool;
+import com.igrium.replaylab.util.SimpleBlockingQueue;
+import lombok.Getter;
+import org.apache.commons.io.FilenameUtils;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Fans one stream of frames out to several encoders, so one render pass can write, say, a master and a proxy.
+ * <p>
+ * Each output has a worker thread and a small queue of its own, so a slow output only holds the others back once its
+ * queue is full. Outputs at full size share the incoming frame through {@link FrameBuffer#retain()} rather than each
+ * getting a copy; downscaled outputs read it into a buffer from a pool of their own on their worker, and let go of it
+ * straight away.
+ */
+public class TeeEncoderProcess extends EncoderProcess {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/TeeEncoder");
+
+    /**
+     * One output of a tee.
+     *
+     * @param encoder   The encoder to feed. Not started yet.
+     * @param suffix    Appended to the export's file name to get this output's.
+     * @param extension File extension for this output, excluding ".", or <code>null</code> to use none (for
+     *                  encoders that write a directory).
+     * @param downscale How many times smaller than the export this output's frames are, on each axis.
+     * @param filter    Filter to downscale with.
+     */
+    public record Output(EncoderProcess encoder, String suffix, @Nullable String extension, int downscale,
+                         DownscaleFilter filter) {
+        public Output {
+            if (downscale < 1) {
+                throw new IllegalArgumentException("Downscale must be at least 1");
+            }
+        }
+    }
+
+    @Getter
+    private final TeeFailurePolicy failurePolicy;
+
+    private final int queueSize;
+    private final List<Child> children = new ArrayList<>();
+
+    /**
+     * Create a tee.
+     *
+     * @param outputs       Outputs to write.
+     * @param failurePolicy What to do when one of them fails.
+     * @param queueSize     How many frames may wait for each output while it's busy.
+     */
+    public TeeEncoderProcess(List<Output> outputs, TeeFailurePolicy failurePolicy, int queueSize) {
+        if (outputs.isEmpty()) {
+            throw new IllegalArgumentException("A tee needs at least one output");
+        }
+        this.failurePolicy = failurePolicy;
+        this.queueSize = queueSize;
+        for (int i = 0; i < outputs.size(); i++) {
+            children.add(new Child(outputs.get(i), i));
+        }
+    }
+
+    /**
+     * Get the path an output writes to.
+     *
+     * @param outPath   The export's output path.
+     * @param suffix    The output's suffix.
+     * @param extension The output's extension, or <code>null</code> for none.
+     */
+    public static Path outputPath(Path outPath, String suffix, @Nullable String extension) {
+        String name = FilenameUtils.removeExtension(outPath.getFileName().toString()) + suffix;
+        if (extension != null) {
+            name += "." + extension;
+        }
+        return outPath.resolveSibling(name);
+    }
+
+    /**
+     * The number of outputs still being written.
+     */
+    public int getLiveOutputs() {
+        int live = 0;
+        for (var child : children) {
+            if (!child.dropped) live++;
+        }
+        return live;
+    }
+
+    @Override
+    protected void startEncoding() throws Exception {
+        RenderMetadata meta = getMetadata();
+        for (var child : children) {
+            child.start(meta);
+        }
+    }
+
+    @Override
+    protected void encodeFrame(FrameBuffer frame, int frameIdx) throws Exception {
+        // Children fail on threads of their own; this is where we find out.
+        for (var child : children) {
+            Throwable e = child.dropped ? null : child.output.encoder().getFailureReason();
+            if (e != null) {
+                childFailed(child, e);
+            }
+        }
+        Throwable failure = getFailureReason();
+        if (failure != null) {
+            frame.close();
+            throw new EncoderException(failure);
+        }
+
+        List<Child> live = new ArrayList<>(children.size());
+        for (var child : children) {
+            if (!child.dropped) live.add(child);
+        }
+        if (live.isEmpty()) {
+            // The last one has only just been dropped; the failure it leads to is on its way.
+            frame.close();
+            throw new IllegalStateException("Every output has failed");
+        }
+        // Every live output gets a reference of its own; we hand ours to the first.
+        for (int i = 1; i < live.size(); i++) {
+            frame.retain();
+        }
+        for (var child : live) {
+            child.submit(frame, frameIdx);
+        }
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        int capacity = 0;
+        for (var child : children) {
+            // The queue, plus the one its worker is handing on.
+            capacity += queueSize + 1;
+            if (child.downscaler == null) {
+                capacity += child.output.encoder().getQueueCapacity();
+            }
+        }
+        return capacity;
+    }
+
+    @Override
+    public long getFinishTimeout() {
+        if (children.isEmpty()) return super.getFinishTimeout();
+        long timeout = 0;
+        for (var child : children) {
+            long childTimeout = child.output.encoder().getFinishTimeout();
+            // Outputs finish side by side, so it's the slowest one that counts.
+            if (childTimeout == 0) return 0;
+            timeout = Math.max(timeout, childTimeout);
+        }
+        return timeout;
+    }
+
+    @Override
+    protected CompletableFuture<?> finishEncoding() {
+        List<CompletableFuture<?>> futures = new ArrayList<>(children.size());
+        for (var child : children) {
+            futures.add(child.finish().handle((v, e) -> {
+                if (e != null) {
+                    childFailed(child, e instanceof CompletionException ? e.getCause() : e);
+                }
+                child.closePool();
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            Throwable e = getFailureReason();
+            if (e != null) {
+                throw new EncoderException(e);
+            }
+        });
+    }
+
+    @Override
+    protected void onFailed(Throwable reason) {
+        for (var child : children) {
+            child.abort(reason);
+        }
+    }
+
+    private void childFailed(Child child, Throwable e) {
+        if (failurePolicy == TeeFailurePolicy.ABORT) {
+            fail(e);
+            return;
+        }
+
+        synchronized (this) {
+            if (child.dropped) return;
+            LOGGER.warn("Output {} failed; continuing without it.", child.index, e);
+            child.abort(e);
+        }
+        if (getLiveOutputs() == 0) {
+            fail(new IllegalStateException("Every output has failed", e));
+        }
+    }
+
+    private class Child {
+        final Output output;
+        final int index;
+        final ThreadPoolExecutor executor;
+
+        volatile @Nullable Downscaler downscaler;
+        volatile @Nullable FramePool pool;
+
+        /**
+         * Completes once every frame submitted before {@link #finish()} has been handed on.
+         */
+        final CompletableFuture<Void> drained = new CompletableFuture<>();
+
+        volatile boolean dropped;
+
+        Child(Output output, int index) {
+            this.output = output;
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 20, TimeUnit.MILLISECONDS,
+                    new SimpleBlockingQueue<>(queueSize), r -> {
+                Thread thread = new Thread(r, "ReplayLab tee output " + index);
+                thread.setDaemon(true);
+                return thread;
+            }) {
+                @Override
+                protected void terminated() {
+                    // Only now is the worker certainly done with it.
+                    if (downscaler != null) {
+                        downscaler.close();
+                    }
+                }
+            };
+        }
+
+        void start(RenderMetadata meta) {
+            int scale = output.downscale();
+            int width = meta.width() / scale;
+            int height = meta.height() / scale;
+            if (width < 1 || height < 1) {
+                throw new IllegalArgumentException("Output %d would be smaller than a pixel".formatted(index));
+            }
+
+            EncoderProcess encoder = output.encoder();
+            encoder.start(RenderMetadata.builder()
+                    .outPath(outputPath(meta.outPath(), output.suffix(), output.extension()))
+                    .width(width)
+                    .height(height)
+                    .totalFrames(meta.totalFrames())
+                    .fps(meta.fps())
+                    .build());
+
+            if (scale > 1) {
+                downscaler = new Downscaler(output.filter(), scale, width, height, meta.width(), meta.height(),
+                        Runtime.getRuntime().availableProcessors());
+                // One more than the encoder holds: the one being downscaled into.
+                pool = new FramePool(width, height, encoder.getQueueCapacity() + 1);
+            }
+        }
+
+        /**
+         * Queue a frame, taking over one reference to it. Blocks if the queue is full.
+         */
+        void submit(FrameBuffer frame, int frameIdx) {
+            try {
+                executor.execute(new FrameTask(this, frame, frameIdx));
+            } catch (RejectedExecutionException e) {
+                // Dropped (or the whole tee failed) since we looked.
+                frame.close();
+            }
+        }
+
+        void encode(FrameBuffer frame, int frameIdx) {
+            if (dropped) {
+                frame.close();
+                return;
+            }
+
+            FrameBuffer out = frame;
+            try {
+                if (downscaler != null) {
+                    FrameBuffer scaled = null;
+                    try {
+                        //noinspection DataFlowIssue (always set along with the downscaler)
+                        scaled = pool.acquire();
+                        downscaler.downscale(frame.pixels(), scaled.pixels(), false);
+                    } catch (Throwable e) {
+                        if (scaled != null) scaled.close();
+                        throw e;
+                    } finally {
+                        frame.close();
+                    }
+                    out = scaled;
+                }
+                // Ownership passes to the encoder, even if it throws.
+                output.encoder().accept(out, frameIdx);
+            } catch (Throwable e) {
+                childFailed(this, e);
+            }
+        }
+
+        CompletableFuture<?> finish() {
+            if (!dropped) {
+                try {
+                    executor.execute(() -> drained.complete(null));
+                } catch (RejectedExecutionException ignored) {
+                    // Aborted, which completes it anyway.
+                }
+            }
+            executor.shutdown();
+            if (dropped) {
+                drained.complete(null);
+            }
+            return drained.thenCompose(v -> dropped ? CompletableFuture.completedFuture(null)
+                    : output.encoder().finish());
+        }
+
+        /**
+         * Stop feeding this output, free everything it had queued, and make sure its encoder stops too.
+         */
+        void abort(Throwable reason) {
+            dropped = true;
+            for (Runnable task : executor.shutdownNow()) {
+                if (task instanceof FrameTask frameTask) {
+                    frameTask.frame.close();
+                }
+            }
+            drained.complete(null);
+
+            EncoderProcess encoder = output.encoder();
+            if (encoder.getState() != EncodingState.READY && encoder.getState() != EncodingState.FINISHED) {
+                encoder.fail(reason);
+            }
+            closePool();
+        }
+
+        void closePool() {
+            // Frames still with the encoder are freed as it returns them.
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+
+    private static class FrameTask implements Runnable {
+        final Child child;
+        final FrameBuffer frame;
+        final int frameIdx;
+
+        FrameTask(Child child, FrameBuffer frame, int frameIdx) {
+            this.child = child;
+            this.frame = frame;
+            this.frameIdx = frameIdx;
+        }
+
+        @Override
+        public void run() {
+            child.encode(frame, frameIdx);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.igrium.replaylab.render.encoder;
+
+/**
+ * What a {@link TeeEncoderProcess} does when one of its outputs fails.
+ */
+public enum TeeFailurePolicy {
+    /**
+     * Fail the whole export.
+     */
+    ABORT,
+    /**
+     * Give up on the output that failed and keep writing the others. The export only fails if every output does.
+     */
+    DROP_OUTPUT;
+
+    public String langKey() {
+        return "teefailurepolicy." + name().toLowerCase();
+    }
+}
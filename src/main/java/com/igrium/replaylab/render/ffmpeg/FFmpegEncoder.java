@@ -6,7 +6,9 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonSerializationContext;
 import com.igrium.replaylab.editor.EditorState;
 import com.igrium.replaylab.render.encoder.EncoderConfig;
+import com.igrium.replaylab.render.encoder.EncoderProcess;
 import com.igrium.replaylab.render.encoder.EncoderType;
+import com.igrium.replaylab.render.frame.YuvFormat;
 import com.igrium.replaylab.ui.windows.NoFFmpegPopup;
 import imgui.ImGui;
 import imgui.type.ImInt;
@@ -191,6 +193,27 @@ public class FFmpegEncoder extends EncoderConfig {
     @Setter    @NonNull
     private String customArgs = "";
 
+    /**
+     * If set, frames are converted to this YUV layout before being piped to ffmpeg instead of sending raw RGBA.
+     * Cuts the amount of data going through the pipe and takes the conversion off ffmpeg's hands.
+     */
+    @Getter
+    @Setter
+    private @Nullable YuvFormat pixelConversion = YuvFormat.YUV420P;
+
+    public static final int MAX_SEGMENTS = 16;
+
+    /**
+     * How many ffmpeg processes to encode with at once. If more than 1, the video is split into short segments that
+     * are encoded side by side and joined at the end. See {@link SegmentedFFmpegEncoderProcess}.
+     */
+    @Getter
+    private int segmentCount = 1;
+
+    public void setSegmentCount(int segmentCount) {
+        this.segmentCount = Math.clamp(segmentCount, 1, MAX_SEGMENTS);
+    }
+
     public FFmpegEncoder(EncoderType<?> type) {
         super(type);
     }
@@ -202,6 +225,8 @@ public class FFmpegEncoder extends EncoderConfig {
         this.rcMode = other.rcMode;
         this.crfValue = other.crfValue;
         this.bitrate = other.bitrate;
+        this.pixelConversion = other.pixelConversion;
+        setSegmentCount(other.segmentCount);
     }
 
     @Override
@@ -215,8 +240,17 @@ public class FFmpegEncoder extends EncoderConfig {
     }
 
     @Override
-    public FFmpegEncoderProcess spawnEncoder() {
-        return new FFmpegEncoderProcess(this);
+    public EncoderProcess spawnEncoder() {
+        return segmentCount > 1 ? new SegmentedFFmpegEncoderProcess(this) : new FFmpegEncoderProcess(this);
+    }
+
+    @Override
+    public EncoderProcess spawnDraftEncoder() {
+        FFmpegEncoder draft = new FFmpegEncoder(getType());
+        draft.copyFrom(this);
+        draft.setCustomArgs(customArgs);
+        draft.setEncPreset(EncodingPreset.ULTRAFAST);
+        return draft.spawnEncoder();
     }
 
     private static String containerLabel(String ext) {
@@ -314,6 +348,27 @@ public class FFmpegEncoder extends EncoderConfig {
         }
 
         ImGui.setItemTooltip(tt("gui.replaylab.ffmpeg.preset.tooltip"));
+
+        String conversionLabel = pixelConversion != null ? pixelConversion.langKey() : "pixfmt.none";
+        if (ImGui.beginCombo(t("gui.replaylab.ffmpeg.pixel_conversion"), tt(conversionLabel))) {
+            for (var format : YuvFormat.values()) {
+                if (drawComboItem(t(format.langKey()), format == this.pixelConversion)) {
+                    setPixelConversion(format);
+                }
+            }
+            if (drawComboItem(t("pixfmt.none"), this.pixelConversion == null)) {
+                setPixelConversion(null);
+            }
+            ImGui.endCombo();
+        }
+
+        ImGui.setItemTooltip(tt("gui.replaylab.ffmpeg.pixel_conversion.tooltip"));
+
+        int[] segmentsIn = {segmentCount};
+        if (ImGui.sliderInt(t("gui.replaylab.ffmpeg.segments"), segmentsIn, 1, MAX_SEGMENTS)) {
+            setSegmentCount(segmentsIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.ffmpeg.segments.tooltip"));
     }
 
     @Override
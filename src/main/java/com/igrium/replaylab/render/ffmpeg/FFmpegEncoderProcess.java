@@ -1,25 +1,25 @@
 package com.igrium.replaylab.render.ffmpeg;
 
 import com.google.common.collect.ImmutableList;
-import com.igrium.replaylab.mixin.AccessorNativeImage;
 import com.igrium.replaylab.mixin.AccessorRenderSettings;
 import com.igrium.replaylab.render.RenderMetadata;
+import com.igrium.replaylab.render.encoder.AdaptiveQueueController;
 import com.igrium.replaylab.render.encoder.EncoderException;
 import com.igrium.replaylab.render.encoder.EncoderProcess;
-import com.mojang.blaze3d.platform.NativeImage;
+import com.igrium.replaylab.render.encoder.EncoderStats;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.YuvConverter;
+import com.igrium.replaylab.render.frame.YuvFormat;
 import com.replaymod.render.FFmpegWriter;
 import com.replaymod.render.utils.StreamPipe;
+import lombok.Getter;
 import net.fabricmc.loader.api.FabricLoader;
 import org.apache.commons.io.output.TeeOutputStream;
 import org.jetbrains.annotations.Nullable;
-import org.lwjgl.system.MemoryUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
@@ -35,6 +35,15 @@ public class FFmpegEncoderProcess extends EncoderProcess {
 
     private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/FFmpegEncoderProcess");
 
+    private static final int MIN_QUEUE_DEPTH = 2;
+    private static final int MAX_QUEUE_DEPTH = 32;
+    private static final int INITIAL_QUEUE_DEPTH = 4;
+
+    /**
+     * Rough ceiling on how much frame data may be queued for ffmpeg at once.
+     */
+    private static final long MAX_QUEUED_BYTES = 512L * 1024 * 1024;
+
     private final FFmpegEncoder encoderConfig;
 
 
@@ -44,9 +53,23 @@ public class FFmpegEncoderProcess extends EncoderProcess {
      */
     private @Nullable OutputStream outputStream;
 
-    private @Nullable WritableByteChannel channel;
+    private @Nullable FFmpegPipeWriter writer;
+    private @Nullable YuvConverter converter;
+
+    private int queueCapacity = MIN_QUEUE_DEPTH;
     private final ByteArrayOutputStream ffmpegLog = new ByteArrayOutputStream(4096);
 
+    @Getter
+    private final AdaptiveQueueController queueController =
+            new AdaptiveQueueController(MIN_QUEUE_DEPTH, MAX_QUEUE_DEPTH, INITIAL_QUEUE_DEPTH);
+
+    private volatile @Nullable FFmpegProgress lastProgress;
+
+    /**
+     * Frames handed to the writer so far. Only written by the render thread; read by the progress thread.
+     */
+    private volatile int framesSubmitted;
+
     public FFmpegEncoderProcess(FFmpegEncoder encoderConfig) {
         this.encoderConfig = encoderConfig;
     }
@@ -63,39 +86,100 @@ public class FFmpegEncoderProcess extends EncoderProcess {
         List<String> cmd = generateCommand(getMetadata(), encoderConfig);
         LOGGER.info("FFmpeg command: {}", String.join(" ", cmd));
 
-        try {
-            process = new ProcessBuilder(cmd).directory(outFolder).start();
-        } catch (IOException e) {
-            throw new FFmpegWriter.NoFFmpegException(e);
-        }
+        process = launch(cmd, outFolder);
 
-        new StreamPipe(process.getInputStream(), exportLogOut).start();
+        // stdout is free (the video goes to a file), so ffmpeg's -progress reports come through there.
+        InputStream progressIn = process.getInputStream();
+        Thread progressThread = new Thread(() -> readProgress(progressIn), "ReplayLab FFmpeg progress");
+        progressThread.setDaemon(true);
+        progressThread.start();
         new StreamPipe(process.getErrorStream(), exportLogOut).start();
         // Confusing name: getOutputStream returns an output stream from THIS process to FFmpeg.
         outputStream = process.getOutputStream();
-        channel = Channels.newChannel(outputStream);
+
+        // Bound queue by bytes so it scales cleanly with resolution (and therefore memory usage)
+        long frameBytes = (long) getMetadata().width() * getMetadata().height() * 4;
+        queueCapacity = Math.clamp(MAX_QUEUED_BYTES / Math.max(frameBytes, 1), MIN_QUEUE_DEPTH, MAX_QUEUE_DEPTH);
+        YuvFormat conversion = encoderConfig.getPixelConversion();
+        if (conversion != null) {
+            converter = new YuvConverter(conversion, getMetadata().width(), getMetadata().height(),
+                    Runtime.getRuntime().availableProcessors());
+        }
+        writer = new FFmpegPipeWriter(outputStream, getQueueDepth() * frameBytes,
+                FFmpegPipeWriter.DEFAULT_CHUNK_SIZE, this::fail, converter);
     }
 
-    @SuppressWarnings("TryFinallyCanBeTryWithResources") // More clear what it's doing
     @Override
-    protected void encodeFrame(NativeImage frame, int frameIdx) throws IOException {
-        try {
-            //noinspection DataFlowIssue (mixins babyyyyy)
-            AccessorNativeImage img = (AccessorNativeImage) (Object) frame;
-            ByteBuffer buffer = MemoryUtil.memByteBuffer(img.getPixels(), (int) img.getSize());
-            channel.write(buffer);
-        } finally {
-            // Write is synchronous, so the frame is dead the moment it returns.
-            frame.close();
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return Math.min(queueController.getDepth(), queueCapacity);
+    }
+
+    @Override
+    protected void encodeFrame(FrameBuffer frame, int frameIdx) throws IOException, InterruptedException {
+        //noinspection DataFlowIssue
+        writer.setMaxQueuedBytes((long) getQueueDepth() * frame.sizeBytes());
+        // Ownership passes to the writer thread. This only blocks if the queue is full.
+        writer.submit(frame);
+        framesSubmitted++;
+    }
+
+
+    private void readProgress(InputStream in) {
+        FFmpegProgressParser parser = new FFmpegProgressParser();
+        long lastTime = System.nanoTime();
+        int lastSubmitted = 0;
+        int lastEncoded = 0;
+        long lastStall = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                FFmpegProgress progress = parser.accept(line);
+                if (progress == null) continue;
+                lastProgress = progress;
+
+                long now = System.nanoTime();
+                double seconds = (now - lastTime) / 1e9;
+                if (seconds <= 0) continue;
+
+                int submitted = framesSubmitted;
+                FFmpegPipeWriter writer = this.writer;
+                long stall = writer != null ? writer.getBlockedNanos() : 0;
+                queueController.update((submitted - lastSubmitted) / seconds,
+                        (progress.frame() - lastEncoded) / seconds,
+                        (stall - lastStall) / 1e9 / seconds);
+
+                lastTime = now;
+                lastSubmitted = submitted;
+                lastEncoded = progress.frame();
+                lastStall = stall;
+            }
+        } catch (IOException e) {
+            // The stream closes under us when ffmpeg dies; the exit code is what gets reported.
+            LOGGER.debug("FFmpeg progress stream closed", e);
         }
     }
 
+    @Override
+    public @Nullable EncoderStats getStats() {
+        FFmpegProgress progress = lastProgress;
+        if (progress == null) return null;
+        return new EncoderStats(progress.frame(), progress.fps(), progress.speed(), progress.bitrateKbps(),
+                queueController.getDepth());
+    }
 
     @Override
     protected CompletableFuture<?> finishEncoding() throws IOException {
-        if (outputStream != null) outputStream.close();
-        if (process != null) {
-            return process.onExit().thenAccept(p -> {
+        if (process != null && writer != null) {
+            // The writer closes ffmpeg's stdin once it's done, which is ffmpeg's cue to finish up.
+            Process process = this.process;
+            return writer.finish().whenComplete((v, e) -> closeConverter())
+                    .thenCompose(v -> process.onExit()).thenAccept(p -> {
                 int exitValue = p.exitValue();
                 if (exitValue != 0) {
                     throw new EncoderException("FFmpeg exited with code " + exitValue);
@@ -106,8 +190,15 @@ public class FFmpegEncoderProcess extends EncoderProcess {
         }
     }
 
+    private void closeConverter() {
+        if (converter != null) converter.close();
+    }
+
     @Override
     protected void onFailed(Throwable reason) {
+        if (writer != null) writer.abort();
+        // The writer may still be mid-conversion; the converter fails that cleanly once shut down.
+        closeConverter();
         try {
             if (outputStream != null) outputStream.close();
         } catch (IOException e) {
@@ -116,10 +207,23 @@ public class FFmpegEncoderProcess extends EncoderProcess {
         if (process != null) process.destroy();
     }
 
+    /**
+     * Start an ffmpeg process.
+     *
+     * @throws FFmpegWriter.NoFFmpegException If ffmpeg couldn't be started at all.
+     */
+    static Process launch(List<String> command, File directory) throws FFmpegWriter.NoFFmpegException {
+        try {
+            return new ProcessBuilder(command).directory(directory).start();
+        } catch (IOException e) {
+            throw new FFmpegWriter.NoFFmpegException(e);
+        }
+    }
+
     public static List<String> generateCommand(RenderMetadata metadata, FFmpegEncoder encoderConfig) {
         var command = ImmutableList.<String>builder();
         command.add(AccessorRenderSettings.invokeFindFFmpeg());
-        generateBoilerplateArgs(metadata, command);
+        generateBoilerplateArgs(metadata, encoderConfig.getPixelConversion(), command);
         generateCodecArgs(encoderConfig, command);
         command.add(metadata.outPath().toString());
 
@@ -127,8 +231,24 @@ public class FFmpegEncoderProcess extends EncoderProcess {
     }
 
     public static void generateBoilerplateArgs(RenderMetadata meta, ImmutableList.Builder<String> builder) {
-        builder.add("-y", "-f", "rawvideo", "-pix_fmt", "rgba",
-                "-s", meta.width() + "x" + meta.height(),
+        generateBoilerplateArgs(meta, null, builder);
+    }
+
+    /**
+     * Generate the input arguments for the raw frames piped into ffmpeg.
+     *
+     * @param conversion The YUV layout frames are converted to before piping, or <code>null</code> for raw RGBA.
+     */
+    public static void generateBoilerplateArgs(RenderMetadata meta, @Nullable YuvFormat conversion,
+                                               ImmutableList.Builder<String> builder) {
+        builder.add("-y", "-progress", "pipe:1", "-f", "rawvideo",
+                "-pix_fmt", conversion != null ? conversion.getFfmpegName() : "rgba");
+        if (conversion != null) {
+            // Tell ffmpeg what YuvConverter produces so it doesn't guess (and convert again).
+            builder.add("-color_range", "tv", "-colorspace", "bt709",
+                    "-color_primaries", "bt709", "-color_trc", "bt709");
+        }
+        builder.add("-s", meta.width() + "x" + meta.height(),
                 "-r", String.valueOf(meta.fps()),
                 "-i", "pipe:0");
     }
@@ -145,7 +265,8 @@ public class FFmpegEncoderProcess extends EncoderProcess {
         String encoder = codec.encoderName();
 
         args.add("-c:v", encoder);
-        args.add("-pix_fmt", "yuv420p");
+        YuvFormat conversion = encoderConfig.getPixelConversion();
+        args.add("-pix_fmt", conversion != null ? conversion.getOutputFormat() : "yuv420p");
 
         // PRESETS
         FFmpegEncoder.EncodingPreset preset = encoderConfig.getEncPreset();
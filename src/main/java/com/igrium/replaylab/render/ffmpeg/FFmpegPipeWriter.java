@@ -0,0 +1,288 @@
+package com.igrium.replaylab.render.ffmpeg;
+
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.YuvConverter;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Feeds raw frames into ffmpeg's stdin from a dedicated thread, so the render thread only has to hand frames off
+ * instead of waiting for ffmpeg to read 33 MB at a time.
+ * <p>
+ * Frames are queued up to a byte budget; {@link #submit} only blocks when the budget is used up. Frames are written
+ * in large chunks through a single reusable array: the process's stdin is a {@link java.io.BufferedOutputStream} over
+ * the pipe, which passes writes at least as large as its own buffer straight through, so each chunk is a single
+ * write call instead of the 8 KiB pieces {@link java.nio.channels.Channels#newChannel(OutputStream)} would send.
+ * <p>
+ * If given a {@link YuvConverter}, frames are converted on the writer thread before being written, and handed back
+ * to their pool as soon as the conversion is done. Only the parts of a frame that changed since the one before it are
+ * converted (see {@link YuvConverter#convertChanged}), so a hold costs a hash instead of a conversion. That's all it
+ * saves: a raw pipe has no way of saying "that frame again", so every frame's bytes are still sent and ffmpeg still
+ * encodes each one. Unconverted frames are written straight from their pixels, so there's nothing to save by checking
+ * them.
+ */
+public class FFmpegPipeWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/FFmpegPipeWriter");
+
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private final OutputStream out;
+    private long maxQueuedBytes;
+    private final int chunkSize;
+    private final Consumer<Throwable> onError;
+    private final @Nullable YuvConverter converter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private final Deque<FrameBuffer> queue = new ArrayDeque<>();
+    private long queuedBytes;
+    private boolean finishing;
+    private @Nullable Throwable error;
+
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+    private final Thread thread;
+
+    /**
+     * Total time callers of {@link #submit} have spent blocked on a full queue.
+     */
+    @Getter
+    private volatile long blockedNanos;
+
+    /**
+     * Frames fully written to the stream so far.
+     */
+    @Getter
+    private volatile int framesWritten;
+
+    /**
+     * Frames so far that matched the one before, so their conversion was reused. They're still written and encoded
+     * like any other frame.
+     */
+    @Getter
+    private volatile int skippedConversions;
+
+    /**
+     * Create and start a pipe writer.
+     *
+     * @param out            Stream to write to. Closed once everything has been written.
+     * @param maxQueuedBytes Byte budget of the queue. A single frame is always admitted, even if it's bigger.
+     * @param chunkSize      Size of each individual write.
+     * @param onError        Called from the writer thread if a write fails.
+     */
+    public FFmpegPipeWriter(OutputStream out, long maxQueuedBytes, int chunkSize, Consumer<Throwable> onError) {
+        this(out, maxQueuedBytes, chunkSize, onError, null);
+    }
+
+    /**
+     * Create and start a pipe writer.
+     *
+     * @param out            Stream to write to. Closed once everything has been written.
+     * @param maxQueuedBytes Byte budget of the queue. A single frame is always admitted, even if it's bigger.
+     * @param chunkSize      Size of each individual write.
+     * @param onError        Called from the writer thread if a write fails.
+     * @param converter      If set, frames are converted with this before being written. Not closed by the writer.
+     */
+    public FFmpegPipeWriter(OutputStream out, long maxQueuedBytes, int chunkSize, Consumer<Throwable> onError,
+                            @Nullable YuvConverter converter) {
+        this.out = out;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.chunkSize = chunkSize;
+        this.onError = onError;
+        this.converter = converter;
+
+        thread = new Thread(this::run, "ReplayLab FFmpeg writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Change the queue's byte budget. Takes effect for the next submitted frame.
+     */
+    public void setMaxQueuedBytes(long maxQueuedBytes) {
+        lock.lock();
+        try {
+            this.maxQueuedBytes = maxQueuedBytes;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getQueuedBytes() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a frame to be written, <strong>taking ownership of it</strong>. Blocks only if the queue is over budget.
+     *
+     * @param frame Frame to write. Closed once written (or once it's clear it never will be).
+     * @throws IOException          If a previous write failed. The frame is closed.
+     * @throws InterruptedException If interrupted while waiting for room. The frame is closed.
+     */
+    public void submit(FrameBuffer frame) throws IOException, InterruptedException {
+        long size = frame.sizeBytes();
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            while (error == null && !finishing && !queue.isEmpty() && queuedBytes + size > maxQueuedBytes) {
+                notFull.await();
+            }
+            blockedNanos += System.nanoTime() - start;
+
+            if (error != null) {
+                throw new IOException("FFmpeg pipe writer failed", error);
+            }
+            if (finishing) {
+                throw new IllegalStateException("Writer is finishing");
+            }
+
+            queue.addLast(frame);
+            queuedBytes += size;
+            notEmpty.signal();
+            frame = null;
+        } finally {
+            lock.unlock();
+            // Only non-null if it didn't make it into the queue.
+            if (frame != null) frame.close();
+        }
+    }
+
+    /**
+     * Write whatever is still queued, then close the stream.
+     *
+     * @return A future that completes once the stream is closed, or fails with the write error.
+     */
+    public CompletableFuture<Void> finish() {
+        lock.lock();
+        try {
+            finishing = true;
+            notEmpty.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return finished;
+    }
+
+    /**
+     * Stop writing and free all queued frames. Doesn't close the stream; the caller is expected to kill the process
+     * anyway.
+     */
+    public void abort() {
+        fail(new IOException("Writer aborted"), false);
+        thread.interrupt();
+    }
+
+    private void run() {
+        byte[] chunk = new byte[chunkSize];
+        YuvConverter.Target converted = converter != null ? converter.createTarget() : null;
+        try {
+            while (true) {
+                FrameBuffer frame;
+                lock.lock();
+                try {
+                    while (queue.isEmpty() && !finishing && error == null) {
+                        notEmpty.await();
+                    }
+                    if (error != null) return;
+                    frame = queue.pollFirst();
+                    if (frame == null) break; // finishing and drained
+                } finally {
+                    lock.unlock();
+                }
+
+                // The frame keeps counting against the budget until it's written. It's also no longer in the
+                // queue, so a concurrent fail() can't free it out from under the write.
+                long size = frame.sizeBytes();
+                try {
+                    ByteBuffer data;
+                    if (converted != null) {
+                        //noinspection DataFlowIssue
+                        if (converter.convertChanged(frame.pixels(), converted) == 0) {
+                            skippedConversions++;
+                        }
+                        // The pixels aren't needed for the (much slower) write, so the pool can have them back.
+                        frame.close();
+                        frame = null;
+                        data = converted.getBuffer().duplicate().clear();
+                    } else {
+                        data = frame.pixels();
+                    }
+                    write(data, chunk);
+                } finally {
+                    if (frame != null) frame.close();
+                    lock.lock();
+                    try {
+                        if (error == null) {
+                            queuedBytes -= size;
+                        }
+                        notFull.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                framesWritten++;
+            }
+
+            out.close();
+            if (skippedConversions > 0) {
+                LOGGER.debug("Reused the conversion of {} repeated frames", skippedConversions);
+            }
+            finished.complete(null);
+        } catch (InterruptedException e) {
+            // Only happens through abort(), which has already failed everything.
+        } catch (Throwable e) {
+            fail(e, true);
+        }
+    }
+
+    private void write(ByteBuffer pixels, byte[] chunk) throws IOException {
+        while (pixels.hasRemaining()) {
+            int len = Math.min(chunk.length, pixels.remaining());
+            pixels.get(chunk, 0, len);
+            out.write(chunk, 0, len);
+        }
+    }
+
+    private void fail(Throwable e, boolean report) {
+        lock.lock();
+        try {
+            if (error != null) return;
+            error = e;
+            for (var frame : queue) {
+                frame.close();
+            }
+            queue.clear();
+            queuedBytes = 0;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        finished.completeExceptionally(e);
+        if (report) {
+            LOGGER.error("Error writing to FFmpeg: ", e);
+            onError.accept(e);
+        }
+    }
+}
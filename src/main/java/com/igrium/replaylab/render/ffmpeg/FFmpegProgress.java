@@ -0,0 +1,16 @@
+package com.igrium.replaylab.render.ffmpeg;
+
+/**
+ * One block of ffmpeg's <code>-progress</code> output.
+ *
+ * @param frame       Frames encoded so far.
+ * @param fps         Current encoding rate.
+ * @param bitrateKbps Current bitrate in kbit/s, or <code>NaN</code> if ffmpeg reported <code>N/A</code>.
+ * @param totalSize   Bytes written to the output so far, or <code>-1</code> if unknown.
+ * @param outTimeUs   Timestamp of the last encoded frame, in microseconds, or <code>-1</code> if unknown.
+ * @param speed       Encoding speed relative to realtime, or <code>NaN</code> if unknown.
+ * @param end         <code>true</code> if this is the last block ffmpeg will send.
+ */
+public record FFmpegProgress(int frame, double fps, double bitrateKbps, long totalSize, long outTimeUs,
+                             double speed, boolean end) {
+}
@@ -0,0 +1,67 @@
+package com.igrium.replaylab.render.ffmpeg;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parses the <code>key=value</code> lines ffmpeg writes when launched with <code>-progress</code>. Keys arrive one
+ * per line and each block is terminated by <code>progress=continue</code> or <code>progress=end</code>.
+ * <p>
+ * Not thread-safe; meant to be fed by a single reader thread.
+ */
+public class FFmpegProgressParser {
+    private int frame;
+    private double fps;
+    private double bitrateKbps = Double.NaN;
+    private long totalSize = -1;
+    private long outTimeUs = -1;
+    private double speed = Double.NaN;
+
+    /**
+     * Feed a single line of progress output.
+     *
+     * @param line The line, without its terminator.
+     * @return The completed block if this line finished one; <code>null</code> otherwise.
+     */
+    public @Nullable FFmpegProgress accept(String line) {
+        int split = line.indexOf('=');
+        if (split < 0) return null;
+
+        String key = line.substring(0, split).trim();
+        String value = line.substring(split + 1).trim();
+
+        switch (key) {
+            case "frame" -> frame = (int) parseLong(value, frame);
+            case "fps" -> fps = parseDouble(value, fps);
+            case "bitrate" -> bitrateKbps = parseDouble(stripSuffix(value, "kbits/s"), Double.NaN);
+            case "total_size" -> totalSize = parseLong(value, -1);
+            case "out_time_us" -> outTimeUs = parseLong(value, -1);
+            case "speed" -> speed = parseDouble(stripSuffix(value, "x"), Double.NaN);
+            case "progress" -> {
+                return new FFmpegProgress(frame, fps, bitrateKbps, totalSize, outTimeUs, speed, value.equals("end"));
+            }
+            default -> {}
+        }
+        return null;
+    }
+
+    private static String stripSuffix(String value, String suffix) {
+        return value.endsWith(suffix) ? value.substring(0, value.length() - suffix.length()).trim() : value;
+    }
+
+    // ffmpeg writes N/A for anything it can't compute yet, so unparsable values are expected.
+    private static long parseLong(String value, long fallback) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static double parseDouble(String value, double fallback) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
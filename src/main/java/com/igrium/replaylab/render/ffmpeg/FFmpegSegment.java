@@ -0,0 +1,109 @@
+package com.igrium.replaylab.render.ffmpeg;
+
+import com.igrium.replaylab.render.encoder.EncoderException;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.YuvConverter;
+import com.replaymod.render.utils.StreamPipe;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * One segment of a {@link SegmentedFFmpegEncoderProcess}: an ffmpeg process encoding a slice of the export to its
+ * own file.
+ */
+class FFmpegSegment implements SegmentScheduler.Segment {
+    private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/FFmpegSegment");
+
+    @Getter
+    private final int index;
+
+    private final Process process;
+    private final FFmpegPipeWriter writer;
+
+    private volatile @Nullable CompletableFuture<?> finished;
+
+    /**
+     * The latest progress report from this segment's ffmpeg.
+     */
+    @Getter
+    private volatile @Nullable FFmpegProgress progress;
+
+    /**
+     * Start a segment's ffmpeg process.
+     *
+     * @param index          Segment index.
+     * @param command        Full ffmpeg command.
+     * @param directory      Working directory.
+     * @param logFile        File to write ffmpeg's log to.
+     * @param maxQueuedBytes Byte budget of this segment's frame queue.
+     * @param converter      Converter to run frames through before writing, if any.
+     * @param onError        Called if writing to ffmpeg fails.
+     */
+    FFmpegSegment(int index, List<String> command, File directory, Path logFile, long maxQueuedBytes,
+                  @Nullable YuvConverter converter, Consumer<Throwable> onError) throws IOException {
+        this.index = index;
+        this.process = FFmpegEncoderProcess.launch(command, directory);
+
+        InputStream progressIn = process.getInputStream();
+        Thread progressThread = new Thread(() -> readProgress(progressIn), "ReplayLab FFmpeg progress " + index);
+        progressThread.setDaemon(true);
+        progressThread.start();
+        new StreamPipe(process.getErrorStream(), new BufferedOutputStream(Files.newOutputStream(logFile))).start();
+
+        writer = new FFmpegPipeWriter(process.getOutputStream(), maxQueuedBytes,
+                FFmpegPipeWriter.DEFAULT_CHUNK_SIZE, onError, converter);
+    }
+
+    private void readProgress(InputStream in) {
+        FFmpegProgressParser parser = new FFmpegProgressParser();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                FFmpegProgress p = parser.accept(line);
+                if (p != null) progress = p;
+            }
+        } catch (IOException e) {
+            LOGGER.debug("FFmpeg progress stream closed", e);
+        }
+    }
+
+    @Override
+    public void submit(FrameBuffer frame) throws IOException, InterruptedException {
+        writer.submit(frame);
+    }
+
+    @Override
+    public CompletableFuture<?> finish() {
+        if (finished == null) {
+            finished = writer.finish().thenCompose(v -> process.onExit()).thenAccept(p -> {
+                int exitValue = p.exitValue();
+                if (exitValue != 0) {
+                    throw new EncoderException("FFmpeg exited with code %d on segment %d".formatted(exitValue, index));
+                }
+            });
+        }
+        return finished;
+    }
+
+    /**
+     * Whether this segment is done encoding, successfully or not.
+     */
+    public boolean isDone() {
+        return finished != null && finished.isDone();
+    }
+
+    @Override
+    public void abort() {
+        writer.abort();
+        process.destroy();
+    }
+}
@@ -0,0 +1,239 @@
+package com.igrium.replaylab.render.ffmpeg;
+
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Splits an in-order stream of frames into fixed-length segments and hands each one to its own encoder, keeping up to
+ * a set number of them encoding at once.
+ * <p>
+ * A segment is started when its first frame arrives and finished as soon as the next segment's first frame does. It
+ * then keeps encoding whatever it still has buffered while the next one is fed, which is where the parallelism comes
+ * from, so segments should be no longer than their encoder's queue (see {@link #segmentLength(int, int)}). Once the
+ * limit is reached, starting a new segment blocks until one of the running ones is done.
+ *
+ * @param <S> Segment type.
+ */
+public class SegmentScheduler<S extends SegmentScheduler.Segment> {
+
+    /**
+     * A single segment's encoder.
+     */
+    public interface Segment {
+        /**
+         * Queue a frame, taking ownership of it. May block if the segment's queue is full.
+         */
+        void submit(FrameBuffer frame) throws IOException, InterruptedException;
+
+        /**
+         * Signal that no more frames are coming.
+         *
+         * @return A future that completes once the segment has been fully encoded.
+         */
+        CompletableFuture<?> finish();
+
+        /**
+         * Stop encoding and free everything. May be called at any point, including after the segment has finished.
+         */
+        void abort();
+    }
+
+    @FunctionalInterface
+    public interface SegmentFactory<S extends Segment> {
+        /**
+         * Start the encoder for a segment.
+         *
+         * @param segmentIdx Index of the segment. Its first frame is <code>segmentIdx * segmentFrames</code>.
+         */
+        S start(int segmentIdx) throws IOException;
+    }
+
+    /**
+     * How many frames go into each segment.
+     */
+    @Getter
+    private final int segmentFrames;
+
+    /**
+     * How many segments may be encoding at once, including the one currently being fed.
+     */
+    @Getter
+    private final int maxRunning;
+
+    private final SegmentFactory<S> factory;
+
+    private final List<S> segments = new ArrayList<>();
+    private final List<Integer> segmentIndices = new ArrayList<>();
+    private final List<CompletableFuture<?>> finished = new ArrayList<>();
+
+    private @Nullable S current;
+    private int currentIdx = -1;
+    private boolean finishing;
+    private boolean aborted;
+
+    public SegmentScheduler(int segmentFrames, int maxRunning, SegmentFactory<S> factory) {
+        if (segmentFrames < 1) throw new IllegalArgumentException("segmentFrames must be at least 1");
+        if (maxRunning < 1) throw new IllegalArgumentException("maxRunning must be at least 1");
+        this.segmentFrames = segmentFrames;
+        this.maxRunning = maxRunning;
+        this.factory = factory;
+    }
+
+    /**
+     * Work out how long to make segments so each one fits in its encoder's queue. Feeding a segment then never waits
+     * on its encoder, and the next one starts while it's still working.
+     *
+     * @param queueFrames How many frames a segment's queue holds.
+     * @param unit        Segments are a whole number of these frames long, such as a GOP.
+     * @return The segment length in frames: the most whole units that fit in the queue, and at least one unit.
+     */
+    public static int segmentLength(int queueFrames, int unit) {
+        return Math.max(queueFrames / unit, 1) * unit;
+    }
+
+    /**
+     * Route a frame to its segment, <strong>taking ownership of it</strong>. Frames must arrive in order.
+     *
+     * @param frame    The frame. Closed if it can't be queued.
+     * @param frameIdx Index of the frame within the export.
+     * @throws IOException If a segment failed to start or a running segment failed.
+     */
+    public void submit(FrameBuffer frame, int frameIdx) throws IOException, InterruptedException {
+        S segment;
+        try {
+            segment = segmentFor(frameIdx / segmentFrames);
+        } catch (Exception e) {
+            frame.close();
+            throw e;
+        }
+        segment.submit(frame);
+    }
+
+    private S segmentFor(int segmentIdx) throws IOException, InterruptedException {
+        if (segmentIdx == currentIdx && current != null) {
+            return current;
+        }
+        if (segmentIdx < currentIdx) {
+            throw new IllegalArgumentException("Frames must arrive in order (segment %d after %d)"
+                    .formatted(segmentIdx, currentIdx));
+        }
+        if (finishing) {
+            throw new IllegalStateException("Scheduler is finishing");
+        }
+
+        endCurrent();
+        awaitSlot();
+
+        S segment = factory.start(segmentIdx);
+        synchronized (this) {
+            segments.add(segment);
+            segmentIndices.add(segmentIdx);
+            if (aborted) {
+                // Raced with abort(); it won't have seen this one.
+                segment.abort();
+                throw new IOException("Segmented encode aborted");
+            }
+        }
+        current = segment;
+        currentIdx = segmentIdx;
+        return segment;
+    }
+
+    private void endCurrent() {
+        if (current == null) return;
+        CompletableFuture<?> future = current.finish();
+        synchronized (this) {
+            finished.add(future);
+        }
+        current = null;
+    }
+
+    /**
+     * Block until fewer than {@link #maxRunning} segments are encoding.
+     */
+    private void awaitSlot() throws IOException, InterruptedException {
+        while (true) {
+            CompletableFuture<?>[] pending;
+            synchronized (this) {
+                if (aborted) throw new IOException("Segmented encode aborted");
+                pending = finished.stream().filter(f -> !f.isDone() || f.isCompletedExceptionally())
+                        .toArray(CompletableFuture[]::new);
+            }
+            // Surface failures here rather than letting the render continue into a broken export.
+            for (var future : pending) {
+                if (future.isCompletedExceptionally()) waitFor(future);
+            }
+            if (pending.length < maxRunning) return;
+            waitFor(CompletableFuture.anyOf(pending));
+        }
+    }
+
+    private static void waitFor(CompletableFuture<?> future) throws IOException, InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Segment failed to encode", e.getCause());
+        }
+    }
+
+    /**
+     * Finish the segment currently being fed.
+     *
+     * @return A future that completes with the indices of all segments that were started, in order, once they've
+     * all been encoded.
+     */
+    public CompletableFuture<List<Integer>> finish() {
+        finishing = true;
+        endCurrent();
+        CompletableFuture<?>[] futures;
+        List<Integer> indices;
+        synchronized (this) {
+            futures = finished.toArray(CompletableFuture[]::new);
+            indices = List.copyOf(segmentIndices);
+        }
+        return CompletableFuture.allOf(futures).thenApply(v -> indices);
+    }
+
+    /**
+     * Abort every segment that was started. Safe to call from any thread.
+     */
+    public void abort() {
+        List<S> toAbort;
+        synchronized (this) {
+            if (aborted) return;
+            aborted = true;
+            toAbort = List.copyOf(segments);
+        }
+        for (var segment : toAbort) {
+            segment.abort();
+        }
+    }
+
+    /**
+     * Get the indices of the segments that have finished encoding successfully, stopping at the first one that
+     * hasn't. Safe to call from any thread.
+     */
+    public synchronized List<Integer> getCompletedSegments() {
+        List<Integer> completed = new ArrayList<>();
+        for (int i = 0; i < finished.size(); i++) {
+            CompletableFuture<?> future = finished.get(i);
+            if (!future.isDone() || future.isCompletedExceptionally()) break;
+            completed.add(segmentIndices.get(i));
+        }
+        return completed;
+    }
+
+    /**
+     * Get every segment started so far, in order.
+     */
+    public synchronized List<S> getSegments() {
+        return List.copyOf(segments);
+    }
+}
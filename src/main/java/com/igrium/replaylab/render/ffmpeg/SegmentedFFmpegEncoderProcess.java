@@ -0,0 +1,341 @@
+package com.igrium.replaylab.render.ffmpeg;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.igrium.replaylab.mixin.AccessorRenderSettings;
+import com.igrium.replaylab.render.RenderMetadata;
+import com.igrium.replaylab.render.encoder.EncoderException;
+import com.igrium.replaylab.render.encoder.EncoderProcess;
+import com.igrium.replaylab.render.encoder.EncoderStats;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.YuvConverter;
+import com.igrium.replaylab.render.frame.YuvFormat;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Encodes the export as a series of short segments, each with its own ffmpeg process, several of which run at once.
+ * Every segment is a whole number of GOPs long, so they can be joined losslessly into the final file with ffmpeg's
+ * concat demuxer once they're all done.
+ * <p>
+ * Frames still arrive in order, so a segment is only made as long as its queue. Handing it its frames never waits on
+ * its encoder; the next segment starts straight away, and so on until the process limit, leaving each process working
+ * through a queue of its own. This pays off for slow encoders (AV1, H.265 on slow presets) that can't saturate the
+ * CPU on their own. The price is a keyframe at least every segment and an ffmpeg launch per segment, which is why
+ * it's opt-in.
+ * <p>
+ * Finished segments are also a natural checkpoint: if the export stops early, the segments are kept, and resuming
+ * picks up at the first segment that wasn't fully encoded.
+ */
+public class SegmentedFFmpegEncoderProcess extends EncoderProcess {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/SegmentedFFmpegEncoderProcess");
+
+    /**
+     * Longest keyframe interval, in seconds. It's cut down to fit in a segment if the queues are shorter than that.
+     */
+    private static final float GOP_SECONDS = 2;
+
+    /**
+     * Rough ceiling on how much frame data may be queued across all segments at once.
+     */
+    private static final long MAX_QUEUED_BYTES = 1024L * 1024 * 1024;
+
+    private static final int MIN_SEGMENT_QUEUE = 2;
+
+    private final FFmpegEncoder encoderConfig;
+
+    private @Nullable SegmentScheduler<FFmpegSegment> scheduler;
+    private @Nullable YuvConverter converter;
+    private @Nullable Path segmentDir;
+    private String extension = "";
+
+    private int gopSize = 1;
+    private int segmentFrames = 1;
+    private long segmentQueueBytes;
+    private int queueCapacity = MIN_SEGMENT_QUEUE;
+
+    /**
+     * Segments written by the export this one resumes.
+     */
+    private List<Integer> previousSegments = List.of();
+
+    /**
+     * How far into the export frames have been handed to segments, counting from frame <code>0</code>.
+     */
+    private volatile int submittedFrames;
+
+    public SegmentedFFmpegEncoderProcess(FFmpegEncoder encoderConfig) {
+        this.encoderConfig = encoderConfig;
+    }
+
+    @Override
+    protected void startEncoding() throws Exception {
+        RenderMetadata meta = getMetadata();
+        Path outPath = meta.outPath();
+        Files.createDirectories(outPath.getParent());
+
+        String fileName = outPath.getFileName().toString();
+        extension = FilenameUtils.getExtension(fileName);
+        segmentDir = outPath.resolveSibling(fileName + ".segments");
+        submittedFrames = getFirstFrame();
+        int segmentCount = encoderConfig.getSegmentCount();
+
+        // Frames are queued as RGBA regardless of conversion, so that's what the budget is in.
+        long frameBytes = Math.max((long) meta.width() * meta.height() * 4, 1);
+        int segmentQueue = (int) Math.max(MAX_QUEUED_BYTES / segmentCount / frameBytes, MIN_SEGMENT_QUEUE);
+        gopSize = Math.clamp(Math.round(meta.fps() * GOP_SECONDS), 1, segmentQueue);
+        segmentFrames = SegmentScheduler.segmentLength(segmentQueue, gopSize);
+
+        if (getFirstFrame() > 0) {
+            previousSegments = readResumeState(getResumeState());
+        } else if (Files.exists(segmentDir)) {
+            FileUtils.deleteDirectory(segmentDir.toFile());
+        }
+        Files.createDirectories(segmentDir);
+
+        // A segment's queue never needs to hold more than the segment.
+        segmentQueue = Math.min(segmentQueue, segmentFrames);
+        segmentQueueBytes = segmentQueue * frameBytes;
+        queueCapacity = segmentQueue * segmentCount;
+
+        YuvFormat conversion = encoderConfig.getPixelConversion();
+        if (conversion != null) {
+            // Shared by all segments; it's only the thread pool, and conversions from different writers can overlap.
+            converter = new YuvConverter(conversion, meta.width(), meta.height(),
+                    Runtime.getRuntime().availableProcessors());
+        }
+
+        LOGGER.info("Encoding in segments of {} frames (GOPs of {}), {} at a time",
+                segmentFrames, gopSize, segmentCount);
+        scheduler = new SegmentScheduler<>(segmentFrames, segmentCount, this::startSegment);
+    }
+
+    private List<Integer> readResumeState(@Nullable JsonObject state) throws EncoderException {
+        if (state == null || !state.has("gopSize") || !state.has("segmentFrames") || !state.has("segments")) {
+            throw new EncoderException("Nothing to resume from");
+        }
+        int stoppedGopSize;
+        int stoppedSegmentFrames;
+        List<Integer> segments = new ArrayList<>();
+        try {
+            stoppedGopSize = state.get("gopSize").getAsInt();
+            stoppedSegmentFrames = state.get("segmentFrames").getAsInt();
+            for (JsonElement element : state.getAsJsonArray("segments")) {
+                segments.add(element.getAsInt());
+            }
+        } catch (ClassCastException | IllegalStateException | UnsupportedOperationException | NumberFormatException e) {
+            throw new EncoderException("Malformed resume state", e);
+        }
+
+        if (stoppedGopSize < 1 || stoppedSegmentFrames < 1 || stoppedSegmentFrames % stoppedGopSize != 0) {
+            throw new EncoderException("Invalid segment length: %d frames in GOPs of %d"
+                    .formatted(stoppedSegmentFrames, stoppedGopSize));
+        }
+        // Keep the stopped export's segment length, so the new segments line up with the old ones.
+        gopSize = stoppedGopSize;
+        segmentFrames = stoppedSegmentFrames;
+        if (getFirstFrame() % segmentFrames != 0) {
+            throw new EncoderException("Can't resume partway through a segment (frame %d)".formatted(getFirstFrame()));
+        }
+
+        for (int segmentIdx : segments) {
+            //noinspection DataFlowIssue
+            if (!Files.isRegularFile(segmentDir.resolve(segmentFileName(segmentIdx)))) {
+                throw new EncoderException("Segment %d of the stopped export is missing".formatted(segmentIdx));
+            }
+        }
+        if (segments.size() * segmentFrames != getFirstFrame()) {
+            throw new EncoderException("Stopped export's segments don't reach frame " + getFirstFrame());
+        }
+        return segments;
+    }
+
+    private FFmpegSegment startSegment(int segmentIdx) throws IOException {
+        //noinspection DataFlowIssue
+        Path file = segmentDir.resolve(segmentFileName(segmentIdx));
+        var command = ImmutableList.<String>builder();
+        command.add(AccessorRenderSettings.invokeFindFFmpeg());
+        FFmpegEncoderProcess.generateBoilerplateArgs(getMetadata(), encoderConfig.getPixelConversion(), command);
+        FFmpegEncoderProcess.generateCodecArgs(encoderConfig, command);
+        command.add("-g", String.valueOf(gopSize));
+        command.add(file.toString());
+
+        List<String> cmd = command.build();
+        LOGGER.debug("FFmpeg command for segment {}: {}", segmentIdx, String.join(" ", cmd));
+        return new FFmpegSegment(segmentIdx, cmd, segmentDir.toFile(), segmentDir.resolve(segmentIdx + ".log"),
+                segmentQueueBytes, converter, this::fail);
+    }
+
+    private String segmentFileName(int segmentIdx) {
+        return "segment_%05d.%s".formatted(segmentIdx, extension);
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    protected void encodeFrame(FrameBuffer frame, int frameIdx) throws IOException, InterruptedException {
+        //noinspection DataFlowIssue
+        scheduler.submit(frame, frameIdx);
+        submittedFrames = frameIdx + 1;
+    }
+
+    @Override
+    protected CompletableFuture<?> finishEncoding() {
+        if (scheduler == null) return CompletableFuture.completedFuture(null);
+        return scheduler.finish().whenComplete((v, e) -> closeConverter()).thenCompose(segments -> {
+            if (submittedFrames < getMetadata().totalFrames()) {
+                // Stopped early: the segments that finished are kept to resume from, and there's nothing to join.
+                LOGGER.info("Export stopped early; keeping segments in {} so it can be resumed", segmentDir);
+                return CompletableFuture.completedFuture(null);
+            }
+            List<Integer> all = new ArrayList<>(previousSegments);
+            all.addAll(segments);
+            return concat(all);
+        });
+    }
+
+    /**
+     * Finishing waits on every running segment and then joins them all, both of which grow with the export, so
+     * there's no fixed limit that fits. Progress stays visible through {@link #getStats()} in the meantime.
+     */
+    @Override
+    public long getFinishTimeout() {
+        return 0;
+    }
+
+    @Override
+    public boolean supportsResume() {
+        return true;
+    }
+
+    /**
+     * Get every segment, including those from the export this one resumes, that's been encoded in full. The segment
+     * that was being fed when an export stopped early has finished as well, but it's missing frames.
+     */
+    private List<Integer> getDurableSegments() {
+        List<Integer> durable = new ArrayList<>(previousSegments);
+        SegmentScheduler<FFmpegSegment> scheduler = this.scheduler;
+        if (scheduler == null) return durable;
+
+        int submitted = submittedFrames;
+        int totalFrames = getMetadata().totalFrames();
+        for (int segmentIdx : scheduler.getCompletedSegments()) {
+            if (Math.min((segmentIdx + 1) * segmentFrames, totalFrames) > submitted) break;
+            durable.add(segmentIdx);
+        }
+        return durable;
+    }
+
+    @Override
+    public int getDurableFrames() {
+        if (tryGetMetadata() == null) return 0;
+        return Math.min(getDurableSegments().size() * segmentFrames, getMetadata().totalFrames());
+    }
+
+    @Override
+    public @Nullable JsonObject saveResumeState() {
+        if (tryGetMetadata() == null) return null;
+        JsonArray segments = new JsonArray();
+        getDurableSegments().forEach(segments::add);
+
+        JsonObject state = new JsonObject();
+        state.addProperty("gopSize", gopSize);
+        state.addProperty("segmentFrames", segmentFrames);
+        state.add("segments", segments);
+        return state;
+    }
+
+    /**
+     * Join the segments of a complete export into the output file and clean up after them.
+     */
+    private CompletableFuture<Void> concat(List<Integer> segments) {
+        Path dir = segmentDir;
+        if (dir == null || segments.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        Process process;
+        try {
+            Path listFile = dir.resolve("segments.txt");
+            // Paths in the list are resolved relative to the list itself.
+            Files.write(listFile, segments.stream().map(i -> "file '" + segmentFileName(i) + "'").toList());
+
+            List<String> cmd = List.of(AccessorRenderSettings.invokeFindFFmpeg(), "-y",
+                    "-f", "concat", "-safe", "0", "-i", listFile.toString(),
+                    "-c", "copy", getMetadata().outPath().toString());
+            LOGGER.info("FFmpeg concat command: {}", String.join(" ", cmd));
+            process = new ProcessBuilder(cmd).directory(dir.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(dir.resolve("concat.log").toFile())
+                    .start();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return process.onExit().thenAccept(p -> {
+            int exitValue = p.exitValue();
+            if (exitValue != 0) {
+                throw new EncoderException("FFmpeg concat exited with code %d. Segments were kept in %s"
+                        .formatted(exitValue, dir));
+            }
+            try {
+                FileUtils.deleteDirectory(dir.toFile());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public @Nullable EncoderStats getStats() {
+        SegmentScheduler<FFmpegSegment> scheduler = this.scheduler;
+        if (scheduler == null) return null;
+
+        int frames = 0;
+        double fps = 0;
+        double speed = 0;
+        double bitrate = 0;
+        int running = 0;
+        boolean any = false;
+        for (var segment : scheduler.getSegments()) {
+            FFmpegProgress progress = segment.getProgress();
+            if (progress == null) continue;
+            any = true;
+            frames += progress.frame();
+            if (!segment.isDone()) {
+                // Segments run side by side, so their rates add up.
+                fps += progress.fps();
+                if (!Double.isNaN(progress.speed())) speed += progress.speed();
+                if (!Double.isNaN(progress.bitrateKbps())) bitrate += progress.bitrateKbps();
+                running++;
+            }
+        }
+        if (!any) return null;
+        return new EncoderStats(frames, fps, speed, running > 0 ? bitrate / running : Double.NaN, getQueueDepth());
+    }
+
+    private void closeConverter() {
+        if (converter != null) converter.close();
+    }
+
+    @Override
+    protected void onFailed(Throwable reason) {
+        if (scheduler != null) scheduler.abort();
+        closeConverter();
+    }
+}
@@ -0,0 +1,43 @@
+package com.igrium.replaylab.render.frame;
+
+/**
+ * How supersampled frames are brought back down to the output resolution.
+ */
+public enum DownscaleFilter {
+    /**
+     * Average each block of pixels. Fast and never rings, but a little soft.
+     */
+    BOX,
+    /**
+     * Three-lobed Lanczos. Sharper than a box, at the cost of slight ringing around hard edges.
+     */
+    LANCZOS;
+
+    /**
+     * Lobes on each side of a Lanczos kernel.
+     */
+    static final int LANCZOS_LOBES = 3;
+
+    /**
+     * Evaluate the filter kernel.
+     *
+     * @param x Distance from the output pixel's center, in output pixels.
+     * @return The unnormalized weight.
+     */
+    public double kernel(double x) {
+        return switch (this) {
+            case BOX -> Math.abs(x) < 0.5 ? 1 : 0;
+            case LANCZOS -> Math.abs(x) < LANCZOS_LOBES ? sinc(x) * sinc(x / LANCZOS_LOBES) : 0;
+        };
+    }
+
+    private static double sinc(double x) {
+        if (x == 0) return 1;
+        double px = Math.PI * x;
+        return Math.sin(px) / px;
+    }
+
+    public String langKey() {
+        return "downscalefilter." + name().toLowerCase();
+    }
+}
@@ -0,0 +1,411 @@
+package com.igrium.replaylab.render.frame;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shrinks supersampled RGBA8 frames by a whole-number factor. Like {@link YuvConverter}, the output is split into
+ * horizontal bands that are filtered in parallel.
+ * <p>
+ * Because the factor is a whole number, every output pixel sits at the same phase relative to the source grid, so
+ * one set of kernel weights serves the whole frame. The Lanczos filter is separable: each band filters the source
+ * rows it needs horizontally into a small ring of float rows, then filters that ring vertically, so every source row
+ * is read once per band and nothing frame-sized is allocated. Pixels past the edge repeat the edge. Alpha is dropped;
+ * the result is opaque.
+ */
+public class Downscaler implements AutoCloseable {
+
+    /**
+     * Bands smaller than this aren't worth a task of their own.
+     */
+    private static final int MIN_BAND_ROWS = 16;
+
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    @Getter
+    private final DownscaleFilter filter;
+
+    @Getter
+    private final int factor;
+
+    /**
+     * Output width.
+     */
+    @Getter
+    private final int width;
+
+    /**
+     * Output height.
+     */
+    @Getter
+    private final int height;
+
+    /**
+     * Size of the source buffer.
+     */
+    private final int srcWidth;
+    private final int srcHeight;
+
+    /**
+     * The part of the source that's filtered, from the top-left corner: <code>factor</code> times the output size.
+     */
+    private final int usedWidth;
+    private final int usedHeight;
+
+    /**
+     * Source offset of the first kernel tap, relative to the first source pixel an output pixel covers.
+     */
+    private final int tapOffset;
+    private final float[] weights;
+
+    private final int bands;
+    private final @Nullable ExecutorService executor;
+
+    /**
+     * Per-band scratch space, allocated once so that filtering a frame doesn't.
+     */
+    private final Scratch[] scratch;
+
+    /**
+     * Create a downscaler.
+     *
+     * @param filter      Filter to use.
+     * @param factor      How many times larger the source is on each axis.
+     * @param width       Output width.
+     * @param height      Output height.
+     * @param parallelism How many bands to filter at once. <code>1</code> filters on the calling thread only.
+     */
+    public Downscaler(DownscaleFilter filter, int factor, int width, int height, int parallelism) {
+        this(filter, factor, width, height, width * factor, height * factor, parallelism);
+    }
+
+    /**
+     * Create a downscaler for sources that aren't an exact multiple of the output size. The leftover columns on the
+     * right and rows at the bottom (as displayed) are cropped off.
+     *
+     * @param filter      Filter to use.
+     * @param factor      How many times larger the source is on each axis.
+     * @param width       Output width. At most <code>srcWidth / factor</code>.
+     * @param height      Output height. At most <code>srcHeight / factor</code>.
+     * @param srcWidth    Source width.
+     * @param srcHeight   Source height.
+     * @param parallelism How many bands to filter at once. <code>1</code> filters on the calling thread only.
+     */
+    public Downscaler(DownscaleFilter filter, int factor, int width, int height, int srcWidth, int srcHeight,
+                      int parallelism) {
+        if (factor < 1) {
+            throw new IllegalArgumentException("Factor must be at least 1");
+        }
+        if (width < 1 || height < 1 || width * factor > srcWidth || height * factor > srcHeight) {
+            throw new IllegalArgumentException("%dx%d doesn't fit in a %dx%d source at %dx"
+                    .formatted(width, height, srcWidth, srcHeight, factor));
+        }
+        this.filter = filter;
+        this.factor = factor;
+        this.width = width;
+        this.height = height;
+        this.srcWidth = srcWidth;
+        this.srcHeight = srcHeight;
+        this.usedWidth = width * factor;
+        this.usedHeight = height * factor;
+
+        // Center of output pixel 0, in source pixels.
+        double center = (factor - 1) / 2.0;
+        double radius = filter == DownscaleFilter.LANCZOS ? DownscaleFilter.LANCZOS_LOBES * factor : factor / 2.0;
+        int first = (int) Math.floor(center - radius) + 1;
+        int last = (int) Math.ceil(center + radius) - 1;
+        this.tapOffset = first;
+        this.weights = new float[last - first + 1];
+        double sum = 0;
+        double[] raw = new double[weights.length];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = filter.kernel((first + i - center) / factor);
+            sum += raw[i];
+        }
+        for (int i = 0; i < raw.length; i++) {
+            weights[i] = (float) (raw[i] / sum);
+        }
+
+        this.bands = Math.clamp(height / MIN_BAND_ROWS, 1, Math.max(parallelism, 1));
+        this.executor = bands > 1 ? Executors.newFixedThreadPool(bands - 1, r -> {
+            Thread thread = new Thread(r, "ReplayLab downscaler " + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+
+        this.scratch = new Scratch[bands];
+        for (int i = 0; i < bands; i++) {
+            scratch[i] = new Scratch();
+        }
+    }
+
+    /**
+     * The size in bytes of a source frame.
+     */
+    public long getSourceBytes() {
+        return (long) srcWidth * srcHeight * 4;
+    }
+
+    /**
+     * Downscale a frame. Blocks until every band is done.
+     *
+     * @param src  Source RGBA8 pixels, <code>factor</code> times the output size, read from position 0.
+     * @param dst  Destination RGBA8 pixels, top row first, written from position 0.
+     * @param flip Whether the source is stored bottom row first, as it comes off the GPU.
+     * @throws IllegalArgumentException If either buffer is too small.
+     */
+    public void downscale(ByteBuffer src, ByteBuffer dst, boolean flip) {
+        if (src.capacity() < getSourceBytes()) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d frame".formatted(srcWidth, srcHeight));
+        }
+        if (dst.capacity() < (long) width * height * 4) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d frame".formatted(width, height));
+        }
+        IntBuffer in = pixels(src);
+        IntBuffer out = pixels(dst);
+        forEachBand((band, y0, y1) -> {
+            if (filter == DownscaleFilter.BOX) {
+                boxBand(in, out, flip, scratch[band], y0, y1);
+            } else {
+                separableBand(in, out, flip, scratch[band], y0, y1);
+            }
+        });
+    }
+
+    private static IntBuffer pixels(ByteBuffer buffer) {
+        ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        bytes.clear();
+        return bytes.asIntBuffer();
+    }
+
+    private interface BandTask {
+        void run(int band, int y0, int y1);
+    }
+
+    private void forEachBand(BandTask task) {
+        if (bands == 1) {
+            task.run(0, 0, height);
+            return;
+        }
+
+        int bandRows = (height + bands - 1) / bands;
+        List<Future<?>> futures = new ArrayList<>(bands - 1);
+        int band = 1;
+        for (int y = bandRows; y < height; y += bandRows) {
+            int index = band++;
+            int start = y;
+            int end = Math.min(y + bandRows, height);
+            //noinspection DataFlowIssue (only null with a single band)
+            futures.add(executor.submit(() -> task.run(index, start, end)));
+        }
+        task.run(0, 0, Math.min(bandRows, height));
+
+        try {
+            for (var future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted downscaling frame", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error downscaling frame", e.getCause());
+        }
+    }
+
+    /**
+     * Read a source row, top row first, into <code>row</code> starting at <code>offset</code>.
+     */
+    private void readRow(IntBuffer in, boolean flip, int y, int[] row, int offset) {
+        int physical = flip ? srcHeight - 1 - y : y;
+        in.get(physical * srcWidth, row, offset, srcWidth);
+    }
+
+    private void boxBand(IntBuffer in, IntBuffer out, boolean flip, Scratch s, int y0, int y1) {
+        int[] row = s.row;
+        int[] red = s.sumRed;
+        int[] green = s.sumGreen;
+        int[] blue = s.sumBlue;
+        int area = factor * factor;
+        int half = area / 2;
+
+        for (int y = y0; y < y1; y++) {
+            Arrays.fill(red, 0);
+            Arrays.fill(green, 0);
+            Arrays.fill(blue, 0);
+            for (int j = 0; j < factor; j++) {
+                readRow(in, flip, y * factor + j, row, 0);
+                for (int x = 0, sx = 0; x < width; x++) {
+                    for (int i = 0; i < factor; i++, sx++) {
+                        int p = row[sx];
+                        red[x] += p & 0xFF;
+                        green[x] += (p >>> 8) & 0xFF;
+                        blue[x] += (p >>> 16) & 0xFF;
+                    }
+                }
+            }
+            int[] result = s.result;
+            for (int x = 0; x < width; x++) {
+                int r = (red[x] + half) / area;
+                int g = (green[x] + half) / area;
+                int b = (blue[x] + half) / area;
+                result[x] = r | g << 8 | b << 16 | 0xFF000000;
+            }
+            out.put(y * width, result, 0, width);
+        }
+    }
+
+    private void separableBand(IntBuffer in, IntBuffer out, boolean flip, Scratch s, int y0, int y1) {
+        int taps = weights.length;
+        // Source row held in each ring slot; the ring is keyed by unclamped row so edge rows can repeat.
+        int[] slotRow = s.slotRow;
+        Arrays.fill(slotRow, Integer.MIN_VALUE);
+        int[] result = s.result;
+
+        for (int y = y0; y < y1; y++) {
+            int firstRow = y * factor + tapOffset;
+            for (int j = 0; j < taps; j++) {
+                int sy = firstRow + j;
+                int slot = Math.floorMod(sy, taps);
+                if (slotRow[slot] != sy) {
+                    filterRow(in, flip, Math.clamp(sy, 0, usedHeight - 1), s, slot);
+                    slotRow[slot] = sy;
+                }
+            }
+
+            // Tap by tap over whole rows, which keeps the inner loop simple enough to vectorize.
+            float[] red = s.red;
+            float[] green = s.green;
+            float[] blue = s.blue;
+            Arrays.fill(red, 0);
+            Arrays.fill(green, 0);
+            Arrays.fill(blue, 0);
+            for (int j = 0; j < taps; j++) {
+                int slot = Math.floorMod(firstRow + j, taps);
+                float w = weights[j];
+                float[] ringRed = s.ringRed[slot];
+                float[] ringGreen = s.ringGreen[slot];
+                float[] ringBlue = s.ringBlue[slot];
+                for (int x = 0; x < width; x++) {
+                    red[x] += ringRed[x] * w;
+                    green[x] += ringGreen[x] * w;
+                    blue[x] += ringBlue[x] * w;
+                }
+            }
+            for (int x = 0; x < width; x++) {
+                result[x] = clampChannel(red[x]) | clampChannel(green[x]) << 8 | clampChannel(blue[x]) << 16
+                        | 0xFF000000;
+            }
+            out.put(y * width, result, 0, width);
+        }
+    }
+
+    /**
+     * Filter one source row horizontally into a ring slot.
+     */
+    private void filterRow(IntBuffer in, boolean flip, int sy, Scratch s, int slot) {
+        int[] padded = s.row;
+        int pad = s.pad;
+        readRow(in, flip, sy, padded, pad);
+        int left = padded[pad];
+        int right = padded[pad + usedWidth - 1];
+        for (int i = 0; i < pad; i++) {
+            padded[i] = left;
+            padded[pad + usedWidth + i] = right;
+        }
+
+        // Each source pixel feeds several taps, so it's unpacked just once.
+        float[] srcRed = s.rowRed;
+        float[] srcGreen = s.rowGreen;
+        float[] srcBlue = s.rowBlue;
+        for (int i = 0; i < padded.length; i++) {
+            int p = padded[i];
+            srcRed[i] = p & 0xFF;
+            srcGreen[i] = (p >>> 8) & 0xFF;
+            srcBlue[i] = (p >>> 16) & 0xFF;
+        }
+
+        float[] red = s.ringRed[slot];
+        float[] green = s.ringGreen[slot];
+        float[] blue = s.ringBlue[slot];
+        int taps = weights.length;
+        for (int x = 0; x < width; x++) {
+            int base = pad + x * factor + tapOffset;
+            float r = 0, g = 0, b = 0;
+            for (int j = 0; j < taps; j++) {
+                float w = weights[j];
+                r += srcRed[base + j] * w;
+                g += srcGreen[base + j] * w;
+                b += srcBlue[base + j] * w;
+            }
+            red[x] = r;
+            green[x] = g;
+            blue[x] = b;
+        }
+    }
+
+    private static int clampChannel(float value) {
+        // Lanczos' negative lobes can overshoot either end around hard edges.
+        return Math.clamp((int) (value + 0.5f), 0, 255);
+    }
+
+    private class Scratch {
+        final int pad = weights.length + factor;
+        final int[] row = new int[srcWidth + 2 * pad];
+        final int[] result = new int[width];
+
+        // Box: per-column sums.
+        final int[] sumRed;
+        final int[] sumGreen;
+        final int[] sumBlue;
+
+        // Separable: per-column vertical sums.
+        final float[] red;
+        final float[] green;
+        final float[] blue;
+
+        // Separable: the source row being filtered, unpacked.
+        final float[] rowRed;
+        final float[] rowGreen;
+        final float[] rowBlue;
+
+        // Separable: horizontally filtered rows, one per vertical tap.
+        final int[] slotRow;
+        final float[][] ringRed;
+        final float[][] ringGreen;
+        final float[][] ringBlue;
+
+        Scratch() {
+            boolean box = filter == DownscaleFilter.BOX;
+            int taps = box ? 0 : weights.length;
+            sumRed = new int[box ? width : 0];
+            sumGreen = new int[box ? width : 0];
+            sumBlue = new int[box ? width : 0];
+            red = new float[box ? 0 : width];
+            green = new float[box ? 0 : width];
+            blue = new float[box ? 0 : width];
+            rowRed = new float[box ? 0 : row.length];
+            rowGreen = new float[box ? 0 : row.length];
+            rowBlue = new float[box ? 0 : row.length];
+            slotRow = new int[taps];
+            ringRed = new float[taps][width];
+            ringGreen = new float[taps][width];
+            ringBlue = new float[taps][width];
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
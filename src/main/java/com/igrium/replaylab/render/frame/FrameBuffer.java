@@ -0,0 +1,153 @@
+package com.igrium.replaylab.render.frame;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An off-heap RGBA8 frame, top row first, leased from a {@link FramePool}.
+ * <p>
+ * Whoever holds the lease owns the frame; {@link #close() closing} it hands the memory back to the pool for the next
+ * frame. The object itself is recycled, so a frame must not be touched after it's been closed.
+ * <p>
+ * A frame can have more than one owner at once through {@link #retain()}, for handing the same pixels to several
+ * consumers without copying them. It only goes back to the pool once every owner has closed it.
+ */
+public final class FrameBuffer implements AutoCloseable {
+
+    private final FramePool pool;
+    private final ByteBuffer pixels;
+
+    @Getter
+    private final int width;
+
+    @Getter
+    private final int height;
+
+    private volatile boolean leased;
+
+    /**
+     * Owners of the current lease.
+     */
+    private final AtomicInteger refs = new AtomicInteger();
+
+    /**
+     * Where the current lease was taken out, if the pool is tracking leases.
+     */
+    @Nullable Throwable leaseSite;
+
+    /**
+     * Cached {@link #contentHash()} of the current lease. Only trusted once {@link #hashed} is set.
+     */
+    private volatile long contentHash;
+    private volatile boolean hashed;
+
+    FrameBuffer(FramePool pool, ByteBuffer pixels, int width, int height) {
+        this.pool = pool;
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * The size of the pixel data in bytes.
+     */
+    public int sizeBytes() {
+        return width * height * PixelTransfer.BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Get the pixel data. The returned buffer is a fresh little-endian view spanning the whole frame, so callers are
+     * free to move its position and limit.
+     *
+     * @throws IllegalStateException If the frame has already been returned to the pool.
+     */
+    public ByteBuffer pixels() {
+        ensureLeased();
+        return pixels.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Get the {@link FrameHash#xxh64 XXH64} of this frame's pixels. Worked out the first time it's asked for and then
+     * shared between every owner, so an encoder fed the same frame several times (or several encoders fed one frame)
+     * only pay for it once.
+     * <p>
+     * Only call this once nothing is going to write to the pixels any more, which is the case as soon as a frame has
+     * been handed to an encoder.
+     *
+     * @throws IllegalStateException If the frame has already been returned to the pool.
+     */
+    public long contentHash() {
+        ensureLeased();
+        if (hashed) return contentHash;
+        // Two owners racing here just both hash it; they get the same answer.
+        long hash = FrameHash.xxh64(pixels.duplicate().clear().limit(sizeBytes()));
+        contentHash = hash;
+        hashed = true;
+        return hash;
+    }
+
+    public boolean isLeased() {
+        return leased;
+    }
+
+    /**
+     * Add an owner to this frame. Every owner must {@link #close()} it separately, and since they all share the same
+     * pixels, none of them may modify it.
+     *
+     * @return This frame.
+     * @throws IllegalStateException If the frame has already been returned to the pool.
+     */
+    public FrameBuffer retain() {
+        int count;
+        do {
+            count = refs.get();
+            if (count <= 0) {
+                throw new IllegalStateException("Frame buffer retained after being returned to its pool");
+            }
+        } while (!refs.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    /**
+     * The number of owners this frame currently has.
+     */
+    public int getRefCount() {
+        return Math.max(refs.get(), 0);
+    }
+
+    /**
+     * Give up one owner's claim on this frame, returning it to its pool if that was the last.
+     *
+     * @throws IllegalStateException If the frame has already been returned.
+     */
+    @Override
+    public void close() {
+        int remaining = refs.decrementAndGet();
+        if (remaining > 0) return;
+        if (remaining < 0) {
+            refs.incrementAndGet();
+            throw new IllegalStateException("Frame buffer returned to its pool twice");
+        }
+        pool.release(this);
+    }
+
+    ByteBuffer rawPixels() {
+        return pixels;
+    }
+
+    void setLeased(boolean leased) {
+        this.leased = leased;
+        hashed = false;
+        refs.set(leased ? 1 : 0);
+    }
+
+    private void ensureLeased() {
+        if (!leased) {
+            throw new IllegalStateException("Frame buffer used after being returned to its pool");
+        }
+    }
+}
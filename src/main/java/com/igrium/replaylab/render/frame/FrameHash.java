@@ -0,0 +1,108 @@
+package com.igrium.replaylab.render.frame;
+
+import lombok.experimental.UtilityClass;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Hashes frame contents with XXH64, so encoders can tell when a frame is the same as the last one without keeping
+ * its pixels around to compare.
+ * <p>
+ * Every byte goes into the hash; sampling only some rows would be quicker, but a camera creeping across a still
+ * scene would then get "deduplicated" into a hold.
+ */
+@UtilityClass
+public class FrameHash {
+
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    /**
+     * Hash a buffer's remaining bytes. Doesn't move the buffer's position.
+     *
+     * @param data The bytes to hash.
+     * @return The XXH64 of the bytes, with a seed of <code>0</code>.
+     */
+    public static long xxh64(ByteBuffer data) {
+        return xxh64(data, 0);
+    }
+
+    /**
+     * Hash a buffer's remaining bytes. Doesn't move the buffer's position.
+     *
+     * @param data The bytes to hash.
+     * @param seed The seed.
+     * @return The XXH64 of the bytes.
+     */
+    public static long xxh64(ByteBuffer data, long seed) {
+        ByteBuffer buf = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int p = buf.position();
+        int end = buf.limit();
+        long len = end - p;
+
+        long h;
+        if (len >= 32) {
+            long v1 = seed + PRIME_1 + PRIME_2;
+            long v2 = seed + PRIME_2;
+            long v3 = seed;
+            long v4 = seed - PRIME_1;
+
+            int limit = end - 32;
+            while (p <= limit) {
+                v1 = round(v1, buf.getLong(p));
+                v2 = round(v2, buf.getLong(p + 8));
+                v3 = round(v3, buf.getLong(p + 16));
+                v4 = round(v4, buf.getLong(p + 24));
+                p += 32;
+            }
+
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = merge(h, v1);
+            h = merge(h, v2);
+            h = merge(h, v3);
+            h = merge(h, v4);
+        } else {
+            h = seed + PRIME_5;
+        }
+
+        h += len;
+
+        while (p + 8 <= end) {
+            h ^= round(0, buf.getLong(p));
+            h = Long.rotateLeft(h, 27) * PRIME_1 + PRIME_4;
+            p += 8;
+        }
+        if (p + 4 <= end) {
+            h ^= (buf.getInt(p) & 0xFFFFFFFFL) * PRIME_1;
+            h = Long.rotateLeft(h, 23) * PRIME_2 + PRIME_3;
+            p += 4;
+        }
+        while (p < end) {
+            h ^= (buf.get(p) & 0xFFL) * PRIME_5;
+            h = Long.rotateLeft(h, 11) * PRIME_1;
+            p++;
+        }
+
+        h ^= h >>> 33;
+        h *= PRIME_2;
+        h ^= h >>> 29;
+        h *= PRIME_3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME_1;
+    }
+
+    private static long merge(long h, long v) {
+        h ^= round(0, v);
+        return h * PRIME_1 + PRIME_4;
+    }
+}
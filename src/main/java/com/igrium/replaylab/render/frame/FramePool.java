@@ -0,0 +1,283 @@
+package com.igrium.replaylab.render.frame;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.jetbrains.annotations.Nullable;
+import org.lwjgl.system.MemoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * A bounded pool of same-sized {@link FrameBuffer}s, so an export doesn't malloc and free a full frame for every
+ * frame it renders.
+ * <p>
+ * Buffers are allocated lazily, up to the pool's {@linkplain #setLimit limit}. Once that many are leased,
+ * {@link #acquire} blocks until one is returned; that's the back-pressure that keeps the renderer from running ahead
+ * of the encoder. The limit can be moved at runtime (below the fixed capacity), and surplus buffers are freed as they
+ * come back.
+ * <p>
+ * With {@linkplain #setLeakDetection leak detection} on, every lease remembers where it was taken out, and leases
+ * still outstanding when the pool closes are logged.
+ */
+public class FramePool implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/FramePool");
+
+    @Getter
+    private final int width;
+
+    @Getter
+    private final int height;
+
+    /**
+     * Hard upper bound on how many buffers this pool will ever allocate.
+     */
+    @Getter
+    private final int capacity;
+
+    private final IntFunction<ByteBuffer> allocator;
+    private final Consumer<ByteBuffer> deallocator;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition returned = lock.newCondition();
+
+    private final Deque<FrameBuffer> idle = new ArrayDeque<>();
+    private final Set<FrameBuffer> leased = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private int allocated;
+    private int limit;
+    private boolean closed;
+
+    /**
+     * Record a stack trace with every lease so leaks can be traced back to whoever took them out.
+     */
+    @Getter @Setter
+    private volatile boolean leakDetection;
+
+    /**
+     * Create a frame pool backed by LWJGL's allocator.
+     *
+     * @param width    Frame width.
+     * @param height   Frame height.
+     * @param capacity Maximum number of frames.
+     */
+    public FramePool(int width, int height, int capacity) {
+        this(width, height, capacity, MemoryUtil::memAlloc, MemoryUtil::memFree);
+    }
+
+    /**
+     * Create a frame pool with a custom allocator.
+     *
+     * @param width       Frame width.
+     * @param height      Frame height.
+     * @param capacity    Maximum number of frames.
+     * @param allocator   Allocates a direct buffer of the given size.
+     * @param deallocator Frees a buffer from <code>allocator</code>.
+     */
+    public FramePool(int width, int height, int capacity,
+                     IntFunction<ByteBuffer> allocator, Consumer<ByteBuffer> deallocator) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.width = width;
+        this.height = height;
+        this.capacity = capacity;
+        this.limit = capacity;
+        this.allocator = allocator;
+        this.deallocator = deallocator;
+    }
+
+    public int getFrameBytes() {
+        return width * height * PixelTransfer.BYTES_PER_PIXEL;
+    }
+
+    /**
+     * Set how many frames may be leased at once. Clamped to <code>[1, capacity]</code>. Lowering the limit doesn't
+     * revoke existing leases; surplus buffers are freed as they're returned.
+     */
+    public void setLimit(int limit) {
+        lock.lock();
+        try {
+            this.limit = Math.clamp(limit, 1, capacity);
+            returned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The number of frames currently leased out.
+     */
+    public int getLeased() {
+        lock.lock();
+        try {
+            return leased.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The number of buffers currently allocated, leased or not.
+     */
+    public int getAllocated() {
+        lock.lock();
+        try {
+            return allocated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lease a frame, blocking until one is available.
+     *
+     * @return The frame. Its contents are undefined.
+     * @throws InterruptedException  If interrupted while waiting.
+     * @throws IllegalStateException If the pool has been closed.
+     */
+    public FrameBuffer acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            FrameBuffer frame;
+            while ((frame = tryLease()) == null) {
+                returned.await();
+            }
+            return frame;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lease a frame, waiting at most the given time for one to become available.
+     *
+     * @return The frame, or <code>null</code> if the pool stayed exhausted.
+     * @throws InterruptedException  If interrupted while waiting.
+     * @throws IllegalStateException If the pool has been closed.
+     */
+    public @Nullable FrameBuffer tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            FrameBuffer frame;
+            while ((frame = tryLease()) == null) {
+                if (nanos <= 0) return null;
+                nanos = returned.awaitNanos(nanos);
+            }
+            return frame;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must hold lock
+    private @Nullable FrameBuffer tryLease() {
+        if (closed) {
+            throw new IllegalStateException("Frame pool is closed");
+        }
+        if (leased.size() >= limit) {
+            return null;
+        }
+
+        FrameBuffer frame = idle.pollFirst();
+        if (frame == null) {
+            if (allocated >= capacity) return null;
+            frame = new FrameBuffer(this, allocator.apply(getFrameBytes()), width, height);
+            allocated++;
+        }
+
+        frame.setLeased(true);
+        frame.leaseSite = leakDetection ? new Throwable("Frame leased here") : null;
+        leased.add(frame);
+        return frame;
+    }
+
+    void release(FrameBuffer frame) {
+        lock.lock();
+        try {
+            if (!leased.remove(frame)) {
+                throw new IllegalStateException("Frame buffer returned to its pool twice");
+            }
+            frame.setLeased(false);
+            frame.leaseSite = null;
+
+            if (closed || allocated > limit) {
+                deallocator.accept(frame.rawPixels());
+                allocated--;
+            } else {
+                // LIFO keeps the most recently touched (and likely still cached) buffer in use.
+                idle.addFirst(frame);
+            }
+            returned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the lease sites of every frame that's currently leased. Only populated with leak detection on.
+     */
+    public List<Throwable> getOutstandingLeases() {
+        lock.lock();
+        try {
+            List<Throwable> sites = new ArrayList<>();
+            for (var frame : leased) {
+                if (frame.leaseSite != null) sites.add(frame.leaseSite);
+            }
+            return sites;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the pool and free every idle buffer. Frames that are still leased are freed when they're returned; if
+     * leak detection is on, they're also logged, since by now everything should have been handed back.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+
+            for (var frame : idle) {
+                deallocator.accept(frame.rawPixels());
+                allocated--;
+            }
+            idle.clear();
+
+            if (!leased.isEmpty()) {
+                LOGGER.warn("Frame pool closed with {} frame(s) still leased.", leased.size());
+                for (var frame : leased) {
+                    if (frame.leaseSite != null) {
+                        LOGGER.warn("Leaked frame buffer:", frame.leaseSite);
+                    }
+                }
+            }
+            returned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
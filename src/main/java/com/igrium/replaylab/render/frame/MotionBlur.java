@@ -0,0 +1,68 @@
+package com.igrium.replaylab.render.frame;
+
+/**
+ * Where the sub-frames of a motion-blurred frame are taken, and how much each one counts.
+ * <p>
+ * The shutter opens at the frame's own time and stays open for <code>shutterAngle / 360</code> of a frame. Sub-frames
+ * are spread evenly over that window, each in the middle of its own slice of it, so a 180&deg; shutter at 4 samples
+ * takes them at 1/16, 3/16, 5/16 and 7/16 of a frame.
+ *
+ * @param samples      Sub-frames per frame. <code>1</code> disables motion blur.
+ * @param shutterAngle How long the shutter stays open, in degrees of a frame. <code>(0, 360]</code>.
+ * @param curve        How much each sub-frame counts.
+ */
+public record MotionBlur(int samples, float shutterAngle, ShutterCurve curve) {
+
+    public static final int MAX_SAMPLES = 64;
+
+    public MotionBlur {
+        if (samples < 1 || samples > MAX_SAMPLES) {
+            throw new IllegalArgumentException("Sample count must be between 1 and " + MAX_SAMPLES);
+        }
+        if (!(shutterAngle > 0 && shutterAngle <= 360)) {
+            throw new IllegalArgumentException("Shutter angle must be in (0, 360]");
+        }
+    }
+
+    public boolean isEnabled() {
+        return samples > 1;
+    }
+
+    /**
+     * Get where a sub-frame falls within the open shutter.
+     *
+     * @return <code>0</code> (opens) to <code>1</code> (closes).
+     */
+    public double samplePosition(int sample) {
+        return (sample + 0.5) / samples;
+    }
+
+    /**
+     * Get the scene time a sub-frame is rendered at.
+     *
+     * @param frameIdx Frame index.
+     * @param sample   Sub-frame, <code>[0, samples)</code>.
+     * @param fps      Frame rate.
+     * @return Scene time in milliseconds. Never goes backwards as <code>sample</code>, then <code>frameIdx</code>,
+     * increases.
+     */
+    public int sampleTime(int frameIdx, int sample, float fps) {
+        if (!isEnabled()) {
+            return (int) (frameIdx * 1000 / fps);
+        }
+        double frameLength = 1000 / fps;
+        double open = frameLength * shutterAngle / 360;
+        return (int) (frameIdx * frameLength + open * samplePosition(sample));
+    }
+
+    /**
+     * Get the weight of every sub-frame.
+     */
+    public float[] weights() {
+        float[] weights = new float[samples];
+        for (int i = 0; i < samples; i++) {
+            weights[i] = curve.weight(samplePosition(i));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,207 @@
+package com.igrium.replaylab.render.frame;
+
+import com.igrium.replaylab.util.SimpleBlockingQueue;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+/**
+ * Feeds sub-frames through a {@link SubframeAccumulator} on a worker thread, so the renderer can capture the next
+ * sub-frame while the last one is being added, and hands each frame on as soon as its last sub-frame is in.
+ * <p>
+ * Sub-frames must be submitted in order. Each one goes back to its pool once it's been added.
+ */
+public class MotionBlurStage implements AutoCloseable {
+
+    /**
+     * Receives finished frames, on the worker thread.
+     */
+    @FunctionalInterface
+    public interface Output {
+        /**
+         * Take ownership of a finished frame.
+         */
+        void accept(FrameBuffer frame, int frameIdx) throws Exception;
+    }
+
+    private final SubframeAccumulator accumulator;
+    private final float[] weights;
+    private final IntFunction<FrameBuffer> frameSource;
+    private final Output output;
+    private final int queueSize;
+    private final ThreadPoolExecutor executor;
+
+    private volatile @Nullable Throwable failure;
+
+    /**
+     * The frame whose sub-frames are being submitted, or the last one that was.
+     */
+    private int lastFrame = -1;
+    private int nextSample;
+
+    /**
+     * Create a motion blur stage.
+     *
+     * @param accumulator Accumulator to use. Closed along with the stage.
+     * @param weights     Weight of each sub-frame; its length is the number of sub-frames per frame.
+     * @param frameSource Leases a buffer to resolve the given frame into. May block.
+     * @param output      Receives finished frames.
+     * @param queueSize   How many sub-frames may wait while another is being added.
+     */
+    public MotionBlurStage(SubframeAccumulator accumulator, float[] weights, IntFunction<FrameBuffer> frameSource,
+                           Output output, int queueSize) {
+        if (weights.length < 1) {
+            throw new IllegalArgumentException("Need at least one sub-frame");
+        }
+        this.accumulator = accumulator;
+        this.weights = weights.clone();
+        this.frameSource = frameSource;
+        this.output = output;
+        this.queueSize = queueSize;
+        this.executor = new ThreadPoolExecutor(1, 1, 20, TimeUnit.MILLISECONDS,
+                new SimpleBlockingQueue<>(queueSize), r -> {
+            Thread thread = new Thread(r, "ReplayLab motion blur");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The most sub-frames the stage will hold on to at once (queued or being added).
+     */
+    public int getQueueCapacity() {
+        return queueSize + 1;
+    }
+
+    public int getSamples() {
+        return weights.length;
+    }
+
+    /**
+     * The reason the stage failed, if it has.
+     */
+    public @Nullable Throwable getFailureReason() {
+        return failure;
+    }
+
+    /**
+     * Add a sub-frame, taking ownership of it. Blocks if the queue is full.
+     *
+     * @param subframe The sub-frame's pixels.
+     * @param frameIdx The frame it belongs to.
+     * @param sample   Which of the frame's sub-frames it is.
+     * @throws IllegalArgumentException If sub-frames are submitted out of order.
+     * @throws IllegalStateException    If the stage has failed or finished.
+     */
+    public void submit(FrameBuffer subframe, int frameIdx, int sample) {
+        try {
+            Throwable e = failure;
+            if (e != null) {
+                throw new IllegalStateException("Motion blur stage has failed", e);
+            }
+            // Frames may be skipped entirely, but a frame's sub-frames have to arrive one after another.
+            boolean inOrder = nextSample == 0
+                    ? sample == 0 && frameIdx > lastFrame
+                    : sample == nextSample && frameIdx == lastFrame;
+            if (!inOrder) {
+                throw new IllegalArgumentException("Sub-frame %d of frame %d submitted out of order"
+                        .formatted(sample, frameIdx));
+            }
+            executor.execute(new SubframeTask(subframe, frameIdx, sample));
+        } catch (RuntimeException e) {
+            // Nobody took ownership, so it's still ours to free.
+            subframe.close();
+            throw e;
+        }
+
+        lastFrame = frameIdx;
+        nextSample = (sample + 1) % weights.length;
+    }
+
+    /**
+     * Wait for every submitted sub-frame to be added and every finished frame to be handed on.
+     *
+     * @throws ExecutionException If the stage failed.
+     * @throws TimeoutException   If the work didn't finish in time.
+     */
+    public void finish(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        executor.shutdown();
+        if (!executor.awaitTermination(timeout, unit)) {
+            throw new TimeoutException("Motion blur stage timed out.");
+        }
+        Throwable e = failure;
+        if (e != null) {
+            throw new ExecutionException(e);
+        }
+    }
+
+    private void fail(Throwable e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private class SubframeTask implements Runnable {
+        final FrameBuffer subframe;
+        final int frameIdx;
+        final int sample;
+
+        SubframeTask(FrameBuffer subframe, int frameIdx, int sample) {
+            this.subframe = subframe;
+            this.frameIdx = frameIdx;
+            this.sample = sample;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (failure != null) return;
+                accumulator.add(subframe.pixels(), weights[sample]);
+            } catch (Throwable e) {
+                fail(e);
+                return;
+            } finally {
+                subframe.close();
+            }
+
+            if (sample < weights.length - 1) return;
+
+            FrameBuffer frame = null;
+            try {
+                frame = frameSource.apply(frameIdx);
+                accumulator.resolve(frame.pixels());
+            } catch (Throwable e) {
+                if (frame != null) frame.close();
+                fail(e);
+                return;
+            }
+
+            try {
+                // Ownership passes on here, even if it throws.
+                output.accept(frame, frameIdx);
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+    }
+
+    /**
+     * Stop the worker and free every sub-frame still waiting.
+     */
+    @Override
+    public void close() {
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof MotionBlurStage.SubframeTask subframeTask) {
+                subframeTask.subframe.close();
+            }
+        }
+        try {
+            // The accumulator may still be in use until the worker notices.
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        accumulator.close();
+    }
+}
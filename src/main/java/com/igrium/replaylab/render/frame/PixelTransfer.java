@@ -0,0 +1,67 @@
+package com.igrium.replaylab.render.frame;
+
+import lombok.experimental.UtilityClass;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Moves RGBA8 frames from where the GPU left them to where the encoders want them.
+ * <p>
+ * GPU readback comes out bottom-up with alpha left at 0 (Minecraft's offscreen target never writes it), while
+ * everything downstream expects top-down, opaque images. Rather than fixing that up pixel by pixel, rows are copied
+ * whole in reverse order, and alpha is forced on each row while it's still in cache, two pixels per word.
+ */
+@UtilityClass
+public class PixelTransfer {
+
+    public static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * Alpha lanes of two little-endian RGBA pixels packed into a long.
+     */
+    private static final long ALPHA_MASK_2 = 0xFF000000_FF000000L;
+
+    /**
+     * Copy a bottom-up frame into a top-down destination and force it opaque.
+     *
+     * @param src    Source pixels, RGBA8, bottom row first. Read with absolute indexing from position 0.
+     * @param dst    Destination, same size. Written with absolute indexing from position 0.
+     * @param width  Frame width in pixels.
+     * @param height Frame height in pixels.
+     * @throws IllegalArgumentException If either buffer is too small.
+     */
+    public static void copyFlipOpaque(ByteBuffer src, ByteBuffer dst, int width, int height) {
+        int rowBytes = width * BYTES_PER_PIXEL;
+        long frameBytes = (long) rowBytes * height;
+        if (src.capacity() < frameBytes || dst.capacity() < frameBytes) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d frame".formatted(width, height));
+        }
+
+        // Independent of the caller's byte order; the mask assumes little-endian words.
+        ByteBuffer le = dst.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (int y = 0; y < height; y++) {
+            int dstOffset = (height - 1 - y) * rowBytes;
+            // Absolute bulk puts go straight to a memcpy for direct buffers.
+            dst.put(dstOffset, src, y * rowBytes, rowBytes);
+            forceOpaque(le, dstOffset, rowBytes);
+        }
+    }
+
+    /**
+     * Set the alpha of every pixel in a range of an RGBA8 buffer to 255.
+     *
+     * @param buffer A little-endian buffer to modify.
+     * @param offset Byte offset to start at.
+     * @param bytes  Number of bytes to process. Must be a multiple of 4.
+     */
+    public static void forceOpaque(ByteBuffer buffer, int offset, int bytes) {
+        int longEnd = offset + (bytes & ~7);
+        for (int i = offset; i < longEnd; i += 8) {
+            buffer.putLong(i, buffer.getLong(i) | ALPHA_MASK_2);
+        }
+        if ((bytes & 7) != 0) {
+            buffer.put(offset + bytes - 1, (byte) 0xFF);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.igrium.replaylab.render.frame;
+
+/**
+ * How much each moment the shutter is open counts towards a motion-blurred frame.
+ */
+public enum ShutterCurve {
+    /**
+     * Every sub-frame counts the same, like an ideal shutter that opens and closes instantly.
+     */
+    BOX,
+    /**
+     * Sub-frames count more the closer they are to the middle of the exposure, which softens the ends of the blur
+     * trail, like a real shutter that takes a moment to open and close.
+     */
+    TRIANGLE;
+
+    /**
+     * Get the weight of a sub-frame.
+     *
+     * @param t When the sub-frame is taken, from <code>0</code> (shutter opens) to <code>1</code> (shutter closes).
+     * @return The weight. Always positive.
+     */
+    public float weight(double t) {
+        return switch (this) {
+            case BOX -> 1;
+            case TRIANGLE -> (float) (1 - Math.abs(2 * t - 1));
+        };
+    }
+
+    public String langKey() {
+        return "shuttercurve." + name().toLowerCase();
+    }
+}
@@ -0,0 +1,191 @@
+package com.igrium.replaylab.render.frame;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sums weighted RGBA8 sub-frames into a floating-point buffer and resolves the weighted average back to RGBA8, for
+ * motion blur. Like {@link YuvConverter}, the frame is split into horizontal bands that are processed in parallel.
+ * <p>
+ * The inner loops only touch primitive arrays with no branches, so the JIT can vectorize them. Alpha is dropped; the
+ * resolved frame is opaque.
+ */
+public class SubframeAccumulator implements AutoCloseable {
+
+    /**
+     * Bands smaller than this aren't worth a task of their own.
+     */
+    private static final int MIN_BAND_ROWS = 16;
+
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    @Getter
+    private final int width;
+
+    @Getter
+    private final int height;
+
+    /**
+     * Per-channel sums. Separate planes keep the inner loops free of strided access.
+     */
+    private final float[] red;
+    private final float[] green;
+    private final float[] blue;
+
+    private final int bands;
+    private final @Nullable ExecutorService executor;
+
+    /**
+     * Total weight of everything added since the last resolve.
+     */
+    @Getter
+    private float totalWeight;
+
+    /**
+     * Create an accumulator.
+     *
+     * @param width       Frame width.
+     * @param height      Frame height.
+     * @param parallelism How many bands to process at once. <code>1</code> runs on the calling thread only.
+     */
+    public SubframeAccumulator(int width, int height, int parallelism) {
+        this.width = width;
+        this.height = height;
+        this.red = new float[width * height];
+        this.green = new float[width * height];
+        this.blue = new float[width * height];
+        this.bands = Math.clamp(height / MIN_BAND_ROWS, 1, Math.max(parallelism, 1));
+        this.executor = bands > 1 ? Executors.newFixedThreadPool(bands - 1, r -> {
+            Thread thread = new Thread(r, "ReplayLab sub-frame accumulator " + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * Add a sub-frame. Blocks until every band is done.
+     *
+     * @param src    RGBA8 pixels, top row first, read from position 0.
+     * @param weight How much it counts. Must be positive.
+     */
+    public void add(ByteBuffer src, float weight) {
+        if (!(weight > 0)) {
+            throw new IllegalArgumentException("Weight must be positive");
+        }
+        IntBuffer rgba = pixels(src);
+        // The first sub-frame overwrites what's left from the last frame, which saves clearing the buffer.
+        boolean first = totalWeight == 0;
+        forEachBand((y0, y1) -> addBand(rgba, weight, first, y0, y1));
+        totalWeight += weight;
+    }
+
+    /**
+     * Write the weighted average of everything added since the last resolve, and start over.
+     *
+     * @param dst Destination RGBA8 pixels, top row first, written from position 0.
+     * @throws IllegalStateException If nothing has been added.
+     */
+    public void resolve(ByteBuffer dst) {
+        if (totalWeight == 0) {
+            throw new IllegalStateException("No sub-frames to resolve");
+        }
+        IntBuffer rgba = pixels(dst);
+        float scale = 1 / totalWeight;
+        forEachBand((y0, y1) -> resolveBand(rgba, scale, y0, y1));
+        totalWeight = 0;
+    }
+
+    private IntBuffer pixels(ByteBuffer buffer) {
+        if (buffer.capacity() < width * height * 4) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d frame".formatted(width, height));
+        }
+        ByteBuffer bytes = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        bytes.clear();
+        return bytes.asIntBuffer();
+    }
+
+    private interface BandTask {
+        void run(int y0, int y1);
+    }
+
+    private void forEachBand(BandTask task) {
+        if (bands == 1) {
+            task.run(0, height);
+            return;
+        }
+
+        int bandRows = (height + bands - 1) / bands;
+        List<Future<?>> futures = new ArrayList<>(bands - 1);
+        for (int y = bandRows; y < height; y += bandRows) {
+            int start = y;
+            int end = Math.min(y + bandRows, height);
+            //noinspection DataFlowIssue (only null with a single band)
+            futures.add(executor.submit(() -> task.run(start, end)));
+        }
+        task.run(0, Math.min(bandRows, height));
+
+        try {
+            for (var future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted accumulating frame", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error accumulating frame", e.getCause());
+        }
+    }
+
+    private void addBand(IntBuffer rgba, float weight, boolean first, int y0, int y1) {
+        int[] row = new int[width];
+        for (int y = y0; y < y1; y++) {
+            rgba.get(y * width, row, 0, width);
+            int base = y * width;
+            if (first) {
+                for (int x = 0; x < width; x++) {
+                    int p = row[x];
+                    red[base + x] = (p & 0xFF) * weight;
+                    green[base + x] = ((p >>> 8) & 0xFF) * weight;
+                    blue[base + x] = ((p >>> 16) & 0xFF) * weight;
+                }
+            } else {
+                for (int x = 0; x < width; x++) {
+                    int p = row[x];
+                    red[base + x] += (p & 0xFF) * weight;
+                    green[base + x] += ((p >>> 8) & 0xFF) * weight;
+                    blue[base + x] += ((p >>> 16) & 0xFF) * weight;
+                }
+            }
+        }
+    }
+
+    private void resolveBand(IntBuffer rgba, float scale, int y0, int y1) {
+        int[] row = new int[width];
+        for (int y = y0; y < y1; y++) {
+            int base = y * width;
+            for (int x = 0; x < width; x++) {
+                // Weighted averages of 8-bit values can't leave [0, 255], bar rounding error at the very top.
+                int r = Math.min((int) (red[base + x] * scale + 0.5f), 255);
+                int g = Math.min((int) (green[base + x] * scale + 0.5f), 255);
+                int b = Math.min((int) (blue[base + x] * scale + 0.5f), 255);
+                row[x] = r | g << 8 | b << 16 | 0xFF000000;
+            }
+            rgba.put(y * width, row, 0, width);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.igrium.replaylab.render.frame;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts RGBA8 frames to YUV using the BT.709 matrix and limited ("TV") range, which is what ffmpeg assumes for
+ * HD video unless told otherwise. The frame is split into horizontal bands that are converted in parallel.
+ * <p>
+ * For 4:2:0 output, each chroma sample is computed from the average of the 2x2 block of pixels it covers. Edge
+ * blocks on odd-sized frames reuse the last row/column.
+ */
+public class YuvConverter implements AutoCloseable {
+
+    // Fixed-point BT.709 coefficients, pre-scaled into limited range (219 levels for luma, 224 for chroma).
+    private static final int SHIFT = 16;
+    private static final int Y_R = fixed(0.2126 * 219 / 255);
+    private static final int Y_G = fixed(0.7152 * 219 / 255);
+    private static final int Y_B = fixed(0.0722 * 219 / 255);
+    private static final int U_R = fixed(-0.2126 / 1.8556 * 224 / 255);
+    private static final int U_G = fixed(-0.7152 / 1.8556 * 224 / 255);
+    private static final int U_B = fixed(0.5 * 224 / 255);
+    private static final int V_R = fixed(0.5 * 224 / 255);
+    private static final int V_G = fixed(-0.7152 / 1.5748 * 224 / 255);
+    private static final int V_B = fixed(-0.0722 / 1.5748 * 224 / 255);
+
+    private static int fixed(double value) {
+        return (int) Math.round(value * (1 << SHIFT));
+    }
+
+    /**
+     * Bands smaller than this aren't worth a task of their own.
+     */
+    private static final int MIN_BAND_ROWS = 16;
+
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    @Getter
+    private final YuvFormat format;
+
+    @Getter
+    private final int width;
+
+    @Getter
+    private final int height;
+
+    private final int bands;
+    private final @Nullable ExecutorService executor;
+
+    /**
+     * Create a converter.
+     *
+     * @param format      Output layout.
+     * @param width       Frame width.
+     * @param height      Frame height.
+     * @param parallelism How many bands to convert at once. <code>1</code> converts on the calling thread only.
+     */
+    public YuvConverter(YuvFormat format, int width, int height, int parallelism) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.bands = Math.clamp(height / MIN_BAND_ROWS, 1, Math.max(parallelism, 1));
+        this.executor = bands > 1 ? Executors.newFixedThreadPool(bands - 1, r -> {
+            Thread thread = new Thread(r, "ReplayLab YUV converter " + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * The size in bytes of a converted frame.
+     */
+    public int getFrameBytes() {
+        return format.frameBytes(width, height);
+    }
+
+    /**
+     * Convert a frame. Blocks until every band is done.
+     *
+     * @param src RGBA8 pixels, top row first, read from position 0.
+     * @param dst Destination of at least {@link #getFrameBytes()} bytes, written from position 0.
+     */
+    public void convert(ByteBuffer src, ByteBuffer dst) {
+        forEachBand(src, dst, (rgba, band, y0, y1) -> convertBand(rgba, dst, y0, y1));
+    }
+
+    /**
+     * A conversion buffer that remembers what was last converted into it, for {@link #convertChanged}. Each user of a
+     * shared converter needs its own.
+     */
+    public static final class Target {
+        @Getter
+        private final ByteBuffer buffer;
+
+        /**
+         * Hash of each band's source rows as of the last conversion, if {@link #valid}.
+         */
+        private final long[] bandHashes;
+        private boolean valid;
+
+        private Target(ByteBuffer buffer, int bands) {
+            this.buffer = buffer;
+            this.bandHashes = new long[bands];
+        }
+    }
+
+    /**
+     * Allocate a conversion buffer to use with {@link #convertChanged}.
+     */
+    public Target createTarget() {
+        return new Target(ByteBuffer.allocateDirect(getFrameBytes()), bands);
+    }
+
+    /**
+     * Convert only the parts of a frame that changed since the last frame converted into the same target, leaving the
+     * rest of it as it was. Each band hashes its own rows before converting them, so the check is split across the
+     * converter's threads like the conversion is, and a frame that's the same as the last one costs one pass over the
+     * pixels instead of a conversion.
+     *
+     * @param src    RGBA8 pixels, top row first, read from position 0.
+     * @param target Where to convert to. Nothing else may write to its buffer, and it may only be used from one
+     *               thread at a time.
+     * @return How many bands were converted. <code>0</code> if the frame was the same as the last one.
+     */
+    public int convertChanged(ByteBuffer src, Target target) {
+        boolean compare = target.valid;
+        // Left unset if a band fails, so the next call starts over.
+        target.valid = false;
+        long[] bandHashes = target.bandHashes;
+        ByteBuffer dst = target.buffer;
+        AtomicInteger converted = new AtomicInteger();
+        forEachBand(src, dst, (rgba, band, y0, y1) -> {
+            long hash = FrameHash.xxh64(src.duplicate().clear().limit(y1 * width * 4).position(y0 * width * 4));
+            if (compare && hash == bandHashes[band]) return;
+            convertBand(rgba, dst, y0, y1);
+            bandHashes[band] = hash;
+            converted.incrementAndGet();
+        });
+        target.valid = true;
+        return converted.get();
+    }
+
+    private interface BandTask {
+        void run(IntBuffer rgba, int band, int y0, int y1);
+    }
+
+    private void forEachBand(ByteBuffer src, ByteBuffer dst, BandTask task) {
+        if (src.capacity() < width * height * 4 || dst.capacity() < getFrameBytes()) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d frame".formatted(width, height));
+        }
+        ByteBuffer bytes = src.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        bytes.clear();
+        IntBuffer rgba = bytes.asIntBuffer();
+
+        if (bands == 1) {
+            task.run(rgba, 0, 0, height);
+            return;
+        }
+
+        // Band boundaries stay on even rows so a 2x2 chroma block never straddles two bands.
+        int bandRows = ((height + bands - 1) / bands + 1) & ~1;
+        List<Future<?>> futures = new ArrayList<>(bands - 1);
+        int band = 1;
+        for (int y = bandRows; y < height; y += bandRows, band++) {
+            int index = band;
+            int start = y;
+            int end = Math.min(y + bandRows, height);
+            //noinspection DataFlowIssue (only null with a single band)
+            futures.add(executor.submit(() -> task.run(rgba, index, start, end)));
+        }
+        task.run(rgba, 0, 0, Math.min(bandRows, height));
+
+        try {
+            for (var future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted converting frame", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error converting frame", e.getCause());
+        }
+    }
+
+    private void convertBand(IntBuffer rgba, ByteBuffer dst, int y0, int y1) {
+        // Rows are pulled into arrays in bulk; per-pixel buffer access costs about twice as much.
+        int[] row0 = new int[width];
+        int[] row1 = new int[width];
+        byte[] luma = new byte[width];
+
+        int lumaBytes = width * height;
+        int chromaWidth = format.chromaWidth(width);
+        int chromaPlane = chromaWidth * format.chromaHeight(height);
+
+        if (!format.isSubsampled()) {
+            byte[] u = new byte[width];
+            byte[] v = new byte[width];
+            for (int y = y0; y < y1; y++) {
+                rgba.get(y * width, row0, 0, width);
+                convertLuma(row0, luma);
+                for (int x = 0; x < width; x++) {
+                    int p = row0[x];
+                    int r = p & 0xFF;
+                    int g = (p >>> 8) & 0xFF;
+                    int b = (p >>> 16) & 0xFF;
+                    u[x] = chroma(U_R, U_G, U_B, r, g, b, 0);
+                    v[x] = chroma(V_R, V_G, V_B, r, g, b, 0);
+                }
+                dst.put(y * width, luma, 0, width);
+                dst.put(lumaBytes + y * width, u, 0, width);
+                dst.put(lumaBytes + chromaPlane + y * width, v, 0, width);
+            }
+            return;
+        }
+
+        // 4:2:0: two luma rows and one row of chroma (from 2x2 averages) at a time.
+        boolean interleaved = format == YuvFormat.NV12;
+        byte[] u = new byte[interleaved ? chromaWidth * 2 : chromaWidth];
+        byte[] v = interleaved ? u : new byte[chromaWidth];
+
+        for (int cy = y0 / 2; cy < (y1 + 1) / 2; cy++) {
+            int ya = cy * 2;
+            int yb = Math.min(ya + 1, height - 1);
+            rgba.get(ya * width, row0, 0, width);
+            rgba.get(yb * width, row1, 0, width);
+
+            convertLuma(row0, luma);
+            dst.put(ya * width, luma, 0, width);
+            if (yb != ya) {
+                convertLuma(row1, luma);
+                dst.put(yb * width, luma, 0, width);
+            }
+
+            for (int cx = 0; cx < chromaWidth; cx++) {
+                int x0 = cx * 2;
+                int x1 = Math.min(x0 + 1, width - 1);
+                int p00 = row0[x0];
+                int p01 = row0[x1];
+                int p10 = row1[x0];
+                int p11 = row1[x1];
+
+                int r = (p00 & 0xFF) + (p01 & 0xFF) + (p10 & 0xFF) + (p11 & 0xFF);
+                int g = ((p00 >>> 8) & 0xFF) + ((p01 >>> 8) & 0xFF) + ((p10 >>> 8) & 0xFF) + ((p11 >>> 8) & 0xFF);
+                int b = ((p00 >>> 16) & 0xFF) + ((p01 >>> 16) & 0xFF) + ((p10 >>> 16) & 0xFF) + ((p11 >>> 16) & 0xFF);
+
+                if (interleaved) {
+                    u[cx * 2] = chroma(U_R, U_G, U_B, r, g, b, 2);
+                    u[cx * 2 + 1] = chroma(V_R, V_G, V_B, r, g, b, 2);
+                } else {
+                    u[cx] = chroma(U_R, U_G, U_B, r, g, b, 2);
+                    v[cx] = chroma(V_R, V_G, V_B, r, g, b, 2);
+                }
+            }
+
+            if (interleaved) {
+                dst.put(lumaBytes + cy * chromaWidth * 2, u, 0, chromaWidth * 2);
+            } else {
+                dst.put(lumaBytes + cy * chromaWidth, u, 0, chromaWidth);
+                dst.put(lumaBytes + chromaPlane + cy * chromaWidth, v, 0, chromaWidth);
+            }
+        }
+    }
+
+    private static void convertLuma(int[] row, byte[] out) {
+        for (int x = 0; x < row.length; x++) {
+            int p = row[x];
+            int r = p & 0xFF;
+            int g = (p >>> 8) & 0xFF;
+            int b = (p >>> 16) & 0xFF;
+            out[x] = (byte) ((Y_R * r + Y_G * g + Y_B * b + (16 << SHIFT) + (1 << (SHIFT - 1))) >> SHIFT);
+        }
+    }
+
+    /**
+     * @param sumShift log2 of how many pixels were summed into r/g/b.
+     */
+    private static byte chroma(int kr, int kg, int kb, int r, int g, int b, int sumShift) {
+        int shift = SHIFT + sumShift;
+        return (byte) ((kr * r + kg * g + kb * b + (128 << shift) + (1 << (shift - 1))) >> shift);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.igrium.replaylab.render.frame;
+
+import lombok.Getter;
+
+/**
+ * Planar / semi-planar YUV layouts {@link YuvConverter} can produce.
+ */
+public enum YuvFormat {
+    /**
+     * Full-resolution Y plane followed by quarter-resolution U and V planes.
+     */
+    YUV420P("yuv420p", "yuv420p", true),
+    /**
+     * Full-resolution Y plane followed by a single quarter-resolution plane of interleaved U/V pairs.
+     */
+    NV12("nv12", "yuv420p", true),
+    /**
+     * Three full-resolution planes.
+     */
+    YUV444P("yuv444p", "yuv444p", false);
+
+    /**
+     * The name ffmpeg's <code>-pix_fmt</code> uses for this layout.
+     */
+    @Getter
+    private final String ffmpegName;
+
+    /**
+     * The pixel format the encoder should output when fed this layout. NV12 exists for the sake of the pipe, so it's
+     * unpacked to regular 4:2:0.
+     */
+    @Getter
+    private final String outputFormat;
+
+    @Getter
+    private final boolean subsampled;
+
+    YuvFormat(String ffmpegName, String outputFormat, boolean subsampled) {
+        this.ffmpegName = ffmpegName;
+        this.outputFormat = outputFormat;
+        this.subsampled = subsampled;
+    }
+
+    public int chromaWidth(int width) {
+        return subsampled ? (width + 1) / 2 : width;
+    }
+
+    public int chromaHeight(int height) {
+        return subsampled ? (height + 1) / 2 : height;
+    }
+
+    /**
+     * The size in bytes of one frame in this layout.
+     */
+    public int frameBytes(int width, int height) {
+        return width * height + 2 * chromaWidth(width) * chromaHeight(height);
+    }
+
+    public String langKey() {
+        return "pixfmt." + name().toLowerCase();
+    }
+}
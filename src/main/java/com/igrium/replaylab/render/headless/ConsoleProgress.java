@@ -0,0 +1,93 @@
+package com.igrium.replaylab.render.headless;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Prints export progress as plain lines, for exports nobody is watching. Lines are spaced out by at least
+ * {@link #INTERVAL_MS}, so a log of an overnight export stays readable. Speed is measured from the first update, so
+ * setup and pre-roll don't drag it down.
+ */
+public class ConsoleProgress {
+
+    /**
+     * Starts every line, so progress can be picked out of the game's own output.
+     */
+    public static final String PREFIX = "[ReplayLab render] ";
+
+    public static final long INTERVAL_MS = 5000;
+
+    private final PrintStream out;
+    private final int totalFrames;
+
+    private boolean started;
+    private int startFrame;
+    private long startTime;
+    private long lastPrint;
+
+    /**
+     * @param out         Where to print.
+     * @param totalFrames How many frames the whole export has.
+     */
+    public ConsoleProgress(PrintStream out, int totalFrames) {
+        this.out = out;
+        this.totalFrames = totalFrames;
+    }
+
+    /**
+     * Print where the export is, unless a line was printed too recently.
+     *
+     * @param frame The frame being rendered.
+     * @param now   The time, in milliseconds.
+     * @return Whether a line was printed.
+     */
+    public boolean update(int frame, long now) {
+        if (!started) {
+            started = true;
+            startFrame = frame;
+            startTime = now;
+        } else if (now - lastPrint < INTERVAL_MS) {
+            return false;
+        }
+        lastPrint = now;
+        print(format(frame, startFrame, totalFrames, now - startTime));
+        return true;
+    }
+
+    public void print(String message) {
+        out.println(PREFIX + message);
+        out.flush();
+    }
+
+    /**
+     * Describe an export's progress, with its speed and time left once there's enough to go on.
+     *
+     * @param frame       The frame being rendered.
+     * @param startFrame  The frame the export was at when timing started.
+     * @param totalFrames How many frames the export has.
+     * @param elapsedMs   How long it's been since timing started, in milliseconds.
+     */
+    public static String format(int frame, int startFrame, int totalFrames, long elapsedMs) {
+        String progress = String.format(Locale.ROOT, "Frame %d/%d (%.1f%%)", frame, totalFrames,
+                totalFrames > 0 ? frame * 100d / totalFrames : 100d);
+        int rendered = frame - startFrame;
+        if (rendered <= 0 || elapsedMs <= 0) {
+            return progress;
+        }
+        double fps = rendered * 1000d / elapsedMs;
+        long remainingMs = (long) ((totalFrames - frame) * 1000d / fps);
+        return progress + String.format(Locale.ROOT, ", %.1f fps, %s left", fps, formatDuration(remainingMs));
+    }
+
+    /**
+     * Format a duration as <code>h:mm:ss</code>, or <code>m:ss</code> if it's under an hour.
+     */
+    public static String formatDuration(long millis) {
+        long seconds = Math.max(millis, 0) / 1000;
+        long hours = seconds / 3600;
+        long minutes = seconds / 60 % 60;
+        return hours > 0
+                ? "%d:%02d:%02d".formatted(hours, minutes, seconds % 60)
+                : "%d:%02d".formatted(minutes, seconds % 60);
+    }
+}
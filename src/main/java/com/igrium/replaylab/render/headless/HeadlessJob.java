@@ -0,0 +1,136 @@
+package com.igrium.replaylab.render.headless;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.igrium.replaylab.render.queue.RenderJob;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An export to run unattended, straight from the launch arguments: which replay to open, which of its scenes to
+ * render, and optionally where to and with what settings. See {@link HeadlessRender}.
+ * <p>
+ * A job is given either as a JSON file, with <code>--replaylab-job job.json</code>, or spelled out in arguments:
+ * <pre>
+ * --replaylab-replay replays/match.mcpr --replaylab-scene intro [--replaylab-output renders/intro.mp4]
+ *     [--replaylab-resume]
+ * </pre>
+ * Job files have the same fields: <code>replay</code> and <code>scene</code>, and optionally <code>output</code>,
+ * <code>resume</code> and <code>settings</code>. Relative paths in a job file are relative to the file.
+ *
+ * @param replay   The replay file.
+ * @param scene    Name of the scene to render.
+ * @param outPath  Where to export to instead of the scene's output path. <code>null</code> to keep the scene's.
+ * @param settings Render settings to apply over the scene's, as in a {@link RenderJob}. <code>null</code> for none.
+ * @param resume   Pick up a stopped export of the scene, if there's one that can be.
+ */
+public record HeadlessJob(Path replay, String scene, @Nullable Path outPath, @Nullable JsonObject settings,
+                          boolean resume) {
+
+    public static final String ARG_JOB = "--replaylab-job";
+    public static final String ARG_REPLAY = "--replaylab-replay";
+    public static final String ARG_SCENE = "--replaylab-scene";
+    public static final String ARG_OUTPUT = "--replaylab-output";
+    public static final String ARG_RESUME = "--replaylab-resume";
+
+    private static final String ARG_PREFIX = "--replaylab-";
+
+    /**
+     * Find a job in the game's launch arguments. Arguments that aren't ours are left to the game.
+     *
+     * @param args       The launch arguments.
+     * @param workingDir What relative paths in the arguments are relative to.
+     * @return The job, or <code>null</code> if the arguments don't ask for one.
+     * @throws IllegalArgumentException If the arguments ask for a job but don't describe it properly.
+     * @throws IOException              If a job file can't be read.
+     */
+    public static @Nullable HeadlessJob parseArgs(String[] args, Path workingDir)
+            throws IllegalArgumentException, IOException {
+        Path jobFile = null;
+        Path replay = null;
+        String scene = null;
+        Path outPath = null;
+        boolean resume = false;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith(ARG_PREFIX)) continue;
+            switch (arg) {
+                case ARG_JOB -> jobFile = workingDir.resolve(value(args, ++i, arg));
+                case ARG_REPLAY -> replay = workingDir.resolve(value(args, ++i, arg));
+                case ARG_SCENE -> scene = value(args, ++i, arg);
+                case ARG_OUTPUT -> outPath = workingDir.resolve(value(args, ++i, arg));
+                case ARG_RESUME -> resume = true;
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        if (jobFile != null) {
+            if (replay != null || scene != null || outPath != null || resume) {
+                throw new IllegalArgumentException(ARG_JOB + " can't be combined with other options");
+            }
+            return read(jobFile);
+        }
+        if (replay == null && scene == null && outPath == null && !resume) {
+            return null;
+        }
+        if (replay == null) {
+            throw new IllegalArgumentException("Missing " + ARG_REPLAY);
+        }
+        if (scene == null) {
+            throw new IllegalArgumentException("Missing " + ARG_SCENE);
+        }
+        return new HeadlessJob(replay, scene, outPath, null, resume);
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length || args[i].startsWith(ARG_PREFIX)) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[i];
+    }
+
+    /**
+     * Read a job file.
+     *
+     * @throws IOException If it can't be read or isn't a valid job.
+     */
+    public static HeadlessJob read(Path file) throws IOException {
+        try {
+            JsonElement json = JsonParser.parseString(Files.readString(file));
+            if (!json.isJsonObject()) {
+                throw new JsonParseException("Expected an object");
+            }
+            return fromJson(json.getAsJsonObject(), file.toAbsolutePath().getParent());
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid render job " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read a job from JSON.
+     *
+     * @param json    The job.
+     * @param baseDir What relative paths in the job are relative to.
+     * @throws JsonParseException If it's malformed.
+     */
+    public static HeadlessJob fromJson(JsonObject json, Path baseDir) throws JsonParseException {
+        if (!json.has("replay") || !json.has("scene")) {
+            throw new JsonParseException("A job needs a replay and a scene");
+        }
+        try {
+            return new HeadlessJob(baseDir.resolve(json.get("replay").getAsString()),
+                    json.get("scene").getAsString(),
+                    json.has("output") ? baseDir.resolve(json.get("output").getAsString()) : null,
+                    json.has("settings") ? json.getAsJsonObject("settings") : null,
+                    json.has("resume") && json.get("resume").getAsBoolean());
+        } catch (ClassCastException | IllegalStateException | UnsupportedOperationException e) {
+            throw new JsonParseException("Malformed render job", e);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.igrium.replaylab.render.headless;
+
+import com.igrium.replaylab.render.RenderCheckpoint;
+import com.igrium.replaylab.render.VideoRenderer;
+import com.igrium.replaylab.render.queue.RenderJob;
+import com.igrium.replaylab.scene.ReplayScene;
+import com.igrium.replaylab.scene.ReplayScenes;
+import com.replaymod.core.ReplayMod;
+import com.replaymod.replay.ReplayHandler;
+import com.replaymod.replay.ReplayModReplay;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.client.Minecraft;
+import net.minecraft.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Runs a {@link HeadlessJob} given in the launch arguments, for scripted exports: once the game has loaded, opens the
+ * replay, renders the scene without the editor or the progress window, prints progress to stdout, and quits with
+ * one of the <code>EXIT_</code> codes.
+ * <p>
+ * The game window still opens, since that's where the frames are rendered. Closing it stops the export, which can be
+ * picked up again with <code>--replaylab-resume</code>.
+ */
+public final class HeadlessRender {
+    private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/HeadlessRender");
+
+    public static final int EXIT_OK = 0;
+
+    /**
+     * The export was started, but failed.
+     */
+    public static final int EXIT_FAILED = 1;
+
+    /**
+     * The job couldn't be started: bad arguments, or a replay or scene that couldn't be loaded.
+     */
+    public static final int EXIT_BAD_JOB = 2;
+
+    /**
+     * The export was stopped before it finished, by closing the window. It can be resumed if the encoder supports it.
+     */
+    public static final int EXIT_STOPPED = 3;
+
+    /**
+     * How long the replay gets to load its world before we give up on it.
+     */
+    private static final long LOAD_TIMEOUT_MS = 120_000;
+
+    private enum Stage {
+        WAITING_FOR_GAME,
+        LOADING_REPLAY,
+        RENDERING
+    }
+
+    private final HeadlessJob job;
+    private Stage stage = Stage.WAITING_FOR_GAME;
+    private long loadStartTime;
+
+    private HeadlessRender(HeadlessJob job) {
+        this.job = job;
+    }
+
+    /**
+     * Start the job in the launch arguments, if there is one. Quits right away if the arguments are bad.
+     *
+     * @param args The game's launch arguments.
+     */
+    public static void init(String[] args) {
+        HeadlessJob job;
+        try {
+            job = HeadlessJob.parseArgs(args, FabricLoader.getInstance().getGameDir());
+        } catch (IllegalArgumentException | IOException e) {
+            print("Invalid render job: " + e.getMessage());
+            System.exit(EXIT_BAD_JOB);
+            return;
+        }
+        if (job == null) return;
+
+        LOGGER.info("Rendering scene {} of {} once the game has loaded", job.scene(), job.replay());
+        HeadlessRender render = new HeadlessRender(job);
+        ClientTickEvents.END_CLIENT_TICK.register(render::onTick);
+    }
+
+    private void onTick(Minecraft mc) {
+        switch (stage) {
+            case WAITING_FOR_GAME -> {
+                // The loading overlay goes away once resources are loaded.
+                if (mc.gui.overlay() != null) return;
+                stage = Stage.LOADING_REPLAY;
+                loadStartTime = Util.getMillis();
+                print("Opening " + job.replay());
+                try {
+                    ReplayModReplay.instance.startReplay(ReplayMod.instance.files.open(job.replay()), false, true);
+                } catch (Exception e) {
+                    LOGGER.error("Error opening replay {}", job.replay(), e);
+                    print("Couldn't open the replay: " + e.getMessage());
+                    exit(EXIT_BAD_JOB);
+                }
+            }
+            case LOADING_REPLAY -> {
+                if (ReplayModReplay.instance.getReplayHandler() != null && mc.level != null && mc.player != null
+                        && mc.gui.overlay() == null) {
+                    stage = Stage.RENDERING;
+                    // Run from the task queue, so the export isn't nested in a tick.
+                    mc.schedule(this::render);
+                } else if (Util.getMillis() - loadStartTime > LOAD_TIMEOUT_MS) {
+                    print("Timed out waiting for the replay to load");
+                    exit(EXIT_BAD_JOB);
+                }
+            }
+            case RENDERING -> {
+                // The export ticks the game itself.
+            }
+        }
+    }
+
+    private void render() {
+        ReplayHandler handler = ReplayModReplay.instance.getReplayHandler();
+        if (handler == null) {
+            print("The replay closed before the export could start");
+            exit(EXIT_BAD_JOB);
+            return;
+        }
+
+        ReplayScene scene;
+        try {
+            scene = ReplayScenes.readScene(job.scene(), handler.getReplayFile(),
+                    e -> LOGGER.warn("Error loading part of scene {}", job.scene(), e));
+            if (job.settings() != null) {
+                new RenderJob(job.scene(), job.settings()).applySettings(scene.getRenderSettings());
+            }
+            if (job.outPath() != null) {
+                scene.getRenderSettings().setOutPath(job.outPath());
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error loading scene {}", job.scene(), e);
+            print("Couldn't load scene " + job.scene() + ": " + e.getMessage());
+            exit(EXIT_BAD_JOB);
+            return;
+        }
+
+        RenderCheckpoint resumeFrom = job.resume() ? VideoRenderer.findResumable(scene) : null;
+        if (job.resume() && resumeFrom == null) {
+            print("Nothing to resume; starting from the beginning");
+        }
+
+        VideoRenderer renderer = VideoRenderer.create(scene, resumeFrom);
+        renderer.setHeadless(true);
+        ConsoleProgress progress = new ConsoleProgress(System.out, renderer.getTotalFrames());
+        renderer.setProgressListener(r -> {
+            if (r.getRenderState() == VideoRenderer.RenderState.RENDERING) {
+                progress.update(r.getFrameIdx(), Util.getMillis());
+            }
+        });
+
+        print("Rendering %d frames of %s to %s".formatted(renderer.getTotalFrames(), job.scene(),
+                scene.getRenderSettings().getOutPath()));
+        long startTime = Util.getMillis();
+        int code;
+        try {
+            if (renderer.render()) {
+                print("Finished in " + ConsoleProgress.formatDuration(Util.getMillis() - startTime));
+                code = EXIT_OK;
+            } else {
+                print("Stopped at frame %d of %d".formatted(renderer.getFrameIdx(), renderer.getTotalFrames()));
+                // The status tells scripts it was stopped rather than broken; check there really is a checkpoint.
+                RenderCheckpoint checkpoint = VideoRenderer.findResumable(scene);
+                if (checkpoint != null) {
+                    print("Resume from frame %d with %s".formatted(checkpoint.durableFrames(), HeadlessJob.ARG_RESUME));
+                } else {
+                    print("No checkpoint to resume from: the encoder can't resume, or no frames were saved");
+                }
+                code = EXIT_STOPPED;
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error exporting scene {}", job.scene(), e);
+            print("Export failed: " + e.getMessage());
+            code = EXIT_FAILED;
+        }
+        exit(code);
+    }
+
+    private static void print(String message) {
+        System.out.println(ConsoleProgress.PREFIX + message);
+        System.out.flush();
+    }
+
+    private static void exit(int code) {
+        ReplayHandler handler = ReplayModReplay.instance.getReplayHandler();
+        if (handler != null) {
+            try {
+                handler.endReplay();
+            } catch (Exception e) {
+                LOGGER.error("Error closing replay", e);
+            }
+        }
+        print("Exiting with status " + code);
+        // Minecraft.stop() always exits with 0, and the status is the whole point.
+        System.exit(code);
+    }
+}
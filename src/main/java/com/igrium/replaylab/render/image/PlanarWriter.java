@@ -0,0 +1,49 @@
+package com.igrium.replaylab.render.image;
+
+import lombok.experimental.UtilityClass;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Splits frames into raw planes: all of R, then all of G, then all of B, each one byte per pixel with rows top first.
+ * There's no header; the dimensions are expected to come from a sidecar file.
+ */
+@UtilityClass
+public class PlanarWriter {
+
+    /**
+     * Split an image into planes.
+     *
+     * @param rgba   RGBA8 pixels, top row first, read from position 0.
+     * @param width  Image width.
+     * @param height Image height.
+     * @return The three planes, back to back.
+     */
+    public static byte[] toPlanes(ByteBuffer rgba, int width, int height) {
+        int planeSize = width * height;
+        if (rgba.capacity() < planeSize * 4) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d image".formatted(width, height));
+        }
+        ByteBuffer bytes = rgba.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        bytes.clear();
+        IntBuffer pixels = bytes.asIntBuffer();
+
+        byte[] out = new byte[planeSize * 3];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            pixels.get(y * width, row, 0, width);
+            int r = y * width;
+            int g = r + planeSize;
+            int b = g + planeSize;
+            for (int x = 0; x < width; x++) {
+                int px = row[x];
+                out[r + x] = (byte) px;
+                out[g + x] = (byte) (px >>> 8);
+                out[b + x] = (byte) (px >>> 16);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,30 @@
+package com.igrium.replaylab.render.image;
+
+/**
+ * Which PNG row filter {@link PngWriter} applies before compression.
+ */
+public enum PngFilter {
+    NONE(0),
+    SUB(1),
+    UP(2),
+    AVERAGE(3),
+    PAETH(4),
+    /**
+     * Try every filter on each row and keep the one with the smallest sum of absolute values, like libpng does. Slowest
+     * to filter, but usually compresses best.
+     */
+    ADAPTIVE(-1);
+
+    /**
+     * The filter type byte written at the start of each row, or <code>-1</code> if it's chosen per row.
+     */
+    final int type;
+
+    PngFilter(int type) {
+        this.type = type;
+    }
+
+    public String langKey() {
+        return "pngfilter." + name().toLowerCase();
+    }
+}
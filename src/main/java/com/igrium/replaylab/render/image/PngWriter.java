@@ -0,0 +1,482 @@
+package com.igrium.replaylab.render.image;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes RGBA8 frames as RGB PNGs, with control over compression level, row filter and bit depth.
+ * <p>
+ * Given an executor, a single image is compressed in parallel the way pigz does it: the filtered image data is split
+ * into blocks that are deflated independently, each primed with the last 32 KiB of the block before it as a preset
+ * dictionary so the ratio barely suffers. Every block but the last ends on a sync flush, which leaves the stream
+ * byte-aligned, so the blocks can simply be concatenated into one valid zlib stream. The Adler-32 checksums of the
+ * blocks are combined at the end. Filtering is split along the same blocks, since each one only needs the row
+ * above it.
+ * <p>
+ * Alpha is dropped; exported frames are always opaque.
+ */
+public class PngWriter {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    /**
+     * Deflate's window size, and therefore the most of the previous block a dictionary can make use of.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * Roughly how much filtered data goes into each block. Same as pigz's default.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private static final int IDAT_SIZE = 256 * 1024;
+
+    private static final int ADLER_BASE = 65521;
+
+    /**
+     * zlib compression level, <code>0</code> (stored) to <code>9</code>.
+     */
+    @Getter
+    private final int compressionLevel;
+
+    @Getter
+    private final PngFilter filter;
+
+    /**
+     * Bits per channel; <code>8</code> or <code>16</code>.
+     */
+    @Getter
+    private final int bitDepth;
+
+    private final @Nullable Executor executor;
+    private final int blockSize;
+
+    /**
+     * Create a PNG writer.
+     *
+     * @param compressionLevel zlib compression level, <code>0</code> to <code>9</code>.
+     * @param filter           Row filter to use.
+     * @param bitDepth         Bits per channel; <code>8</code> or <code>16</code>.
+     * @param executor         Executor to compress blocks on. If <code>null</code>, images are compressed on the
+     *                         calling thread as a single stream.
+     */
+    public PngWriter(int compressionLevel, PngFilter filter, int bitDepth, @Nullable Executor executor) {
+        this(compressionLevel, filter, bitDepth, executor, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Create a PNG writer.
+     *
+     * @param compressionLevel zlib compression level, <code>0</code> to <code>9</code>.
+     * @param filter           Row filter to use.
+     * @param bitDepth         Bits per channel; <code>8</code> or <code>16</code>.
+     * @param executor         Executor to compress blocks on. If <code>null</code>, images are compressed on the
+     *                         calling thread as a single stream.
+     * @param blockSize        Approximate size of each parallel block, in bytes of filtered data. Always at least one
+     *                         row.
+     */
+    public PngWriter(int compressionLevel, PngFilter filter, int bitDepth, @Nullable Executor executor,
+                     int blockSize) {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9");
+        }
+        if (bitDepth != 8 && bitDepth != 16) {
+            throw new IllegalArgumentException("Bit depth must be 8 or 16");
+        }
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+        this.bitDepth = bitDepth;
+        this.executor = executor;
+        this.blockSize = Math.max(blockSize, 1);
+    }
+
+    /**
+     * Image data that has been filtered and is ready to compress. Holds no reference to the source pixels.
+     */
+    public static final class FilteredImage {
+        private final int width;
+        private final int height;
+        private final byte[] data;
+
+        private FilteredImage(int width, int height, byte[] data) {
+            this.width = width;
+            this.height = height;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Write an image.
+     *
+     * @param rgba   RGBA8 pixels, top row first, read from position 0.
+     * @param width  Image width.
+     * @param height Image height.
+     * @param out    Stream to write to. Not closed.
+     */
+    public void write(ByteBuffer rgba, int width, int height, OutputStream out) throws IOException {
+        write(filter(rgba, width, height), out);
+    }
+
+    /**
+     * Run the first half of {@link #write(ByteBuffer, int, int, OutputStream)}: read and filter the pixels. The
+     * buffer is free to be reused as soon as this returns.
+     *
+     * @param rgba   RGBA8 pixels, top row first, read from position 0.
+     * @param width  Image width.
+     * @param height Image height.
+     */
+    public FilteredImage filter(ByteBuffer rgba, int width, int height) {
+        if (rgba.capacity() < width * height * 4) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d image".formatted(width, height));
+        }
+        int stride = 1 + width * (bitDepth / 8 * 3);
+        long totalBytes = (long) stride * height;
+        if (totalBytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Image too large: %dx%d".formatted(width, height));
+        }
+
+        ByteBuffer bytes = rgba.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        bytes.clear();
+        IntBuffer pixels = bytes.asIntBuffer();
+        byte[] filtered = new byte[(int) totalBytes];
+
+        int rowsPerBlock = rowsPerBlock(stride);
+        if (executor == null || rowsPerBlock >= height) {
+            filterRows(pixels, width, 0, height, filtered);
+        } else {
+            List<CompletableFuture<?>> tasks = new ArrayList<>();
+            for (int y = 0; y < height; y += rowsPerBlock) {
+                int y0 = y;
+                int y1 = Math.min(y + rowsPerBlock, height);
+                tasks.add(CompletableFuture.runAsync(() -> filterRows(pixels, width, y0, y1, filtered), executor));
+            }
+            join(CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)));
+        }
+        return new FilteredImage(width, height, filtered);
+    }
+
+    /**
+     * Compress and write an image that was filtered by {@link #filter}.
+     *
+     * @param image Filtered image. Must come from a writer with the same bit depth.
+     * @param out   Stream to write to. Not closed.
+     */
+    public void write(FilteredImage image, OutputStream out) throws IOException {
+        out.write(SIGNATURE);
+        ByteBuffer ihdr = ByteBuffer.allocate(13);
+        ihdr.putInt(image.width).putInt(image.height).put((byte) bitDepth)
+                .put((byte) 2) // color type: RGB
+                .put((byte) 0) // compression: deflate
+                .put((byte) 0) // filter method: adaptive (the only one there is)
+                .put((byte) 0); // no interlace
+        writeChunk(out, "IHDR", ihdr.array(), 0, 13);
+
+        int stride = image.data.length / image.height;
+        int rowsPerBlock = rowsPerBlock(stride);
+        if (executor == null || rowsPerBlock >= image.height) {
+            writeSerial(image.data, out);
+        } else {
+            writeParallel(image.data, rowsPerBlock * stride, out);
+        }
+
+        writeChunk(out, "IEND", new byte[0], 0, 0);
+    }
+
+    private int rowsPerBlock(int stride) {
+        return Math.max(blockSize / stride, 1);
+    }
+
+    private Deflater createDeflater(boolean nowrap) {
+        Deflater deflater = new Deflater(compressionLevel, nowrap);
+        if (filter != PngFilter.NONE) {
+            deflater.setStrategy(Deflater.FILTERED);
+        }
+        return deflater;
+    }
+
+    private void writeSerial(byte[] filtered, OutputStream out) throws IOException {
+        Deflater deflater = createDeflater(false);
+        try {
+            deflater.setInput(filtered);
+            deflater.finish();
+            byte[] buf = new byte[IDAT_SIZE];
+            while (!deflater.finished()) {
+                int len = deflater.deflate(buf);
+                if (len > 0) writeChunk(out, "IDAT", buf, 0, len);
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private record Block(ByteArrayOutputStream data, long adler, int length) {}
+
+    /**
+     * @param blockBytes Size of each block. A multiple of the row size, so blocks line up with rows.
+     */
+    private void writeParallel(byte[] filtered, int blockBytes, OutputStream out) throws IOException {
+        assert executor != null;
+        int blockCount = (filtered.length + blockBytes - 1) / blockBytes;
+
+        List<CompletableFuture<Block>> deflateTasks = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            int offset = i * blockBytes;
+            int length = Math.min(blockBytes, filtered.length - offset);
+            boolean last = i == blockCount - 1;
+            deflateTasks.add(CompletableFuture.supplyAsync(() -> deflateBlock(filtered, offset, length, last),
+                    executor));
+        }
+
+        // Blocks are written as they finish, in order.
+        long adler = 1;
+        for (int i = 0; i < blockCount; i++) {
+            Block block = join(deflateTasks.get(i));
+            adler = combineAdler(adler, block.adler(), block.length());
+
+            ByteArrayOutputStream data = block.data();
+            if (i == blockCount - 1) {
+                data.write((int) (adler >>> 24));
+                data.write((int) (adler >>> 16));
+                data.write((int) (adler >>> 8));
+                data.write((int) adler);
+            }
+            byte[] bytes = data.toByteArray();
+            if (i == 0) {
+                byte[] header = zlibHeader(compressionLevel);
+                byte[] withHeader = new byte[bytes.length + 2];
+                System.arraycopy(header, 0, withHeader, 0, 2);
+                System.arraycopy(bytes, 0, withHeader, 2, bytes.length);
+                bytes = withHeader;
+            }
+            writeChunk(out, "IDAT", bytes, 0, bytes.length);
+        }
+    }
+
+    private Block deflateBlock(byte[] data, int offset, int length, boolean last) {
+        Deflater deflater = createDeflater(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+        try {
+            if (offset > 0) {
+                int dictLength = Math.min(DICTIONARY_SIZE, offset);
+                deflater.setDictionary(data, offset - dictLength, dictLength);
+            }
+            deflater.setInput(data, offset, length);
+
+            byte[] buf = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    out.write(buf, 0, deflater.deflate(buf));
+                }
+            } else {
+                // A sync flush has written everything once all input is taken and the buffer isn't filled. The
+                // first call may return nothing at all, as it only applies the strategy.
+                int len;
+                do {
+                    len = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                    out.write(buf, 0, len);
+                } while (len == buf.length || !deflater.needsInput());
+            }
+        } finally {
+            deflater.end();
+        }
+
+        Adler32 adler = new Adler32();
+        adler.update(data, offset, length);
+        return new Block(out, adler.getValue(), length);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    /**
+     * Adler-32 of two concatenated pieces of data from the checksums of each. Ported from zlib's
+     * <code>adler32_combine</code>.
+     *
+     * @param adler1  Checksum of the first piece.
+     * @param adler2  Checksum of the second piece.
+     * @param length2 Length of the second piece.
+     */
+    private static long combineAdler(long adler1, long adler2, long length2) {
+        long rem = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= ((long) ADLER_BASE << 1)) sum2 -= ((long) ADLER_BASE << 1);
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | (sum2 << 16);
+    }
+
+    private static byte[] zlibHeader(int level) {
+        // Deflate with a 32K window; FLEVEL is informational, and FCHECK makes the pair a multiple of 31.
+        int flevel = level < 2 ? 0 : level < 6 ? 1 : level == 6 ? 2 : 3;
+        int cmf = 0x78;
+        int flg = flevel << 6;
+        flg += 31 - ((cmf << 8) + flg) % 31;
+        return new byte[]{(byte) cmf, (byte) flg};
+    }
+
+    /* FILTERING */
+
+    private void filterRows(IntBuffer pixels, int width, int y0, int y1, byte[] dst) {
+        int bpp = bitDepth / 8 * 3;
+        int rowBytes = width * bpp;
+        int[] rowPixels = new int[width];
+        byte[] prev = new byte[rowBytes];
+        byte[] cur = new byte[rowBytes];
+        byte[][] candidates = filter == PngFilter.ADAPTIVE ? new byte[5][rowBytes + 1] : null;
+
+        if (y0 > 0) {
+            unpackRow(pixels, width, y0 - 1, rowPixels, prev);
+        }
+
+        for (int y = y0; y < y1; y++) {
+            unpackRow(pixels, width, y, rowPixels, cur);
+            int offset = y * (rowBytes + 1);
+
+            if (candidates == null) {
+                applyFilter(filter.type, cur, prev, bpp, dst, offset);
+            } else {
+                long best = Long.MAX_VALUE;
+                int bestType = 0;
+                for (int type = 0; type < 5; type++) {
+                    applyFilter(type, cur, prev, bpp, candidates[type], 0);
+                    long score = score(candidates[type]);
+                    if (score < best) {
+                        best = score;
+                        bestType = type;
+                    }
+                }
+                System.arraycopy(candidates[bestType], 0, dst, offset, rowBytes + 1);
+            }
+
+            byte[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+    }
+
+    private void unpackRow(IntBuffer pixels, int width, int y, int[] rowPixels, byte[] out) {
+        pixels.get(y * width, rowPixels, 0, width);
+        if (bitDepth == 8) {
+            for (int x = 0, i = 0; x < width; x++, i += 3) {
+                int p = rowPixels[x];
+                out[i] = (byte) p;
+                out[i + 1] = (byte) (p >>> 8);
+                out[i + 2] = (byte) (p >>> 16);
+            }
+        } else {
+            // v * 257 maps 0-255 onto the full 16-bit range; big-endian, so both bytes are just v.
+            for (int x = 0, i = 0; x < width; x++, i += 6) {
+                int p = rowPixels[x];
+                out[i] = out[i + 1] = (byte) p;
+                out[i + 2] = out[i + 3] = (byte) (p >>> 8);
+                out[i + 4] = out[i + 5] = (byte) (p >>> 16);
+            }
+        }
+    }
+
+    /**
+     * The "minimum sum of absolute differences" heuristic: treat filtered bytes as signed and prefer the row
+     * closest to zero.
+     */
+    private static long score(byte[] row) {
+        long sum = 0;
+        for (int i = 1; i < row.length; i++) {
+            sum += Math.abs(row[i]);
+        }
+        return sum;
+    }
+
+    private static void applyFilter(int type, byte[] cur, byte[] prev, int bpp, byte[] out, int offset) {
+        int n = cur.length;
+        out[offset++] = (byte) type;
+        switch (type) {
+            case 0 -> System.arraycopy(cur, 0, out, offset, n);
+            case 1 -> {
+                System.arraycopy(cur, 0, out, offset, bpp);
+                for (int i = bpp; i < n; i++) {
+                    out[offset + i] = (byte) (cur[i] - cur[i - bpp]);
+                }
+            }
+            case 2 -> {
+                for (int i = 0; i < n; i++) {
+                    out[offset + i] = (byte) (cur[i] - prev[i]);
+                }
+            }
+            case 3 -> {
+                for (int i = 0; i < bpp; i++) {
+                    out[offset + i] = (byte) (cur[i] - ((prev[i] & 0xFF) >>> 1));
+                }
+                for (int i = bpp; i < n; i++) {
+                    out[offset + i] = (byte) (cur[i] - (((cur[i - bpp] & 0xFF) + (prev[i] & 0xFF)) >>> 1));
+                }
+            }
+            case 4 -> {
+                for (int i = 0; i < bpp; i++) {
+                    out[offset + i] = (byte) (cur[i] - prev[i]);
+                }
+                for (int i = bpp; i < n; i++) {
+                    out[offset + i] = (byte) (cur[i] - paeth(cur[i - bpp] & 0xFF, prev[i] & 0xFF,
+                            prev[i - bpp] & 0xFF));
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown filter type " + type);
+        }
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) return a;
+        if (pb <= pc) return b;
+        return c;
+    }
+
+    private static void writeChunk(OutputStream out, String type, byte[] data, int offset, int length)
+            throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, offset, length);
+
+        writeInt(out, length);
+        out.write(typeBytes);
+        out.write(data, offset, length);
+        writeInt(out, (int) crc.getValue());
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
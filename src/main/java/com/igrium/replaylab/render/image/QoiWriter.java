@@ -0,0 +1,140 @@
+package com.igrium.replaylab.render.image;
+
+import lombok.experimental.UtilityClass;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Encodes frames as <a href="https://qoiformat.org/qoi-specification.pdf">QOI</a>: lossless, and an order of
+ * magnitude cheaper to write than PNG.
+ */
+@UtilityClass
+public class QoiWriter {
+
+    private static final int OP_INDEX = 0x00;
+    private static final int OP_DIFF = 0x40;
+    private static final int OP_LUMA = 0x80;
+    private static final int OP_RUN = 0xC0;
+    private static final int OP_RGB = 0xFE;
+    private static final int OP_RGBA = 0xFF;
+
+    private static final int HEADER_SIZE = 14;
+    private static final byte[] END_MARKER = {0, 0, 0, 0, 0, 0, 0, 1};
+
+    /**
+     * Encode an image.
+     *
+     * @param rgba   RGBA8 pixels, top row first, read from position 0.
+     * @param width  Image width.
+     * @param height Image height.
+     * @param alpha  Whether to keep the alpha channel. If not, every pixel is written as opaque.
+     * @return The encoded file, in a heap buffer that's usually a good deal larger than its contents.
+     */
+    public static ByteBuffer encode(ByteBuffer rgba, int width, int height, boolean alpha) {
+        if (rgba.capacity() < width * height * 4) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d image".formatted(width, height));
+        }
+        long maxSize = (long) width * height * 5 + HEADER_SIZE + END_MARKER.length;
+        if (maxSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Image too large: %dx%d".formatted(width, height));
+        }
+
+        ByteBuffer bytes = rgba.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        bytes.clear();
+        IntBuffer pixels = bytes.asIntBuffer();
+
+        byte[] out = new byte[(int) maxSize];
+        int p = 0;
+        out[p++] = 'q';
+        out[p++] = 'o';
+        out[p++] = 'i';
+        out[p++] = 'f';
+        p = putInt(out, p, width);
+        p = putInt(out, p, height);
+        out[p++] = (byte) (alpha ? 4 : 3);
+        out[p++] = 0; // sRGB with linear alpha
+
+        int[] index = new int[64];
+        int[] row = new int[width];
+        // Pixels are packed as they sit in memory: 0xAABBGGRR.
+        int opaque = alpha ? 0 : 0xFF000000;
+        int prev = 0xFF000000;
+        int run = 0;
+        int remaining = width * height;
+
+        for (int y = 0; y < height; y++) {
+            pixels.get(y * width, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int px = row[x] | opaque;
+                remaining--;
+
+                if (px == prev) {
+                    run++;
+                    if (run == 62 || remaining == 0) {
+                        out[p++] = (byte) (OP_RUN | (run - 1));
+                        run = 0;
+                    }
+                    continue;
+                }
+
+                if (run > 0) {
+                    out[p++] = (byte) (OP_RUN | (run - 1));
+                    run = 0;
+                }
+
+                int r = px & 0xFF;
+                int g = (px >>> 8) & 0xFF;
+                int b = (px >>> 16) & 0xFF;
+                int a = px >>> 24;
+                int hash = (r * 3 + g * 5 + b * 7 + a * 11) & 63;
+
+                if (index[hash] == px) {
+                    out[p++] = (byte) (OP_INDEX | hash);
+                } else {
+                    index[hash] = px;
+                    if (a == prev >>> 24) {
+                        int vr = (byte) (r - (prev & 0xFF));
+                        int vg = (byte) (g - ((prev >>> 8) & 0xFF));
+                        int vb = (byte) (b - ((prev >>> 16) & 0xFF));
+                        int vgr = vr - vg;
+                        int vgb = vb - vg;
+
+                        if (vr > -3 && vr < 2 && vg > -3 && vg < 2 && vb > -3 && vb < 2) {
+                            out[p++] = (byte) (OP_DIFF | (vr + 2) << 4 | (vg + 2) << 2 | (vb + 2));
+                        } else if (vgr > -9 && vgr < 8 && vg > -33 && vg < 32 && vgb > -9 && vgb < 8) {
+                            out[p++] = (byte) (OP_LUMA | (vg + 32));
+                            out[p++] = (byte) ((vgr + 8) << 4 | (vgb + 8));
+                        } else {
+                            out[p++] = (byte) OP_RGB;
+                            out[p++] = (byte) r;
+                            out[p++] = (byte) g;
+                            out[p++] = (byte) b;
+                        }
+                    } else {
+                        out[p++] = (byte) OP_RGBA;
+                        out[p++] = (byte) r;
+                        out[p++] = (byte) g;
+                        out[p++] = (byte) b;
+                        out[p++] = (byte) a;
+                    }
+                }
+                prev = px;
+            }
+        }
+
+        System.arraycopy(END_MARKER, 0, out, p, END_MARKER.length);
+        p += END_MARKER.length;
+        // Not worth copying a frame's worth of data just to trim it.
+        return ByteBuffer.wrap(out, 0, p);
+    }
+
+    private static int putInt(byte[] out, int p, int value) {
+        out[p] = (byte) (value >>> 24);
+        out[p + 1] = (byte) (value >>> 16);
+        out[p + 2] = (byte) (value >>> 8);
+        out[p + 3] = (byte) value;
+        return p + 4;
+    }
+}
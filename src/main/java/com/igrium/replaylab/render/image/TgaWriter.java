@@ -0,0 +1,132 @@
+package com.igrium.replaylab.render.image;
+
+import lombok.experimental.UtilityClass;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes frames as 24-bit Truevision TGA, either uncompressed or run-length encoded.
+ */
+@UtilityClass
+public class TgaWriter {
+
+    private static final int HEADER_SIZE = 18;
+
+    /**
+     * TGA 2.0 footer with no extension or developer area, so readers know which version they're dealing with.
+     */
+    private static final byte[] FOOTER_SIGNATURE = "TRUEVISION-XFILE.\0".getBytes(StandardCharsets.US_ASCII);
+    private static final int FOOTER_SIZE = 8 + FOOTER_SIGNATURE.length;
+
+    private static final int TYPE_TRUECOLOR = 2;
+    private static final int TYPE_TRUECOLOR_RLE = 10;
+
+    /**
+     * Image descriptor bit that puts the origin at the top-left, so rows can be written top first.
+     */
+    private static final int DESCRIPTOR_TOP_LEFT = 0x20;
+
+    private static final int MAX_PACKET = 128;
+
+    /**
+     * Encode an image.
+     *
+     * @param rgba   RGBA8 pixels, top row first, read from position 0.
+     * @param width  Image width. At most 65535.
+     * @param height Image height. At most 65535.
+     * @param rle    Whether to run-length encode the pixels.
+     * @return The encoded file, in a heap buffer that may be larger than its contents.
+     */
+    public static ByteBuffer encode(ByteBuffer rgba, int width, int height, boolean rle) {
+        if (width > 0xFFFF || height > 0xFFFF) {
+            throw new IllegalArgumentException("TGA images can't be larger than 65535x65535");
+        }
+        if (rgba.capacity() < width * height * 4) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d image".formatted(width, height));
+        }
+
+        ByteBuffer bytes = rgba.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        bytes.clear();
+        IntBuffer pixels = bytes.asIntBuffer();
+
+        // Worst case for RLE is a raw packet header for every 128 pixels on top of the pixels themselves.
+        int rowBytes = width * 3;
+        int maxRowBytes = rle ? rowBytes + (width + MAX_PACKET - 1) / MAX_PACKET : rowBytes;
+        byte[] out = new byte[HEADER_SIZE + maxRowBytes * height + FOOTER_SIZE];
+
+        out[2] = (byte) (rle ? TYPE_TRUECOLOR_RLE : TYPE_TRUECOLOR);
+        out[12] = (byte) width;
+        out[13] = (byte) (width >>> 8);
+        out[14] = (byte) height;
+        out[15] = (byte) (height >>> 8);
+        out[16] = 24;
+        out[17] = DESCRIPTOR_TOP_LEFT;
+
+        int p = HEADER_SIZE;
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            pixels.get(y * width, row, 0, width);
+            p = rle ? writeRleRow(row, out, p) : writeRawRow(row, 0, width, out, p);
+        }
+
+        // Footer: zero extension and developer area offsets, then the signature.
+        p += 8;
+        System.arraycopy(FOOTER_SIGNATURE, 0, out, p, FOOTER_SIGNATURE.length);
+        p += FOOTER_SIGNATURE.length;
+        return ByteBuffer.wrap(out, 0, p);
+    }
+
+    private static int writeRawRow(int[] row, int from, int to, byte[] out, int p) {
+        for (int x = from; x < to; x++) {
+            p = putPixel(row[x], out, p);
+        }
+        return p;
+    }
+
+    /**
+     * Packets don't cross rows, as the spec recommends.
+     */
+    private static int writeRleRow(int[] row, byte[] out, int p) {
+        int width = row.length;
+        int x = 0;
+        while (x < width) {
+            int run = runLength(row, x);
+            if (run > 1) {
+                out[p++] = (byte) (0x80 | (run - 1));
+                p = putPixel(row[x], out, p);
+                x += run;
+                continue;
+            }
+
+            // Raw packet up to the next run of at least two.
+            int end = x + 1;
+            while (end < width && end - x < MAX_PACKET && runLength(row, end) < 2) {
+                end++;
+            }
+            out[p++] = (byte) (end - x - 1);
+            p = writeRawRow(row, x, end, out, p);
+            x = end;
+        }
+        return p;
+    }
+
+    private static int runLength(int[] row, int x) {
+        int px = row[x] & 0xFFFFFF;
+        int end = x + 1;
+        while (end < row.length && end - x < MAX_PACKET && (row[end] & 0xFFFFFF) == px) {
+            end++;
+        }
+        return end - x;
+    }
+
+    private static int putPixel(int px, byte[] out, int p) {
+        // Memory order is RGBA; TGA wants BGR.
+        out[p] = (byte) (px >>> 16);
+        out[p + 1] = (byte) (px >>> 8);
+        out[p + 2] = (byte) px;
+        return p + 3;
+    }
+}
@@ -0,0 +1,80 @@
+package com.igrium.replaylab.render.incremental;
+
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Reads and writes the per-frame hashes kept alongside an image sequence, recording what state each frame file was
+ * rendered from. Frames that may not match their hash are stored as {@link FrameStateHasher#UNKNOWN}.
+ */
+@UtilityClass
+public class FrameHashes {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/FrameHashes");
+
+    /**
+     * Name of the hash file within the export directory.
+     */
+    public static final String FILE_NAME = "frame_hashes.bin";
+
+    private static final int MAGIC = 0x524C4648; // "RLFH"
+    private static final int VERSION = 1;
+
+    /**
+     * Write frame hashes, replacing the old file in one go.
+     */
+    public static void write(Path file, long[] hashes) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(hashes.length);
+            for (long hash : hashes) {
+                out.writeLong(hash);
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read frame hashes.
+     *
+     * @return The hashes, or <code>null</code> if there's no file or it can't be read.
+     */
+    public static long @Nullable [] read(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                LOGGER.warn("Ignoring frame hashes in an unknown format: {}", file);
+                return null;
+            }
+            int count = in.readInt();
+            if (count < 0 || count > (Files.size(file) - 12) / 8) {
+                LOGGER.warn("Ignoring truncated frame hashes: {}", file);
+                return null;
+            }
+            long[] hashes = new long[count];
+            for (int i = 0; i < count; i++) {
+                hashes[i] = in.readLong();
+            }
+            return hashes;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read frame hashes {}", file, e);
+            return null;
+        }
+    }
+}
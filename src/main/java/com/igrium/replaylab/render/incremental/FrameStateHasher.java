@@ -0,0 +1,97 @@
+package com.igrium.replaylab.render.incremental;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.igrium.replaylab.anim.KeyChannel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Hashes the evaluated state of a scene at each frame, so two exports can tell which of their frames would look the
+ * same.
+ * <p>
+ * A frame is decided by the scene's animation channels sampled at its time (camera transform, FOV, roll, object
+ * transforms and so on), the replay time it shows, and everything about the scene that isn't animated. The last one is
+ * passed in pre-hashed, as it's the same for every frame. Constraints are left out on purpose: what they produce
+ * depends only on those same inputs, and evaluating them needs the world to be at the right time.
+ */
+public class FrameStateHasher {
+
+    /**
+     * Never produced for a real frame, so files can use it to mark a frame as unknown.
+     */
+    public static final long UNKNOWN = 0;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final long baseHash;
+    private final IntUnaryOperator replayTime;
+    private final List<KeyChannel> channels = new ArrayList<>();
+
+    /**
+     * Create a hasher.
+     *
+     * @param baseHash   Hash of everything about the scene that isn't animated.
+     * @param channels   Every animated object's channels, by object ID and then channel name.
+     * @param replayTime Maps scene time to replay time, both in milliseconds.
+     */
+    public FrameStateHasher(long baseHash, Map<String, ? extends Map<String, KeyChannel>> channels,
+                            IntUnaryOperator replayTime) {
+        this.baseHash = baseHash;
+        this.replayTime = replayTime;
+
+        // Sorted, so the order channels happen to be stored in doesn't matter.
+        for (var object : new TreeMap<>(channels).values()) {
+            for (var channel : new TreeMap<>(object).values()) {
+                if (!channel.getKeyframes().isEmpty()) {
+                    this.channels.add(channel);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the scene time a frame is rendered at, the same way the renderer does.
+     */
+    public static int frameTime(int frameIdx, float fps) {
+        return (int) (frameIdx * 1000 / fps);
+    }
+
+    /**
+     * Hash the scene's state at a given time.
+     *
+     * @param sceneTime Scene time in milliseconds.
+     * @return The hash. Never {@link #UNKNOWN}.
+     */
+    public long hashFrame(int sceneTime) {
+        Hasher hasher = HASH.newHasher();
+        hasher.putLong(baseHash);
+        hasher.putInt(replayTime.applyAsInt(sceneTime));
+        hasher.putInt(channels.size());
+        for (var channel : channels) {
+            hasher.putDouble(channel.sample(sceneTime, true));
+        }
+        long hash = hasher.hash().asLong();
+        return hash == UNKNOWN ? 1 : hash;
+    }
+
+    /**
+     * Hash every frame of an export.
+     *
+     * @param totalFrames Number of frames.
+     * @param fps         Frame rate.
+     * @return The hash of each frame.
+     */
+    public long[] hashFrames(int totalFrames, float fps) {
+        long[] hashes = new long[totalFrames];
+        for (int i = 0; i < totalFrames; i++) {
+            hashes[i] = hashFrame(frameTime(i, fps));
+        }
+        return hashes;
+    }
+}
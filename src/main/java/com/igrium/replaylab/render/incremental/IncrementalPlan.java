@@ -0,0 +1,121 @@
+package com.igrium.replaylab.render.incremental;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Decides which frames of an image sequence export have to be rendered again, by comparing each frame's
+ * {@link FrameStateHasher hash} with the one it was last rendered from.
+ * <p>
+ * Frames near a change are rendered as well, as a safety margin. Things the hash can't see, like entity interpolation
+ * and particles carried over from earlier ticks, can leak a few frames past the point where the scene changed.
+ */
+public class IncrementalPlan {
+
+    private final long[] hashes;
+    private final BitSet render;
+
+    /**
+     * How many frames will be rendered.
+     */
+    @Getter
+    private final int renderedFrames;
+
+    private IncrementalPlan(long[] hashes, BitSet render) {
+        this.hashes = hashes;
+        this.render = render;
+        this.renderedFrames = render.cardinality();
+    }
+
+    /**
+     * Plan an export.
+     *
+     * @param previous Hashes of the frames currently on disk, if there are any.
+     * @param hashes   Hashes of the frames to export.
+     * @param margin   How many extra frames to render on either side of each changed one.
+     * @param exists   Whether a frame's file is on disk.
+     * @return The plan.
+     */
+    public static IncrementalPlan create(long @Nullable [] previous, long[] hashes, int margin, IntPredicate exists) {
+        int totalFrames = hashes.length;
+        BitSet changed = new BitSet(totalFrames);
+        for (int i = 0; i < totalFrames; i++) {
+            if (previous == null || i >= previous.length || previous[i] == FrameStateHasher.UNKNOWN
+                    || previous[i] != hashes[i]) {
+                changed.set(i);
+            }
+        }
+
+        BitSet render = new BitSet(totalFrames);
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            render.set(Math.max(i - margin, 0), Math.min(i + margin + 1, totalFrames));
+        }
+
+        // Checked last, and only for frames we'd otherwise keep; it's the only part that touches the disk.
+        for (int i = render.nextClearBit(0); i < totalFrames; i = render.nextClearBit(i + 1)) {
+            if (!exists.test(i)) {
+                render.set(i);
+            }
+        }
+        return new IncrementalPlan(hashes, render);
+    }
+
+    /**
+     * Plan an export that renders every frame, while still recording their hashes.
+     */
+    public static IncrementalPlan full(long[] hashes) {
+        BitSet render = new BitSet(hashes.length);
+        render.set(0, hashes.length);
+        return new IncrementalPlan(hashes, render);
+    }
+
+    public int getTotalFrames() {
+        return hashes.length;
+    }
+
+    public boolean needsRender(int frameIdx) {
+        return render.get(frameIdx);
+    }
+
+    /**
+     * Get the first frame at or after the given one that needs rendering.
+     *
+     * @return The frame, or {@link #getTotalFrames()} if there aren't any left.
+     */
+    public int nextRendered(int frameIdx) {
+        int next = render.nextSetBit(frameIdx);
+        return next < 0 ? getTotalFrames() : Math.min(next, getTotalFrames());
+    }
+
+    /**
+     * Get the hashes to record for the frames on disk.
+     *
+     * @param writtenFrames How many frames, counting from <code>0</code>, have been written (or kept) by the export.
+     *                      The frames past them that were going to be rendered may or may not have been overwritten.
+     */
+    public long[] getHashes(int writtenFrames) {
+        long[] result = hashes.clone();
+        for (int i = render.nextSetBit(writtenFrames); i >= 0; i = render.nextSetBit(i + 1)) {
+            result[i] = FrameStateHasher.UNKNOWN;
+        }
+        return result;
+    }
+
+    /**
+     * Get the ranges of frames that will be rendered, as <code>[start, end)</code> pairs. For logging.
+     */
+    public List<int[]> getRenderedRanges() {
+        List<int[]> ranges = new ArrayList<>();
+        for (int start = render.nextSetBit(0); start >= 0; ) {
+            int end = render.nextClearBit(start);
+            ranges.add(new int[]{start, end});
+            start = render.nextSetBit(end);
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,236 @@
+package com.igrium.replaylab.render.post;
+
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A 3D color lookup table, as read from an Adobe/Resolve <code>.cube</code> file.
+ * <p>
+ * Colors are looked up with trilinear interpolation between the eight nearest entries. Inputs outside the table's
+ * domain are clamped to its edge.
+ */
+public final class CubeLut {
+
+    public static final int MIN_SIZE = 2;
+    public static final int MAX_SIZE = 128;
+
+    /**
+     * Entries along each axis.
+     */
+    @Getter
+    private final int size;
+
+    /**
+     * Output colors, red changing fastest, then green, then blue, three floats per entry.
+     */
+    private final float[] table;
+
+    private final float[] domainMin;
+    private final float[] domainMax;
+
+    /**
+     * Create a lookup table.
+     *
+     * @param size      Entries along each axis.
+     * @param table     <code>size&sup3;</code> output colors, red changing fastest, three floats each.
+     * @param domainMin Input color that maps to the first entry on each axis.
+     * @param domainMax Input color that maps to the last entry on each axis.
+     */
+    public CubeLut(int size, float[] table, float[] domainMin, float[] domainMax) {
+        if (size < MIN_SIZE || size > MAX_SIZE) {
+            throw new IllegalArgumentException("LUT size must be between %d and %d".formatted(MIN_SIZE, MAX_SIZE));
+        }
+        if (table.length != size * size * size * 3) {
+            throw new IllegalArgumentException("Expected %d entries, got %d".formatted(size * size * size,
+                    table.length / 3));
+        }
+        for (int c = 0; c < 3; c++) {
+            if (!(domainMax[c] > domainMin[c])) {
+                throw new IllegalArgumentException("Domain max must be greater than domain min");
+            }
+        }
+        this.size = size;
+        this.table = table.clone();
+        this.domainMin = domainMin.clone();
+        this.domainMax = domainMax.clone();
+    }
+
+    /**
+     * Create a lookup table that leaves colors unchanged.
+     */
+    public static CubeLut identity(int size) {
+        float[] table = new float[size * size * size * 3];
+        int i = 0;
+        for (int b = 0; b < size; b++) {
+            for (int g = 0; g < size; g++) {
+                for (int r = 0; r < size; r++) {
+                    table[i++] = r / (size - 1f);
+                    table[i++] = g / (size - 1f);
+                    table[i++] = b / (size - 1f);
+                }
+            }
+        }
+        return new CubeLut(size, table, new float[]{0, 0, 0}, new float[]{1, 1, 1});
+    }
+
+    /**
+     * Get where an input value falls along one axis of the table.
+     *
+     * @param channel <code>0</code>, <code>1</code> or <code>2</code> for red, green or blue.
+     * @param value   Input value.
+     * @return Position along the axis, in entries, from <code>0</code> to <code>size - 1</code>.
+     */
+    public float position(int channel, float value) {
+        float t = (value - domainMin[channel]) / (domainMax[channel] - domainMin[channel]);
+        return Math.clamp(t, 0f, 1f) * (size - 1);
+    }
+
+    /**
+     * Get one component of a table entry.
+     */
+    public float entry(int r, int g, int b, int channel) {
+        return table[((b * size + g) * size + r) * 3 + channel];
+    }
+
+    /**
+     * Look up a color.
+     *
+     * @param r   Input red.
+     * @param g   Input green.
+     * @param b   Input blue.
+     * @param out Receives the output color.
+     */
+    public void sample(float r, float g, float b, float[] out) {
+        interpolate(position(0, r), position(1, g), position(2, b), out);
+    }
+
+    /**
+     * Interpolate the table at a position given in entries along each axis.
+     */
+    void interpolate(float pr, float pg, float pb, float[] out) {
+        int r0 = Math.min((int) pr, size - 2);
+        int g0 = Math.min((int) pg, size - 2);
+        int b0 = Math.min((int) pb, size - 2);
+        float fr = pr - r0;
+        float fg = pg - g0;
+        float fb = pb - b0;
+
+        int stepG = size * 3;
+        int stepB = size * size * 3;
+        int base = ((b0 * size + g0) * size + r0) * 3;
+        for (int c = 0; c < 3; c++) {
+            int i = base + c;
+            float c00 = lerp(table[i], table[i + 3], fr);
+            float c10 = lerp(table[i + stepG], table[i + stepG + 3], fr);
+            float c01 = lerp(table[i + stepB], table[i + stepB + 3], fr);
+            float c11 = lerp(table[i + stepB + stepG], table[i + stepB + stepG + 3], fr);
+            out[c] = lerp(lerp(c00, c10, fg), lerp(c01, c11, fg), fb);
+        }
+    }
+
+    private static float lerp(float a, float b, float t) {
+        return a + (b - a) * t;
+    }
+
+    /**
+     * Read a <code>.cube</code> file.
+     *
+     * @throws IOException If the file can't be read or isn't a valid 3D LUT.
+     */
+    public static CubeLut read(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            return read(reader);
+        }
+    }
+
+    /**
+     * Read a <code>.cube</code> file.
+     *
+     * @throws IOException If the file can't be read or isn't a valid 3D LUT.
+     */
+    public static CubeLut read(Reader in) throws IOException {
+        BufferedReader reader = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+        int size = 0;
+        float[] table = null;
+        int entries = 0;
+        float[] domainMin = {0, 0, 0};
+        float[] domainMax = {1, 1, 1};
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] parts = line.split("\\s+");
+            try {
+                switch (parts[0]) {
+                    case "TITLE" -> {}
+                    case "LUT_1D_SIZE" -> throw new IOException("1D LUTs aren't supported");
+                    case "LUT_3D_SIZE" -> {
+                        if (table != null) {
+                            throw new IOException("LUT_3D_SIZE given twice (line %d)".formatted(lineNumber));
+                        }
+                        size = Integer.parseInt(parts[1]);
+                        if (size < MIN_SIZE || size > MAX_SIZE) {
+                            throw new IOException("Unsupported LUT size %d (line %d)".formatted(size, lineNumber));
+                        }
+                        table = new float[size * size * size * 3];
+                    }
+                    case "DOMAIN_MIN" -> readTriple(parts, 1, domainMin, 0);
+                    case "DOMAIN_MAX" -> readTriple(parts, 1, domainMax, 0);
+                    case "LUT_3D_INPUT_RANGE" -> {
+                        float min = Float.parseFloat(parts[1]);
+                        float max = Float.parseFloat(parts[2]);
+                        domainMin = new float[]{min, min, min};
+                        domainMax = new float[]{max, max, max};
+                    }
+                    default -> {
+                        char first = parts[0].charAt(0);
+                        if (Character.isLetter(first)) {
+                            // Some tools add keywords of their own; none of them change how the table is read.
+                            continue;
+                        }
+                        if (table == null) {
+                            throw new IOException("Table data before LUT_3D_SIZE (line %d)".formatted(lineNumber));
+                        }
+                        if (entries == size * size * size) {
+                            throw new IOException("Too many table entries (line %d)".formatted(lineNumber));
+                        }
+                        readTriple(parts, 0, table, entries * 3);
+                        entries++;
+                    }
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Malformed line %d: %s".formatted(lineNumber, line), e);
+            }
+        }
+
+        if (table == null) {
+            throw new IOException("Missing LUT_3D_SIZE");
+        }
+        if (entries != size * size * size) {
+            throw new IOException("Expected %d table entries, found %d".formatted(size * size * size, entries));
+        }
+        try {
+            return new CubeLut(size, table, domainMin, domainMax);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static void readTriple(String[] parts, int start, float[] dst, int offset) {
+        if (parts.length != start + 3) {
+            throw new NumberFormatException("Expected three values");
+        }
+        for (int i = 0; i < 3; i++) {
+            dst[offset + i] = Float.parseFloat(parts[start + i]);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.igrium.replaylab.render.post;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a chain of {@link FrameStage}s over RGBA8 frames, in place. Like the YUV converter, the frame is split into
+ * horizontal bands that are processed in parallel.
+ * <p>
+ * Each row is read out of the frame once, passed through every stage while it's in cache, and written back, so
+ * adding stages costs their own work and nothing more.
+ */
+public class FramePipeline implements AutoCloseable {
+
+    /**
+     * Bands smaller than this aren't worth a task of their own.
+     */
+    private static final int MIN_BAND_ROWS = 16;
+
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    private final FrameStage[] stages;
+
+    @Getter
+    private final int width;
+
+    @Getter
+    private final int height;
+
+    private final int bands;
+    private final @Nullable ExecutorService executor;
+
+    /**
+     * Create a pipeline.
+     *
+     * @param stages      Stages to run, in order.
+     * @param width       Frame width.
+     * @param height      Frame height.
+     * @param parallelism How many bands to process at once. <code>1</code> runs on the calling thread only.
+     */
+    public FramePipeline(List<? extends FrameStage> stages, int width, int height, int parallelism) {
+        this.stages = stages.toArray(FrameStage[]::new);
+        this.width = width;
+        this.height = height;
+        this.bands = Math.clamp(height / MIN_BAND_ROWS, 1, Math.max(parallelism, 1));
+        this.executor = bands > 1 ? Executors.newFixedThreadPool(bands - 1, r -> {
+            Thread thread = new Thread(r, "ReplayLab post-processing " + THREAD_ID.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public int getStageCount() {
+        return stages.length;
+    }
+
+    /**
+     * Process a frame in place. Blocks until every band is done.
+     *
+     * @param frame RGBA8 pixels, top row first, from position 0.
+     * @throws IllegalArgumentException If the buffer is too small.
+     */
+    public void process(ByteBuffer frame) {
+        if (frame.capacity() < width * height * 4) {
+            throw new IllegalArgumentException("Buffer too small for a %dx%d frame".formatted(width, height));
+        }
+        if (stages.length == 0) return;
+
+        ByteBuffer bytes = frame.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        bytes.clear();
+        IntBuffer pixels = bytes.asIntBuffer();
+        forEachBand((y0, y1) -> processBand(pixels, y0, y1));
+    }
+
+    private interface BandTask {
+        void run(int y0, int y1);
+    }
+
+    private void forEachBand(BandTask task) {
+        if (bands == 1) {
+            task.run(0, height);
+            return;
+        }
+
+        int bandRows = (height + bands - 1) / bands;
+        List<Future<?>> futures = new ArrayList<>(bands - 1);
+        for (int y = bandRows; y < height; y += bandRows) {
+            int start = y;
+            int end = Math.min(y + bandRows, height);
+            //noinspection DataFlowIssue (only null with a single band)
+            futures.add(executor.submit(() -> task.run(start, end)));
+        }
+        task.run(0, Math.min(bandRows, height));
+
+        try {
+            for (var future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted post-processing frame", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error post-processing frame", e.getCause());
+        }
+    }
+
+    private void processBand(IntBuffer pixels, int y0, int y1) {
+        int[] row = new int[width];
+        for (int y = y0; y < y1; y++) {
+            pixels.get(y * width, row, 0, width);
+            for (FrameStage stage : stages) {
+                stage.processRow(row, y);
+            }
+            pixels.put(y * width, row, 0, width);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.igrium.replaylab.render.post;
+
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.igrium.replaylab.editor.EditorState;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+
+/**
+ * One configurable step of the post-processing chain applied to frames between capture and encoding.
+ * <p>
+ * Like a frame capture, a processor is only configuration; at the start of each export it creates a
+ * {@link FrameStage} that does the actual work. Configuration is persisted via {@link #writeJson} /
+ * {@link #readJson}, and UI controls are exposed through {@link #drawProperties}.
+ */
+public abstract class FrameProcessor {
+
+    @Getter
+    private final FrameProcessorType<?> type;
+
+    /**
+     * Disabled processors stay in the chain but are skipped during export.
+     */
+    @Getter
+    @Setter
+    private boolean enabled = true;
+
+    public FrameProcessor(FrameProcessorType<?> type) {
+        this.type = type;
+    }
+
+    /**
+     * Write this processor's properties to Json
+     *
+     * @param json    Json object to write to
+     * @param context Json serialization context
+     */
+    public abstract void writeJson(JsonObject json, JsonSerializationContext context);
+
+    public abstract void readJson(JsonObject json, JsonDeserializationContext context);
+
+    /**
+     * Create the stage that applies this processor for an export. Called once per export, before the first frame.
+     *
+     * @param width  Frame width.
+     * @param height Frame height.
+     * @return The stage. Its rows may be processed concurrently.
+     * @throws IOException If a file the processor needs can't be read.
+     */
+    public abstract FrameStage createStage(int width, int height) throws IOException;
+
+    public abstract void drawProperties(EditorState editorState);
+}
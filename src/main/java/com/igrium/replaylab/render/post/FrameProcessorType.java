@@ -0,0 +1,92 @@
+package com.igrium.replaylab.render.post;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.Maps;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSerializationContext;
+import lombok.Getter;
+import lombok.NonNull;
+import net.minecraft.resources.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Function;
+
+public final class FrameProcessorType<T extends FrameProcessor> {
+
+    /// === REGISTRY ===
+
+    public static final BiMap<Identifier, FrameProcessorType<?>> REGISTRY = Maps.synchronizedBiMap(HashBiMap.create());
+
+    public static <T extends FrameProcessor> FrameProcessorType<T> register(FrameProcessorType<T> type, Identifier id) {
+        REGISTRY.put(id, type);
+        return type;
+    }
+
+    public static final FrameProcessorType<LutProcessor> LUT = register(new FrameProcessorType<>(LutProcessor::new),
+            Identifier.parse("replaylab:lut"));
+
+    public static final FrameProcessorType<LetterboxProcessor> LETTERBOX = register(
+            new FrameProcessorType<>(LetterboxProcessor::new), Identifier.parse("replaylab:letterbox"));
+
+    public static final FrameProcessorType<OverlayProcessor> OVERLAY = register(
+            new FrameProcessorType<>(OverlayProcessor::new), Identifier.parse("replaylab:overlay"));
+
+    /// === FIELDS ===
+
+    @Getter @NonNull
+    private final Function<FrameProcessorType<T>, T> factory;
+
+    /// === CONSTRUCTOR ===
+
+    public FrameProcessorType(@NonNull Function<FrameProcessorType<T>, T> factory) {
+        this.factory = factory;
+    }
+
+    /// === IDENTITY ===
+
+    public Identifier getId() {
+        var id = REGISTRY.inverse().get(this);
+        if (id == null) {
+            throw new IllegalStateException("This FrameProcessorType is not registered!");
+        }
+        return id;
+    }
+
+    public @Nullable Identifier tryGetId() {
+        return REGISTRY.inverse().get(this);
+    }
+
+    /// === SERIALIZATION ===
+
+    public static FrameProcessor parse(JsonObject json, JsonDeserializationContext ctx) throws JsonParseException, UnknownFrameProcessorTypeException {
+        var id = Identifier.parse(json.get("type").getAsString());
+        var type = REGISTRY.get(id);
+        if (type == null) {
+            throw new UnknownFrameProcessorTypeException(id);
+        }
+        FrameProcessor processor = type.create();
+        if (json.has("enabled")) {
+            processor.setEnabled(json.get("enabled").getAsBoolean());
+        }
+        processor.readJson(json, ctx);
+        return processor;
+    }
+
+    public static JsonObject write(FrameProcessor processor, JsonSerializationContext ctx) {
+        var id = processor.getType().getId();
+        var json = new JsonObject();
+        processor.writeJson(json, ctx);
+        json.addProperty("type", id.toString());
+        json.addProperty("enabled", processor.isEnabled());
+        return json;
+    }
+
+    /// === FACTORY ===
+
+    public T create() {
+        return factory.apply(this);
+    }
+}
@@ -0,0 +1,19 @@
+package com.igrium.replaylab.render.post;
+
+/**
+ * One step of post-processing, applied to a frame a row at a time, in place.
+ * <p>
+ * Different rows of the same frame may be processed at the same time on different threads, so stages must not keep
+ * any state between calls.
+ */
+@FunctionalInterface
+public interface FrameStage {
+
+    /**
+     * Process one row.
+     *
+     * @param row Pixels of the row, packed little-endian RGBA (red in the low byte). Modified in place.
+     * @param y   Which row it is, top row first.
+     */
+    void processRow(int[] row, int y);
+}
@@ -0,0 +1,91 @@
+package com.igrium.replaylab.render.post;
+
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.igrium.replaylab.editor.EditorState;
+import imgui.ImGui;
+import lombok.Getter;
+import net.minecraft.locale.Language;
+
+/**
+ * Mattes frames down to a narrower aspect ratio with solid bars.
+ */
+public class LetterboxProcessor extends FrameProcessor {
+
+    public static final float MIN_ASPECT = 0.25f;
+    public static final float MAX_ASPECT = 4;
+
+    /**
+     * Width over height of the visible picture.
+     */
+    @Getter
+    private float aspectRatio = 2.39f;
+
+    public void setAspectRatio(float aspectRatio) {
+        this.aspectRatio = Math.clamp(aspectRatio, MIN_ASPECT, MAX_ASPECT);
+    }
+
+    /**
+     * Bar color, RGB from <code>0</code> to <code>1</code>.
+     */
+    private final float[] color = {0, 0, 0};
+
+    public float[] getColor() {
+        return color.clone();
+    }
+
+    public void setColor(float r, float g, float b) {
+        color[0] = Math.clamp(r, 0f, 1f);
+        color[1] = Math.clamp(g, 0f, 1f);
+        color[2] = Math.clamp(b, 0f, 1f);
+    }
+
+    public LetterboxProcessor(FrameProcessorType<?> type) {
+        super(type);
+    }
+
+    @Override
+    public void writeJson(JsonObject json, JsonSerializationContext context) {
+        json.addProperty("aspectRatio", aspectRatio);
+        json.add("color", context.serialize(color));
+    }
+
+    @Override
+    public void readJson(JsonObject json, JsonDeserializationContext context) {
+        if (json.has("aspectRatio")) {
+            setAspectRatio(json.get("aspectRatio").getAsFloat());
+        }
+        if (json.has("color")) {
+            float[] c = context.deserialize(json.get("color"), float[].class);
+            setColor(c[0], c[1], c[2]);
+        }
+    }
+
+    @Override
+    public FrameStage createStage(int width, int height) {
+        int r = Math.round(color[0] * 255);
+        int g = Math.round(color[1] * 255);
+        int b = Math.round(color[2] * 255);
+        return new LetterboxStage(width, height, aspectRatio, r | g << 8 | b << 16 | 0xFF000000);
+    }
+
+    @Override
+    public void drawProperties(EditorState editorState) {
+        float[] aspectIn = {aspectRatio};
+        if (ImGui.sliderFloat(t("gui.replaylab.post.letterbox.aspect"), aspectIn, MIN_ASPECT, MAX_ASPECT, "%.2f:1")) {
+            setAspectRatio(aspectIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.post.letterbox.aspect.tooltip"));
+
+        ImGui.colorEdit3(t("gui.replaylab.post.letterbox.color"), color);
+    }
+
+    private static String t(String key) {
+        return Language.getInstance().getOrDefault(key) + "###" + key;
+    }
+
+    private static String tt(String key) {
+        return Language.getInstance().getOrDefault(key);
+    }
+}
@@ -0,0 +1,59 @@
+package com.igrium.replaylab.render.post;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Mattes a frame down to a narrower aspect ratio with solid bars, keeping the picture centered: bars top and bottom
+ * (letterbox) for a wider ratio than the frame's, or left and right (pillarbox) for a taller one. The frame keeps its
+ * size, so the encoder doesn't need to know.
+ */
+public class LetterboxStage implements FrameStage {
+
+    /**
+     * The part of the frame that stays visible.
+     */
+    @Getter
+    private final int left, top, right, bottom;
+
+    private final int color;
+
+    /**
+     * Create a letterbox stage.
+     *
+     * @param width  Frame width.
+     * @param height Frame height.
+     * @param aspect Width over height of the visible picture.
+     * @param color  Bar color, packed little-endian RGBA (red in the low byte).
+     */
+    public LetterboxStage(int width, int height, float aspect, int color) {
+        if (!(aspect > 0)) {
+            throw new IllegalArgumentException("Aspect ratio must be positive");
+        }
+        if (aspect > (float) width / height) {
+            int visible = Math.round(width / aspect);
+            this.left = 0;
+            this.right = width;
+            this.top = (height - visible) / 2;
+            this.bottom = top + visible;
+        } else {
+            int visible = Math.round(height * aspect);
+            this.top = 0;
+            this.bottom = height;
+            this.left = (width - visible) / 2;
+            this.right = left + visible;
+        }
+        this.color = color;
+    }
+
+    @Override
+    public void processRow(int[] row, int y) {
+        if (y < top || y >= bottom) {
+            Arrays.fill(row, color);
+        } else {
+            Arrays.fill(row, 0, left, color);
+            Arrays.fill(row, right, row.length, color);
+        }
+    }
+}
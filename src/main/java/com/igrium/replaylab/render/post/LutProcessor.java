@@ -0,0 +1,92 @@
+package com.igrium.replaylab.render.post;
+
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.igrium.replaylab.editor.EditorState;
+import imgui.ImGui;
+import imgui.type.ImString;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import net.minecraft.locale.Language;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Color grades frames with a 3D LUT from a <code>.cube</code> file.
+ */
+public class LutProcessor extends FrameProcessor {
+
+    /**
+     * Path to the <code>.cube</code> file.
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private String lutPath = "";
+
+    /**
+     * How much of the graded color to use, from <code>0</code> to <code>1</code>.
+     */
+    @Getter
+    private float intensity = 1;
+
+    public void setIntensity(float intensity) {
+        this.intensity = Math.clamp(intensity, 0f, 1f);
+    }
+
+    private final ImString pathStr = new ImString(256);
+
+    public LutProcessor(FrameProcessorType<?> type) {
+        super(type);
+    }
+
+    @Override
+    public void writeJson(JsonObject json, JsonSerializationContext context) {
+        json.addProperty("lutPath", lutPath);
+        json.addProperty("intensity", intensity);
+    }
+
+    @Override
+    public void readJson(JsonObject json, JsonDeserializationContext context) {
+        if (json.has("lutPath")) {
+            setLutPath(json.get("lutPath").getAsString());
+        }
+        if (json.has("intensity")) {
+            setIntensity(json.get("intensity").getAsFloat());
+        }
+    }
+
+    @Override
+    public FrameStage createStage(int width, int height) throws IOException {
+        if (lutPath.isBlank()) {
+            throw new IOException("No LUT file selected");
+        }
+        return new LutStage(CubeLut.read(Paths.get(lutPath)), intensity);
+    }
+
+    @Override
+    public void drawProperties(EditorState editorState) {
+        pathStr.set(lutPath);
+        if (ImGui.inputText(t("gui.replaylab.post.lut.file"), pathStr)) {
+            setLutPath(pathStr.get());
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.post.lut.file.tooltip"));
+
+        float[] intensityIn = {intensity};
+        if (ImGui.sliderFloat(t("gui.replaylab.post.lut.intensity"), intensityIn, 0, 1)) {
+            setIntensity(intensityIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.post.lut.intensity.tooltip"));
+    }
+
+    private static String t(String key) {
+        return Language.getInstance().getOrDefault(key) + "###" + key;
+    }
+
+    private static String tt(String key) {
+        return Language.getInstance().getOrDefault(key);
+    }
+}
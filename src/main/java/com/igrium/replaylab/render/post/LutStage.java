@@ -0,0 +1,54 @@
+package com.igrium.replaylab.render.post;
+
+/**
+ * Grades frames through a {@link CubeLut}, optionally mixed with the original colors.
+ * <p>
+ * Input channels only have 256 possible values, so where each one lands in the table is worked out up front.
+ */
+public class LutStage implements FrameStage {
+
+    private final CubeLut lut;
+    private final float intensity;
+
+    /**
+     * Table position of every 8-bit value, per channel.
+     */
+    private final float[][] positions = new float[3][256];
+
+    /**
+     * Create a LUT stage.
+     *
+     * @param lut       Lookup table to apply.
+     * @param intensity How much of the graded color to use, from <code>0</code> (none) to <code>1</code> (all).
+     */
+    public LutStage(CubeLut lut, float intensity) {
+        this.lut = lut;
+        this.intensity = Math.clamp(intensity, 0f, 1f);
+        for (int c = 0; c < 3; c++) {
+            for (int v = 0; v < 256; v++) {
+                positions[c][v] = lut.position(c, v / 255f);
+            }
+        }
+    }
+
+    @Override
+    public void processRow(int[] row, int y) {
+        float[] rgb = new float[3];
+        float[] posR = positions[0];
+        float[] posG = positions[1];
+        float[] posB = positions[2];
+        for (int x = 0; x < row.length; x++) {
+            int p = row[x];
+            int r = p & 0xFF;
+            int g = (p >>> 8) & 0xFF;
+            int b = (p >>> 16) & 0xFF;
+            lut.interpolate(posR[r], posG[g], posB[b], rgb);
+            row[x] = mix(r, rgb[0]) | mix(g, rgb[1]) << 8 | mix(b, rgb[2]) << 16 | (p & 0xFF000000);
+        }
+    }
+
+    private int mix(int original, float graded) {
+        float value = original + (graded * 255 - original) * intensity;
+        return Math.clamp((int) (value + 0.5f), 0, 255);
+    }
+}
@@ -0,0 +1,52 @@
+package com.igrium.replaylab.render.post;
+
+/**
+ * Which part of the frame an overlay sits in.
+ */
+public enum OverlayAnchor {
+    TOP_LEFT(0, 0),
+    TOP_RIGHT(1, 0),
+    BOTTOM_LEFT(0, 1),
+    BOTTOM_RIGHT(1, 1),
+    CENTER(0.5f, 0.5f);
+
+    private final float alignX;
+    private final float alignY;
+
+    OverlayAnchor(float alignX, float alignY) {
+        this.alignX = alignX;
+        this.alignY = alignY;
+    }
+
+    /**
+     * Get the frame column of an overlay's left edge.
+     *
+     * @param frameWidth Frame width.
+     * @param imageWidth Overlay width.
+     * @param margin     Distance to keep from the frame's edge. Ignored when centered.
+     */
+    public int x(int frameWidth, int imageWidth, int margin) {
+        return position(alignX, frameWidth, imageWidth, margin);
+    }
+
+    /**
+     * Get the frame row of an overlay's top edge.
+     *
+     * @param frameHeight Frame height.
+     * @param imageHeight Overlay height.
+     * @param margin      Distance to keep from the frame's edge. Ignored when centered.
+     */
+    public int y(int frameHeight, int imageHeight, int margin) {
+        return position(alignY, frameHeight, imageHeight, margin);
+    }
+
+    private static int position(float align, int frameSize, int imageSize, int margin) {
+        if (align == 0) return margin;
+        if (align == 1) return frameSize - imageSize - margin;
+        return Math.round((frameSize - imageSize) * align);
+    }
+
+    public String langKey() {
+        return "overlayanchor." + name().toLowerCase();
+    }
+}
@@ -0,0 +1,162 @@
+package com.igrium.replaylab.render.post;
+
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.igrium.replaylab.editor.EditorState;
+import imgui.ImGui;
+import imgui.type.ImString;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import net.minecraft.locale.Language;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Draws an image, such as a logo or watermark, over every frame.
+ */
+public class OverlayProcessor extends FrameProcessor {
+
+    public static final int MAX_MARGIN = 512;
+
+    /**
+     * Path to the image. Anything <code>ImageIO</code> can read; PNG for transparency.
+     */
+    @Getter
+    @Setter
+    @NonNull
+    private String imagePath = "";
+
+    @Getter
+    @Setter
+    @NonNull
+    private OverlayAnchor anchor = OverlayAnchor.BOTTOM_RIGHT;
+
+    /**
+     * Distance from the frame's edge, in pixels.
+     */
+    @Getter
+    private int margin = 32;
+
+    public void setMargin(int margin) {
+        this.margin = Math.clamp(margin, 0, MAX_MARGIN);
+    }
+
+    @Getter
+    private float opacity = 1;
+
+    public void setOpacity(float opacity) {
+        this.opacity = Math.clamp(opacity, 0f, 1f);
+    }
+
+    private final ImString pathStr = new ImString(256);
+
+    public OverlayProcessor(FrameProcessorType<?> type) {
+        super(type);
+    }
+
+    @Override
+    public void writeJson(JsonObject json, JsonSerializationContext context) {
+        json.addProperty("imagePath", imagePath);
+        json.addProperty("anchor", anchor.name());
+        json.addProperty("margin", margin);
+        json.addProperty("opacity", opacity);
+    }
+
+    @Override
+    public void readJson(JsonObject json, JsonDeserializationContext context) {
+        if (json.has("imagePath")) {
+            setImagePath(json.get("imagePath").getAsString());
+        }
+        if (json.has("anchor")) {
+            setAnchor(OverlayAnchor.valueOf(json.get("anchor").getAsString()));
+        }
+        if (json.has("margin")) {
+            setMargin(json.get("margin").getAsInt());
+        }
+        if (json.has("opacity")) {
+            setOpacity(json.get("opacity").getAsFloat());
+        }
+    }
+
+    @Override
+    public FrameStage createStage(int width, int height) throws IOException {
+        if (imagePath.isBlank()) {
+            throw new IOException("No overlay image selected");
+        }
+        BufferedImage image = readImage(Paths.get(imagePath));
+        int w = image.getWidth();
+        int h = image.getHeight();
+        return new OverlayStage(toRgba(image), w, h, anchor.x(width, w, margin), anchor.y(height, h, margin), opacity);
+    }
+
+    private static BufferedImage readImage(Path path) throws IOException {
+        try (var in = Files.newInputStream(path)) {
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IOException("Unsupported image format: " + path);
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Unpack an image into little-endian RGBA pixels (red in the low byte) with straight alpha.
+     */
+    public static int[] toRgba(BufferedImage image) {
+        int[] argb = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        for (int i = 0; i < argb.length; i++) {
+            int p = argb[i];
+            // ARGB to ABGR: swap red and blue.
+            argb[i] = (p & 0xFF00FF00) | (p >>> 16 & 0xFF) | (p & 0xFF) << 16;
+        }
+        return argb;
+    }
+
+    @Override
+    public void drawProperties(EditorState editorState) {
+        pathStr.set(imagePath);
+        if (ImGui.inputText(t("gui.replaylab.post.overlay.file"), pathStr)) {
+            setImagePath(pathStr.get());
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.post.overlay.file.tooltip"));
+
+        if (ImGui.beginCombo(t("gui.replaylab.post.overlay.anchor"), t(anchor.langKey()))) {
+            for (var a : OverlayAnchor.values()) {
+                boolean selected = a == anchor;
+                if (ImGui.selectable(t(a.langKey()), selected)) {
+                    setAnchor(a);
+                }
+                if (selected) {
+                    ImGui.setItemDefaultFocus();
+                }
+            }
+            ImGui.endCombo();
+        }
+
+        int[] marginIn = {margin};
+        if (ImGui.sliderInt(t("gui.replaylab.post.overlay.margin"), marginIn, 0, MAX_MARGIN)) {
+            setMargin(marginIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.post.overlay.margin.tooltip"));
+
+        float[] opacityIn = {opacity};
+        if (ImGui.sliderFloat(t("gui.replaylab.post.overlay.opacity"), opacityIn, 0, 1)) {
+            setOpacity(opacityIn[0]);
+        }
+    }
+
+    private static String t(String key) {
+        return Language.getInstance().getOrDefault(key) + "###" + key;
+    }
+
+    private static String tt(String key) {
+        return Language.getInstance().getOrDefault(key);
+    }
+}
@@ -0,0 +1,77 @@
+package com.igrium.replaylab.render.post;
+
+import lombok.Getter;
+
+/**
+ * Draws an image over every frame, such as a watermark, blended by its own alpha and an overall opacity. Whatever
+ * falls outside the frame is cut off.
+ */
+public class OverlayStage implements FrameStage {
+
+    private final int[] image;
+
+    @Getter
+    private final int imageWidth;
+
+    @Getter
+    private final int imageHeight;
+
+    /**
+     * Where the image's top-left corner goes on the frame. May be negative.
+     */
+    @Getter
+    private final int x, y;
+
+    /**
+     * Opacity scaled to <code>[0, 256]</code>, for integer blending.
+     */
+    private final int opacity;
+
+    /**
+     * Create an overlay stage.
+     *
+     * @param image       Image pixels, top row first, packed little-endian RGBA (red in the low byte) with straight
+     *                    alpha.
+     * @param imageWidth  Image width.
+     * @param imageHeight Image height.
+     * @param x           Frame column of the image's left edge.
+     * @param y           Frame row of the image's top edge.
+     * @param opacity     Opacity of the whole image, from <code>0</code> to <code>1</code>.
+     */
+    public OverlayStage(int[] image, int imageWidth, int imageHeight, int x, int y, float opacity) {
+        if (image.length < imageWidth * imageHeight) {
+            throw new IllegalArgumentException("Image too small for %dx%d".formatted(imageWidth, imageHeight));
+        }
+        this.image = image;
+        this.imageWidth = imageWidth;
+        this.imageHeight = imageHeight;
+        this.x = x;
+        this.y = y;
+        this.opacity = Math.round(Math.clamp(opacity, 0f, 1f) * 256);
+    }
+
+    @Override
+    public void processRow(int[] row, int y) {
+        int imageY = y - this.y;
+        if (imageY < 0 || imageY >= imageHeight) return;
+
+        int start = Math.max(x, 0);
+        int end = Math.min(x + imageWidth, row.length);
+        int offset = imageY * imageWidth - x;
+        for (int px = start; px < end; px++) {
+            int over = image[offset + px];
+            int alpha = ((over >>> 24) * opacity) >> 8;
+            if (alpha == 0) continue;
+
+            int under = row[px];
+            row[px] = blend(under, over, alpha, 0) | blend(under, over, alpha, 8) | blend(under, over, alpha, 16)
+                    | (under & 0xFF000000);
+        }
+    }
+
+    private static int blend(int under, int over, int alpha, int shift) {
+        int u = (under >>> shift) & 0xFF;
+        int o = (over >>> shift) & 0xFF;
+        return ((u * (255 - alpha) + o * alpha + 127) / 255) << shift;
+    }
+}
@@ -0,0 +1,14 @@
+package com.igrium.replaylab.render.post;
+
+import lombok.Getter;
+import net.minecraft.resources.Identifier;
+
+public class UnknownFrameProcessorTypeException extends RuntimeException {
+    @Getter
+    private final Identifier identifier;
+
+    public UnknownFrameProcessorTypeException(Identifier identifier) {
+        super("Unknown frame processor type: " + identifier);
+        this.identifier = identifier;
+    }
+}
@@ -0,0 +1,153 @@
+package com.igrium.replaylab.render.queue;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.igrium.replaylab.object.SerializedReplayObject;
+import com.igrium.replaylab.object.types.ObjectRenderSettings;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * One export in the {@link RenderQueue}: a scene, and optionally the render settings to export it with instead of its
+ * own.
+ */
+public class RenderJob {
+
+    public enum Status {
+        PENDING, DONE, FAILED;
+
+        public String langKey() {
+            return "renderjobstatus." + name().toLowerCase();
+        }
+    }
+
+    @Getter
+    private final UUID id;
+
+    @Getter
+    private final String sceneName;
+
+    /**
+     * Render settings to use instead of the scene's, as saved by {@link ObjectRenderSettings#save()}.
+     * <code>null</code> to use whatever the scene has when the job runs.
+     */
+    @Getter
+    private final @Nullable JsonObject settings;
+
+    @Getter
+    private Status status = Status.PENDING;
+
+    /**
+     * How long the last run of this job took, in milliseconds.
+     */
+    @Getter
+    private long renderTime;
+
+    /**
+     * How many frames the last successful run exported.
+     */
+    @Getter
+    private int frames;
+
+    /**
+     * Why the last run failed, if it did.
+     */
+    @Getter
+    private @Nullable String error;
+
+    public RenderJob(String sceneName, @Nullable JsonObject settings) {
+        this(UUID.randomUUID(), sceneName, settings);
+    }
+
+    private RenderJob(UUID id, String sceneName, @Nullable JsonObject settings) {
+        this.id = id;
+        this.sceneName = sceneName;
+        this.settings = settings;
+    }
+
+    /**
+     * Apply this job's settings over a scene's render settings, if it has any.
+     */
+    public void applySettings(ObjectRenderSettings renderSettings) {
+        if (settings == null) return;
+        SerializedReplayObject current = renderSettings.save();
+        renderSettings.parse(new SerializedReplayObject(current.getType(), current.getChannels(), settings.deepCopy(),
+                current.getConstraints()));
+    }
+
+    /**
+     * Get where this job exports to, if it has its own settings.
+     */
+    public @Nullable String getOutPath() {
+        return settings != null && settings.has("outPath") ? settings.get("outPath").getAsString() : null;
+    }
+
+    public void markDone(int frames, long renderTime) {
+        this.status = Status.DONE;
+        this.frames = frames;
+        this.renderTime = renderTime;
+        this.error = null;
+    }
+
+    public void markFailed(Throwable reason, long renderTime) {
+        this.status = Status.FAILED;
+        this.frames = 0;
+        this.renderTime = renderTime;
+        this.error = reason.getMessage() != null ? reason.getMessage() : reason.getClass().getSimpleName();
+    }
+
+    /**
+     * Queue this job to run again.
+     */
+    public void reset() {
+        status = Status.PENDING;
+        frames = 0;
+        renderTime = 0;
+        error = null;
+    }
+
+    /**
+     * The average export speed of the last successful run, in frames per second.
+     */
+    public double getRenderFps() {
+        return renderTime > 0 ? frames * 1000d / renderTime : 0;
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", id.toString());
+        json.addProperty("scene", sceneName);
+        if (settings != null) {
+            json.add("settings", settings);
+        }
+        json.addProperty("status", status.name());
+        json.addProperty("renderTime", renderTime);
+        json.addProperty("frames", frames);
+        if (error != null) {
+            json.addProperty("error", error);
+        }
+        return json;
+    }
+
+    /**
+     * Read a job from JSON.
+     *
+     * @throws JsonParseException If it's malformed.
+     */
+    public static RenderJob fromJson(JsonObject json) throws JsonParseException {
+        try {
+            RenderJob job = new RenderJob(UUID.fromString(json.get("id").getAsString()),
+                    json.get("scene").getAsString(),
+                    json.has("settings") ? json.getAsJsonObject("settings") : null);
+            job.status = Status.valueOf(json.get("status").getAsString());
+            job.renderTime = json.get("renderTime").getAsLong();
+            job.frames = json.get("frames").getAsInt();
+            job.error = json.has("error") ? json.get("error").getAsString() : null;
+            return job;
+        } catch (NullPointerException | ClassCastException | IllegalStateException | IllegalArgumentException e) {
+            throw new JsonParseException("Malformed render job", e);
+        }
+    }
+}
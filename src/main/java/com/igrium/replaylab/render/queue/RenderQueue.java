@@ -0,0 +1,213 @@
+package com.igrium.replaylab.render.queue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.igrium.replaylab.scene.ReplayScene;
+import com.replaymod.replaystudio.replay.ReplayFile;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Exports waiting to run back to back in one replay session. Kept in the replay file next to the scenes, so it
+ * survives a restart.
+ * <p>
+ * Jobs run in order of where they end in the replay, not the order they were added in. Seeking backwards makes the
+ * replay start over from the beginning, and every chunk has to load again. Only a job that starts at or after where
+ * the last one ended can pick up the world where it was left; jobs whose parts of the replay overlap, like one scene
+ * queued twice with different settings, still start the replay over between them.
+ */
+public class RenderQueue {
+    private static final Logger LOGGER = LoggerFactory.getLogger("ReplayLab/RenderQueue");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private static final int VERSION = 1;
+
+    /**
+     * Where the queue is kept within the replay file.
+     */
+    public static final String PATH = "render_queue.json";
+
+    /**
+     * The part of the replay a job covers, in replay time.
+     */
+    public record ReplaySpan(int start, int end) {
+        public static ReplaySpan of(ReplayScene scene) {
+            return new ReplaySpan(scene.sceneToReplayTime(0), scene.sceneToReplayTime(scene.getLength()));
+        }
+
+        /**
+         * Whether a job over this span can play on from where a job over another one left the replay, rather than
+         * seeking backwards.
+         */
+        public boolean followsOn(ReplaySpan previous) {
+            return start >= previous.end;
+        }
+    }
+
+    private final List<RenderJob> jobs = new ArrayList<>();
+
+    /**
+     * Whether jobs are running right now.
+     */
+    @Getter
+    @Setter
+    private boolean running;
+
+    public List<RenderJob> getJobs() {
+        return Collections.unmodifiableList(jobs);
+    }
+
+    public void add(RenderJob job) {
+        jobs.add(job);
+    }
+
+    public boolean remove(RenderJob job) {
+        return jobs.remove(job);
+    }
+
+    /**
+     * Remove every job that has finished successfully.
+     */
+    public void clearDone() {
+        jobs.removeIf(job -> job.getStatus() == RenderJob.Status.DONE);
+    }
+
+    public List<RenderJob> getPending() {
+        return jobs.stream().filter(job -> job.getStatus() == RenderJob.Status.PENDING).toList();
+    }
+
+    /**
+     * Sort jobs into the order they should run in: by where they end in the replay, then where they start. Jobs that
+     * don't overlap end up back to back, in the order they play; ones that cover the same part of the replay end up
+     * next to each other, though the replay still has to start over between them (see {@link #countRestarts}).
+     *
+     * @param jobs Jobs to sort.
+     * @param span Gets the part of the replay each job covers.
+     * @return The sorted jobs. Ties keep the order they were given in.
+     */
+    public static <T> List<T> order(List<T> jobs, Function<? super T, ReplaySpan> span) {
+        List<T> sorted = new ArrayList<>(jobs);
+        sorted.sort(Comparator.comparing(span, Comparator.comparingInt(ReplaySpan::end)
+                .thenComparingInt(ReplaySpan::start)));
+        return sorted;
+    }
+
+    /**
+     * Count how many times the replay has to start over between jobs run in a given order.
+     *
+     * @param jobs Jobs, in the order they'll run.
+     * @param span Gets the part of the replay each job covers.
+     * @return How many jobs can't play on from the one before them.
+     */
+    public static <T> int countRestarts(List<T> jobs, Function<? super T, ReplaySpan> span) {
+        int restarts = 0;
+        for (int i = 1; i < jobs.size(); i++) {
+            if (!span.apply(jobs.get(i)).followsOn(span.apply(jobs.get(i - 1)))) {
+                restarts++;
+            }
+        }
+        return restarts;
+    }
+
+    /**
+     * Summarize how long each finished job took, for the log.
+     */
+    public String summarize() {
+        StringBuilder builder = new StringBuilder();
+        long total = 0;
+        for (RenderJob job : jobs) {
+            if (job.getStatus() == RenderJob.Status.PENDING) continue;
+            builder.append("\n  ").append(job.getSceneName()).append(": ");
+            if (job.getStatus() == RenderJob.Status.DONE) {
+                builder.append("%d frames in %.1f s (%.1f fps)".formatted(job.getFrames(),
+                        job.getRenderTime() / 1000d, job.getRenderFps()));
+            } else {
+                builder.append("failed after %.1f s (%s)".formatted(job.getRenderTime() / 1000d, job.getError()));
+            }
+            total += job.getRenderTime();
+        }
+        return "Render queue finished in %.1f s:".formatted(total / 1000d) + builder;
+    }
+
+    public JsonObject toJson() {
+        JsonArray array = new JsonArray();
+        for (RenderJob job : jobs) {
+            array.add(job.toJson());
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("version", VERSION);
+        json.add("jobs", array);
+        return json;
+    }
+
+    /**
+     * Replace this queue's jobs with ones read from JSON. Jobs that can't be read are skipped.
+     *
+     * @throws JsonParseException If the queue is from a version we don't understand.
+     */
+    public void readJson(JsonObject json) throws JsonParseException {
+        int version = json.has("version") ? json.get("version").getAsInt() : -1;
+        if (version != VERSION) {
+            throw new JsonParseException("Unsupported render queue version: " + version);
+        }
+
+        jobs.clear();
+        for (JsonElement element : json.getAsJsonArray("jobs")) {
+            try {
+                jobs.add(RenderJob.fromJson(element.getAsJsonObject()));
+            } catch (JsonParseException | IllegalStateException e) {
+                LOGGER.warn("Skipping malformed render job", e);
+            }
+        }
+    }
+
+    /**
+     * Read the queue saved in a replay file, if there is one.
+     *
+     * @return Whether a queue was found.
+     */
+    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
+    public boolean read(ReplayFile file) throws IOException {
+        JsonObject json;
+        synchronized (file) {
+            var opt = file.get(PATH);
+            if (!opt.isPresent()) return false;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(opt.get()))) {
+                json = GSON.fromJson(reader, JsonObject.class);
+            }
+        }
+        readJson(json);
+        return true;
+    }
+
+    /**
+     * Save a snapshot of a queue to a replay file.
+     *
+     * @param json The queue's {@link #toJson()}. Taken separately, so it can be written from another thread.
+     */
+    @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
+    public static void write(JsonObject json, ReplayFile file) throws IOException {
+        synchronized (file) {
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(file.write(PATH)))) {
+                GSON.toJson(json, writer);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.igrium.replaylab.render.readback;
+
+import com.igrium.replaylab.render.SimpleTexture;
+import com.mojang.blaze3d.buffers.GpuBuffer;
+import com.mojang.blaze3d.buffers.GpuBufferSlice;
+import com.mojang.blaze3d.buffers.GpuFence;
+import com.mojang.blaze3d.systems.CommandEncoder;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.textures.GpuTexture;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a {@link SimpleTexture} back through a mappable {@link GpuBuffer}, using a {@link GpuFence} to tell when the
+ * copy is done.
+ * <p>
+ * The copy is asynchronous on both backends -- GL turns it into a PBO {@code glReadPixels}, Vulkan records it into
+ * the in-flight command buffer -- so the buffer must not be mapped until the fence has signalled. Mapping early
+ * yields a partially written buffer, which shows up as the bottom of the frame being cut off by a different amount
+ * each time.
+ */
+public class GpuReadbackSlot implements ReadbackSlot<SimpleTexture> {
+
+    private final String label;
+
+    private @Nullable GpuBuffer buffer;
+    private @Nullable GpuFence fence;
+
+    public GpuReadbackSlot(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public void beginCopy(SimpleTexture source) {
+        RenderSystem.assertOnRenderThread();
+        GpuTexture texture = source.getTexture();
+        long size = (long) source.getWidth() * source.getHeight() * texture.getFormat().blockSize();
+
+        // Kept for the whole export rather than allocated per frame; it's 32 MiB at 4K.
+        if (buffer == null || buffer.size() != size) {
+            if (buffer != null) buffer.close();
+            buffer = RenderSystem.getDevice().createBuffer(() -> label,
+                    GpuBuffer.USAGE_MAP_READ | GpuBuffer.USAGE_COPY_DST, size);
+        }
+
+        if (fence != null) {
+            fence.close();
+        }
+
+        CommandEncoder encoder = RenderSystem.getDevice().createCommandEncoder();
+        encoder.copyTextureToBuffer(texture, buffer, 0, () -> {}, 0);
+        // The fence has to be created before the submit: Vulkan's implementation pins it to the
+        // submission that is currently being built, which is the one holding the copy.
+        fence = encoder.createFence();
+        encoder.submit();
+    }
+
+    @Override
+    public boolean awaitCompletion(long timeoutNanos) {
+        if (fence == null) return true;
+        if (!fence.awaitCompletion(timeoutNanos)) return false;
+        fence.close();
+        fence = null;
+        return true;
+    }
+
+    @Override
+    public Mapping map() {
+        if (buffer == null) {
+            throw new IllegalStateException("Nothing has been copied into this slot");
+        }
+        GpuBufferSlice.MappedView view = buffer.map(true, false);
+        return new Mapping() {
+            @Override
+            public ByteBuffer data() {
+                return view.data();
+            }
+
+            @Override
+            public void close() {
+                view.close();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        if (fence != null) {
+            fence.close();
+            fence = null;
+        }
+        if (buffer != null) {
+            buffer.close();
+            buffer = null;
+        }
+    }
+}
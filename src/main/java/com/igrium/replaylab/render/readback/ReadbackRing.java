@@ -0,0 +1,187 @@
+package com.igrium.replaylab.render.readback;
+
+import com.igrium.replaylab.debug.jfr.FrameReadbackEvent;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * A fixed-size ring of {@link ReadbackSlot}s, so a frame can be copied off the GPU while the next few are being
+ * rendered instead of stalling on each copy in turn.
+ * <p>
+ * Frames are delivered strictly in the order they were submitted. When every slot is in flight, {@link #submit}
+ * blocks on the oldest one; that's the back-pressure that keeps the renderer at most {@link #size()} frames ahead of
+ * the readback.
+ * <p>
+ * Not thread-safe; it's meant to live on the render thread.
+ *
+ * @param <S> The type of source frames are copied from.
+ */
+public class ReadbackRing<S> implements Closeable {
+
+    /**
+     * Receives frames as they come off the ring.
+     */
+    @FunctionalInterface
+    public interface Consumer {
+        /**
+         * Called with a mapped frame.
+         *
+         * @param frameIdx The index the frame was submitted with.
+         * @param data     Frame contents. Only valid for the duration of the call.
+         */
+        void accept(int frameIdx, ByteBuffer data);
+    }
+
+    private final List<ReadbackSlot<S>> slots;
+    private final int[] frames;
+    private final long fenceTimeoutNs;
+
+    /**
+     * Index of the oldest in-flight slot.
+     */
+    private int head;
+    private int pending;
+
+    /**
+     * Create a readback ring.
+     *
+     * @param size           Number of slots.
+     * @param slotFactory    Creates the slot at the given index.
+     * @param fenceTimeoutNs How long to wait for a copy in one go. Blocking waits simply retry after this, so it
+     *                       only controls how often the wait loop wakes up.
+     */
+    public ReadbackRing(int size, IntFunction<? extends ReadbackSlot<S>> slotFactory, long fenceTimeoutNs) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Ring size must be at least 1");
+        }
+        this.slots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            slots.add(slotFactory.apply(i));
+        }
+        this.frames = new int[size];
+        this.fenceTimeoutNs = fenceTimeoutNs;
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * The number of frames that have been submitted but not yet delivered.
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    public boolean isFull() {
+        return pending == slots.size();
+    }
+
+    public boolean isEmpty() {
+        return pending == 0;
+    }
+
+    /**
+     * Begin reading back a frame. If every slot is in flight, blocks until the oldest frame is done and delivers it
+     * first.
+     *
+     * @param frameIdx Index to deliver the frame with.
+     * @param source   Source to copy from.
+     * @param consumer Receives any frames that had to be drained to make room.
+     */
+    public void submit(int frameIdx, S source, Consumer consumer) {
+        while (isFull()) {
+            drainOldest(consumer);
+        }
+        int idx = (head + pending) % slots.size();
+        slots.get(idx).beginCopy(source);
+        frames[idx] = frameIdx;
+        pending++;
+    }
+
+    /**
+     * Deliver every frame whose copy has already finished, without blocking.
+     *
+     * @param consumer Receives the frames.
+     * @return How many frames were delivered.
+     */
+    public int pollCompleted(Consumer consumer) {
+        int delivered = 0;
+        while (!isEmpty() && deliverOldest(consumer, 0)) {
+            delivered++;
+        }
+        return delivered;
+    }
+
+    /**
+     * Wait for the oldest in-flight frame and deliver it.
+     *
+     * @param consumer Receives the frame.
+     * @throws IllegalStateException If nothing is in flight.
+     */
+    public void drainOldest(Consumer consumer) {
+        if (isEmpty()) {
+            throw new IllegalStateException("No frames in flight");
+        }
+        //noinspection StatementWithEmptyBody
+        while (!deliverOldest(consumer, fenceTimeoutNs)) {}
+    }
+
+    /**
+     * Wait for and deliver every in-flight frame, in order.
+     *
+     * @param consumer Receives the frames.
+     */
+    public void drainAll(Consumer consumer) {
+        while (!isEmpty()) {
+            drainOldest(consumer);
+        }
+    }
+
+    private boolean deliverOldest(Consumer consumer, long timeoutNs) {
+        ReadbackSlot<S> slot = slots.get(head);
+        int frameIdx = frames[head];
+
+        FrameReadbackEvent event = new FrameReadbackEvent();
+        event.begin();
+        if (!slot.awaitCompletion(timeoutNs)) {
+            return false;
+        }
+
+        // Free the slot even if the consumer throws; the copy itself is done either way.
+        head = (head + 1) % slots.size();
+        pending--;
+
+        try (ReadbackSlot.Mapping mapping = slot.map()) {
+            ByteBuffer data = mapping.data();
+            event.end();
+            if (event.shouldCommit()) {
+                event.frameIdx = frameIdx;
+                event.bytes = data.remaining();
+                event.commit();
+            }
+            consumer.accept(frameIdx, data);
+        }
+        return true;
+    }
+
+    /**
+     * Close every slot. Frames still in flight are waited for (so their buffers aren't freed out from under the
+     * copy) but not delivered.
+     */
+    @Override
+    public void close() {
+        while (!isEmpty()) {
+            slots.get(head).awaitCompletion(fenceTimeoutNs);
+            head = (head + 1) % slots.size();
+            pending--;
+        }
+        for (var slot : slots) {
+            slot.close();
+        }
+    }
+}
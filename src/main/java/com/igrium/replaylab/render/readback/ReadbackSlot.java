@@ -0,0 +1,46 @@
+package com.igrium.replaylab.render.readback;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * A single buffer in a {@link ReadbackRing}: something an asynchronous copy can be issued into, waited on, and then
+ * mapped for reading.
+ *
+ * @param <S> The type of source copies are issued from.
+ */
+public interface ReadbackSlot<S> extends Closeable {
+
+    /**
+     * Issue an asynchronous copy from the source into this slot. Must return without waiting for the copy.
+     *
+     * @param source Source to copy from.
+     */
+    void beginCopy(S source);
+
+    /**
+     * Wait for the most recent copy to finish.
+     *
+     * @param timeoutNanos Maximum time to wait. <code>0</code> only checks.
+     * @return If the copy has finished.
+     */
+    boolean awaitCompletion(long timeoutNanos);
+
+    /**
+     * Map the slot's contents for reading. Only valid once {@link #awaitCompletion} has returned <code>true</code>.
+     */
+    Mapping map();
+
+    @Override
+    void close();
+
+    /**
+     * A read-only view into a slot's contents. Must be closed before the slot is reused.
+     */
+    interface Mapping extends AutoCloseable {
+        ByteBuffer data();
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,106 @@
+package com.igrium.replaylab.render.track;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes camera tracks in a compact binary format, for tools that want to read them quickly.
+ * <p>
+ * Everything is big-endian. The header is the magic <code>RLCT</code>, the format version, the frame rate (float), the
+ * width and height, and the number of samples, which is <code>-1</code> until the track is closed. It's followed by
+ * one fixed-size record per sample, with the fields in the order {@link CameraSample} declares them.
+ */
+public class BinaryCameraTrackWriter implements CameraTrackWriter {
+
+    public static final int MAGIC = 0x524C4354; // "RLCT"
+    public static final int VERSION = 1;
+
+    private static final int COUNT_OFFSET = 4 * 5;
+    private static final int HEADER_BYTES = 4 * 6;
+
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private int count;
+
+    public BinaryCameraTrackWriter(Path file, Header header) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeFloat(header.fps());
+        out.writeInt(header.width());
+        out.writeInt(header.height());
+        out.writeInt(-1);
+    }
+
+    @Override
+    public void write(CameraSample sample) throws IOException {
+        out.writeInt(sample.frame());
+        out.writeInt(sample.sceneTime());
+        out.writeDouble(sample.x());
+        out.writeDouble(sample.y());
+        out.writeDouble(sample.z());
+        out.writeFloat(sample.qx());
+        out.writeFloat(sample.qy());
+        out.writeFloat(sample.qz());
+        out.writeFloat(sample.qw());
+        out.writeFloat(sample.pitch());
+        out.writeFloat(sample.yaw());
+        out.writeFloat(sample.roll());
+        out.writeFloat(sample.fov());
+        count++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (channel) {
+            out.flush();
+            channel.write(ByteBuffer.allocate(4).putInt(0, count), COUNT_OFFSET);
+        }
+    }
+
+    /**
+     * Read a binary camera track. A track that was never closed is read up to its last whole sample.
+     *
+     * @param file The file.
+     * @return Every sample, in the order they were written.
+     * @throws IOException If the file can't be read or isn't a camera track.
+     */
+    public static List<CameraSample> read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a camera track, or one in an unknown format: " + file);
+            }
+            in.skipNBytes(4 * 3); // Frame rate and size.
+            int count = in.readInt();
+            long available = (Files.size(file) - HEADER_BYTES) / CameraSample.BYTES;
+            if (count < 0 || count > available) {
+                count = (int) available;
+            }
+
+            List<CameraSample> samples = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                samples.add(new CameraSample(in.readInt(), in.readInt(),
+                        in.readDouble(), in.readDouble(), in.readDouble(),
+                        in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat(),
+                        in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat()));
+            }
+            return samples;
+        } catch (EOFException e) {
+            throw new IOException("Truncated camera track: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.igrium.replaylab.render.track;
+
+/**
+ * Where the scene camera was on one frame of an export.
+ * <p>
+ * Positions are in world coordinates (blocks, Y up). The rotation is given both as the camera object's quaternion, which
+ * turns the camera's local +Z onto where it's looking, and as Minecraft-style angles in degrees.
+ *
+ * @param frame     The frame index.
+ * @param sceneTime Scene time the camera was evaluated at, in milliseconds.
+ * @param x         X position.
+ * @param y         Y position.
+ * @param z         Z position.
+ * @param qx        Rotation quaternion X.
+ * @param qy        Rotation quaternion Y.
+ * @param qz        Rotation quaternion Z.
+ * @param qw        Rotation quaternion W.
+ * @param pitch     Pitch in degrees; positive looks down.
+ * @param yaw       Yaw in degrees, as Minecraft measures it.
+ * @param roll      Roll in degrees.
+ * @param fov       Vertical field of view in degrees.
+ */
+public record CameraSample(int frame, int sceneTime, double x, double y, double z,
+                           float qx, float qy, float qz, float qw,
+                           float pitch, float yaw, float roll, float fov) {
+
+    /**
+     * The size in bytes of a sample in the binary format.
+     */
+    public static final int BYTES = 4 * 2 + 8 * 3 + 4 * 8;
+}
@@ -0,0 +1,55 @@
+package com.igrium.replaylab.render.track;
+
+import lombok.Getter;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * File formats a camera track can be written in.
+ */
+public enum CameraTrackFormat {
+    /**
+     * Compact fixed-size records; see {@link BinaryCameraTrackWriter}.
+     */
+    BINARY("rlcam"),
+    CSV("csv"),
+    JSON("json");
+
+    /**
+     * Added to the export's file name to get its camera track's.
+     */
+    public static final String SUFFIX = "_camera";
+
+    @Getter
+    private final String extension;
+
+    CameraTrackFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Start writing a track in this format, replacing the file if there is one.
+     */
+    public CameraTrackWriter open(Path file, CameraTrackWriter.Header header) throws IOException {
+        return switch (this) {
+            case BINARY -> new BinaryCameraTrackWriter(file, header);
+            case CSV -> new CsvCameraTrackWriter(file, header);
+            case JSON -> new JsonCameraTrackWriter(file, header);
+        };
+    }
+
+    /**
+     * Get where the camera track of an export goes: next to it, named after it. Works the same whether the export is
+     * a file or an image sequence directory.
+     */
+    public Path sidecarPath(Path outPath) {
+        String name = FilenameUtils.removeExtension(outPath.getFileName().toString());
+        return outPath.resolveSibling(name + SUFFIX + "." + extension);
+    }
+
+    public String langKey() {
+        return "cameratrack." + name().toLowerCase();
+    }
+}
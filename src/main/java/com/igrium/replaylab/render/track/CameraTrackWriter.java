@@ -0,0 +1,32 @@
+package com.igrium.replaylab.render.track;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Streams a camera track to a file, one frame at a time, so it's written as the export goes rather than held until the
+ * end. Samples are written in the order they're given; frames the caller never got to are simply missing.
+ */
+public interface CameraTrackWriter extends Closeable {
+
+    /**
+     * What's known about the track before it starts.
+     *
+     * @param fps    Frame rate of the export.
+     * @param width  Width of the export, for the camera's aspect ratio.
+     * @param height Height of the export.
+     */
+    record Header(float fps, int width, int height) {
+    }
+
+    /**
+     * Write a frame's sample.
+     */
+    void write(CameraSample sample) throws IOException;
+
+    /**
+     * Finish the file and close it.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,84 @@
+package com.igrium.replaylab.render.track;
+
+import com.igrium.replaylab.math.MathUtils;
+import com.igrium.replaylab.math.Transform3;
+import com.igrium.replaylab.object.types.ObjectCamera;
+import com.igrium.replaylab.render.RenderMetadata;
+import com.igrium.replaylab.render.VideoRenderer;
+import com.igrium.replaylab.render.incremental.FrameStateHasher;
+import com.igrium.replaylab.scene.ReplayScene;
+import lombok.experimental.UtilityClass;
+import org.jetbrains.annotations.Nullable;
+import org.joml.Quaternionf;
+import org.joml.Vector3dc;
+import org.joml.Vector3f;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Gets camera tracks out of scenes, for matching composited elements to the camera moves in an export. A track can be
+ * recorded as a video export plays the scene (see {@link VideoRenderer}), or written on its own with
+ * {@link #export}, which doesn't render anything. Either way, each frame's sample is the camera at the frame's own
+ * time, which on motion-blurred exports is when the shutter opens.
+ */
+@UtilityClass
+public class CameraTracks {
+
+    /**
+     * Sample the scene camera as it was last evaluated.
+     *
+     * @param scene     The scene.
+     * @param frame     The frame it was evaluated for.
+     * @param sceneTime The scene time it was evaluated at.
+     * @return The sample, or <code>null</code> if the scene camera isn't a camera object.
+     */
+    public static @Nullable CameraSample sample(ReplayScene scene, int frame, int sceneTime) {
+        return scene.getCameraObject() instanceof ObjectCamera camera ? sample(camera, frame, sceneTime) : null;
+    }
+
+    /**
+     * Sample a camera as it was last evaluated, constraints and all.
+     */
+    public static CameraSample sample(ObjectCamera camera, int frame, int sceneTime) {
+        Transform3 transform = camera.getTransform(new Transform3());
+        Vector3dc pos = transform.pos();
+        Quaternionf rot = transform.getRot(new Quaternionf()).normalize();
+        Vector3f angles = MathUtils.toEntityRot(rot);
+        return new CameraSample(frame, sceneTime, pos.x(), pos.y(), pos.z(), rot.x, rot.y, rot.z, rot.w,
+                angles.x, angles.y, angles.z, (float) camera.getFov());
+    }
+
+    public static CameraTrackWriter.Header header(RenderMetadata metadata) {
+        return new CameraTrackWriter.Header(metadata.fps(), metadata.width(), metadata.height());
+    }
+
+    /**
+     * Write a scene's whole camera track without rendering it. Each frame's camera is evaluated straight from the
+     * animation, so even a long scene only takes moments.
+     * <p>
+     * The replay isn't played, so constraints that follow replay entities see them wherever they are now; export a
+     * track alongside the video for scenes like that. Leaves the scene evaluated at its last frame.
+     *
+     * @param scene  The scene.
+     * @param file   Where to write the track.
+     * @param format What to write it as.
+     * @return How many frames were written.
+     * @throws IllegalStateException If the scene camera isn't a camera object.
+     * @throws IOException           If the track can't be written.
+     */
+    public static int export(ReplayScene scene, Path file, CameraTrackFormat format) throws IOException {
+        if (!(scene.getCameraObject() instanceof ObjectCamera camera)) {
+            throw new IllegalStateException("The scene camera isn't a camera object");
+        }
+        RenderMetadata metadata = VideoRenderer.createMetadata(scene);
+        try (CameraTrackWriter writer = format.open(file, header(metadata))) {
+            for (int frame = 0; frame < metadata.totalFrames(); frame++) {
+                int time = FrameStateHasher.frameTime(frame, metadata.fps());
+                scene.evaluate(time);
+                writer.write(sample(camera, frame, time));
+            }
+        }
+        return metadata.totalFrames();
+    }
+}
@@ -0,0 +1,44 @@
+package com.igrium.replaylab.render.track;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes camera tracks as CSV, one row per sample under a header row, for spreadsheets and quick scripts. Numbers are
+ * written the way Java prints them, so they read back exactly and don't depend on the locale.
+ * <p>
+ * CSV has nowhere to put the frame rate and size, so they aren't written; they're the export's.
+ */
+public class CsvCameraTrackWriter implements CameraTrackWriter {
+
+    public static final String HEADER = "frame,time_ms,x,y,z,qx,qy,qz,qw,pitch,yaw,roll,fov";
+
+    private final BufferedWriter out;
+    private final StringBuilder row = new StringBuilder(192);
+
+    public CsvCameraTrackWriter(Path file, Header header) throws IOException {
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        out.write(HEADER);
+        out.newLine();
+    }
+
+    @Override
+    public void write(CameraSample s) throws IOException {
+        row.setLength(0);
+        row.append(s.frame()).append(',').append(s.sceneTime()).append(',')
+                .append(s.x()).append(',').append(s.y()).append(',').append(s.z()).append(',')
+                .append(s.qx()).append(',').append(s.qy()).append(',').append(s.qz()).append(',').append(s.qw()).append(',')
+                .append(s.pitch()).append(',').append(s.yaw()).append(',').append(s.roll()).append(',')
+                .append(s.fov());
+        out.append(row);
+        out.newLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,49 @@
+package com.igrium.replaylab.render.track;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes camera tracks as JSON: an object with the export's <code>fps</code>, <code>width</code> and
+ * <code>height</code>, and a <code>frames</code> array with one object per sample. Streamed, so the array is only
+ * closed when the track is.
+ */
+public class JsonCameraTrackWriter implements CameraTrackWriter {
+
+    private final JsonWriter out;
+
+    public JsonCameraTrackWriter(Path file, Header header) throws IOException {
+        out = new JsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+        out.beginObject();
+        out.name("fps").value(header.fps());
+        out.name("width").value(header.width());
+        out.name("height").value(header.height());
+        out.name("frames").beginArray();
+    }
+
+    @Override
+    public void write(CameraSample s) throws IOException {
+        out.beginObject();
+        out.name("frame").value(s.frame());
+        out.name("time_ms").value(s.sceneTime());
+        out.name("pos").beginArray().value(s.x()).value(s.y()).value(s.z()).endArray();
+        out.name("rot").beginArray().value(s.qx()).value(s.qy()).value(s.qz()).value(s.qw()).endArray();
+        out.name("pitch").value(s.pitch());
+        out.name("yaw").value(s.yaw());
+        out.name("roll").value(s.roll());
+        out.name("fov").value(s.fov());
+        out.endObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            out.endArray();
+            out.endObject();
+        }
+    }
+}
@@ -5,6 +5,9 @@ import com.google.common.collect.HashBiMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import com.igrium.replaylab.anim.constraint.ConstraintEvaluator;
+import com.igrium.replaylab.debug.EditorProfiler;
+import com.igrium.replaylab.debug.jfr.OperatorEvent;
+import com.igrium.replaylab.debug.jfr.SceneEvaluationEvent;
 import com.igrium.replaylab.editor.EditorState;
 import com.igrium.replaylab.object.*;
 import com.igrium.replaylab.object.types.ObjectRenderSettings;
@@ -370,6 +373,8 @@ public class ReplayScene {
      * @return <code>true</code> if the operation was successful and the operator was added to the undo stack.
      */
     public boolean applyOperator(EditorState editorState, ReplayOperator operator) {
+        OperatorEvent event = new OperatorEvent();
+        event.begin();
         boolean result;
         try {
             result = operator.execute(editorState);
@@ -381,6 +386,7 @@ public class ReplayScene {
             if (exceptionCallback != null) {
                 exceptionCallback.accept(e);
             }
+            commitOperatorEvent(event, operator, "execute", false);
             return false;
         }
         if (result) {
@@ -388,9 +394,20 @@ public class ReplayScene {
             redoStack.clear();
 
         }
+        commitOperatorEvent(event, operator, "execute", result);
         return result;
     }
 
+    private void commitOperatorEvent(OperatorEvent event, ReplayOperator operator, String action, boolean success) {
+        if (event.shouldCommit()) {
+            event.operator = operator.getClass().getSimpleName();
+            event.action = action;
+            event.success = success;
+            event.objectCount = objects.size();
+            event.commit();
+        }
+    }
+
     /**
      * Undo the previous operation.
      *
@@ -400,6 +417,8 @@ public class ReplayScene {
         if (undoStack.isEmpty()) return null;
 
         ReplayOperator op = undoStack.pop();
+        OperatorEvent event = new OperatorEvent();
+        event.begin();
         try {
             op.undo(editorState);
         } catch (Exception e) {
@@ -409,9 +428,11 @@ public class ReplayScene {
             if (exceptionCallback != null) {
                 exceptionCallback.accept(e);
             }
+            commitOperatorEvent(event, op, "undo", false);
             return null;
         }
         redoStack.push(op);
+        commitOperatorEvent(event, op, "undo", true);
         return op;
     }
 
@@ -424,6 +445,8 @@ public class ReplayScene {
         if (redoStack.isEmpty()) return null;
 
         ReplayOperator op = redoStack.pop();
+        OperatorEvent event = new OperatorEvent();
+        event.begin();
         try {
             op.redo(editorState);
         } catch (Exception e) {
@@ -433,9 +456,11 @@ public class ReplayScene {
             if (exceptionCallback != null) {
                 exceptionCallback.accept(e);
             }
+            commitOperatorEvent(event, op, "redo", false);
             return null;
         }
         undoStack.push(op);
+        commitOperatorEvent(event, op, "redo", true);
         return op;
     }
 
@@ -462,10 +487,44 @@ public class ReplayScene {
      * @apiNote Does not apply game packets, only directly animated values like camera moves.
      */
     public void applyToGame(Predicate<? super ReplayObject> shouldSample, int timestamp) {
+        SceneEvaluationEvent event = new SceneEvaluationEvent();
+        event.begin();
+        EditorProfiler.push("scene eval");
+        try {
+            int sampled = evaluate(shouldSample, timestamp);
+
+            for (var obj : getObjects().values()) {
+                obj.apply(timestamp);
+            }
+
+            if (event.shouldCommit()) {
+                event.sceneTime = timestamp;
+                event.objectCount = objects.size();
+                event.sampledCount = sampled;
+                event.commit();
+            }
+        } finally {
+            EditorProfiler.pop();
+        }
+    }
+
+    /**
+     * Sample all animated values and evaluate constraints, without applying anything to the game. Afterward, objects
+     * report where they are at that time; the game still shows wherever the scene was last applied.
+     *
+     * @param timestamp Timestamp to evaluate.
+     */
+    public void evaluate(int timestamp) {
+        evaluate(e -> true, timestamp);
+    }
+
+    private int evaluate(Predicate<? super ReplayObject> shouldSample, int timestamp) {
+        int sampled = 0;
         // Sample base values (pre-constraints)
         for (var obj : getObjects().values()) {
             if (shouldSample.test(obj)) {
                 obj.sample(timestamp);
+                sampled++;
             }
         }
 
@@ -474,10 +533,7 @@ public class ReplayScene {
         for (var id : getObjects().keySet()) {
             eval.evaluate(id);
         }
-
-        for (var obj : getObjects().values()) {
-            obj.apply(timestamp);
-        }
+        return sampled;
     }
 
     /**
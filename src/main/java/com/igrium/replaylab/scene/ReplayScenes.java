@@ -1,12 +1,20 @@
 package com.igrium.replaylab.scene;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
+import com.igrium.replaylab.debug.jfr.SceneIOEvent;
+import com.igrium.replaylab.object.ReplayObject;
 import com.igrium.replaylab.object.SerializedReplayObject;
+import com.igrium.replaylab.object.types.ObjectRenderSettings;
 import com.replaymod.replaystudio.replay.ReplayFile;
 import lombok.experimental.UtilityClass;
 import net.minecraft.util.Util;
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -15,6 +23,7 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
@@ -63,21 +72,34 @@ public final class ReplayScenes {
     public static ReplayScene readScene(String name, ReplayFile replayFile, @Nullable Consumer<Exception> exceptionCallback)
             throws FileNotFoundException, IOException {
         String path = getScenePath(name);
+        SceneIOEvent event = new SceneIOEvent();
+        event.begin();
 
         Map<String, SerializedReplayObject> serialized;
+        long bytes;
         synchronized (replayFile) {
             var opt = replayFile.get(path);
             if (!opt.isPresent()) {
                 throw new FileNotFoundException("Tried to load non-existent scene: " + path);
             }
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(opt.get()))) {
+            BoundedInputStream in = BoundedInputStream.builder().setInputStream(opt.get()).get();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
                 serialized = GSON.fromJson(reader, serializedType);
             }
+            bytes = in.getCount();
         }
 
         ReplayScene scene = new ReplayScene();
         scene.setExceptionCallback(exceptionCallback);
         scene.readSerializedObjects(serialized);
+
+        if (event.shouldCommit()) {
+            event.scene = name;
+            event.save = false;
+            event.objectCount = serialized != null ? serialized.size() : 0;
+            event.bytes = bytes;
+            event.commit();
+        }
         LOGGER.info("Loaded scene from {}", path);
         return scene;
     }
@@ -92,17 +114,115 @@ public final class ReplayScenes {
      */
     public static void saveScene(ReplayScene scene, String name, ReplayFile replayFile) throws IOException {
         String path = getScenePath(name);
+        SceneIOEvent event = new SceneIOEvent();
+        event.begin();
 
+        var objects = scene.getSavedObjects().getAll();
+        long bytes;
         // Yeah I know sync on a parameter isn't best practice, but RM does this, so I have no choice.
         synchronized (replayFile) {
-            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(replayFile.write(path)))) {
-                GSON.toJson(scene.getSavedObjects().getAll(), writer);
+            ByteCountingOutputStream out = new ByteCountingOutputStream(replayFile.write(path));
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out))) {
+                GSON.toJson(objects, writer);
             }
+            bytes = out.count;
+        }
+
+        if (event.shouldCommit()) {
+            event.scene = name;
+            event.save = true;
+            event.objectCount = objects.size();
+            event.bytes = bytes;
+            event.commit();
         }
 
         LOGGER.debug("Saved scene to {}", path);
     }
 
+    /**
+     * Hash the current state of every object in a scene, render settings included. Two scenes with the same hash
+     * render the same video.
+     *
+     * @param scene Scene to hash.
+     * @return Hex-encoded SHA-256 hash.
+     */
+    public static String hashScene(ReplayScene scene) {
+        Map<String, SerializedReplayObject> objects = new TreeMap<>();
+        for (var entry : scene.getObjects().entrySet()) {
+            objects.put(entry.getKey(), saveUnanimated(entry.getValue()));
+        }
+        Hasher hasher = Hashing.sha256().newHasher();
+        hashJson(GSON.toJsonTree(objects), hasher);
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Hash everything about a scene that decides what its frames look like, except its animation channels. Output
+     * settings that don't change the pixels, like the output path, are left out.
+     *
+     * @param scene Scene to hash.
+     * @return The hash.
+     * @see com.igrium.replaylab.render.incremental.FrameStateHasher
+     */
+    public static long hashStaticState(ReplayScene scene) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        for (var entry : new TreeMap<>(scene.getObjects()).entrySet()) {
+            SerializedReplayObject serialized = saveUnanimated(entry.getValue());
+            JsonObject attributes = serialized.getAttributes();
+            if (entry.getValue() instanceof ObjectRenderSettings) {
+                attributes = attributes.deepCopy();
+                ObjectRenderSettings.NON_VISUAL_KEYS.forEach(attributes::remove);
+            }
+
+            hasher.putInt(entry.getKey().length()).putUnencodedChars(entry.getKey());
+            hasher.putInt(serialized.getType().length()).putUnencodedChars(serialized.getType());
+            hashJson(attributes, hasher);
+            hashJson(GSON.toJsonTree(serialized.getConstraints()), hasher);
+        }
+        return hasher.hash().asLong();
+    }
+
+    /**
+     * Serialize an object with its animated properties zeroed out. Otherwise, they'd hold whatever they were last
+     * sampled at, and the result would depend on where the playhead happened to be.
+     */
+    private static SerializedReplayObject saveUnanimated(ReplayObject obj) {
+        if (obj.getChannels().values().stream().allMatch(ch -> ch.getKeyframes().isEmpty())) {
+            return obj.save();
+        }
+        ReplayObject copy = obj.copy();
+        for (var entry : copy.getChannels().entrySet()) {
+            if (!entry.getValue().getKeyframes().isEmpty()) {
+                copy.setProperty(entry.getKey(), 0);
+            }
+        }
+        return copy.save();
+    }
+
+    /**
+     * Feed JSON into a hasher with object keys sorted, so maps that serialize in arbitrary order hash the same.
+     */
+    private static void hashJson(JsonElement json, Hasher hasher) {
+        if (json.isJsonObject()) {
+            hasher.putByte((byte) '{');
+            for (var entry : new TreeMap<>(json.getAsJsonObject().asMap()).entrySet()) {
+                hasher.putInt(entry.getKey().length()).putUnencodedChars(entry.getKey());
+                hashJson(entry.getValue(), hasher);
+            }
+            hasher.putByte((byte) '}');
+        } else if (json.isJsonArray()) {
+            hasher.putByte((byte) '[');
+            for (var element : json.getAsJsonArray()) {
+                hashJson(element, hasher);
+            }
+            hasher.putByte((byte) ']');
+        } else {
+            // Primitives and null; the JSON text keeps strings and numbers apart.
+            String text = json.toString();
+            hasher.putInt(text.length()).putUnencodedChars(text);
+        }
+    }
+
     /**
      * Scan a replay file for ReplayLab scenes.
      * @param file File to scan.
@@ -137,4 +257,27 @@ public final class ReplayScenes {
             }
         }
     }
+
+    /**
+     * Counts the bytes written through it, for the save event.
+     */
+    private static final class ByteCountingOutputStream extends FilterOutputStream {
+        long count;
+
+        ByteCountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
 }
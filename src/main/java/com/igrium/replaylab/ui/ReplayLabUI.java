@@ -4,6 +4,8 @@ package com.igrium.replaylab.ui;
 import com.igrium.craftui.app.DockSpaceApp;
 import com.igrium.replaylab.ReplayLab;
 import com.igrium.replaylab.config.Keybinds;
+import com.igrium.replaylab.debug.EditorProfiler;
+import com.igrium.replaylab.debug.TimelineDebugScreen;
 import com.igrium.replaylab.editor.EditorState;
 import com.igrium.replaylab.operator.*;
 import com.igrium.replaylab.operator.keyframe.InsertKeyframeOperator;
@@ -194,7 +196,12 @@ public class ReplayLabUI extends DockSpaceApp {
             footer.drawPlaybackControls(editorState);
             ImGui.popStyleColor();
 
-            GizmoRenderer.drawGizmos(editorState, getViewportBounds());
+            EditorProfiler.push("gizmos");
+            try {
+                GizmoRenderer.drawGizmos(editorState, getViewportBounds());
+            } finally {
+                EditorProfiler.pop();
+            }
 
             viewportControls.drawViewport(editorState);
 
@@ -213,6 +220,7 @@ public class ReplayLabUI extends DockSpaceApp {
         }
 
         ExportWindow.drawExportWindow(editorState);
+        RenderQueueWindow.drawRenderQueueWindow(editorState);
         ExportProgressWindow.drawExportProgress(editorState);
 
         if (!firstFrame) {
@@ -222,7 +230,10 @@ public class ReplayLabUI extends DockSpaceApp {
             quickModePopup.render();
         }
 
+        TimelineDebugScreen.drawProfilerWindow();
+
         firstFrame = false;
+        EditorProfiler.endFrame();
     }
 
     @Override
@@ -262,6 +273,9 @@ public class ReplayLabUI extends DockSpaceApp {
             if (ImGui.menuItem(t("gui.replaylab.export"))) {
                 ExportWindow.open();
             }
+            if (ImGui.menuItem(t("gui.replaylab.queue"))) {
+                RenderQueueWindow.open();
+            }
 
             ImGui.separator();
             if (ImGui.menuItem(t("gui.replaylab.settings"))) {
@@ -345,6 +359,11 @@ public class ReplayLabUI extends DockSpaceApp {
                     panel.setVisible(true);
                 }
             }
+            ImGui.separator();
+            if (ImGui.menuItem(t("key.replaylab.toggle_profiler"), getChordLabel(Keybinds.toggleProfiler()),
+                    EditorProfiler.isEnabled())) {
+                EditorProfiler.toggle();
+            }
             ImGui.endMenu();
         }
 
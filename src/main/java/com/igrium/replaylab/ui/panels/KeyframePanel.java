@@ -5,6 +5,7 @@ import com.igrium.replaylab.anim.KeyChannel;
 import com.igrium.replaylab.anim.Keyframe;
 import com.igrium.replaylab.anim.Keyframe.HandleType;
 import com.igrium.replaylab.config.Keybinds;
+import com.igrium.replaylab.debug.EditorProfiler;
 import com.igrium.replaylab.editor.EditorState;
 import com.igrium.replaylab.editor.KeySelectionSet.ChannelReference;
 import com.igrium.replaylab.editor.KeySelectionSet.KeyHandleReference;
@@ -206,14 +207,19 @@ public abstract class KeyframePanel extends UIPanel {
             float rowStartY = ImGui.getCursorPosY();
             ImGui.tableNextColumn();
 
-            if (separateChannelScrolling && ImGui.beginChild("channels",
-                    ImGui.getContentRegionAvailX(), ImGui.getContentRegionAvailY())) {
-                expandedChannels = ChannelList.drawChannelList(editorState.getKeySelection(), objs,
-                        ImGui.getContentRegionAvailX(), channelListFlags);
-                ImGui.endChild();
-            } else {
-                expandedChannels = ChannelList.drawChannelList(editorState.getKeySelection(), objs,
-                        ImGui.getContentRegionAvailX(), channelListFlags);
+            EditorProfiler.push("channels");
+            try {
+                if (separateChannelScrolling && ImGui.beginChild("channels",
+                        ImGui.getContentRegionAvailX(), ImGui.getContentRegionAvailY())) {
+                    expandedChannels = ChannelList.drawChannelList(editorState.getKeySelection(), objs,
+                            ImGui.getContentRegionAvailX(), channelListFlags);
+                    ImGui.endChild();
+                } else {
+                    expandedChannels = ChannelList.drawChannelList(editorState.getKeySelection(), objs,
+                            ImGui.getContentRegionAvailX(), channelListFlags);
+                }
+            } finally {
+                EditorProfiler.pop();
             }
 
             // Main
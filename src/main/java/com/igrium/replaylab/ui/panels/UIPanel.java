@@ -1,6 +1,7 @@
 package com.igrium.replaylab.ui.panels;
 
 import com.igrium.replaylab.config.Keybinds;
+import com.igrium.replaylab.debug.EditorProfiler;
 import com.igrium.replaylab.editor.EditorState;
 import com.igrium.replaylab.operator.keyframe.InsertKeyframeOperator;
 import com.igrium.replaylab.operator.ReplayOperator;
@@ -61,14 +62,19 @@ public abstract class UIPanel {
                 requestFocus = false;
             }
 
-            if (ImGui.begin(getPanelName(), visible, imGuiWindowFlags)) {
-                drawContents(editorState);
-                if (callback != null) {
-                    callback.run();
+            EditorProfiler.push(id.getPath());
+            try {
+                if (ImGui.begin(getPanelName(), visible, imGuiWindowFlags)) {
+                    drawContents(editorState);
+                    if (callback != null) {
+                        callback.run();
+                    }
+                    processGlobalHotkeys(editorState);
                 }
-                processGlobalHotkeys(editorState);
+                ImGui.end();
+            } finally {
+                EditorProfiler.pop();
             }
-            ImGui.end();
         }
 
     }
@@ -122,6 +128,10 @@ public abstract class UIPanel {
         if (ImGui.shortcut(Keybinds.quickMode())) {
             editorState.setQuickMode(!editorState.isQuickMode());
         }
+
+        if (ImGui.shortcut(Keybinds.toggleProfiler())) {
+            EditorProfiler.toggle();
+        }
     }
 
     public static void testAddKeyShortcut(EditorState editorState) {
@@ -82,6 +82,10 @@ public class KeybindEditor {
             changed |= drawBinding("key.replaylab.camera_roll", current.getCameraRoll(), DEFAULT.getCameraRoll(), current::setCameraRoll);
             ImGui.setItemTooltip(t("key.replaylab.camera_roll.tooltip"));
 
+            ImGui.separator();
+
+            changed |= drawBinding("key.replaylab.toggle_profiler", current.getToggleProfiler(), DEFAULT.getToggleProfiler(), current::setToggleProfiler);
+
             ImGui.endTable();
         }
 
@@ -85,6 +85,19 @@ public class SettingsEditor {
                 changed |= drawCheckBox(t("settings.replaylab.rot_mode_convert"), c.isRotModeConvert(), c::setRotModeConvert);
                 ImGui.setItemTooltip(tt("settings.replaylab.rot_mode_convert.tooltip"));
 
+                /// Export
+                ImGui.separatorText(tt("settings.replaylab.export"));
+
+                tmpInt[0] = c.getExportUiFps();
+                if (ImGui.sliderInt(t("settings.replaylab.export_ui_fps"), tmpInt, 1, 60)) {
+                    c.setExportUiFps(tmpInt[0]);
+                    changed = true;
+                }
+                ImGui.setItemTooltip(tt("settings.replaylab.export_ui_fps.tooltip"));
+
+                changed |= drawCheckBox(t("settings.replaylab.export_preview"), c.isExportPreview(), c::setExportPreview);
+                ImGui.setItemTooltip(tt("settings.replaylab.export_preview.tooltip"));
+
                 ImGui.endTabItem();
             }
 
@@ -108,6 +121,7 @@ public class SettingsEditor {
     }
 
     private final ImBoolean tmpBool = new ImBoolean(false);
+    private final int[] tmpInt = new int[1];
 
     private static String t(String key) {
         return Language.getInstance().getOrDefault(key) + "###" + key;
@@ -1,16 +1,24 @@
 package com.igrium.replaylab.ui.windows;
 
+import com.igrium.replaylab.ReplayLab;
+import com.igrium.replaylab.config.ReplayLabConfig;
 import com.igrium.replaylab.editor.EditorState;
+import com.igrium.replaylab.render.ExportPreview;
 import com.igrium.replaylab.render.VideoRenderer;
+import com.igrium.replaylab.render.encoder.EncoderProcess;
+import com.igrium.replaylab.render.encoder.EncoderStats;
+import com.igrium.replaylab.render.queue.RenderJob;
 import imgui.ImGui;
 import imgui.flag.ImGuiCond;
 import imgui.flag.ImGuiWindowFlags;
+import imgui.type.ImBoolean;
 import com.igrium.replaylab.render.SimpleTexture;
 import com.mojang.blaze3d.opengl.GlTexture;
 import net.minecraft.locale.Language;
 
 public class ExportProgressWindow {
     private static final String POPUP = "Exporting Video";
+    private static final ImBoolean SHOW_PREVIEW = new ImBoolean();
 
     public static void drawExportProgress(EditorState editorState) {
         VideoRenderer r = editorState.getRenderer();
@@ -21,6 +29,7 @@ public class ExportProgressWindow {
         ImGui.setNextWindowSize(1024, 0, ImGuiCond.Appearing);
         if (ImGui.beginPopupModal(POPUP, ImGuiWindowFlags.NoSavedSettings)) {
             if (r != null) {
+                drawQueueProgress(editorState);
                 drawPageContents(r);
             } else {
                 ImGui.closeCurrentPopup();
@@ -29,6 +38,16 @@ public class ExportProgressWindow {
         }
     }
 
+    private static void drawQueueProgress(EditorState editorState) {
+        RenderJob job = editorState.getActiveJob();
+        if (job == null) return;
+
+        // The active job is still pending until it's done.
+        int remaining = editorState.getRenderQueue().getPending().size();
+        ImGui.text(t("gui.replaylab.queue.progress").formatted(job.getSceneName(), remaining - 1));
+        ImGui.separator();
+    }
+
     private static void drawPageContents(VideoRenderer r) {
         int currentFrame = r.getFrameIdx();
         int totalFrames = r.getTotalFrames();
@@ -46,12 +65,26 @@ public class ExportProgressWindow {
         float progress = totalFrames > 0 ? (float) currentFrame / totalFrames : 0;
         ImGui.progressBar(progress);
 
+        EncoderProcess encoder = r.getEncoderProcess();
+        EncoderStats stats = encoder != null ? encoder.getStats() : null;
+        if (stats != null) {
+            ImGui.textDisabled(formatStats(stats));
+        }
+
         ImGui.beginDisabled(r.getRenderState() != VideoRenderer.RenderState.RENDERING);
         if (ImGui.button(t("gui.cancel"), ImGui.getContentRegionAvailX(), 0)) {
             r.abort();
         }
         ImGui.endDisabled();
 
+        ReplayLabConfig config = ReplayLabConfig.getInstance();
+        SHOW_PREVIEW.set(config.isExportPreview());
+        if (ImGui.checkbox(t("gui.replaylab.export.show_preview"), SHOW_PREVIEW)) {
+            config.setExportPreview(SHOW_PREVIEW.get());
+            ReplayLab.getInstance().saveConfig();
+        }
+        if (!config.isExportPreview()) return;
+
         float ratio = (float) r.getRenderMetadata().width() / r.getRenderMetadata().height();
 
         float availWidth = ImGui.getContentRegionAvailX();
@@ -75,15 +108,29 @@ public class ExportProgressWindow {
         // ImGui only understands raw texture handles. The OpenGL backend gives us one; the Vulkan
         // backend (ImGuiImplBlaze3D) ignores per-command texture ids entirely, so there we fall
         // back to blank space and the progress bar above carries the feedback.
-        SimpleTexture tex = r.getRenderTexture();
+        // The preview is a scaled-down copy made off the render thread, already top row first.
+        ExportPreview preview = r.getPreview();
+        SimpleTexture tex = preview != null ? preview.getTexture() : null;
         if (tex != null && !tex.isClosed() && tex.getTexture() instanceof GlTexture glTexture) {
-            ImGui.image(glTexture.glId(), imageWidth, imageHeight, 0, 1, 1, 0);
+            ImGui.image(glTexture.glId(), imageWidth, imageHeight);
         } else {
             ImGui.dummy(imageWidth, imageHeight);
         }
 
     }
 
+    private static String formatStats(EncoderStats stats) {
+        StringBuilder builder = new StringBuilder(t("gui.replaylab.export.encoder_fps").formatted(stats.fps()));
+        if (!Double.isNaN(stats.speed())) {
+            builder.append(" (").append(String.format("%.2fx", stats.speed())).append(")");
+        }
+        if (!Double.isNaN(stats.bitrateKbps())) {
+            builder.append("  |  ").append(t("gui.replaylab.export.encoder_bitrate").formatted(stats.bitrateKbps()));
+        }
+        builder.append("  |  ").append(t("gui.replaylab.export.encoder_queue").formatted(stats.queueDepth()));
+        return builder.toString();
+    }
+
     private static String t(String key) {
         return Language.getInstance().getOrDefault(key);
     }
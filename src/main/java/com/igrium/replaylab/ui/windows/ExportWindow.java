@@ -1,7 +1,12 @@
 package com.igrium.replaylab.ui.windows;
 import com.igrium.craftui.app.AppManager;
 import com.igrium.replaylab.editor.EditorState;
+import com.igrium.replaylab.object.SerializedReplayObject;
 import com.igrium.replaylab.object.types.ObjectRenderSettings;
+import com.igrium.replaylab.render.DraftMode;
+import com.igrium.replaylab.render.RenderCheckpoint;
+import com.igrium.replaylab.render.VideoRenderer;
+import com.igrium.replaylab.render.queue.RenderJob;
 import com.igrium.replaylab.scene.ReplayScene;
 import imgui.ImGui;
 import imgui.flag.ImGuiCond;
@@ -9,11 +14,21 @@ import imgui.flag.ImGuiWindowFlags;
 import imgui.type.ImBoolean;
 import net.minecraft.client.Minecraft;
 import net.minecraft.locale.Language;
+import org.jetbrains.annotations.Nullable;
+
 import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class ExportWindow {
     private static final ImBoolean isOpen = new ImBoolean();
     private static boolean wantsOpen = false;
+
+    /**
+     * A stopped export of the scene that can be resumed, looked up when the window opens or the output path changes.
+     */
+    private static @Nullable RenderCheckpoint resumable;
+    private static @Nullable Path resumablePath;
+
     public static void open() {
         wantsOpen = true;
     }
@@ -23,6 +38,7 @@ public class ExportWindow {
             ImGui.openPopup("Export Video");
             isOpen.set(true);
             wantsOpen = false;
+            resumablePath = null;
         }
         boolean wantsClose = false;
         boolean wantsOverrideConfirm = false;
@@ -31,6 +47,14 @@ public class ExportWindow {
             ObjectRenderSettings renderSettings = editor.getScene().getRenderSettings();
             renderSettings.drawPropertiesPanel(editor);
 
+            if (!renderSettings.getOutPath().equals(resumablePath)) {
+                resumablePath = renderSettings.getOutPath();
+                resumable = VideoRenderer.findResumable(editor.getScene());
+            }
+
+            ImGui.separator();
+            drawDraftProperties(renderSettings);
+
             ImGui.separator();
             String confirmKey = t("gui.replaylab.file_exists.header");
             String quickModeKey = t("gui.replaylab.quickmode.header");
@@ -46,6 +70,44 @@ public class ExportWindow {
                     export(editor);
                 }
             }
+            if (resumable != null) {
+                ImGui.sameLine();
+                ImGui.beginDisabled(editor.isQuickMode());
+                if (ImGui.button(tt("gui.replaylab.export.resume").formatted(
+                        resumable.durableFrames(), resumable.metadata().totalFrames()) + "###resume")) {
+                    // Settings may have changed since we looked.
+                    resumable = VideoRenderer.findResumable(editor.getScene());
+                    if (resumable != null) {
+                        wantsClose = true;
+                        export(editor, resumable);
+                    }
+                }
+                ImGui.endDisabled();
+                ImGui.setItemTooltip(tt("gui.replaylab.export.resume.tooltip"));
+            }
+            ImGui.sameLine();
+            // Drafts have an output of their own and are meant to be thrown away, so there's nothing to confirm.
+            if (ImGui.button(t("gui.replaylab.draft.export"))) {
+                wantsClose = true;
+                exportDraft(editor);
+            }
+            ImGui.setItemTooltip(tt("gui.replaylab.draft.export.tooltip").formatted(
+                    DraftMode.outputPath(renderSettings.getOutPath()).getFileName().toString()));
+            ImGui.sameLine();
+            if (ImGui.button(t("gui.replaylab.camera_track.export"))) {
+                wantsClose = true;
+                exportCameraTrack(editor);
+            }
+            ImGui.setItemTooltip(tt("gui.replaylab.camera_track.export.tooltip").formatted(
+                    renderSettings.getCameraTrackFormat().sidecarPath(renderSettings.getOutPath()).getFileName().toString()));
+            ImGui.sameLine();
+            ImGui.beginDisabled(editor.getSceneName() == null);
+            if (ImGui.button(t("gui.replaylab.queue.add"))) {
+                wantsClose = true;
+                addToQueue(editor);
+            }
+            ImGui.endDisabled();
+            ImGui.setItemTooltip(tt("gui.replaylab.queue.add.tooltip"));
             ImGui.endDisabled();
             if (ImGui.beginPopupModal(quickModeKey, ImGuiWindowFlags.AlwaysAutoResize | ImGuiWindowFlags.NoSavedSettings)) {
                 ImGui.text(tt("gui.replaylab.quickmode"));
@@ -94,10 +156,56 @@ public class ExportWindow {
             ImGui.endPopup();
         }
     }
+    private static void drawDraftProperties(ObjectRenderSettings renderSettings) {
+        if (!ImGui.treeNode(t("gui.replaylab.draft"))) return;
+
+        int[] strideIn = {renderSettings.getDraftStride()};
+        if (ImGui.sliderInt(t("gui.replaylab.draft.stride"), strideIn, 1, DraftMode.MAX_STRIDE)) {
+            renderSettings.setDraftStride(strideIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.draft.stride.tooltip"));
+
+        int[] scaleIn = {renderSettings.getDraftScale()};
+        if (ImGui.sliderInt(t("gui.replaylab.draft.scale"), scaleIn, 1, DraftMode.MAX_SCALE, "1/%d")) {
+            renderSettings.setDraftScale(scaleIn[0]);
+        }
+        ImGui.setItemTooltip(tt("gui.replaylab.draft.scale.tooltip"));
+
+        ImGui.treePop();
+    }
+
     private static void export(EditorState editor) {
+        export(editor, null);
+    }
+
+    private static void export(EditorState editor, @Nullable RenderCheckpoint resumeFrom) {
         editor.getScene().saveObject(ReplayScene.RENDER_SETTINGS);
         editor.saveSceneAsync(); // Save our render settings
-        Minecraft.getInstance().schedule(editor::render); // Render outside ImGui context
+        resumablePath = null;
+        Minecraft.getInstance().schedule(() -> editor.render(resumeFrom)); // Render outside ImGui context
+    }
+
+    private static void addToQueue(EditorState editor) {
+        ReplayScene scene = editor.getScene();
+        // The job keeps its own copy of the settings, so the scene can be changed for the next one.
+        SerializedReplayObject settings = scene.saveObject(ReplayScene.RENDER_SETTINGS);
+        editor.saveSceneAsync();
+        editor.getRenderQueue().add(new RenderJob(editor.getSceneName(),
+                settings != null ? settings.getAttributes().deepCopy() : null));
+        editor.saveRenderQueueAsync();
+        RenderQueueWindow.open();
+    }
+
+    private static void exportDraft(EditorState editor) {
+        editor.getScene().saveObject(ReplayScene.RENDER_SETTINGS);
+        editor.saveSceneAsync();
+        Minecraft.getInstance().schedule(editor::renderDraft);
+    }
+
+    private static void exportCameraTrack(EditorState editor) {
+        editor.getScene().saveObject(ReplayScene.RENDER_SETTINGS);
+        editor.saveSceneAsync();
+        Minecraft.getInstance().schedule(editor::exportCameraTrack);
     }
 
     private static String t(String key) {
@@ -0,0 +1,153 @@
+package com.igrium.replaylab.ui.windows;
+
+import com.igrium.replaylab.editor.EditorState;
+import com.igrium.replaylab.render.queue.RenderJob;
+import com.igrium.replaylab.render.queue.RenderQueue;
+import imgui.ImGui;
+import imgui.flag.ImGuiCond;
+import imgui.flag.ImGuiTableFlags;
+import imgui.flag.ImGuiWindowFlags;
+import imgui.type.ImBoolean;
+import net.minecraft.client.Minecraft;
+import net.minecraft.locale.Language;
+
+import java.nio.file.Path;
+
+/**
+ * Lists the render queue, and how long each job took once it's run.
+ */
+public class RenderQueueWindow {
+    private static final ImBoolean isOpen = new ImBoolean();
+    private static boolean wantsOpen = false;
+
+    public static void open() {
+        wantsOpen = true;
+    }
+
+    public static void drawRenderQueueWindow(EditorState editor) {
+        if (editor.isWantOpenRenderQueue()) {
+            editor.setWantOpenRenderQueue(false);
+            wantsOpen = true;
+        }
+        if (wantsOpen) {
+            ImGui.openPopup("Render Queue");
+            isOpen.set(true);
+            wantsOpen = false;
+        }
+
+        ImGui.setNextWindowSize(720, 0, ImGuiCond.Appearing);
+        if (ImGui.beginPopupModal("Render Queue", isOpen, ImGuiWindowFlags.NoSavedSettings)) {
+            RenderQueue queue = editor.getRenderQueue();
+            if (queue.getJobs().isEmpty()) {
+                ImGui.textDisabled(tt("gui.replaylab.queue.empty"));
+            } else {
+                drawJobs(editor, queue);
+            }
+
+            ImGui.separator();
+            boolean hasPending = !queue.getPending().isEmpty();
+            ImGui.beginDisabled(!hasPending || editor.isRendering() || editor.isQuickMode());
+            if (ImGui.button(t("gui.replaylab.queue.run"))) {
+                ImGui.closeCurrentPopup();
+                Minecraft.getInstance().schedule(editor::runRenderQueue); // Render outside ImGui context
+            }
+            ImGui.endDisabled();
+            if (editor.isQuickMode()) {
+                ImGui.setItemTooltip(tt("gui.replaylab.queue.quickmode"));
+            }
+
+            ImGui.sameLine();
+            if (ImGui.button(t("gui.replaylab.queue.clear_done"))) {
+                queue.clearDone();
+                editor.saveRenderQueueAsync();
+            }
+
+            ImGui.sameLine();
+            if (ImGui.button(t("gui.done"))) {
+                ImGui.closeCurrentPopup();
+            }
+            ImGui.endPopup();
+        }
+    }
+
+    private static void drawJobs(EditorState editor, RenderQueue queue) {
+        RenderJob removed = null;
+        long totalTime = 0;
+
+        if (ImGui.beginTable("##render_queue", 5, ImGuiTableFlags.RowBg | ImGuiTableFlags.BordersInnerV
+                | ImGuiTableFlags.Resizable)) {
+            ImGui.tableSetupColumn(tt("gui.replaylab.queue.scene"));
+            ImGui.tableSetupColumn(tt("gui.replaylab.queue.output"));
+            ImGui.tableSetupColumn(tt("gui.replaylab.queue.status"));
+            ImGui.tableSetupColumn(tt("gui.replaylab.queue.time"));
+            ImGui.tableSetupColumn("");
+            ImGui.tableHeadersRow();
+
+            for (RenderJob job : queue.getJobs()) {
+                ImGui.pushID(job.getId().toString());
+                ImGui.tableNextRow();
+
+                ImGui.tableNextColumn();
+                ImGui.text(job.getSceneName());
+
+                ImGui.tableNextColumn();
+                String outPath = job.getOutPath();
+                if (outPath != null) {
+                    ImGui.text(Path.of(outPath).getFileName().toString());
+                    ImGui.setItemTooltip(outPath);
+                } else {
+                    ImGui.textDisabled(tt("gui.replaylab.queue.scene_settings"));
+                }
+
+                ImGui.tableNextColumn();
+                ImGui.text(tt(job.getStatus().langKey()));
+                if (job.getError() != null) {
+                    ImGui.setItemTooltip(job.getError());
+                }
+
+                ImGui.tableNextColumn();
+                if (job.getStatus() == RenderJob.Status.DONE) {
+                    ImGui.text(tt("gui.replaylab.queue.timing").formatted(job.getRenderTime() / 1000d,
+                            job.getRenderFps()));
+                } else if (job.getStatus() == RenderJob.Status.FAILED) {
+                    ImGui.text("%.1f s".formatted(job.getRenderTime() / 1000d));
+                }
+                totalTime += job.getRenderTime();
+
+                ImGui.tableNextColumn();
+                ImGui.beginDisabled(queue.isRunning());
+                if (job.getStatus() != RenderJob.Status.PENDING) {
+                    if (ImGui.smallButton(t("gui.replaylab.queue.requeue"))) {
+                        job.reset();
+                        editor.saveRenderQueueAsync();
+                    }
+                    ImGui.sameLine();
+                }
+                if (ImGui.smallButton(t("gui.replaylab.queue.remove"))) {
+                    removed = job;
+                }
+                ImGui.endDisabled();
+
+                ImGui.popID();
+            }
+            ImGui.endTable();
+        }
+
+        if (totalTime > 0) {
+            ImGui.text(tt("gui.replaylab.queue.total").formatted(totalTime / 1000d));
+        }
+
+        if (removed != null) {
+            queue.remove(removed);
+            editor.saveRenderQueueAsync();
+        }
+    }
+
+    private static String t(String key) {
+        return Language.getInstance().getOrDefault(key) + "###" + key;
+    }
+
+    private static String tt(String key) {
+        return Language.getInstance().getOrDefault(key);
+    }
+}
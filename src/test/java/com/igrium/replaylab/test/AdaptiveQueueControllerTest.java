@@ -0,0 +1,51 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.encoder.AdaptiveQueueController;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveQueueControllerTest {
+
+    @Test
+    public void testGrowsOnJitter() {
+        var controller = new AdaptiveQueueController(2, 32, 4);
+        // Encoder keeps up on average, but the renderer still spent half its time blocked.
+        assertEquals(8, controller.update(60, 60, 0.5));
+        assertEquals(16, controller.update(60, 61, 0.5));
+        assertEquals(32, controller.update(60, 60, 0.5));
+        assertEquals(32, controller.update(60, 60, 0.5));
+    }
+
+    @Test
+    public void testShrinksWhenEncoderIsBottleneck() {
+        var controller = new AdaptiveQueueController(2, 32, 16);
+        assertEquals(8, controller.update(60, 30, 0.9));
+        assertEquals(4, controller.update(60, 30, 0.9));
+        assertEquals(2, controller.update(60, 30, 0.9));
+        assertEquals(2, controller.update(60, 30, 0.9));
+    }
+
+    @Test
+    public void testDecaysWhenCalm() {
+        var controller = new AdaptiveQueueController(2, 32, 8);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(8, controller.update(60, 60, 0));
+        }
+        assertEquals(7, controller.update(60, 60, 0));
+    }
+
+    @Test
+    public void testIgnoresWarmup() {
+        var controller = new AdaptiveQueueController(2, 32, 4);
+        assertEquals(4, controller.update(60, 0, 1));
+        assertEquals(4, controller.update(0, 0, 0));
+        assertEquals(4, controller.update(Double.NaN, 60, 1));
+    }
+
+    @Test
+    public void testInitialDepthClamped() {
+        assertEquals(32, new AdaptiveQueueController(2, 32, 100).getDepth());
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveQueueController(0, 4, 2));
+    }
+}
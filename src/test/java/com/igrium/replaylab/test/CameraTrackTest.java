@@ -0,0 +1,120 @@
+package com.igrium.replaylab.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.igrium.replaylab.render.track.BinaryCameraTrackWriter;
+import com.igrium.replaylab.render.track.CameraSample;
+import com.igrium.replaylab.render.track.CameraTrackFormat;
+import com.igrium.replaylab.render.track.CameraTrackWriter;
+import com.igrium.replaylab.render.track.CsvCameraTrackWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CameraTrackTest {
+
+    private static final CameraTrackWriter.Header HEADER = new CameraTrackWriter.Header(24, 1920, 1080);
+
+    private static List<CameraSample> track(int frames) {
+        List<CameraSample> samples = new ArrayList<>();
+        for (int i = 0; i < frames; i++) {
+            samples.add(new CameraSample(i, i * 1000 / 24, 100.25 + i, 64.5, -30.125 * i,
+                    0, 0.38268343f, 0, 0.9238795f, 12.5f, -45 + i, 0.1f * i, 70));
+        }
+        return samples;
+    }
+
+    private static void write(CameraTrackWriter writer, List<CameraSample> samples) throws IOException {
+        try (writer) {
+            for (var sample : samples) {
+                writer.write(sample);
+            }
+        }
+    }
+
+    @Test
+    public void testBinaryRoundTrip(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("track.rlcam");
+        List<CameraSample> samples = track(600);
+        write(CameraTrackFormat.BINARY.open(file, HEADER), samples);
+
+        assertEquals(24 + 600L * CameraSample.BYTES, Files.size(file));
+        assertEquals(samples, BinaryCameraTrackWriter.read(file));
+    }
+
+    @Test
+    public void testReadsUnfinishedBinary(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("track.rlcam");
+        write(CameraTrackFormat.BINARY.open(file, HEADER), track(10));
+
+        // As if the export stopped part way through a sample, before the count was written.
+        byte[] bytes = Files.readAllBytes(file);
+        byte[] cut = new byte[24 + 3 * CameraSample.BYTES + 10];
+        System.arraycopy(bytes, 0, cut, 0, cut.length);
+        cut[20] = cut[21] = cut[22] = cut[23] = (byte) 0xFF;
+        Files.write(file, cut);
+
+        assertEquals(track(3), BinaryCameraTrackWriter.read(file));
+
+        Files.writeString(file, "not a camera track");
+        assertThrows(IOException.class, () -> BinaryCameraTrackWriter.read(file));
+    }
+
+    @Test
+    public void testCsv(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("track.csv");
+        List<CameraSample> samples = track(3);
+        write(CameraTrackFormat.CSV.open(file, HEADER), samples);
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(4, lines.size());
+        assertEquals(CsvCameraTrackWriter.HEADER, lines.get(0));
+
+        String[] row = lines.get(2).split(",");
+        assertEquals(13, row.length);
+        assertEquals(1, Integer.parseInt(row[0]));
+        assertEquals(41, Integer.parseInt(row[1]));
+        assertEquals(samples.get(1).x(), Double.parseDouble(row[2]));
+        assertEquals(samples.get(1).z(), Double.parseDouble(row[4]));
+        assertEquals(samples.get(1).qy(), Float.parseFloat(row[6]));
+        assertEquals(samples.get(1).roll(), Float.parseFloat(row[11]));
+        assertEquals(70f, Float.parseFloat(row[12]));
+    }
+
+    @Test
+    public void testJson(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("track.json");
+        List<CameraSample> samples = track(5);
+        write(CameraTrackFormat.JSON.open(file, HEADER), samples);
+
+        JsonObject json = JsonParser.parseString(Files.readString(file)).getAsJsonObject();
+        assertEquals(24f, json.get("fps").getAsFloat());
+        assertEquals(1920, json.get("width").getAsInt());
+        assertEquals(1080, json.get("height").getAsInt());
+
+        JsonArray frames = json.getAsJsonArray("frames");
+        assertEquals(5, frames.size());
+        JsonObject frame = frames.get(4).getAsJsonObject();
+        assertEquals(4, frame.get("frame").getAsInt());
+        assertEquals(samples.get(4).x(), frame.getAsJsonArray("pos").get(0).getAsDouble());
+        assertEquals(samples.get(4).qw(), frame.getAsJsonArray("rot").get(3).getAsFloat());
+        assertEquals(samples.get(4).yaw(), frame.get("yaw").getAsFloat());
+        assertEquals(70f, frame.get("fov").getAsFloat());
+    }
+
+    @Test
+    public void testSidecarPath() {
+        Path dir = Path.of("renders");
+        assertEquals(dir.resolve("intro_camera.csv"), CameraTrackFormat.CSV.sidecarPath(dir.resolve("intro.mp4")));
+        // Image sequences export to a directory.
+        assertEquals(dir.resolve("intro_camera.rlcam"), CameraTrackFormat.BINARY.sidecarPath(dir.resolve("intro")));
+    }
+}
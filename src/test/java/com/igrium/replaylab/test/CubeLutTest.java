@@ -0,0 +1,214 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.post.CubeLut;
+import com.igrium.replaylab.render.post.LutStage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CubeLutTest {
+
+    /**
+     * A smooth but clearly non-linear grade, to build test tables from.
+     */
+    private static float[] grade(float r, float g, float b) {
+        return new float[]{r * r, (float) Math.sqrt(g), 0.5f * b + 0.25f * r};
+    }
+
+    private static CubeLut gradeLut(int size) {
+        float[] table = new float[size * size * size * 3];
+        int i = 0;
+        for (int b = 0; b < size; b++) {
+            for (int g = 0; g < size; g++) {
+                for (int r = 0; r < size; r++) {
+                    float[] out = grade(r / (size - 1f), g / (size - 1f), b / (size - 1f));
+                    table[i++] = out[0];
+                    table[i++] = out[1];
+                    table[i++] = out[2];
+                }
+            }
+        }
+        return new CubeLut(size, table, new float[]{0, 0, 0}, new float[]{1, 1, 1});
+    }
+
+    /**
+     * Trilinear interpolation written out the long way, one corner at a time.
+     */
+    private static float reference(CubeLut lut, float r, float g, float b, int c) {
+        int n = lut.getSize();
+        float pr = r * (n - 1), pg = g * (n - 1), pb = b * (n - 1);
+        int r0 = Math.min((int) pr, n - 2), g0 = Math.min((int) pg, n - 2), b0 = Math.min((int) pb, n - 2);
+        float fr = pr - r0, fg = pg - g0, fb = pb - b0;
+        float sum = 0;
+        for (int corner = 0; corner < 8; corner++) {
+            int dr = corner & 1, dg = (corner >> 1) & 1, db = (corner >> 2) & 1;
+            float w = (dr == 1 ? fr : 1 - fr) * (dg == 1 ? fg : 1 - fg) * (db == 1 ? fb : 1 - fb);
+            sum += w * lut.entry(r0 + dr, g0 + dg, b0 + db, c);
+        }
+        return sum;
+    }
+
+    private static int pack(int r, int g, int b, int a) {
+        return r | g << 8 | b << 16 | a << 24;
+    }
+
+    @Test
+    public void testEntriesAreExact() {
+        CubeLut lut = gradeLut(5);
+        float[] out = new float[3];
+        for (int r = 0; r < 5; r++) {
+            for (int b = 0; b < 5; b++) {
+                lut.sample(r / 4f, 0.5f, b / 4f, out);
+                float[] expected = grade(r / 4f, 0.5f, b / 4f);
+                assertArrayEquals(expected, out, 1e-6f);
+            }
+        }
+    }
+
+    @Test
+    public void testTrilinear() {
+        CubeLut lut = gradeLut(9);
+        Random random = new Random(5);
+        float[] out = new float[3];
+        for (int i = 0; i < 1000; i++) {
+            float r = random.nextFloat(), g = random.nextFloat(), b = random.nextFloat();
+            lut.sample(r, g, b, out);
+            for (int c = 0; c < 3; c++) {
+                assertEquals(reference(lut, r, g, b, c), out[c], 1e-5f);
+            }
+        }
+    }
+
+    @Test
+    public void testOutOfDomainClamps() {
+        CubeLut lut = gradeLut(4);
+        float[] low = new float[3], high = new float[3], edge = new float[3];
+        lut.sample(-1, -1, -1, low);
+        lut.sample(0, 0, 0, edge);
+        assertArrayEquals(edge, low);
+        lut.sample(2, 2, 2, high);
+        lut.sample(1, 1, 1, edge);
+        assertArrayEquals(edge, high);
+    }
+
+    @Test
+    public void testIdentityStageIsLossless() {
+        LutStage stage = new LutStage(CubeLut.identity(17), 1);
+        int[] row = new int[256];
+        for (int v = 0; v < 256; v++) {
+            row[v] = pack(v, 255 - v, (v * 7) & 0xFF, v);
+        }
+        int[] expected = row.clone();
+        stage.processRow(row, 0);
+        assertArrayEquals(expected, row);
+    }
+
+    @Test
+    public void testStageMatchesSample() {
+        CubeLut lut = gradeLut(17);
+        LutStage stage = new LutStage(lut, 1);
+        Random random = new Random(9);
+        int[] row = new int[512];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = random.nextInt();
+        }
+        int[] original = row.clone();
+        stage.processRow(row, 0);
+
+        float[] out = new float[3];
+        for (int i = 0; i < row.length; i++) {
+            int p = original[i];
+            lut.sample((p & 0xFF) / 255f, ((p >>> 8) & 0xFF) / 255f, ((p >>> 16) & 0xFF) / 255f, out);
+            for (int c = 0; c < 3; c++) {
+                assertEquals(out[c] * 255, (row[i] >>> (c * 8)) & 0xFF, 0.51f);
+            }
+            assertEquals(p >>> 24, row[i] >>> 24, "Alpha should pass through");
+        }
+    }
+
+    @Test
+    public void testIntensityMixes() {
+        // Inverts everything; at half intensity, every channel lands in the middle.
+        float[] table = new float[2 * 2 * 2 * 3];
+        int i = 0;
+        for (int b = 0; b < 2; b++) {
+            for (int g = 0; g < 2; g++) {
+                for (int r = 0; r < 2; r++) {
+                    table[i++] = 1 - r;
+                    table[i++] = 1 - g;
+                    table[i++] = 1 - b;
+                }
+            }
+        }
+        CubeLut invert = new CubeLut(2, table, new float[]{0, 0, 0}, new float[]{1, 1, 1});
+
+        int[] row = {pack(0, 255, 255, 255)};
+        new LutStage(invert, 0.5f).processRow(row, 0);
+        assertEquals(pack(128, 128, 128, 255), row[0]);
+
+        row[0] = pack(0, 255, 255, 255);
+        new LutStage(invert, 0).processRow(row, 0);
+        assertEquals(pack(0, 255, 255, 255), row[0]);
+    }
+
+    @Test
+    public void testParse() throws IOException {
+        String cube = """
+                # Written by hand
+                TITLE "Swap"
+                LUT_3D_SIZE 2
+                DOMAIN_MIN 0 0 0
+                DOMAIN_MAX 1 1 1
+
+                0 0 0
+                0 1 0
+                1 0 0
+                1 1 0
+                0 0 1
+                0 1 1
+                1 0 1
+                1 1 1
+                """;
+        CubeLut lut = CubeLut.read(new StringReader(cube));
+        assertEquals(2, lut.getSize());
+        // Red changes fastest: entry (r=1, g=0, b=0) is the second line.
+        assertEquals(0f, lut.entry(1, 0, 0, 0));
+        assertEquals(1f, lut.entry(1, 0, 0, 1));
+        float[] out = new float[3];
+        lut.sample(1, 0, 0, out);
+        assertArrayEquals(new float[]{0, 1, 0}, out);
+    }
+
+    @Test
+    public void testParseDomain() throws IOException {
+        String cube = """
+                LUT_3D_SIZE 2
+                LUT_3D_INPUT_RANGE 0 2
+                0 0 0
+                1 0 0
+                0 1 0
+                1 1 0
+                0 0 1
+                1 0 1
+                0 1 1
+                1 1 1
+                """;
+        CubeLut lut = CubeLut.read(new StringReader(cube));
+        float[] out = new float[3];
+        lut.sample(1, 1, 1, out);
+        assertArrayEquals(new float[]{0.5f, 0.5f, 0.5f}, out, 1e-6f);
+    }
+
+    @Test
+    public void testRejectsBadFiles() {
+        assertThrows(IOException.class, () -> CubeLut.read(new StringReader("0 0 0\n")));
+        assertThrows(IOException.class, () -> CubeLut.read(new StringReader("LUT_1D_SIZE 16\n")));
+        assertThrows(IOException.class, () -> CubeLut.read(new StringReader("LUT_3D_SIZE 2\n0 0 0\n")));
+        assertThrows(IOException.class, () -> CubeLut.read(new StringReader("LUT_3D_SIZE 2\n0 0 zero\n")));
+        assertThrows(IOException.class, () -> CubeLut.read(new StringReader("LUT_3D_SIZE 1000\n")));
+    }
+}
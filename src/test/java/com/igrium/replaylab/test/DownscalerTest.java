@@ -0,0 +1,240 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.frame.DownscaleFilter;
+import com.igrium.replaylab.render.frame.Downscaler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DownscalerTest {
+
+    private static ByteBuffer randomFrame(int width, int height, long seed) {
+        byte[] bytes = new byte[width * height * 4];
+        new Random(seed).nextBytes(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static ByteBuffer frame(int width, int height) {
+        return ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static int channel(ByteBuffer frame, int width, int x, int y, int c) {
+        return frame.get((y * width + x) * 4 + c) & 0xFF;
+    }
+
+    private static ByteBuffer downscale(DownscaleFilter filter, int factor, ByteBuffer src, int width, int height,
+                                        int parallelism, boolean flip) {
+        ByteBuffer out = frame(width, height);
+        try (Downscaler downscaler = new Downscaler(filter, factor, width, height, parallelism)) {
+            downscaler.downscale(src, out, flip);
+        }
+        return out;
+    }
+
+    /**
+     * Straightforward, non-separable version of the filter to check the real one against. Edges repeat.
+     */
+    private static double reference(DownscaleFilter filter, int factor, ByteBuffer src, int srcWidth, int x, int y,
+                                    int c) {
+        int srcHeight = src.capacity() / 4 / srcWidth;
+        double cx = (x + 0.5) * factor - 0.5;
+        double cy = (y + 0.5) * factor - 0.5;
+        int reach = 4 * factor;
+        double sum = 0, total = 0;
+        for (int sy = (int) cy - reach; sy <= cy + reach; sy++) {
+            for (int sx = (int) cx - reach; sx <= cx + reach; sx++) {
+                double w = filter.kernel((sx - cx) / factor) * filter.kernel((sy - cy) / factor);
+                if (w == 0) continue;
+                int px = Math.clamp(sx, 0, srcWidth - 1);
+                int py = Math.clamp(sy, 0, srcHeight - 1);
+                sum += channel(src, srcWidth, px, py, c) * w;
+                total += w;
+            }
+        }
+        return sum / total;
+    }
+
+    private static void assertMatchesReference(DownscaleFilter filter, int factor, int width, int height,
+                                               double tolerance) {
+        ByteBuffer src = randomFrame(width * factor, height * factor, 7);
+        ByteBuffer out = downscale(filter, factor, src, width, height, 1, false);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int c = 0; c < 3; c++) {
+                    double expected = Math.clamp(reference(filter, factor, src, width * factor, x, y, c), 0, 255);
+                    int actual = channel(out, width, x, y, c);
+                    assertEquals(expected, actual, tolerance,
+                            "%s %dx at (%d, %d) channel %d".formatted(filter, factor, x, y, c));
+                }
+                assertEquals(255, channel(out, width, x, y, 3), "Output should be opaque");
+            }
+        }
+    }
+
+    @Test
+    public void testBoxAveragesBlocks() {
+        // Integer sums with round-half-up land within half a level of the exact average.
+        assertMatchesReference(DownscaleFilter.BOX, 2, 23, 17, 0.5);
+        assertMatchesReference(DownscaleFilter.BOX, 3, 19, 13, 0.5);
+    }
+
+    @Test
+    public void testLanczosMatchesReference() {
+        assertMatchesReference(DownscaleFilter.LANCZOS, 2, 23, 17, 1);
+        assertMatchesReference(DownscaleFilter.LANCZOS, 3, 19, 13, 1);
+    }
+
+    @Test
+    public void testFlatColorStaysFlat() {
+        int width = 20, height = 12;
+        for (DownscaleFilter filter : DownscaleFilter.values()) {
+            for (int factor = 1; factor <= 3; factor++) {
+                ByteBuffer src = frame(width * factor, height * factor);
+                for (int i = 0; i < src.capacity(); i += 4) {
+                    src.putInt(i, 0x00C08040);
+                }
+                ByteBuffer out = downscale(filter, factor, src, width, height, 1, false);
+                for (int i = 0; i < out.capacity(); i += 4) {
+                    assertEquals(0xFFC08040, out.getInt(i), "%s %dx".formatted(filter, factor));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCheckerboardAveragesOut() {
+        // Detail finer than an output pixel should come out as its average, not alias into a pattern.
+        int width = 32, height = 32, factor = 2;
+        ByteBuffer src = frame(width * factor, height * factor);
+        for (int y = 0; y < height * factor; y++) {
+            for (int x = 0; x < width * factor; x++) {
+                src.putInt((y * width * factor + x) * 4, ((x + y) & 1) == 0 ? 0xFFFFFFFF : 0xFF000000);
+            }
+        }
+
+        // Repeating the edge breaks the pattern, so only the middle is checked.
+        int margin = 3;
+        for (DownscaleFilter filter : DownscaleFilter.values()) {
+            ByteBuffer out = downscale(filter, factor, src, width, height, 1, false);
+            for (int y = margin; y < height - margin; y++) {
+                for (int x = margin; x < width - margin; x++) {
+                    for (int c = 0; c < 3; c++) {
+                        assertEquals(127.5, channel(out, width, x, y, c), 1, filter.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFlip() {
+        int width = 15, height = 9, factor = 2;
+        ByteBuffer src = randomFrame(width * factor, height * factor, 3);
+        ByteBuffer flipped = frame(width * factor, height * factor);
+        int rowBytes = width * factor * 4;
+        for (int y = 0; y < height * factor; y++) {
+            flipped.put((height * factor - 1 - y) * rowBytes, src, y * rowBytes, rowBytes);
+        }
+
+        for (DownscaleFilter filter : DownscaleFilter.values()) {
+            ByteBuffer expected = downscale(filter, factor, src, width, height, 1, false);
+            ByteBuffer actual = downscale(filter, factor, flipped, width, height, 1, true);
+            assertEquals(expected, actual, filter.toString());
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        int width = 37, height = 203, factor = 2;
+        ByteBuffer src = randomFrame(width * factor, height * factor, 11);
+        for (DownscaleFilter filter : DownscaleFilter.values()) {
+            ByteBuffer serial = downscale(filter, factor, src, width, height, 1, false);
+            ByteBuffer parallel = downscale(filter, factor, src, width, height, 8, false);
+            assertEquals(serial, parallel, filter.toString());
+        }
+    }
+
+    @Test
+    public void testReusable() {
+        int width = 24, height = 40, factor = 3;
+        try (Downscaler downscaler = new Downscaler(DownscaleFilter.LANCZOS, factor, width, height, 4)) {
+            for (long seed = 0; seed < 3; seed++) {
+                ByteBuffer src = randomFrame(width * factor, height * factor, seed);
+                ByteBuffer out = frame(width, height);
+                downscaler.downscale(src, out, false);
+                assertEquals(downscale(DownscaleFilter.LANCZOS, factor, src, width, height, 1, false), out);
+            }
+        }
+    }
+
+    @Test
+    public void testCropsLeftover() {
+        // A source that isn't an exact multiple loses its right columns and bottom rows (as displayed).
+        int width = 13, height = 9, factor = 2;
+        int srcWidth = width * factor + 3, srcHeight = height * factor + 1;
+        ByteBuffer src = randomFrame(srcWidth, srcHeight, 5);
+
+        ByteBuffer cropped = frame(width * factor, height * factor);
+        ByteBuffer croppedFlipped = frame(width * factor, height * factor);
+        int rowBytes = width * factor * 4;
+        for (int y = 0; y < height * factor; y++) {
+            cropped.put(y * rowBytes, src, y * srcWidth * 4, rowBytes);
+            croppedFlipped.put(y * rowBytes, src, (srcHeight - 1 - y) * srcWidth * 4, rowBytes);
+        }
+
+        for (DownscaleFilter filter : DownscaleFilter.values()) {
+            try (Downscaler downscaler = new Downscaler(filter, factor, width, height, srcWidth, srcHeight, 1)) {
+                ByteBuffer out = frame(width, height);
+                downscaler.downscale(src, out, false);
+                assertEquals(downscale(filter, factor, cropped, width, height, 1, false), out, filter.toString());
+
+                downscaler.downscale(src, out, true);
+                assertEquals(downscale(filter, factor, croppedFlipped, width, height, 1, false), out,
+                        filter.toString());
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new Downscaler(DownscaleFilter.BOX, 2, width + 2, height, srcWidth, srcHeight, 1));
+    }
+
+    @Test
+    public void testRejectsSmallBuffers() {
+        try (Downscaler downscaler = new Downscaler(DownscaleFilter.BOX, 2, 8, 8, 1)) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> downscaler.downscale(frame(8, 8), frame(8, 8), false));
+            assertThrows(IllegalArgumentException.class,
+                    () -> downscaler.downscale(frame(16, 16), frame(8, 4), false));
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "replaylab.bench", matches = "true")
+    public void benchmark() {
+        int width = 1920, height = 1080, factor = 2;
+        ByteBuffer src = frame(width * factor, height * factor);
+        src.put(randomFrame(width * factor, height * factor, 1));
+        ByteBuffer out = frame(width, height);
+        int parallelism = Runtime.getRuntime().availableProcessors();
+
+        for (DownscaleFilter filter : DownscaleFilter.values()) {
+            try (Downscaler downscaler = new Downscaler(filter, factor, width, height, parallelism)) {
+                for (int i = 0; i < 10; i++) {
+                    downscaler.downscale(src, out, true);
+                }
+                int frames = 30;
+                long start = System.nanoTime();
+                for (int i = 0; i < frames; i++) {
+                    downscaler.downscale(src, out, true);
+                }
+                double ms = (System.nanoTime() - start) / 1e6 / frames;
+                System.out.printf("%s %dx to %dx%d on %d threads: %.2f ms/frame%n",
+                        filter, factor, width, height, parallelism, ms);
+            }
+        }
+    }
+}
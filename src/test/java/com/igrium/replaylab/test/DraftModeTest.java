@@ -0,0 +1,68 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.DraftMode;
+import com.igrium.replaylab.render.RenderMetadata;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DraftModeTest {
+
+    @Test
+    public void testOutputPath() {
+        Path dir = Path.of("renders");
+        assertEquals(dir.resolve("scene_draft.mp4"), DraftMode.outputPath(dir.resolve("scene.mp4")));
+        // Image sequences export to a directory.
+        assertEquals(dir.resolve("scene_draft"), DraftMode.outputPath(dir.resolve("scene")));
+    }
+
+    @Test
+    public void testApply() {
+        RenderMetadata metadata = RenderMetadata.builder()
+                .outPath(Path.of("scene.mp4"))
+                .width(1920)
+                .height(1080)
+                .totalFrames(300)
+                .fps(60)
+                .build();
+
+        RenderMetadata draft = new DraftMode(4, 2).apply(metadata);
+        assertEquals(Path.of("scene_draft.mp4"), draft.outPath());
+        assertEquals(960, draft.width());
+        assertEquals(540, draft.height());
+        // Same length and rate; only which frames get rendered changes.
+        assertEquals(300, draft.totalFrames());
+        assertEquals(60f, draft.fps());
+
+        // Odd sizes are rounded down to even ones.
+        RenderMetadata quarter = new DraftMode(1, 4).apply(metadata);
+        assertEquals(480, quarter.width());
+        assertEquals(270, quarter.height());
+        RenderMetadata third = new DraftMode(1, 3).apply(RenderMetadata.builder()
+                .outPath(Path.of("scene.mp4"))
+                .width(1366)
+                .height(768)
+                .totalFrames(300)
+                .fps(60)
+                .build());
+        assertEquals(454, third.width());
+        assertEquals(256, third.height());
+    }
+
+    @Test
+    public void testIsRendered() {
+        DraftMode draft = new DraftMode(3, 1);
+        assertTrue(draft.isRendered(0));
+        assertFalse(draft.isRendered(1));
+        assertFalse(draft.isRendered(2));
+        assertTrue(draft.isRendered(3));
+    }
+
+    @Test
+    public void testRejectsOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new DraftMode(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new DraftMode(1, DraftMode.MAX_SCALE + 1));
+    }
+}
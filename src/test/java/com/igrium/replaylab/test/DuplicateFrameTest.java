@@ -0,0 +1,185 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.RenderMetadata;
+import com.igrium.replaylab.render.encoder.ImageSequenceEncoderProcess;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.FrameHash;
+import com.igrium.replaylab.render.frame.FramePool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DuplicateFrameTest {
+
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 4;
+    private static final int FRAME_BYTES = WIDTH * HEIGHT * 4;
+
+    /**
+     * Writes frames out as-is, and counts how many it actually had to.
+     */
+    private static class RawSequence extends ImageSequenceEncoderProcess<byte[]> {
+        final AtomicInteger prepared = new AtomicInteger();
+
+        @Override
+        protected String getExtension() {
+            return "raw";
+        }
+
+        @Override
+        protected byte[] prepare(FrameBuffer frame) {
+            prepared.incrementAndGet();
+            byte[] data = new byte[frame.sizeBytes()];
+            frame.pixels().get(data);
+            return data;
+        }
+
+        @Override
+        protected void write(byte[] prepared, OutputStream out) throws IOException {
+            out.write(prepared);
+        }
+
+        @Override
+        protected int getFrameWorkers(int availableProcessors) {
+            return 4;
+        }
+
+        Path path(int frameIdx) {
+            return getFramePath(frameIdx);
+        }
+
+        void awaitDurable(int frames) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (getDurableFrames() < frames) {
+                assertNull(getFailureReason());
+                assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for frames");
+                Thread.sleep(5);
+            }
+        }
+
+        void stop() {
+            fail(new CancellationException());
+        }
+    }
+
+    private static ByteBuffer bytes(String string) {
+        return ByteBuffer.wrap(string.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static FrameBuffer frame(FramePool pool, int value) throws InterruptedException {
+        FrameBuffer frame = pool.acquire();
+        var pixels = frame.pixels();
+        for (int i = 0; i < FRAME_BYTES; i++) {
+            pixels.put(i, (byte) value);
+        }
+        return frame;
+    }
+
+    private static RenderMetadata metadata(Path dir, int frames) {
+        return RenderMetadata.builder()
+                .outPath(dir)
+                .width(WIDTH)
+                .height(HEIGHT)
+                .totalFrames(frames)
+                .build();
+    }
+
+    private static byte[] filled(int value) {
+        byte[] data = new byte[FRAME_BYTES];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+
+    @Test
+    public void testKnownHashes() {
+        // Reference values from the XXH64 spec and python-xxhash.
+        assertEquals(0xEF46DB3751D8E999L, FrameHash.xxh64(bytes("")));
+        assertEquals(0x44BC2CF5AD770999L, FrameHash.xxh64(bytes("abc")));
+        assertEquals(0xFBCEA83C8A378BF1L, FrameHash.xxh64(bytes("Nobody inspects the spammish repetition")));
+    }
+
+    @Test
+    public void testHashesRemainingBytes() {
+        ByteBuffer buffer = bytes("--abc");
+        buffer.position(2);
+        assertEquals(FrameHash.xxh64(bytes("abc")), FrameHash.xxh64(buffer));
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void testContentHashFollowsLease() throws Exception {
+        FramePool pool = new FramePool(WIDTH, HEIGHT, 1, ByteBuffer::allocateDirect, b -> {});
+        FrameBuffer frame = frame(pool, 1);
+        long hash = frame.contentHash();
+        assertEquals(FrameHash.xxh64(ByteBuffer.wrap(filled(1))), hash);
+
+        // Every owner sees the same hash.
+        frame.retain();
+        assertEquals(hash, frame.contentHash());
+        frame.close();
+        frame.close();
+
+        // The next lease of the same buffer starts over.
+        FrameBuffer next = frame(pool, 2);
+        assertNotEquals(hash, next.contentHash());
+        next.close();
+    }
+
+    @Test
+    public void testLinksHolds(@TempDir Path dir) throws Exception {
+        int[] values = {0, 1, 1, 1, 2, 1};
+        FramePool pool = new FramePool(WIDTH, HEIGHT, values.length, ByteBuffer::allocateDirect, b -> {});
+        RawSequence encoder = new RawSequence();
+        encoder.start(metadata(dir, values.length));
+        try {
+            for (int i = 0; i < values.length; i++) {
+                encoder.accept(frame(pool, values[i]), i);
+            }
+            encoder.awaitDurable(values.length);
+        } finally {
+            encoder.stop();
+        }
+
+        assertEquals(2, encoder.getDuplicateFrames());
+        assertEquals(4, encoder.prepared.get());
+        assertEquals(0, pool.getLeased());
+
+        assertTrue(Files.isSameFile(encoder.path(1), encoder.path(3)));
+        // Frame 5 matches frame 1, but not the frame right before it.
+        assertFalse(Files.isSameFile(encoder.path(1), encoder.path(5)));
+        for (int i = 0; i < values.length; i++) {
+            assertArrayEquals(filled(values[i]), Files.readAllBytes(encoder.path(i)));
+        }
+    }
+
+    @Test
+    public void testReplacesLinksFromEarlierExport(@TempDir Path dir) throws Exception {
+        RawSequence encoder = new RawSequence();
+        encoder.start(metadata(dir, 2), 1, null);
+        try {
+            // An earlier export linked frame 1 to frame 0.
+            Files.write(encoder.path(0), filled(0));
+            Files.createLink(encoder.path(1), encoder.path(0));
+
+            FramePool pool = new FramePool(WIDTH, HEIGHT, 1, ByteBuffer::allocateDirect, b -> {});
+            encoder.accept(frame(pool, 7), 1);
+            encoder.awaitDurable(2);
+        } finally {
+            encoder.stop();
+        }
+
+        assertArrayEquals(filled(0), Files.readAllBytes(encoder.path(0)));
+        assertArrayEquals(filled(7), Files.readAllBytes(encoder.path(1)));
+    }
+}
@@ -0,0 +1,244 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.ffmpeg.FFmpegPipeWriter;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.FramePool;
+import com.igrium.replaylab.render.frame.YuvConverter;
+import com.igrium.replaylab.render.frame.YuvFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FFmpegPipeWriterTest {
+
+    private static final int WIDTH = 16;
+    private static final int HEIGHT = 8;
+    private static final int FRAME_BYTES = WIDTH * HEIGHT * 4;
+
+    private static FramePool createPool(int capacity) {
+        return new FramePool(WIDTH, HEIGHT, capacity, java.nio.ByteBuffer::allocateDirect, b -> {});
+    }
+
+    private static FrameBuffer frame(FramePool pool, int value) throws InterruptedException {
+        FrameBuffer frame = pool.acquire();
+        var pixels = frame.pixels();
+        for (int i = 0; i < FRAME_BYTES; i++) {
+            pixels.put(i, (byte) value);
+        }
+        return frame;
+    }
+
+    /**
+     * Stands in for ffmpeg's stdin: consumes a frame every <code>frameMillis</code> on average, with every fifth frame
+     * taking four times as long (like an encoder hitting a keyframe).
+     */
+    private static class FakeFFmpeg extends OutputStream {
+        final long frameMillis;
+        long bytes;
+        boolean closed;
+
+        FakeFFmpeg(long frameMillis) {
+            this.frameMillis = frameMillis;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long before = bytes / FRAME_BYTES;
+            bytes += len;
+            long after = bytes / FRAME_BYTES;
+            for (long frame = before; frame < after; frame++) {
+                sleep(frame % 5 == 4 ? frameMillis * 4 : frameMillis / 4);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testWritesInOrder() throws Exception {
+        FramePool pool = createPool(4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // Chunk smaller than a frame, and not a divisor of it.
+        FFmpegPipeWriter writer = new FFmpegPipeWriter(out, FRAME_BYTES * 2L, 100, e -> fail(e));
+
+        for (int i = 0; i < 10; i++) {
+            writer.submit(frame(pool, i));
+        }
+        writer.finish().get(5, TimeUnit.SECONDS);
+
+        byte[] written = out.toByteArray();
+        assertEquals(FRAME_BYTES * 10, written.length);
+        for (int i = 0; i < written.length; i++) {
+            assertEquals((byte) (i / FRAME_BYTES), written[i]);
+        }
+        assertEquals(10, writer.getFramesWritten());
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testReusesConversionOfRepeatedFrames() throws Exception {
+        FramePool pool = createPool(4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int[] values = {10, 10, 10, 200, 10};
+
+        try (YuvConverter converter = new YuvConverter(YuvFormat.YUV420P, WIDTH, HEIGHT, 1)) {
+            FFmpegPipeWriter writer = new FFmpegPipeWriter(out, FRAME_BYTES * 2L, 100, e -> fail(e), converter);
+            for (int value : values) {
+                writer.submit(frame(pool, value));
+            }
+            writer.finish().get(5, TimeUnit.SECONDS);
+            // Only a frame matching the one right before it counts; the last 10 follows a 200.
+            assertEquals(2, writer.getSkippedConversions());
+
+            // Still the same bytes as converting every frame.
+            int yuvBytes = converter.getFrameBytes();
+            byte[] written = out.toByteArray();
+            assertEquals(yuvBytes * values.length, written.length);
+            for (int i = 0; i < values.length; i++) {
+                ByteBuffer expected = ByteBuffer.allocateDirect(yuvBytes);
+                try (FrameBuffer frame = frame(pool, values[i])) {
+                    converter.convert(frame.pixels(), expected);
+                }
+                assertEquals(expected.clear(), ByteBuffer.wrap(written, i * yuvBytes, yuvBytes));
+            }
+        }
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testFinishClosesStream() throws Exception {
+        FakeFFmpeg ffmpeg = new FakeFFmpeg(0);
+        FFmpegPipeWriter writer = new FFmpegPipeWriter(ffmpeg, FRAME_BYTES, 1024, e -> fail(e));
+        writer.finish().get(5, TimeUnit.SECONDS);
+        assertTrue(ffmpeg.closed);
+    }
+
+    @Test
+    public void testWriteErrorFails() throws Exception {
+        FramePool pool = createPool(8);
+        AtomicReference<Throwable> reported = new AtomicReference<>();
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        FFmpegPipeWriter writer = new FFmpegPipeWriter(broken, FRAME_BYTES * 4L, 1024, reported::set);
+
+        writer.submit(frame(pool, 0));
+        assertThrows(Exception.class, () -> writer.finish().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, reported.get());
+
+        // Later frames are refused, but still handed back to the pool.
+        assertThrows(IOException.class, () -> writer.submit(frame(pool, 1)));
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testSubmitDoesNotWaitForWrites() throws Exception {
+        FramePool pool = createPool(9);
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        // An ffmpeg that stalls on the first frame until told to go on.
+        OutputStream ffmpeg = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                stalled.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                written.write(b, off, len);
+            }
+        };
+        FFmpegPipeWriter writer = new FFmpegPipeWriter(ffmpeg, FRAME_BYTES * 8L, FRAME_BYTES, e -> fail(e));
+
+        writer.submit(frame(pool, 0));
+        assertTrue(stalled.await(5, TimeUnit.SECONDS));
+        // The stalled frame still counts against the budget, but the rest of it is free.
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (int i = 1; i < 8; i++) {
+                writer.submit(frame(pool, i));
+            }
+        });
+        assertEquals(0, writer.getFramesWritten());
+
+        release.countDown();
+        writer.finish().get(5, TimeUnit.SECONDS);
+        assertEquals(FRAME_BYTES * 8, written.size());
+        assertEquals(8, writer.getFramesWritten());
+        assertEquals(0, pool.getLeased());
+    }
+
+    /**
+     * With a producer that's slower than the fake ffmpeg on average, writing directly blocks the producer on every
+     * slow frame; going through the writer queue should absorb nearly all of it. Depends on timing, so it only runs
+     * with <code>-Preplaylab.bench=true</code>.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "replaylab.bench", matches = "true")
+    public void testQueueAbsorbsStalls() throws Exception {
+        int frames = 40;
+        long consumerMillis = 4;
+        long producerMillis = 5;
+
+        // Synchronous baseline: write on the "render thread".
+        FakeFFmpeg direct = new FakeFFmpeg(consumerMillis);
+        byte[] data = new byte[FRAME_BYTES];
+        long syncBlocked = 0;
+        for (int i = 0; i < frames; i++) {
+            sleep(producerMillis);
+            long start = System.nanoTime();
+            direct.write(data, 0, data.length);
+            syncBlocked += System.nanoTime() - start;
+        }
+
+        FramePool pool = createPool(9);
+        FFmpegPipeWriter writer = new FFmpegPipeWriter(new FakeFFmpeg(consumerMillis), FRAME_BYTES * 8L,
+                FFmpegPipeWriter.DEFAULT_CHUNK_SIZE, e -> fail(e));
+        for (int i = 0; i < frames; i++) {
+            sleep(producerMillis);
+            writer.submit(frame(pool, i));
+        }
+        long asyncBlocked = writer.getBlockedNanos();
+        writer.finish().get(5, TimeUnit.SECONDS);
+
+        System.out.printf("Render thread blocked: direct %.1f ms, queued %.1f ms%n",
+                syncBlocked / 1e6, asyncBlocked / 1e6);
+        assertTrue(asyncBlocked < syncBlocked / 4,
+                "Queued writes blocked for %d ns vs %d ns direct".formatted(asyncBlocked, syncBlocked));
+    }
+}
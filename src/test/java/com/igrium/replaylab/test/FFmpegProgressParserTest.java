@@ -0,0 +1,100 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.ffmpeg.FFmpegProgress;
+import com.igrium.replaylab.render.ffmpeg.FFmpegProgressParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FFmpegProgressParserTest {
+
+    private static List<FFmpegProgress> feed(FFmpegProgressParser parser, String text) {
+        List<FFmpegProgress> blocks = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            FFmpegProgress progress = parser.accept(line);
+            if (progress != null) blocks.add(progress);
+        }
+        return blocks;
+    }
+
+    @Test
+    public void testFullBlock() {
+        var blocks = feed(new FFmpegProgressParser(), """
+                frame=120
+                fps=59.87
+                stream_0_0_q=28.0
+                bitrate=1234.5kbits/s
+                total_size=262192
+                out_time_us=2000000
+                out_time_ms=2000000
+                out_time=00:00:02.000000
+                dup_frames=0
+                drop_frames=0
+                speed=1.99x
+                progress=continue
+                """);
+
+        assertEquals(1, blocks.size());
+        FFmpegProgress p = blocks.getFirst();
+        assertEquals(120, p.frame());
+        assertEquals(59.87, p.fps(), 1e-9);
+        assertEquals(1234.5, p.bitrateKbps(), 1e-9);
+        assertEquals(262192, p.totalSize());
+        assertEquals(2000000, p.outTimeUs());
+        assertEquals(1.99, p.speed(), 1e-9);
+        assertFalse(p.end());
+    }
+
+    @Test
+    public void testNotAvailable() {
+        var blocks = feed(new FFmpegProgressParser(), """
+                frame=0
+                fps=0.00
+                bitrate=N/A
+                total_size=N/A
+                out_time_us=N/A
+                speed=N/A
+                progress=continue
+                """);
+
+        FFmpegProgress p = blocks.getFirst();
+        assertEquals(0, p.frame());
+        assertTrue(Double.isNaN(p.bitrateKbps()));
+        assertEquals(-1, p.totalSize());
+        assertEquals(-1, p.outTimeUs());
+        assertTrue(Double.isNaN(p.speed()));
+    }
+
+    @Test
+    public void testMultipleBlocks() {
+        FFmpegProgressParser parser = new FFmpegProgressParser();
+        var blocks = feed(parser, """
+                frame=30
+                fps=30.0
+                speed=1.0x
+                progress=continue
+                frame=60
+                fps=31.5
+                speed=1.05x
+                progress=end
+                """);
+
+        assertEquals(2, blocks.size());
+        assertEquals(30, blocks.get(0).frame());
+        assertEquals(60, blocks.get(1).frame());
+        assertEquals(1.05, blocks.get(1).speed(), 1e-9);
+        assertTrue(blocks.get(1).end());
+    }
+
+    @Test
+    public void testIgnoresGarbage() {
+        FFmpegProgressParser parser = new FFmpegProgressParser();
+        assertNull(parser.accept(""));
+        assertNull(parser.accept("not a progress line"));
+        assertNull(parser.accept("frame=abc"));
+        assertNotNull(parser.accept("progress=continue"));
+    }
+}
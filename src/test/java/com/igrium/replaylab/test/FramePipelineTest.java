@@ -0,0 +1,208 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.post.CubeLut;
+import com.igrium.replaylab.render.post.FramePipeline;
+import com.igrium.replaylab.render.post.FrameStage;
+import com.igrium.replaylab.render.post.LetterboxStage;
+import com.igrium.replaylab.render.post.LutStage;
+import com.igrium.replaylab.render.post.OverlayAnchor;
+import com.igrium.replaylab.render.post.OverlayStage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FramePipelineTest {
+
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    private static int pack(int r, int g, int b, int a) {
+        return r | g << 8 | b << 16 | a << 24;
+    }
+
+    private static ByteBuffer randomFrame(int width, int height, long seed) {
+        ByteBuffer frame = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+        Random random = new Random(seed);
+        for (int i = 0; i < width * height; i++) {
+            frame.putInt(i * 4, random.nextInt());
+        }
+        return frame;
+    }
+
+    private static ByteBuffer copy(ByteBuffer frame) {
+        ByteBuffer copy = ByteBuffer.allocateDirect(frame.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+        copy.put(0, frame, 0, frame.capacity());
+        return copy;
+    }
+
+    @Test
+    public void testLetterbox() {
+        // 2:1 into 100x100 leaves the middle 50 rows.
+        LetterboxStage stage = new LetterboxStage(100, 100, 2, BLACK);
+        assertEquals(25, stage.getTop());
+        assertEquals(75, stage.getBottom());
+        assertEquals(0, stage.getLeft());
+        assertEquals(100, stage.getRight());
+
+        int[] row = new int[100];
+        Arrays.fill(row, WHITE);
+        stage.processRow(row, 24);
+        assertTrue(Arrays.stream(row).allMatch(p -> p == BLACK));
+
+        Arrays.fill(row, WHITE);
+        stage.processRow(row, 25);
+        assertTrue(Arrays.stream(row).allMatch(p -> p == WHITE));
+    }
+
+    @Test
+    public void testPillarbox() {
+        // 1:1 into 160x90 leaves the middle 90 columns.
+        LetterboxStage stage = new LetterboxStage(160, 90, 1, BLACK);
+        assertEquals(35, stage.getLeft());
+        assertEquals(125, stage.getRight());
+
+        int[] row = new int[160];
+        Arrays.fill(row, WHITE);
+        stage.processRow(row, 45);
+        for (int x = 0; x < 160; x++) {
+            assertEquals(x >= 35 && x < 125 ? WHITE : BLACK, row[x], "Column " + x);
+        }
+    }
+
+    @Test
+    public void testOverlayBlends() {
+        // Opaque, half-transparent and fully transparent pixels, over grey.
+        int[] image = {pack(255, 0, 0, 255), pack(255, 0, 0, 128), pack(255, 0, 0, 0)};
+        OverlayStage stage = new OverlayStage(image, 3, 1, 1, 2, 1);
+
+        int grey = pack(100, 100, 100, 255);
+        int[] row = {grey, grey, grey, grey, grey};
+        stage.processRow(row, 1);
+        assertArrayEquals(new int[]{grey, grey, grey, grey, grey}, row, "Rows outside the image are untouched");
+
+        stage.processRow(row, 2);
+        assertEquals(grey, row[0]);
+        assertEquals(pack(255, 0, 0, 255), row[1]);
+        assertEquals(pack(178, 50, 50, 255), row[2]);
+        assertEquals(grey, row[3]);
+        assertEquals(grey, row[4]);
+    }
+
+    @Test
+    public void testOverlayOpacity() {
+        int[] image = {pack(200, 200, 200, 255)};
+        int[] row = {pack(0, 0, 0, 255)};
+        new OverlayStage(image, 1, 1, 0, 0, 0.5f).processRow(row, 0);
+        assertEquals(pack(100, 100, 100, 255), row[0]);
+
+        row[0] = pack(0, 0, 0, 255);
+        new OverlayStage(image, 1, 1, 0, 0, 0).processRow(row, 0);
+        assertEquals(pack(0, 0, 0, 255), row[0]);
+    }
+
+    @Test
+    public void testOverlayClips() {
+        int[] image = new int[4 * 4];
+        Arrays.fill(image, WHITE);
+        int[] row = new int[6];
+
+        // Hanging off the left edge.
+        Arrays.fill(row, BLACK);
+        new OverlayStage(image, 4, 4, -2, 0, 1).processRow(row, 0);
+        assertArrayEquals(new int[]{WHITE, WHITE, BLACK, BLACK, BLACK, BLACK}, row);
+
+        // Hanging off the right edge.
+        Arrays.fill(row, BLACK);
+        new OverlayStage(image, 4, 4, 4, 0, 1).processRow(row, 0);
+        assertArrayEquals(new int[]{BLACK, BLACK, BLACK, BLACK, WHITE, WHITE}, row);
+
+        // Entirely off the frame.
+        Arrays.fill(row, BLACK);
+        new OverlayStage(image, 4, 4, 10, 0, 1).processRow(row, 0);
+        new OverlayStage(image, 4, 4, 0, -4, 1).processRow(row, 0);
+        assertTrue(Arrays.stream(row).allMatch(p -> p == BLACK));
+    }
+
+    @Test
+    public void testOverlayAnchors() {
+        assertEquals(10, OverlayAnchor.TOP_LEFT.x(1920, 200, 10));
+        assertEquals(10, OverlayAnchor.TOP_LEFT.y(1080, 100, 10));
+        assertEquals(1710, OverlayAnchor.BOTTOM_RIGHT.x(1920, 200, 10));
+        assertEquals(970, OverlayAnchor.BOTTOM_RIGHT.y(1080, 100, 10));
+        assertEquals(860, OverlayAnchor.CENTER.x(1920, 200, 10));
+        assertEquals(490, OverlayAnchor.CENTER.y(1080, 100, 10));
+    }
+
+    @Test
+    public void testStagesRunInOrder() {
+        // Each stage appends its digit to the red channel, so the result spells out the order.
+        FrameStage times10Plus1 = (row, y) -> row[0] = row[0] * 10 + 1;
+        FrameStage times10Plus2 = (row, y) -> row[0] = row[0] * 10 + 2;
+        ByteBuffer frame = ByteBuffer.allocateDirect(4).order(ByteOrder.LITTLE_ENDIAN);
+        try (FramePipeline pipeline = new FramePipeline(List.of(times10Plus1, times10Plus2), 1, 1, 1)) {
+            pipeline.process(frame);
+        }
+        assertEquals(12, frame.getInt(0));
+    }
+
+    @Test
+    public void testRowIndices() {
+        int width = 3, height = 100;
+        ByteBuffer frame = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+        FrameStage writeY = (row, y) -> Arrays.fill(row, y);
+        try (FramePipeline pipeline = new FramePipeline(List.of(writeY), width, height, 4)) {
+            pipeline.process(frame);
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(y, frame.getInt((y * width + x) * 4));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        int width = 64, height = 203;
+        int[] image = new int[20 * 30];
+        for (int i = 0; i < image.length; i++) {
+            image[i] = pack(i & 0xFF, 40, 200, (i * 13) & 0xFF);
+        }
+        List<FrameStage> stages = List.of(
+                new LutStage(CubeLut.identity(9), 0.7f),
+                new LetterboxStage(width, height, 1.2f, BLACK),
+                new OverlayStage(image, 20, 30, 40, 180, 0.8f));
+
+        ByteBuffer serial = randomFrame(width, height, 4);
+        ByteBuffer parallel = copy(serial);
+        try (FramePipeline pipeline = new FramePipeline(stages, width, height, 1)) {
+            pipeline.process(serial);
+        }
+        try (FramePipeline pipeline = new FramePipeline(stages, width, height, 8)) {
+            pipeline.process(parallel);
+        }
+        assertEquals(serial, parallel);
+    }
+
+    @Test
+    public void testEmptyPipelineLeavesFrame() {
+        ByteBuffer frame = randomFrame(8, 8, 1);
+        ByteBuffer expected = copy(frame);
+        try (FramePipeline pipeline = new FramePipeline(List.of(), 8, 8, 1)) {
+            pipeline.process(frame);
+        }
+        assertEquals(expected, frame);
+    }
+
+    @Test
+    public void testRejectsSmallBuffer() {
+        try (FramePipeline pipeline = new FramePipeline(List.of(), 8, 8, 1)) {
+            assertThrows(IllegalArgumentException.class, () -> pipeline.process(ByteBuffer.allocate(16)));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.FramePool;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FramePoolTest {
+
+    private final List<ByteBuffer> allocations = new ArrayList<>();
+    private final List<ByteBuffer> frees = new ArrayList<>();
+
+    private FramePool createPool(int capacity) {
+        return new FramePool(4, 2, capacity, size -> {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+            allocations.add(buffer);
+            return buffer;
+        }, frees::add);
+    }
+
+    @Test
+    public void testRecycles() throws Exception {
+        FramePool pool = createPool(2);
+        FrameBuffer a = pool.acquire();
+        assertEquals(32, a.pixels().capacity());
+        a.close();
+
+        FrameBuffer b = pool.acquire();
+        assertSame(a, b);
+        b.close();
+        assertEquals(1, allocations.size());
+    }
+
+    @Test
+    public void testAllocatesLazily() throws Exception {
+        FramePool pool = createPool(4);
+        assertEquals(0, pool.getAllocated());
+        FrameBuffer a = pool.acquire();
+        FrameBuffer b = pool.acquire();
+        assertEquals(2, pool.getAllocated());
+        a.close();
+        b.close();
+    }
+
+    @Test
+    public void testExhaustionBlocks() throws Exception {
+        FramePool pool = createPool(2);
+        FrameBuffer a = pool.acquire();
+        FrameBuffer b = pool.acquire();
+        assertNull(pool.tryAcquire(10, TimeUnit.MILLISECONDS));
+
+        CompletableFuture<FrameBuffer> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.acquire();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(20);
+        assertFalse(waiting.isDone());
+
+        a.close();
+        FrameBuffer c = waiting.get(1, TimeUnit.SECONDS);
+        assertSame(a, c);
+        b.close();
+        c.close();
+    }
+
+    @Test
+    public void testLimitShrinksPool() throws Exception {
+        FramePool pool = createPool(4);
+        FrameBuffer a = pool.acquire();
+        FrameBuffer b = pool.acquire();
+        FrameBuffer c = pool.acquire();
+
+        pool.setLimit(1);
+        assertNull(pool.tryAcquire(0, TimeUnit.MILLISECONDS));
+
+        a.close();
+        b.close();
+        // Still over the limit, so both were freed rather than kept.
+        assertEquals(2, frees.size());
+        c.close();
+        assertEquals(1, pool.getAllocated());
+    }
+
+    @Test
+    public void testUseAfterClose() throws Exception {
+        FramePool pool = createPool(1);
+        FrameBuffer a = pool.acquire();
+        a.close();
+        assertThrows(IllegalStateException.class, a::pixels);
+        assertThrows(IllegalStateException.class, a::close);
+    }
+
+    @Test
+    public void testRetain() throws Exception {
+        FramePool pool = createPool(1);
+        FrameBuffer a = pool.acquire();
+        assertSame(a, a.retain());
+        assertEquals(2, a.getRefCount());
+
+        a.close();
+        assertEquals(1, pool.getLeased(), "Still has an owner");
+        a.pixels();
+
+        a.close();
+        assertEquals(0, pool.getLeased());
+        assertThrows(IllegalStateException.class, a::retain);
+        assertThrows(IllegalStateException.class, a::close);
+
+        // A fresh lease starts with one owner again.
+        FrameBuffer b = pool.acquire();
+        assertSame(a, b);
+        assertEquals(1, b.getRefCount());
+        b.close();
+    }
+
+    @Test
+    public void testLeakDetection() throws Exception {
+        FramePool pool = createPool(2);
+        pool.setLeakDetection(true);
+        FrameBuffer leaked = pool.acquire();
+        pool.acquire().close();
+
+        assertEquals(1, pool.getOutstandingLeases().size());
+
+        pool.close();
+        assertEquals(1, frees.size());
+
+        // Returned after close: freed straight away.
+        leaked.close();
+        assertEquals(2, frees.size());
+        assertTrue(pool.getOutstandingLeases().isEmpty());
+    }
+
+    @Test
+    public void testClosedPoolRejects() {
+        FramePool pool = createPool(1);
+        pool.close();
+        assertThrows(IllegalStateException.class, pool::acquire);
+    }
+}
@@ -0,0 +1,129 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.headless.ConsoleProgress;
+import com.igrium.replaylab.render.headless.HeadlessJob;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeadlessJobTest {
+
+    private static final Path GAME_DIR = Path.of("game");
+
+    @Test
+    public void testNoJob() throws IOException {
+        assertNull(HeadlessJob.parseArgs(new String[]{"--username", "Dev", "--gameDir", "run"}, GAME_DIR));
+        assertNull(HeadlessJob.parseArgs(new String[0], GAME_DIR));
+    }
+
+    @Test
+    public void testArgs() throws IOException {
+        HeadlessJob job = HeadlessJob.parseArgs(new String[]{
+                "--username", "Dev",
+                "--replaylab-replay", "replays/match.mcpr",
+                "--replaylab-scene", "intro",
+                "--accessToken", "0",
+                "--replaylab-output", "renders/intro.mp4",
+                "--replaylab-resume"
+        }, GAME_DIR);
+
+        assertNotNull(job);
+        assertEquals(GAME_DIR.resolve("replays/match.mcpr"), job.replay());
+        assertEquals("intro", job.scene());
+        assertEquals(GAME_DIR.resolve("renders/intro.mp4"), job.outPath());
+        assertNull(job.settings());
+        assertTrue(job.resume());
+
+        HeadlessJob minimal = HeadlessJob.parseArgs(new String[]{
+                "--replaylab-scene", "intro", "--replaylab-replay", "/abs/match.mcpr"}, GAME_DIR);
+        assertNotNull(minimal);
+        assertEquals(Path.of("/abs/match.mcpr"), minimal.replay());
+        assertNull(minimal.outPath());
+        assertFalse(minimal.resume());
+    }
+
+    @Test
+    public void testBadArgs() {
+        assertThrows(IllegalArgumentException.class, () -> HeadlessJob.parseArgs(
+                new String[]{"--replaylab-replay", "match.mcpr"}, GAME_DIR));
+        assertThrows(IllegalArgumentException.class, () -> HeadlessJob.parseArgs(
+                new String[]{"--replaylab-scene", "intro"}, GAME_DIR));
+        assertThrows(IllegalArgumentException.class, () -> HeadlessJob.parseArgs(
+                new String[]{"--replaylab-replay", "--replaylab-scene", "intro"}, GAME_DIR));
+        assertThrows(IllegalArgumentException.class, () -> HeadlessJob.parseArgs(
+                new String[]{"--replaylab-replay", "match.mcpr", "--replaylab-scene"}, GAME_DIR));
+        assertThrows(IllegalArgumentException.class, () -> HeadlessJob.parseArgs(
+                new String[]{"--replaylab-replay", "match.mcpr", "--replaylab-scene", "intro", "--replaylab-fast"},
+                GAME_DIR));
+        assertThrows(IllegalArgumentException.class, () -> HeadlessJob.parseArgs(
+                new String[]{"--replaylab-job", "job.json", "--replaylab-scene", "intro"}, GAME_DIR));
+    }
+
+    @Test
+    public void testJobFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("jobs/intro.json");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, """
+                {
+                  "replay": "../replays/match.mcpr",
+                  "scene": "intro",
+                  "output": "/renders/intro.mp4",
+                  "resume": true,
+                  "settings": {"outPath": "ignored.mp4", "motionBlurSamples": 8}
+                }
+                """);
+
+        HeadlessJob job = HeadlessJob.parseArgs(new String[]{"--replaylab-job", file.toString()}, GAME_DIR);
+        assertNotNull(job);
+        // Relative to the job file, not the game.
+        assertEquals(file.getParent().resolve("../replays/match.mcpr"), job.replay());
+        assertEquals("intro", job.scene());
+        assertEquals(Path.of("/renders/intro.mp4"), job.outPath());
+        assertTrue(job.resume());
+        assertNotNull(job.settings());
+        assertEquals(8, job.settings().get("motionBlurSamples").getAsInt());
+
+        Files.writeString(file, "{\"replay\": \"match.mcpr\"}");
+        assertThrows(IOException.class, () -> HeadlessJob.read(file));
+        Files.writeString(file, "{\"replay\": \"match.mcpr\", \"scene\": {}}");
+        assertThrows(IOException.class, () -> HeadlessJob.read(file));
+        Files.writeString(file, "[]");
+        assertThrows(IOException.class, () -> HeadlessJob.read(file));
+        assertThrows(IOException.class, () -> HeadlessJob.read(dir.resolve("missing.json")));
+    }
+
+    @Test
+    public void testFormatProgress() {
+        assertEquals("Frame 0/2400 (0.0%)", ConsoleProgress.format(0, 0, 2400, 0));
+        assertEquals("Frame 240/2400 (10.0%), 24.0 fps, 1:30 left", ConsoleProgress.format(240, 0, 2400, 10_000));
+        // Resumed halfway through: only what this run rendered counts towards the speed.
+        assertEquals("Frame 1300/2400 (54.2%), 10.0 fps, 1:50 left", ConsoleProgress.format(1300, 1200, 2400, 10_000));
+
+        assertEquals("0:00", ConsoleProgress.formatDuration(999));
+        assertEquals("59:59", ConsoleProgress.formatDuration(3_599_000));
+        assertEquals("1:00:05", ConsoleProgress.formatDuration(3_605_000));
+    }
+
+    @Test
+    public void testProgressInterval() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ConsoleProgress progress = new ConsoleProgress(new PrintStream(bytes, true, StandardCharsets.UTF_8), 100);
+
+        assertTrue(progress.update(10, 1_000));
+        assertFalse(progress.update(20, 1_000 + ConsoleProgress.INTERVAL_MS - 1));
+        assertTrue(progress.update(30, 1_000 + ConsoleProgress.INTERVAL_MS));
+
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(2, lines.length);
+        assertEquals(ConsoleProgress.PREFIX + "Frame 10/100 (10.0%)", lines[0]);
+        assertTrue(lines[1].startsWith(ConsoleProgress.PREFIX + "Frame 30/100 (30.0%), 4.0 fps"), lines[1]);
+    }
+}
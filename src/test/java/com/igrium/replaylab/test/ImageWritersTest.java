@@ -0,0 +1,278 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.image.PlanarWriter;
+import com.igrium.replaylab.render.image.PngFilter;
+import com.igrium.replaylab.render.image.PngWriter;
+import com.igrium.replaylab.render.image.QoiWriter;
+import com.igrium.replaylab.render.image.TgaWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageWritersTest {
+
+    /**
+     * Gradients with noise, plus a flat band and some translucent pixels so every QOI op and both TGA packet types
+     * come up.
+     */
+    private static ByteBuffer testImage(int width, int height, long seed) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int px;
+                if (y % 7 == 3) {
+                    px = 0xFF336699;
+                } else {
+                    int r = (x * 255 / Math.max(width - 1, 1) + random.nextInt(8)) & 0xFF;
+                    int g = (y * 255 / Math.max(height - 1, 1) + random.nextInt(8)) & 0xFF;
+                    int b = random.nextInt(16) == 0 ? random.nextInt(256) : ((x + y) * 3) & 0xFF;
+                    int a = x % 11 == 0 ? random.nextInt(256) : 0xFF;
+                    px = r | g << 8 | b << 16 | a << 24;
+                }
+                buffer.putInt((x + y * width) * 4, px);
+            }
+        }
+        return buffer;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] array = new byte[buffer.remaining()];
+        buffer.duplicate().get(array);
+        return array;
+    }
+
+    private static int u8(byte[] data, int i) {
+        return data[i] & 0xFF;
+    }
+
+    /**
+     * Straight from the reference decoder in the spec.
+     */
+    private static int[] decodeQoi(byte[] data, int[] dimensions) {
+        assertEquals("qoif", new String(data, 0, 4));
+        int width = u8(data, 4) << 24 | u8(data, 5) << 16 | u8(data, 6) << 8 | u8(data, 7);
+        int height = u8(data, 8) << 24 | u8(data, 9) << 16 | u8(data, 10) << 8 | u8(data, 11);
+        dimensions[0] = width;
+        dimensions[1] = height;
+        dimensions[2] = data[12];
+
+        int[] index = new int[64];
+        int[] out = new int[width * height];
+        int r = 0, g = 0, b = 0, a = 255;
+        int p = 14;
+        int run = 0;
+        for (int i = 0; i < out.length; i++) {
+            if (run > 0) {
+                run--;
+            } else {
+                int b1 = u8(data, p++);
+                if (b1 == 0xFE) {
+                    r = u8(data, p++);
+                    g = u8(data, p++);
+                    b = u8(data, p++);
+                } else if (b1 == 0xFF) {
+                    r = u8(data, p++);
+                    g = u8(data, p++);
+                    b = u8(data, p++);
+                    a = u8(data, p++);
+                } else if ((b1 & 0xC0) == 0x00) {
+                    int px = index[b1];
+                    r = px & 0xFF;
+                    g = (px >>> 8) & 0xFF;
+                    b = (px >>> 16) & 0xFF;
+                    a = px >>> 24;
+                } else if ((b1 & 0xC0) == 0x40) {
+                    r = (r + ((b1 >> 4) & 3) - 2) & 0xFF;
+                    g = (g + ((b1 >> 2) & 3) - 2) & 0xFF;
+                    b = (b + (b1 & 3) - 2) & 0xFF;
+                } else if ((b1 & 0xC0) == 0x80) {
+                    int b2 = u8(data, p++);
+                    int vg = (b1 & 0x3F) - 32;
+                    r = (r + vg - 8 + ((b2 >> 4) & 0x0F)) & 0xFF;
+                    g = (g + vg) & 0xFF;
+                    b = (b + vg - 8 + (b2 & 0x0F)) & 0xFF;
+                } else {
+                    run = b1 & 0x3F;
+                }
+                index[(r * 3 + g * 5 + b * 7 + a * 11) % 64] = r | g << 8 | b << 16 | a << 24;
+            }
+            out[i] = r | g << 8 | b << 16 | a << 24;
+        }
+
+        for (int i = 0; i < 7; i++) {
+            assertEquals(0, data[p + i], "End marker");
+        }
+        assertEquals(1, data[p + 7], "End marker");
+        assertEquals(data.length, p + 8, "Trailing data");
+        return out;
+    }
+
+    private static int[] decodeTga(byte[] data, int[] dimensions) {
+        int type = data[2];
+        int width = u8(data, 12) | u8(data, 13) << 8;
+        int height = u8(data, 14) | u8(data, 15) << 8;
+        assertEquals(24, data[16]);
+        assertEquals(0x20, data[17], "Expected top-left origin");
+        dimensions[0] = width;
+        dimensions[1] = height;
+        dimensions[2] = type;
+
+        int[] out = new int[width * height];
+        int p = 18;
+        int i = 0;
+        while (i < out.length) {
+            if (type == 2) {
+                out[i++] = u8(data, p + 2) | u8(data, p + 1) << 8 | u8(data, p) << 16;
+                p += 3;
+                continue;
+            }
+            int header = u8(data, p++);
+            int count = (header & 0x7F) + 1;
+            assertTrue(i % width + count <= width, "Packet crosses a row");
+            if ((header & 0x80) != 0) {
+                int px = u8(data, p + 2) | u8(data, p + 1) << 8 | u8(data, p) << 16;
+                p += 3;
+                for (int j = 0; j < count; j++) out[i++] = px;
+            } else {
+                for (int j = 0; j < count; j++) {
+                    out[i++] = u8(data, p + 2) | u8(data, p + 1) << 8 | u8(data, p) << 16;
+                    p += 3;
+                }
+            }
+        }
+        assertEquals("TRUEVISION-XFILE.\0", new String(data, p + 8, data.length - p - 8));
+        return out;
+    }
+
+    @Test
+    public void testQoiRoundTrip() {
+        int width = 53;
+        int height = 31;
+        ByteBuffer image = testImage(width, height, 1);
+        for (boolean alpha : new boolean[]{true, false}) {
+            int[] dimensions = new int[3];
+            int[] decoded = decodeQoi(toArray(QoiWriter.encode(image, width, height, alpha)), dimensions);
+            assertEquals(width, dimensions[0]);
+            assertEquals(height, dimensions[1]);
+            assertEquals(alpha ? 4 : 3, dimensions[2]);
+
+            int mask = alpha ? 0xFFFFFFFF : 0x00FFFFFF;
+            for (int i = 0; i < decoded.length; i++) {
+                int expected = image.getInt(i * 4) & mask | (alpha ? 0 : 0xFF000000);
+                assertEquals(expected, decoded[i], "Pixel " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testQoiLongRuns() {
+        // A single color for longer than a run op can hold.
+        int width = 200;
+        int height = 3;
+        ByteBuffer image = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < width * height; i++) {
+            image.putInt(i * 4, 0xFF102030);
+        }
+        int[] decoded = decodeQoi(toArray(QoiWriter.encode(image, width, height, true)), new int[3]);
+        for (int px : decoded) {
+            assertEquals(0xFF102030, px);
+        }
+    }
+
+    @Test
+    public void testTgaRoundTrip() {
+        int width = 300;
+        int height = 17;
+        ByteBuffer image = testImage(width, height, 2);
+        for (boolean rle : new boolean[]{false, true}) {
+            int[] dimensions = new int[3];
+            int[] decoded = decodeTga(toArray(TgaWriter.encode(image, width, height, rle)), dimensions);
+            assertEquals(width, dimensions[0]);
+            assertEquals(height, dimensions[1]);
+            assertEquals(rle ? 10 : 2, dimensions[2]);
+            for (int i = 0; i < decoded.length; i++) {
+                assertEquals(image.getInt(i * 4) & 0xFFFFFF, decoded[i], "Pixel " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testTgaRleShrinksFlatImages() {
+        int width = 640;
+        int height = 8;
+        ByteBuffer image = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < width * height; i++) {
+            image.putInt(i * 4, i < width * 4 ? 0xFF000000 : 0xFFFFFFFF);
+        }
+        ByteBuffer rle = TgaWriter.encode(image, width, height, true);
+        // Five packets of up to 128 per row.
+        assertTrue(rle.remaining() < 18 + 26 + height * 5 * 4 + 1, "RLE output: " + rle.remaining());
+        int[] decoded = decodeTga(toArray(rle), new int[3]);
+        for (int i = 0; i < decoded.length; i++) {
+            assertEquals(image.getInt(i * 4) & 0xFFFFFF, decoded[i]);
+        }
+    }
+
+    @Test
+    public void testPlanes() {
+        int width = 9;
+        int height = 5;
+        ByteBuffer image = testImage(width, height, 3);
+        byte[] planes = PlanarWriter.toPlanes(image, width, height);
+        int planeSize = width * height;
+        assertEquals(planeSize * 3, planes.length);
+        for (int i = 0; i < planeSize; i++) {
+            int px = image.getInt(i * 4);
+            assertEquals((byte) px, planes[i]);
+            assertEquals((byte) (px >>> 8), planes[planeSize + i]);
+            assertEquals((byte) (px >>> 16), planes[planeSize * 2 + i]);
+        }
+    }
+
+    /**
+     * Single-threaded throughput of every image sequence format on a 4K frame, in the same units. Run with
+     * <code>-Preplaylab.bench=true</code>.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "replaylab.bench", matches = "true")
+    public void benchmark() throws Exception {
+        int width = 3840;
+        int height = 2160;
+        ByteBuffer image = testImage(width, height, 4);
+        OutputStream sink = OutputStream.nullOutputStream();
+        double megapixels = width * height / 1e6;
+
+        PngWriter png1 = new PngWriter(1, PngFilter.PAETH, 8, null);
+        PngWriter png6 = new PngWriter(6, PngFilter.ADAPTIVE, 8, null);
+        report("PNG (level 1, paeth)", megapixels, () -> png1.write(image, width, height, sink));
+        report("PNG (level 6, adaptive)", megapixels, () -> png6.write(image, width, height, sink));
+        report("QOI", megapixels, () -> QoiWriter.encode(image, width, height, false));
+        report("TGA", megapixels, () -> TgaWriter.encode(image, width, height, false));
+        report("TGA (RLE)", megapixels, () -> TgaWriter.encode(image, width, height, true));
+        report("Raw planar", megapixels, () -> PlanarWriter.toPlanes(image, width, height));
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private static void report(String name, double megapixels, Task task) throws Exception {
+        for (int i = 0; i < 2; i++) {
+            task.run();
+        }
+        int iterations = 5;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+        double ms = (System.nanoTime() - start) / 1e6 / iterations;
+        System.out.printf("4K %-24s %7.1f ms  %6.1f MP/s%n", name, ms, megapixels / ms * 1000);
+    }
+}
@@ -0,0 +1,209 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.anim.ChannelUtils;
+import com.igrium.replaylab.anim.KeyChannel;
+import com.igrium.replaylab.anim.Keyframe;
+import com.igrium.replaylab.anim.Keyframe.HandleType;
+import com.igrium.replaylab.render.incremental.FrameHashes;
+import com.igrium.replaylab.render.incremental.FrameStateHasher;
+import com.igrium.replaylab.render.incremental.IncrementalPlan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalRenderTest {
+
+    private static final float FPS = 30;
+    private static final int TOTAL_FRAMES = 300;
+    private static final int KEY_SPACING = 1000;
+    private static final String[] CAMERA_CHANNELS = {"x", "y", "z", "pitch", "yaw", "roll", "fov"};
+
+    /**
+     * A camera with a keyframe on every channel each second, at random values.
+     */
+    private static Map<String, Map<String, KeyChannel>> randomScene(long seed) {
+        Random random = new Random(seed);
+        Map<String, KeyChannel> camera = new HashMap<>();
+        for (String name : CAMERA_CHANNELS) {
+            KeyChannel channel = new KeyChannel();
+            for (int time = 0; time <= TOTAL_FRAMES * 1000 / FPS; time += KEY_SPACING) {
+                Keyframe key = new Keyframe(time, random.nextDouble() * 100);
+                // Auto handles smooth across the whole curve; vector ones only look at the neighbouring keys.
+                key.setHandleType(HandleType.VECTOR);
+                channel.getKeyframes().add(key);
+            }
+            ChannelUtils.computeHandles(channel, null);
+            camera.put(name, channel);
+        }
+        // Empty channels shouldn't count for anything.
+        camera.put("unused", new KeyChannel());
+
+        Map<String, Map<String, KeyChannel>> scene = new HashMap<>();
+        scene.put("camera", camera);
+        return scene;
+    }
+
+    private static long[] hash(Map<String, Map<String, KeyChannel>> scene, long baseHash, IntUnaryOperator replayTime) {
+        return new FrameStateHasher(baseHash, scene, replayTime).hashFrames(TOTAL_FRAMES, FPS);
+    }
+
+    private static long[] hash(Map<String, Map<String, KeyChannel>> scene) {
+        return hash(scene, 42, t -> t);
+    }
+
+    private static int frameAt(int sceneTime) {
+        return (int) Math.ceil(sceneTime * FPS / 1000);
+    }
+
+    @Test
+    public void testSameSceneHashesTheSame() {
+        long[] first = hash(randomScene(1));
+        assertArrayEquals(first, hash(randomScene(1)));
+        for (long hash : first) {
+            assertNotEquals(FrameStateHasher.UNKNOWN, hash);
+        }
+
+        IncrementalPlan plan = IncrementalPlan.create(first, hash(randomScene(1)), 10, i -> true);
+        assertEquals(0, plan.getRenderedFrames());
+        assertEquals(TOTAL_FRAMES, plan.nextRendered(0));
+    }
+
+    @Test
+    public void testEditedKeyframeOnlyRendersItsNeighbourhood() {
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            var scene = randomScene(seed);
+            long[] before = hash(scene);
+
+            // Moving a key bends the curve out to the keys either side of it, and no further.
+            int keyIdx = 2 + random.nextInt(5);
+            String channelName = CAMERA_CHANNELS[random.nextInt(CAMERA_CHANNELS.length)];
+            KeyChannel channel = scene.get("camera").get(channelName);
+            channel.getKeyframes().get(keyIdx).setValue(-50);
+            ChannelUtils.computeHandles(channel, null);
+
+            int margin = random.nextInt(5);
+            IncrementalPlan plan = IncrementalPlan.create(before, hash(scene), margin, i -> true);
+
+            int changeStart = frameAt((keyIdx - 1) * KEY_SPACING);
+            int changeEnd = frameAt((keyIdx + 1) * KEY_SPACING);
+            assertTrue(plan.getRenderedFrames() > 0, "Nothing was rendered");
+            for (int i = 0; i < TOTAL_FRAMES; i++) {
+                if (i < changeStart - margin || i > changeEnd + margin) {
+                    assertFalse(plan.needsRender(i), "Frame " + i + " is nowhere near the edit");
+                }
+            }
+            assertTrue(plan.needsRender(frameAt(keyIdx * KEY_SPACING)), "The edited key's own frame wasn't rendered");
+        }
+    }
+
+    @Test
+    public void testMarginExpandsChanges() {
+        long[] previous = hash(randomScene(2));
+        long[] hashes = previous.clone();
+        hashes[100] = 1234;
+        hashes[3] = 5678;
+
+        IncrementalPlan plan = IncrementalPlan.create(previous, hashes, 5, i -> true);
+        assertEquals(11 + 9, plan.getRenderedFrames());
+        assertFalse(plan.needsRender(94));
+        assertTrue(plan.needsRender(95));
+        assertTrue(plan.needsRender(105));
+        assertFalse(plan.needsRender(106));
+        assertTrue(plan.needsRender(0));
+        assertTrue(plan.needsRender(8));
+        assertFalse(plan.needsRender(9));
+
+        assertEquals(0, plan.nextRendered(0));
+        assertEquals(95, plan.nextRendered(9));
+        assertEquals(TOTAL_FRAMES, plan.nextRendered(106));
+        assertEquals(2, plan.getRenderedRanges().size());
+    }
+
+    @Test
+    public void testMissingAndUnknownFramesRendered() {
+        long[] hashes = hash(randomScene(3));
+        long[] previous = hashes.clone();
+        previous[50] = FrameStateHasher.UNKNOWN;
+
+        IncrementalPlan plan = IncrementalPlan.create(previous, hashes, 0, i -> i != 200);
+        assertEquals(2, plan.getRenderedFrames());
+        assertTrue(plan.needsRender(50));
+        assertTrue(plan.needsRender(200));
+    }
+
+    @Test
+    public void testLongerExportRendersNewFrames() {
+        long[] hashes = hash(randomScene(4));
+        long[] previous = new long[200];
+        System.arraycopy(hashes, 0, previous, 0, previous.length);
+
+        IncrementalPlan plan = IncrementalPlan.create(previous, hashes, 0, i -> true);
+        assertEquals(TOTAL_FRAMES - 200, plan.getRenderedFrames());
+        assertEquals(200, plan.nextRendered(0));
+
+        assertEquals(TOTAL_FRAMES, IncrementalPlan.create(null, hashes, 0, i -> true).getRenderedFrames());
+    }
+
+    @Test
+    public void testStaticChangeRendersEverything() {
+        var scene = randomScene(5);
+        IncrementalPlan plan = IncrementalPlan.create(hash(scene, 1, t -> t), hash(scene, 2, t -> t), 0, i -> true);
+        assertEquals(TOTAL_FRAMES, plan.getRenderedFrames());
+    }
+
+    @Test
+    public void testReplayTimeChangeDetected() {
+        var scene = randomScene(6);
+        long[] before = hash(scene, 1, t -> t);
+        // Slowed down from 5 seconds in.
+        long[] after = hash(scene, 1, t -> t < 5000 ? t : 5000 + (t - 5000) / 2);
+
+        IncrementalPlan plan = IncrementalPlan.create(before, after, 0, i -> true);
+        assertEquals(frameAt(5000) + 1, plan.nextRendered(0), "Frame at 5s itself shows the same replay time");
+        assertEquals(TOTAL_FRAMES - frameAt(5000) - 1, plan.getRenderedFrames());
+    }
+
+    @Test
+    public void testUnwrittenFramesRecordedAsUnknown() {
+        long[] previous = hash(randomScene(7));
+        long[] hashes = previous.clone();
+        hashes[10] = 1;
+        hashes[20] = 2;
+        IncrementalPlan plan = IncrementalPlan.create(previous, hashes, 0, i -> true);
+
+        // Stopped after writing frame 10 but before 20.
+        long[] recorded = plan.getHashes(15);
+        assertEquals(1, recorded[10]);
+        assertEquals(FrameStateHasher.UNKNOWN, recorded[20]);
+        assertEquals(hashes[30], recorded[30]);
+
+        assertArrayEquals(hashes, plan.getHashes(TOTAL_FRAMES));
+    }
+
+    @Test
+    public void testHashFileRoundTrip(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve(FrameHashes.FILE_NAME);
+        assertNull(FrameHashes.read(file));
+
+        long[] hashes = hash(randomScene(8));
+        FrameHashes.write(file, hashes);
+        assertArrayEquals(hashes, FrameHashes.read(file));
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertNull(FrameHashes.read(file), "Truncated file should be ignored");
+
+        Files.writeString(file, "not a hash file");
+        assertNull(FrameHashes.read(file));
+    }
+}
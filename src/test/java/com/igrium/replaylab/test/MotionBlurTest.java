@@ -0,0 +1,303 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.frame.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MotionBlurTest {
+
+    private static ByteBuffer randomImage(int width, int height, long seed) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+        Random random = new Random(seed);
+        for (int i = 0; i < width * height; i++) {
+            buffer.putInt(i * 4, random.nextInt());
+        }
+        return buffer;
+    }
+
+    /**
+     * Straightforward double-precision weighted average to check the accumulator against.
+     */
+    private static int[] referenceBlend(List<ByteBuffer> frames, float[] weights, int pixels) {
+        int[] out = new int[pixels];
+        double total = 0;
+        for (float w : weights) total += w;
+        for (int i = 0; i < pixels; i++) {
+            int result = 0xFF000000;
+            for (int c = 0; c < 3; c++) {
+                double sum = 0;
+                for (int f = 0; f < frames.size(); f++) {
+                    sum += ((frames.get(f).getInt(i * 4) >>> (c * 8)) & 0xFF) * (double) weights[f];
+                }
+                result |= (int) Math.round(sum / total) << (c * 8);
+            }
+            out[i] = result;
+        }
+        return out;
+    }
+
+    private static void assertBlend(int[] expected, ByteBuffer actual) {
+        for (int i = 0; i < expected.length; i++) {
+            int e = expected[i];
+            int a = actual.getInt(i * 4);
+            assertEquals(0xFF, a >>> 24, "Alpha at " + i);
+            for (int c = 0; c < 3; c++) {
+                // Float sums can land a hair either side of a .5 that double rounding gets right.
+                int diff = Math.abs(((e >>> (c * 8)) & 0xFF) - ((a >>> (c * 8)) & 0xFF));
+                assertTrue(diff <= 1, "Channel %d at %d: expected %08x, got %08x".formatted(c, i, e, a));
+            }
+        }
+    }
+
+    @Test
+    public void testAccumulatorMatchesReference() {
+        int width = 37;
+        int height = 70;
+        for (int parallelism : new int[]{1, 4}) {
+            try (SubframeAccumulator accumulator = new SubframeAccumulator(width, height, parallelism)) {
+                for (var curve : ShutterCurve.values()) {
+                    float[] weights = new MotionBlur(5, 180, curve).weights();
+                    List<ByteBuffer> frames = new ArrayList<>();
+                    for (int f = 0; f < weights.length; f++) {
+                        frames.add(randomImage(width, height, f * 31L + curve.ordinal()));
+                        accumulator.add(frames.get(f), weights[f]);
+                    }
+                    ByteBuffer out = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+                    accumulator.resolve(out);
+                    assertBlend(referenceBlend(frames, weights, width * height), out);
+                    assertEquals(0f, accumulator.getTotalWeight());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIdenticalSubframesResolveExactly() {
+        int width = 16;
+        int height = 40;
+        ByteBuffer image = randomImage(width, height, 7);
+        try (SubframeAccumulator accumulator = new SubframeAccumulator(width, height, 2)) {
+            float[] weights = new MotionBlur(7, 360, ShutterCurve.TRIANGLE).weights();
+            for (float weight : weights) {
+                accumulator.add(image, weight);
+            }
+            ByteBuffer out = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+            accumulator.resolve(out);
+            for (int i = 0; i < width * height; i++) {
+                assertEquals(image.getInt(i * 4) | 0xFF000000, out.getInt(i * 4), "Pixel " + i);
+            }
+        }
+    }
+
+    @Test
+    public void testResolveStartsOver() {
+        int width = 8;
+        int height = 8;
+        try (SubframeAccumulator accumulator = new SubframeAccumulator(width, height, 1)) {
+            assertThrows(IllegalStateException.class, () -> accumulator.resolve(ByteBuffer.allocate(width * height * 4)));
+
+            accumulator.add(randomImage(width, height, 1), 1);
+            accumulator.resolve(ByteBuffer.allocate(width * height * 4));
+
+            // Nothing from the last frame should leak into the next.
+            ByteBuffer second = randomImage(width, height, 2);
+            accumulator.add(second, 3);
+            ByteBuffer out = ByteBuffer.allocate(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+            accumulator.resolve(out);
+            for (int i = 0; i < width * height; i++) {
+                assertEquals(second.getInt(i * 4) | 0xFF000000, out.getInt(i * 4));
+            }
+        }
+    }
+
+    @Test
+    public void testSampleTimes() {
+        float fps = 30;
+        for (var samples : new int[]{1, 2, 4, 16}) {
+            for (float angle : new float[]{45, 180, 360}) {
+                MotionBlur blur = new MotionBlur(samples, angle, ShutterCurve.BOX);
+                int prev = -1;
+                for (int frame = 0; frame < 60; frame++) {
+                    int frameStart = (int) (frame * 1000 / fps);
+                    int nextStart = (int) ((frame + 1) * 1000 / fps);
+                    for (int sample = 0; sample < samples; sample++) {
+                        int time = blur.sampleTime(frame, sample, fps);
+                        assertTrue(time >= prev, "Time went backwards");
+                        assertTrue(time >= frameStart && time < nextStart, "Sub-frame outside its frame");
+                        prev = time;
+                    }
+                }
+            }
+        }
+
+        // Without blur, frames are rendered at exactly the same times as before.
+        MotionBlur off = new MotionBlur(1, 180, ShutterCurve.BOX);
+        for (int frame = 0; frame < 100; frame++) {
+            assertEquals((int) (frame * 1000 / 24f), off.sampleTime(frame, 0, 24));
+        }
+
+        // 180 degrees at 10 fps: the shutter is open for 50ms, sampled in the middle of each quarter.
+        MotionBlur half = new MotionBlur(4, 180, ShutterCurve.BOX);
+        assertArrayEquals(new int[]{106, 118, 131, 143},
+                new int[]{half.sampleTime(1, 0, 10), half.sampleTime(1, 1, 10),
+                        half.sampleTime(1, 2, 10), half.sampleTime(1, 3, 10)});
+    }
+
+    @Test
+    public void testTriangleWeightsSymmetric() {
+        float[] weights = new MotionBlur(6, 180, ShutterCurve.TRIANGLE).weights();
+        for (int i = 0; i < weights.length; i++) {
+            assertTrue(weights[i] > 0);
+            assertEquals(weights[i], weights[weights.length - 1 - i], 1e-6);
+        }
+        assertTrue(weights[2] > weights[0]);
+        assertThrows(IllegalArgumentException.class, () -> new MotionBlur(0, 180, ShutterCurve.BOX));
+        assertThrows(IllegalArgumentException.class, () -> new MotionBlur(4, 0, ShutterCurve.BOX));
+    }
+
+    private static FramePool createPool(int width, int height, int capacity) {
+        return new FramePool(width, height, capacity, ByteBuffer::allocateDirect, b -> {});
+    }
+
+    private static FrameBuffer copyInto(FramePool pool, ByteBuffer image) throws InterruptedException {
+        FrameBuffer frame = pool.acquire();
+        frame.pixels().put(image.duplicate().clear());
+        return frame;
+    }
+
+    @Test
+    public void testStageBlendsFramesInOrder() throws Exception {
+        int width = 12;
+        int height = 20;
+        int samples = 3;
+        float[] weights = new MotionBlur(samples, 270, ShutterCurve.TRIANGLE).weights();
+
+        FramePool subframes = createPool(width, height, 4);
+        FramePool frames = createPool(width, height, 2);
+        List<Integer> order = new ArrayList<>();
+        List<int[]> results = new ArrayList<>();
+
+        MotionBlurStage stage = new MotionBlurStage(new SubframeAccumulator(width, height, 2), weights, idx -> {
+            try {
+                return frames.acquire();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }, (frame, idx) -> {
+            int[] pixels = new int[width * height];
+            frame.pixels().asIntBuffer().get(pixels);
+            order.add(idx);
+            results.add(pixels);
+            frame.close();
+        }, 2);
+
+        List<int[]> expected = new ArrayList<>();
+        // Frame 3 is skipped, like an incremental export would.
+        int[] frameIndices = {0, 1, 2, 4, 5};
+        for (int frameIdx : frameIndices) {
+            List<ByteBuffer> images = new ArrayList<>();
+            for (int s = 0; s < samples; s++) {
+                ByteBuffer image = randomImage(width, height, frameIdx * 10L + s);
+                images.add(image);
+                stage.submit(copyInto(subframes, image), frameIdx, s);
+            }
+            expected.add(referenceBlend(images, weights, width * height));
+        }
+        stage.finish(5, TimeUnit.SECONDS);
+        stage.close();
+
+        assertEquals(List.of(0, 1, 2, 4, 5), order);
+        for (int i = 0; i < expected.size(); i++) {
+            ByteBuffer actual = ByteBuffer.allocate(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+            actual.asIntBuffer().put(results.get(i));
+            assertBlend(expected.get(i), actual);
+        }
+        assertEquals(0, subframes.getLeased());
+        assertEquals(0, frames.getLeased());
+    }
+
+    @Test
+    public void testStageRejectsOutOfOrder() throws Exception {
+        int width = 4;
+        int height = 4;
+        FramePool pool = createPool(width, height, 8);
+        MotionBlurStage stage = new MotionBlurStage(new SubframeAccumulator(width, height, 1), new float[]{1, 1},
+                idx -> {
+                    throw new AssertionError("Nothing should finish");
+                }, (frame, idx) -> frame.close(), 2);
+
+        stage.submit(pool.acquire(), 3, 0);
+        assertThrows(IllegalArgumentException.class, () -> stage.submit(pool.acquire(), 4, 0));
+        assertThrows(IllegalArgumentException.class, () -> stage.submit(pool.acquire(), 3, 0));
+        stage.close();
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testStageFailureSurfaces() throws Exception {
+        int width = 4;
+        int height = 4;
+        FramePool subframes = createPool(width, height, 8);
+        FramePool frames = createPool(width, height, 8);
+        MotionBlurStage stage = new MotionBlurStage(new SubframeAccumulator(width, height, 1), new float[]{1},
+                idx -> {
+                    try {
+                        return frames.acquire();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }, (frame, idx) -> {
+                    frame.close();
+                    throw new IllegalStateException("Encoder died");
+                }, 2);
+
+        stage.submit(subframes.acquire(), 0, 0);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> stage.finish(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertNotNull(stage.getFailureReason());
+        assertThrows(IllegalStateException.class, () -> stage.submit(subframes.acquire(), 1, 0));
+        stage.close();
+        assertEquals(0, subframes.getLeased());
+        assertEquals(0, frames.getLeased());
+    }
+
+    /**
+     * How long adding a 4K sub-frame takes, which is what has to stay under the cost of capturing one. Run with
+     * <code>-Preplaylab.bench=true</code>.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "replaylab.bench", matches = "true")
+    public void benchmark() {
+        int width = 3840;
+        int height = 2160;
+        ByteBuffer image = randomImage(width, height, 1);
+        ByteBuffer out = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int parallelism : new int[]{1, threads}) {
+            try (SubframeAccumulator accumulator = new SubframeAccumulator(width, height, parallelism)) {
+                int samples = 8;
+                for (int warmup = 0; warmup < 3; warmup++) {
+                    for (int s = 0; s < samples; s++) accumulator.add(image, 1);
+                    accumulator.resolve(out);
+                }
+                long start = System.nanoTime();
+                for (int s = 0; s < samples; s++) accumulator.add(image, 1);
+                long added = System.nanoTime();
+                accumulator.resolve(out);
+                long resolved = System.nanoTime();
+                System.out.printf("4K motion blur, %d threads: add %.1f ms/sub-frame, resolve %.1f ms%n",
+                        parallelism, (added - start) / 1e6 / samples, (resolved - added) / 1e6);
+            }
+        }
+    }
+}
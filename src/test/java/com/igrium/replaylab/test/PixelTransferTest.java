@@ -0,0 +1,116 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.frame.PixelTransfer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PixelTransferTest {
+
+    private static ByteBuffer randomFrame(int width, int height, long seed) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder());
+        Random random = new Random(seed);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) random.nextInt());
+        }
+        return buffer;
+    }
+
+    /**
+     * The per-pixel loop the export used before, minus the NativeImage.
+     */
+    private static void referenceCopy(ByteBuffer src, ByteBuffer dst, int width, int height) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int abgr = src.getInt((x + y * width) * 4);
+                dst.putInt((x + (height - y - 1) * width) * 4, abgr | 0xFF000000);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesReference() {
+        // Odd width so rows don't line up with the two-pixel alpha pass.
+        int width = 37;
+        int height = 23;
+        ByteBuffer src = randomFrame(width, height, 1);
+
+        ByteBuffer expected = ByteBuffer.allocateDirect(src.capacity()).order(ByteOrder.LITTLE_ENDIAN);
+        referenceCopy(src.duplicate().order(ByteOrder.LITTLE_ENDIAN), expected, width, height);
+
+        ByteBuffer actual = ByteBuffer.allocateDirect(src.capacity());
+        PixelTransfer.copyFlipOpaque(src, actual, width, height);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testFlipAndAlpha() {
+        // 1x2 frame: bottom row red, top row green, both transparent.
+        ByteBuffer src = ByteBuffer.allocateDirect(8);
+        src.put(0, new byte[]{(byte) 255, 0, 0, 0, 0, (byte) 255, 0, 0});
+        ByteBuffer dst = ByteBuffer.allocateDirect(8);
+        PixelTransfer.copyFlipOpaque(src, dst, 1, 2);
+
+        byte[] out = new byte[8];
+        dst.get(0, out);
+        assertArrayEquals(new byte[]{0, (byte) 255, 0, (byte) 255, (byte) 255, 0, 0, (byte) 255}, out);
+    }
+
+    @Test
+    public void testIgnoresBufferState() {
+        ByteBuffer src = randomFrame(4, 4, 2);
+        src.position(10);
+        ByteBuffer dst = ByteBuffer.allocateDirect(src.capacity()).order(ByteOrder.BIG_ENDIAN);
+        dst.position(5);
+        PixelTransfer.copyFlipOpaque(src, dst, 4, 4);
+
+        for (int i = 3; i < dst.capacity(); i += 4) {
+            assertEquals((byte) 0xFF, dst.get(i));
+        }
+        assertEquals(10, src.position());
+        assertEquals(5, dst.position());
+    }
+
+    @Test
+    public void testRejectsSmallBuffer() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PixelTransfer.copyFlipOpaque(ByteBuffer.allocateDirect(16), ByteBuffer.allocateDirect(8), 2, 2));
+    }
+
+    /**
+     * Compares the old per-pixel loop against {@link PixelTransfer} on a 4K frame. Run with
+     * <code>-Preplaylab.bench=true</code>.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "replaylab.bench", matches = "true")
+    public void benchmark() {
+        int width = 3840;
+        int height = 2160;
+        ByteBuffer src = randomFrame(width, height, 3);
+        ByteBuffer dst = ByteBuffer.allocateDirect(src.capacity()).order(ByteOrder.nativeOrder());
+
+        double perPixel = time(() -> referenceCopy(src, dst, width, height));
+        double bulk = time(() -> PixelTransfer.copyFlipOpaque(src, dst, width, height));
+
+        System.out.printf("4K frame transfer: per-pixel %.2f ms, bulk %.2f ms (%.1fx)%n",
+                perPixel, bulk, perPixel / bulk);
+    }
+
+    private static double time(Runnable task) {
+        for (int i = 0; i < 20; i++) {
+            task.run();
+        }
+        int iterations = 50;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / iterations;
+    }
+}
@@ -0,0 +1,194 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.image.PngFilter;
+import com.igrium.replaylab.render.image.PngWriter;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PngWriterTest {
+
+    /**
+     * Something that compresses like a real frame: smooth gradients with a bit of noise.
+     */
+    private static ByteBuffer testImage(int width, int height, long seed) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.LITTLE_ENDIAN);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / Math.max(width - 1, 1) + random.nextInt(8)) & 0xFF;
+                int g = (y * 255 / Math.max(height - 1, 1) + random.nextInt(8)) & 0xFF;
+                int b = ((x + y) * 3 + random.nextInt(4)) & 0xFF;
+                buffer.putInt((x + y * width) * 4, r | g << 8 | b << 16 | 0xFF << 24);
+            }
+        }
+        return buffer;
+    }
+
+    private static byte[] write(PngWriter writer, ByteBuffer image, int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(image, width, height, out);
+        return out.toByteArray();
+    }
+
+    private static void assertDecodesTo(byte[] png, ByteBuffer expected, int width, int height, int bitDepth)
+            throws IOException {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+        assertNotNull(decoded, "PNG didn't decode");
+        assertEquals(width, decoded.getWidth());
+        assertEquals(height, decoded.getHeight());
+
+        Raster raster = decoded.getRaster();
+        assertEquals(3, raster.getNumBands());
+        int scale = bitDepth == 16 ? 257 : 1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int p = expected.getInt((x + y * width) * 4);
+                assertEquals((p & 0xFF) * scale, raster.getSample(x, y, 0), "R at " + x + ", " + y);
+                assertEquals(((p >>> 8) & 0xFF) * scale, raster.getSample(x, y, 1), "G at " + x + ", " + y);
+                assertEquals(((p >>> 16) & 0xFF) * scale, raster.getSample(x, y, 2), "B at " + x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    public void testEveryFilterDecodes() throws Exception {
+        int width = 37;
+        int height = 23;
+        ByteBuffer image = testImage(width, height, 1);
+        for (var filter : PngFilter.values()) {
+            for (int depth : new int[]{8, 16}) {
+                byte[] png = write(new PngWriter(6, filter, depth, null), image, width, height);
+                assertDecodesTo(png, image, width, height, depth);
+            }
+        }
+    }
+
+    @Test
+    public void testCompressionLevels() throws Exception {
+        int width = 64;
+        int height = 48;
+        ByteBuffer image = testImage(width, height, 2);
+        int stored = 0;
+        for (int level = 0; level <= 9; level++) {
+            byte[] png = write(new PngWriter(level, PngFilter.PAETH, 8, null), image, width, height);
+            assertDecodesTo(png, image, width, height, 8);
+            if (level == 0) stored = png.length;
+            else assertTrue(png.length < stored, "Level " + level + " didn't compress");
+        }
+    }
+
+    @Test
+    public void testParallelDecodes() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            int width = 50;
+            int height = 41;
+            ByteBuffer image = testImage(width, height, 3);
+            for (var filter : PngFilter.values()) {
+                for (int depth : new int[]{8, 16}) {
+                    // Tiny blocks, so there are plenty of them, including a short one at the end.
+                    byte[] png = write(new PngWriter(6, filter, depth, executor, 400), image, width, height);
+                    assertDecodesTo(png, image, width, height, depth);
+                }
+            }
+
+            // Stored blocks have to chain correctly as well.
+            byte[] stored = write(new PngWriter(0, PngFilter.NONE, 8, executor, 400), image, width, height);
+            assertDecodesTo(stored, image, width, height, 8);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelCompressesAboutAsWell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            int width = 512;
+            int height = 512;
+            ByteBuffer image = testImage(width, height, 4);
+            byte[] serial = write(new PngWriter(6, PngFilter.ADAPTIVE, 8, null), image, width, height);
+            byte[] parallel = write(new PngWriter(6, PngFilter.ADAPTIVE, 8, executor), image, width, height);
+            assertTrue(parallel.length < serial.length * 1.02,
+                    "Parallel: %d bytes, serial: %d bytes".formatted(parallel.length, serial.length));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Compares against stb_image_write, which is what <code>NativeImage.writeToFile</code> uses. Needs LWJGL's
+     * natives, so it's skipped if they can't be loaded. Run with <code>-Preplaylab.bench=true</code>.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "replaylab.bench", matches = "true")
+    public void benchmark() throws Exception {
+        int width = 3840;
+        int height = 2160;
+        ByteBuffer image = testImage(width, height, 5);
+        OutputStream sink = OutputStream.nullOutputStream();
+
+        double stb;
+        try {
+            stb = time(() -> {
+                if (!org.lwjgl.stb.STBImageWrite.stbi_write_png_to_func((ctx, data, size) -> {}, 0L,
+                        width, height, 4, image, width * 4)) {
+                    throw new IllegalStateException("stb_image_write failed");
+                }
+            });
+        } catch (LinkageError e) {
+            Assumptions.abort("LWJGL natives unavailable: " + e);
+            return;
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            System.out.printf("4K PNG: stb_image_write %.1f ms%n", stb);
+            for (int level : new int[]{1, 6}) {
+                for (var filter : new PngFilter[]{PngFilter.PAETH, PngFilter.ADAPTIVE}) {
+                    PngWriter serial = new PngWriter(level, filter, 8, null);
+                    PngWriter parallel = new PngWriter(level, filter, 8, executor);
+                    double serialMs = time(() -> serial.write(image, width, height, sink));
+                    double parallelMs = time(() -> parallel.write(image, width, height, sink));
+                    System.out.printf("  level %d, %s: serial %.1f ms, parallel (%d threads) %.1f ms%n",
+                            level, filter, serialMs, threads, parallelMs);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private static double time(Task task) throws Exception {
+        for (int i = 0; i < 2; i++) {
+            task.run();
+        }
+        int iterations = 5;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / iterations;
+    }
+}
@@ -0,0 +1,84 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.PreRollPlanner;
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreRollPlannerTest {
+
+    private static final PreRollPlanner.ResetTimes NONE = (entityId, before) -> OptionalInt.empty();
+
+    /**
+     * Resets at fixed times, one per entity.
+     */
+    private static PreRollPlanner.ResetTimes resets(Map<Integer, Integer> times) {
+        return (entityId, before) -> {
+            Integer time = times.get(entityId);
+            return time != null && time <= before ? OptionalInt.of(time) : OptionalInt.empty();
+        };
+    }
+
+    @Test
+    public void testFullByDefault() {
+        // Nothing is known about the world, so without opting in it always gets the whole pre-roll.
+        assertEquals(1000, new PreRollPlanner(1000, false, IntList.of(), NONE).getWindow(10_000));
+        assertEquals(3000, new PreRollPlanner(3000, false, IntList.of(), NONE).getWindow(10_000));
+        assertEquals(1000, new PreRollPlanner(1000, false, IntList.of(8), resets(Map.of(8, 9_900)))
+                .getWindow(10_000));
+
+        // Playing on still works.
+        PreRollPlanner planner = new PreRollPlanner(1000, false, IntList.of(), NONE);
+        assertEquals(new PreRollPlanner.Plan(9_630, 10_000, true), planner.plan(10_000, 9_630, true));
+    }
+
+    @Test
+    public void testWorldOnly() {
+        PreRollPlanner planner = new PreRollPlanner(1000, true, IntList.of(), NONE);
+        assertEquals(PreRollPlanner.WORLD_PRE_ROLL_MS, planner.getWindow(10_000));
+
+        // Never more than asked for.
+        assertEquals(PreRollPlanner.MIN_PRE_ROLL_MS,
+                new PreRollPlanner(0, true, IntList.of(), NONE).getWindow(10_000));
+    }
+
+    @Test
+    public void testFollowedEntities() {
+        // Nothing known about the entity: the whole pre-roll.
+        assertEquals(1000, new PreRollPlanner(1000, true, IntList.of(7), NONE).getWindow(10_000));
+        assertEquals(3000, new PreRollPlanner(3000, true, IntList.of(7), NONE).getWindow(10_000));
+
+        // Spawned part way through: only back to there, but never less than the world needs.
+        PreRollPlanner planner = new PreRollPlanner(1000, true, IntList.of(7, 8), resets(Map.of(7, 9_200, 8, 9_900)));
+        assertEquals(800, planner.getWindow(10_000));
+        assertEquals(PreRollPlanner.WORLD_PRE_ROLL_MS,
+                new PreRollPlanner(1000, true, IntList.of(8), resets(Map.of(8, 9_900))).getWindow(10_000));
+
+        // Long ago, or only after the frame: the whole pre-roll.
+        assertEquals(1000, new PreRollPlanner(1000, true, IntList.of(7), resets(Map.of(7, 2_000))).getWindow(10_000));
+        assertEquals(1000, new PreRollPlanner(1000, true, IntList.of(7), resets(Map.of(7, 10_500))).getWindow(10_000));
+    }
+
+    @Test
+    public void testPlan() {
+        PreRollPlanner planner = new PreRollPlanner(1000, true, IntList.of(7), NONE);
+
+        PreRollPlanner.Plan jump = planner.plan(10_000, 60_000, true);
+        assertEquals(new PreRollPlanner.Plan(9_000, 10_000, false), jump);
+        assertEquals(20, jump.ticks());
+
+        // Already within the pre-roll.
+        PreRollPlanner.Plan playOn = planner.plan(10_000, 9_630, true);
+        assertEquals(new PreRollPlanner.Plan(9_630, 10_000, true), playOn);
+        assertEquals(8, playOn.ticks());
+        assertFalse(planner.plan(10_000, 9_630, false).playOn());
+        assertFalse(planner.plan(10_000, 8_000, true).playOn());
+
+        // Can't start before the replay does.
+        assertEquals(new PreRollPlanner.Plan(0, 400, false), planner.plan(400, 60_000, false));
+    }
+}
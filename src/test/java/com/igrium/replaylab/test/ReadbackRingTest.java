@@ -0,0 +1,180 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.readback.ReadbackRing;
+import com.igrium.replaylab.render.readback.ReadbackSlot;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadbackRingTest {
+
+    /**
+     * Stands in for a GPU buffer. "Copies" the source int into its buffer, and only reports completion once the test
+     * says so (or after a given number of waits).
+     */
+    private static class FakeSlot implements ReadbackSlot<Integer> {
+        final int index;
+        final ByteBuffer buffer = ByteBuffer.allocate(4);
+        int copies;
+        boolean complete = true;
+        int waitsUntilComplete;
+        boolean mapped;
+        boolean closed;
+
+        FakeSlot(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void beginCopy(Integer source) {
+            assertFalse(mapped, "Slot reused while still mapped");
+            buffer.putInt(0, source);
+            copies++;
+        }
+
+        @Override
+        public boolean awaitCompletion(long timeoutNanos) {
+            if (waitsUntilComplete > 0 && timeoutNanos > 0) {
+                waitsUntilComplete--;
+                return false;
+            }
+            return complete && waitsUntilComplete == 0;
+        }
+
+        @Override
+        public Mapping map() {
+            mapped = true;
+            return new Mapping() {
+                @Override
+                public ByteBuffer data() {
+                    return buffer.duplicate();
+                }
+
+                @Override
+                public void close() {
+                    mapped = false;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private final List<FakeSlot> slots = new ArrayList<>();
+    private final List<Integer> deliveredFrames = new ArrayList<>();
+    private final List<Integer> deliveredValues = new ArrayList<>();
+
+    private ReadbackRing<Integer> createRing(int size) {
+        return new ReadbackRing<>(size, i -> {
+            FakeSlot slot = new FakeSlot(i);
+            slots.add(slot);
+            return slot;
+        }, 1000);
+    }
+
+    private void deliver(int frameIdx, ByteBuffer data) {
+        deliveredFrames.add(frameIdx);
+        deliveredValues.add(data.getInt(0));
+    }
+
+    @Test
+    public void testDeliversInOrder() {
+        var ring = createRing(3);
+        for (int i = 0; i < 10; i++) {
+            ring.submit(i, i * 100, this::deliver);
+        }
+        ring.drainAll(this::deliver);
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), deliveredFrames);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i * 100, deliveredValues.get(i));
+        }
+    }
+
+    @Test
+    public void testBackPressure() {
+        var ring = createRing(3);
+        ring.submit(0, 0, this::deliver);
+        ring.submit(1, 1, this::deliver);
+        ring.submit(2, 2, this::deliver);
+        assertTrue(ring.isFull());
+        assertTrue(deliveredFrames.isEmpty());
+
+        // Fourth submit has to wait for the first frame to free a slot.
+        ring.submit(3, 3, this::deliver);
+        assertEquals(List.of(0), deliveredFrames);
+        assertEquals(3, ring.getPending());
+    }
+
+    @Test
+    public void testSlotReuse() {
+        var ring = createRing(2);
+        for (int i = 0; i < 6; i++) {
+            ring.submit(i, i, this::deliver);
+        }
+        ring.drainAll(this::deliver);
+
+        assertEquals(2, slots.size());
+        assertEquals(3, slots.get(0).copies);
+        assertEquals(3, slots.get(1).copies);
+    }
+
+    @Test
+    public void testPollDoesNotBlock() {
+        var ring = createRing(3);
+        ring.submit(0, 0, this::deliver);
+        ring.submit(1, 1, this::deliver);
+        slots.get(0).complete = false;
+
+        // The oldest isn't done, so nothing can be delivered even though the second one is.
+        assertEquals(0, ring.pollCompleted(this::deliver));
+        assertTrue(deliveredFrames.isEmpty());
+
+        slots.get(0).complete = true;
+        assertEquals(2, ring.pollCompleted(this::deliver));
+        assertEquals(List.of(0, 1), deliveredFrames);
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void testBlockingDrainRetries() {
+        var ring = createRing(2);
+        ring.submit(0, 42, this::deliver);
+        slots.get(0).waitsUntilComplete = 5;
+
+        ring.drainOldest(this::deliver);
+        assertEquals(List.of(42), deliveredValues);
+    }
+
+    @Test
+    public void testConsumerFailureFreesSlot() {
+        var ring = createRing(2);
+        ring.submit(0, 0, this::deliver);
+        assertThrows(IllegalStateException.class, () -> ring.drainOldest((idx, data) -> {
+            throw new IllegalStateException("encoder crashed");
+        }));
+        assertTrue(ring.isEmpty());
+        assertFalse(slots.get(0).mapped);
+    }
+
+    @Test
+    public void testCloseDiscardsPending() {
+        var ring = createRing(3);
+        ring.submit(0, 0, this::deliver);
+        ring.submit(1, 1, this::deliver);
+        ring.close();
+
+        assertTrue(deliveredFrames.isEmpty());
+        assertTrue(ring.isEmpty());
+        for (var slot : slots) {
+            assertTrue(slot.closed);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.igrium.replaylab.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.igrium.replaylab.render.RenderCheckpoint;
+import com.igrium.replaylab.render.RenderMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderCheckpointTest {
+
+    private static RenderMetadata metadata(Path outPath) {
+        return RenderMetadata.builder()
+                .outPath(outPath)
+                .width(1280)
+                .height(720)
+                .totalFrames(600)
+                .fps(29.97f)
+                .build();
+    }
+
+    private static JsonObject encoderState() {
+        JsonArray segments = new JsonArray();
+        segments.add(0);
+        segments.add(1);
+        JsonObject state = new JsonObject();
+        state.addProperty("gopSize", 60);
+        state.add("segments", segments);
+        return state;
+    }
+
+    @Test
+    public void testRoundTrip(@TempDir Path dir) throws Exception {
+        Path outPath = dir.resolve("movie.mp4");
+        RenderCheckpoint checkpoint = new RenderCheckpoint("abc123", metadata(outPath), 120, encoderState());
+
+        Path file = RenderCheckpoint.getPath(outPath);
+        assertEquals(dir.resolve("movie.mp4.checkpoint.json"), file);
+        checkpoint.write(file);
+        // Nothing left over from the atomic replace.
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+
+        RenderCheckpoint read = RenderCheckpoint.read(file);
+        assertEquals(checkpoint, read);
+    }
+
+    @Test
+    public void testOverwrite(@TempDir Path dir) throws Exception {
+        Path file = RenderCheckpoint.getPath(dir.resolve("frames"));
+        RenderMetadata meta = metadata(dir.resolve("frames"));
+        new RenderCheckpoint("abc123", meta, 10, null).write(file);
+        new RenderCheckpoint("abc123", meta, 20, null).write(file);
+
+        RenderCheckpoint read = RenderCheckpoint.read(file);
+        assertNotNull(read);
+        assertEquals(20, read.durableFrames());
+        assertNull(read.encoderState());
+    }
+
+    @Test
+    public void testMissingOrMalformed(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("movie.mp4.checkpoint.json");
+        assertNull(RenderCheckpoint.read(file));
+
+        Files.writeString(file, "{\"version\": 1, \"sceneHash\": \"abc\"");
+        assertNull(RenderCheckpoint.read(file));
+
+        Files.writeString(file, "{\"version\": 1, \"sceneHash\": \"abc\"}");
+        assertNull(RenderCheckpoint.read(file));
+
+        JsonObject future = new RenderCheckpoint("abc", metadata(dir), 1, null).toJson();
+        future.addProperty("version", 99);
+        Files.writeString(file, future.toString());
+        assertNull(RenderCheckpoint.read(file));
+    }
+
+    @Test
+    public void testCanResume(@TempDir Path dir) {
+        RenderMetadata meta = metadata(dir.resolve("movie.mp4"));
+        RenderCheckpoint checkpoint = new RenderCheckpoint("abc123", meta, 120, null);
+
+        assertTrue(checkpoint.canResume("abc123", metadata(dir.resolve("movie.mp4"))));
+        assertFalse(checkpoint.canResume("def456", meta), "Scene changed");
+        assertFalse(checkpoint.canResume("abc123", metadata(dir.resolve("other.mp4"))), "Output changed");
+        assertFalse(checkpoint.canResume("abc123", RenderMetadata.builder().outPath(meta.outPath())
+                .width(1920).height(1080).totalFrames(600).fps(29.97f).build()), "Resolution changed");
+        assertFalse(new RenderCheckpoint("abc123", meta, 0, null).canResume("abc123", meta), "Nothing to resume");
+    }
+}
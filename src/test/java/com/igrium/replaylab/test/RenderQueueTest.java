@@ -0,0 +1,133 @@
+package com.igrium.replaylab.test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.igrium.replaylab.render.queue.RenderJob;
+import com.igrium.replaylab.render.queue.RenderQueue;
+import com.igrium.replaylab.render.queue.RenderQueue.ReplaySpan;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderQueueTest {
+
+    @Test
+    public void testOrdersByReplayTime() {
+        Map<String, ReplaySpan> spans = Map.of(
+                "late", new ReplaySpan(60_000, 70_000),
+                "early", new ReplaySpan(1_000, 9_000),
+                "earlyLong", new ReplaySpan(1_000, 20_000),
+                "middle", new ReplaySpan(30_000, 35_000));
+
+        List<String> order = RenderQueue.order(List.of("late", "earlyLong", "middle", "early"), spans::get);
+        assertEquals(List.of("early", "earlyLong", "middle", "late"), order);
+    }
+
+    @Test
+    public void testTiesKeepQueueOrder() {
+        ReplaySpan span = new ReplaySpan(5_000, 10_000);
+        List<String> order = RenderQueue.order(List.of("b", "a", "c"), job -> span);
+        assertEquals(List.of("b", "a", "c"), order);
+    }
+
+    @Test
+    public void testIdenticalSpansRestart() {
+        // One scene queued twice with different settings.
+        ReplaySpan span = new ReplaySpan(10_000, 40_000);
+        Map<String, ReplaySpan> spans = Map.of(
+                "introHigh", span,
+                "introDraft", span,
+                "outro", new ReplaySpan(50_000, 60_000));
+
+        List<String> order = RenderQueue.order(List.of("outro", "introHigh", "introDraft"), spans::get);
+        assertEquals(List.of("introHigh", "introDraft", "outro"), order);
+        // The second copy starts before the first one ended; only the outro can play on.
+        assertFalse(span.followsOn(span));
+        assertTrue(spans.get("outro").followsOn(span));
+        assertEquals(1, RenderQueue.countRestarts(order, spans::get));
+    }
+
+    @Test
+    public void testNestedSpansOrderByEnd() {
+        Map<String, ReplaySpan> spans = Map.of(
+                "long", new ReplaySpan(0, 30_000),
+                "short", new ReplaySpan(5_000, 10_000),
+                "after", new ReplaySpan(10_000, 20_000));
+
+        List<String> order = RenderQueue.order(List.of("long", "after", "short"), spans::get);
+        assertEquals(List.of("short", "after", "long"), order);
+        assertEquals(1, RenderQueue.countRestarts(order, spans::get));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        JsonObject settings = new JsonObject();
+        settings.addProperty("outPath", "renders/intro.mp4");
+
+        RenderQueue queue = new RenderQueue();
+        RenderJob done = new RenderJob("intro", settings);
+        done.markDone(600, 20_000);
+        RenderJob failed = new RenderJob("outro", null);
+        failed.markFailed(new IllegalStateException("Out of disk space"), 1_500);
+        RenderJob pending = new RenderJob("middle", null);
+        queue.add(done);
+        queue.add(failed);
+        queue.add(pending);
+
+        RenderQueue read = new RenderQueue();
+        read.readJson(queue.toJson());
+        List<RenderJob> jobs = read.getJobs();
+        assertEquals(3, jobs.size());
+
+        assertEquals(done.getId(), jobs.get(0).getId());
+        assertEquals("intro", jobs.get(0).getSceneName());
+        assertEquals("renders/intro.mp4", jobs.get(0).getOutPath());
+        assertEquals(RenderJob.Status.DONE, jobs.get(0).getStatus());
+        assertEquals(600, jobs.get(0).getFrames());
+        assertEquals(30, jobs.get(0).getRenderFps(), 1e-9);
+
+        assertEquals(RenderJob.Status.FAILED, jobs.get(1).getStatus());
+        assertEquals("Out of disk space", jobs.get(1).getError());
+        assertNull(jobs.get(1).getSettings());
+
+        assertEquals(List.of(jobs.get(2)), read.getPending());
+    }
+
+    @Test
+    public void testSkipsMalformedJobs() {
+        RenderQueue queue = new RenderQueue();
+        queue.add(new RenderJob("intro", null));
+        JsonObject json = queue.toJson();
+        json.getAsJsonArray("jobs").add(new JsonObject());
+
+        RenderQueue read = new RenderQueue();
+        read.readJson(json);
+        assertEquals(1, read.getJobs().size());
+
+        json.addProperty("version", 999);
+        assertThrows(JsonParseException.class, () -> read.readJson(json));
+    }
+
+    @Test
+    public void testRequeueAndClear() {
+        RenderQueue queue = new RenderQueue();
+        RenderJob a = new RenderJob("a", null);
+        RenderJob b = new RenderJob("b", null);
+        queue.add(a);
+        queue.add(b);
+        a.markDone(10, 100);
+        b.markFailed(new RuntimeException(), 100);
+        assertTrue(queue.getPending().isEmpty());
+        assertEquals("RuntimeException", b.getError());
+
+        b.reset();
+        assertEquals(List.of(b), queue.getPending());
+        assertNull(b.getError());
+
+        queue.clearDone();
+        assertEquals(List.of(b), queue.getJobs());
+    }
+}
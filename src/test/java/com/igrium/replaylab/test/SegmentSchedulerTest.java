@@ -0,0 +1,296 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.ffmpeg.FFmpegPipeWriter;
+import com.igrium.replaylab.render.ffmpeg.SegmentScheduler;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.FramePool;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentSchedulerTest {
+
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 4;
+    private static final int FRAME_BYTES = WIDTH * HEIGHT * 4;
+
+    private static FramePool createPool(int capacity) {
+        return new FramePool(WIDTH, HEIGHT, capacity, ByteBuffer::allocateDirect, b -> {});
+    }
+
+    private static FrameBuffer frame(FramePool pool, int value) throws InterruptedException {
+        FrameBuffer frame = pool.acquire();
+        var pixels = frame.pixels();
+        for (int i = 0; i < FRAME_BYTES; i++) {
+            pixels.put(i, (byte) value);
+        }
+        return frame;
+    }
+
+    /**
+     * Stands in for an ffmpeg process: a pipe writer feeding a stream that takes <code>frameMillis</code> to "encode"
+     * each frame. Tracks how many fakes are encoding at once.
+     */
+    private static class FakeSegment implements SegmentScheduler.Segment {
+        final int index;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final FFmpegPipeWriter writer;
+        final Tracker tracker;
+        boolean aborted;
+
+        FakeSegment(int index, long frameMillis, long queueBytes, Tracker tracker) {
+            this.index = index;
+            this.tracker = tracker;
+            tracker.started();
+            writer = new FFmpegPipeWriter(new java.io.OutputStream() {
+                long bytes;
+
+                @Override
+                public void write(int b) {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    long before = bytes / FRAME_BYTES;
+                    bytes += len;
+                    for (long i = before; i < bytes / FRAME_BYTES; i++) {
+                        sleep(frameMillis);
+                    }
+                    out.write(b, off, len);
+                }
+            }, queueBytes, FRAME_BYTES, e -> {});
+        }
+
+        @Override
+        public void submit(FrameBuffer frame) throws IOException, InterruptedException {
+            writer.submit(frame);
+        }
+
+        @Override
+        public CompletableFuture<?> finish() {
+            return writer.finish().whenComplete((v, e) -> tracker.finished());
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+            writer.abort();
+        }
+    }
+
+    private static class Tracker {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        void started() {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        }
+
+        void finished() {
+            running.decrementAndGet();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testSegmentLength() {
+        // A 32-frame queue holds one 32-frame GOP, or two 16-frame ones.
+        assertEquals(32, SegmentScheduler.segmentLength(32, 32));
+        assertEquals(32, SegmentScheduler.segmentLength(32, 16));
+        assertEquals(30, SegmentScheduler.segmentLength(32, 10));
+        // Never shorter than a GOP, even if that won't fit.
+        assertEquals(60, SegmentScheduler.segmentLength(32, 60));
+        assertEquals(1, SegmentScheduler.segmentLength(0, 1));
+    }
+
+    @Test
+    public void testRoutesFramesInOrder() throws Exception {
+        FramePool pool = createPool(16);
+        Tracker tracker = new Tracker();
+        List<FakeSegment> segments = new ArrayList<>();
+        SegmentScheduler<FakeSegment> scheduler = new SegmentScheduler<>(4, 2, i -> {
+            FakeSegment segment = new FakeSegment(i, 0, FRAME_BYTES * 4L, tracker);
+            segments.add(segment);
+            return segment;
+        });
+
+        for (int i = 0; i < 10; i++) {
+            scheduler.submit(frame(pool, i), i);
+        }
+        List<Integer> indices = scheduler.finish().get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(0, 1, 2), indices);
+        assertEquals(3, segments.size());
+        int[] expectedFrames = {4, 4, 2};
+        for (var segment : segments) {
+            byte[] written = segment.out.toByteArray();
+            assertEquals(expectedFrames[segment.index] * FRAME_BYTES, written.length);
+            for (int i = 0; i < written.length; i++) {
+                assertEquals((byte) (segment.index * 4 + i / FRAME_BYTES), written[i]);
+            }
+        }
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testSegmentsOverlapUpToLimit() throws Exception {
+        int segmentFrames = 4;
+        int maxRunning = 3;
+        FramePool pool = createPool(maxRunning * segmentFrames + 1);
+        Tracker tracker = new Tracker();
+        // Each segment can queue all of its frames, so feeding one never waits on the previous one's encoding.
+        SegmentScheduler<FakeSegment> scheduler = new SegmentScheduler<>(segmentFrames, maxRunning,
+                i -> new FakeSegment(i, 15, (long) FRAME_BYTES * segmentFrames, tracker));
+
+        for (int i = 0; i < segmentFrames * 8; i++) {
+            scheduler.submit(frame(pool, i), i);
+            assertTrue(tracker.running.get() <= maxRunning, "Too many segments running");
+        }
+        scheduler.finish().get(10, TimeUnit.SECONDS);
+
+        assertEquals(maxRunning, tracker.maxRunning.get());
+        assertEquals(0, tracker.running.get());
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testSegmentsSizedToQueueRunTogether() throws Exception {
+        // What the encoder gets for 1080p over 4 processes: 1 GiB of RGBA frames between them, 32 frames each.
+        int processes = 4;
+        int queueFrames = (int) (1024L * 1024 * 1024 / processes / (1920 * 1080 * 4));
+        int segmentFrames = SegmentScheduler.segmentLength(queueFrames, Math.min(120, queueFrames));
+        FramePool pool = createPool(processes * queueFrames + 1);
+        Tracker tracker = new Tracker();
+        SegmentScheduler<FakeSegment> scheduler = new SegmentScheduler<>(segmentFrames, processes,
+                i -> new FakeSegment(i, 5, (long) FRAME_BYTES * queueFrames, tracker));
+
+        for (int i = 0; i < segmentFrames * processes * 2; i++) {
+            scheduler.submit(frame(pool, i), i);
+        }
+        scheduler.finish().get(30, TimeUnit.SECONDS);
+
+        // Segments longer than their queue would only ever overlap in pairs, at the hand-off.
+        assertEquals(processes, tracker.maxRunning.get());
+        assertEquals(0, tracker.running.get());
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testSegmentFailureSurfaces() throws Exception {
+        FramePool pool = createPool(8);
+        SegmentScheduler<SegmentScheduler.Segment> scheduler = new SegmentScheduler<>(2, 4, i -> {
+            if (i == 0) return new SegmentScheduler.Segment() {
+                @Override
+                public void submit(FrameBuffer frame) {
+                    frame.close();
+                }
+
+                @Override
+                public CompletableFuture<?> finish() {
+                    return CompletableFuture.failedFuture(new IOException("ffmpeg exited with code 1"));
+                }
+
+                @Override
+                public void abort() {}
+            };
+            return new FakeSegment(i, 0, FRAME_BYTES * 2L, new Tracker());
+        });
+
+        scheduler.submit(frame(pool, 0), 0);
+        scheduler.submit(frame(pool, 1), 1);
+        // Starting the next segment checks on the ones that are done.
+        assertThrows(IOException.class, () -> scheduler.submit(frame(pool, 2), 2));
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testCompletedSegmentsStopAtFirstUnfinished() throws Exception {
+        FramePool pool = createPool(16);
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        SegmentScheduler<SegmentScheduler.Segment> scheduler = new SegmentScheduler<>(2, 4, i -> {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            results.add(result);
+            return new SegmentScheduler.Segment() {
+                @Override
+                public void submit(FrameBuffer frame) {
+                    frame.close();
+                }
+
+                @Override
+                public CompletableFuture<?> finish() {
+                    return result;
+                }
+
+                @Override
+                public void abort() {}
+            };
+        });
+
+        // Resuming: the first segment is the third one.
+        for (int i = 4; i < 10; i++) {
+            scheduler.submit(frame(pool, i), i);
+        }
+        assertEquals(List.of(), scheduler.getCompletedSegments());
+
+        results.get(1).complete(null);
+        assertEquals(List.of(), scheduler.getCompletedSegments(), "Segment 2 isn't done yet");
+
+        results.get(0).complete(null);
+        assertEquals(List.of(2, 3), scheduler.getCompletedSegments());
+
+        // The one being fed hasn't been finished yet, so it doesn't count even when its encoder is done.
+        results.get(2).complete(null);
+        assertEquals(List.of(2, 3), scheduler.getCompletedSegments());
+
+        scheduler.finish();
+        assertEquals(List.of(2, 3, 4), scheduler.getCompletedSegments());
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testOutOfOrderRejected() throws Exception {
+        FramePool pool = createPool(8);
+        SegmentScheduler<FakeSegment> scheduler = new SegmentScheduler<>(2, 2,
+                i -> new FakeSegment(i, 0, FRAME_BYTES * 2L, new Tracker()));
+
+        scheduler.submit(frame(pool, 0), 4);
+        assertThrows(IllegalArgumentException.class, () -> scheduler.submit(frame(pool, 1), 0));
+        scheduler.finish().get(5, TimeUnit.SECONDS);
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testAbortReachesEverySegment() throws Exception {
+        FramePool pool = createPool(16);
+        SegmentScheduler<FakeSegment> scheduler = new SegmentScheduler<>(2, 4,
+                i -> new FakeSegment(i, 50, FRAME_BYTES * 2L, new Tracker()));
+
+        for (int i = 0; i < 6; i++) {
+            scheduler.submit(frame(pool, i), i);
+        }
+        scheduler.abort();
+
+        assertEquals(3, scheduler.getSegments().size());
+        for (var segment : scheduler.getSegments()) {
+            assertTrue(segment.aborted);
+        }
+        assertThrows(IOException.class, () -> scheduler.submit(frame(pool, 6), 6));
+    }
+}
@@ -0,0 +1,141 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.RenderMetadata;
+import com.igrium.replaylab.render.encoder.EncoderException;
+import com.igrium.replaylab.render.encoder.EncoderProcess;
+import com.igrium.replaylab.render.encoder.StrideEncoderProcess;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.FramePool;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StrideEncoderTest {
+
+    /**
+     * Records which frame each index got (by its first pixel), and optionally fails on a chosen index.
+     */
+    private static class RecordingEncoder extends EncoderProcess {
+        final List<Integer> indices = new ArrayList<>();
+        final List<Integer> pixels = new ArrayList<>();
+        final int failAt;
+        boolean failed;
+
+        RecordingEncoder(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        protected void startEncoding() {
+        }
+
+        @Override
+        protected void encodeFrame(FrameBuffer frame, int frameIdx) {
+            try {
+                if (frameIdx == failAt) {
+                    throw new IllegalStateException("Failed on purpose");
+                }
+                indices.add(frameIdx);
+                pixels.add(frame.pixels().getInt(0));
+            } finally {
+                frame.close();
+            }
+        }
+
+        @Override
+        protected CompletableFuture<?> finishEncoding() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        protected void onFailed(Throwable reason) {
+            failed = true;
+        }
+    }
+
+    private static RenderMetadata metadata(int frames) {
+        return RenderMetadata.builder()
+                .outPath(Path.of("out", "scene_draft.mp4"))
+                .width(4)
+                .height(2)
+                .totalFrames(frames)
+                .fps(30)
+                .build();
+    }
+
+    /**
+     * Submit every <code>stride</code>th frame, each filled with its own index.
+     */
+    private static void feed(EncoderProcess encoder, FramePool pool, int frames, int stride) throws Exception {
+        for (int i = 0; i < frames; i += stride) {
+            FrameBuffer frame = pool.acquire();
+            frame.pixels().putInt(0, i);
+            encoder.accept(frame, i);
+        }
+    }
+
+    @Test
+    public void testFillsGaps() throws Exception {
+        RecordingEncoder inner = new RecordingEncoder(-1);
+        StrideEncoderProcess stride = new StrideEncoderProcess(inner, 4);
+        FramePool pool = new FramePool(4, 2, 1, ByteBuffer::allocateDirect, b -> {});
+
+        // 10 frames: the last rendered one only covers what's left.
+        stride.start(metadata(10));
+        feed(stride, pool, 10, 4);
+        stride.finish().get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), inner.indices);
+        assertEquals(List.of(0, 0, 0, 0, 4, 4, 4, 4, 8, 8), inner.pixels);
+        assertEquals(EncoderProcess.EncodingState.FINISHED, inner.getState());
+        // Copies share the buffer, so a pool of one is enough.
+        assertEquals(1, pool.getAllocated());
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testStrideOfOne() throws Exception {
+        RecordingEncoder inner = new RecordingEncoder(-1);
+        StrideEncoderProcess stride = new StrideEncoderProcess(inner, 1);
+        FramePool pool = new FramePool(4, 2, 1, ByteBuffer::allocateDirect, b -> {});
+
+        stride.start(metadata(3));
+        feed(stride, pool, 3, 1);
+        stride.finish().get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(0, 1, 2), inner.indices);
+    }
+
+    @Test
+    public void testInnerFailureReleasesCopies() throws Exception {
+        RecordingEncoder inner = new RecordingEncoder(6);
+        StrideEncoderProcess stride = new StrideEncoderProcess(inner, 4);
+        FramePool pool = new FramePool(4, 2, 1, ByteBuffer::allocateDirect, b -> {});
+
+        stride.start(metadata(12));
+        assertThrows(EncoderException.class, () -> feed(stride, pool, 12, 4));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), inner.indices);
+        assertTrue(inner.failed);
+        assertEquals(EncoderProcess.EncodingState.FAILED, stride.getState());
+        assertEquals(0, pool.getLeased(), "Copies that were never passed on should be released");
+    }
+
+    @Test
+    public void testWrapperFailureStopsInner() throws Exception {
+        RecordingEncoder inner = new RecordingEncoder(-1);
+        StrideEncoderProcess stride = new StrideEncoderProcess(inner, 2);
+        FramePool pool = new FramePool(4, 2, 1, ByteBuffer::allocateDirect, b -> {});
+
+        stride.start(metadata(4));
+        // Past the end of the export.
+        assertThrows(EncoderException.class, () -> stride.accept(pool.acquire(), 4));
+        assertTrue(inner.failed);
+        assertEquals(0, pool.getLeased());
+    }
+}
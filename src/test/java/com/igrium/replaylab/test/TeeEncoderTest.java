@@ -0,0 +1,227 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.RenderMetadata;
+import com.igrium.replaylab.render.encoder.EncoderException;
+import com.igrium.replaylab.render.encoder.EncoderProcess;
+import com.igrium.replaylab.render.encoder.TeeEncoderProcess;
+import com.igrium.replaylab.render.encoder.TeeFailurePolicy;
+import com.igrium.replaylab.render.frame.DownscaleFilter;
+import com.igrium.replaylab.render.frame.FrameBuffer;
+import com.igrium.replaylab.render.frame.FramePool;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TeeEncoderTest {
+
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 6;
+
+    /**
+     * Records what it's given, and optionally fails on a chosen frame.
+     */
+    private static class RecordingEncoder extends EncoderProcess {
+        final List<Integer> frames = Collections.synchronizedList(new ArrayList<>());
+        final int failAt;
+        volatile int width;
+        volatile Path outPath;
+        volatile int firstPixel;
+        volatile boolean failed;
+
+        RecordingEncoder(int failAt) {
+            this.failAt = failAt;
+        }
+
+        RecordingEncoder() {
+            this(-1);
+        }
+
+        @Override
+        protected void startEncoding() {
+            width = getMetadata().width();
+            outPath = getMetadata().outPath();
+        }
+
+        @Override
+        protected void encodeFrame(FrameBuffer frame, int frameIdx) {
+            try {
+                if (frameIdx == failAt) {
+                    throw new IllegalStateException("Failed on purpose");
+                }
+                frames.add(frameIdx);
+                firstPixel = frame.pixels().getInt(0);
+            } finally {
+                frame.close();
+            }
+        }
+
+        @Override
+        protected CompletableFuture<?> finishEncoding() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        protected void onFailed(Throwable reason) {
+            failed = true;
+        }
+    }
+
+    private final List<ByteBuffer> frees = new ArrayList<>();
+
+    private FramePool createPool() {
+        return new FramePool(WIDTH, HEIGHT, 4, ByteBuffer::allocateDirect, frees::add);
+    }
+
+    private static RenderMetadata metadata(int frames) {
+        return RenderMetadata.builder()
+                .outPath(Path.of("out", "scene.mp4"))
+                .width(WIDTH)
+                .height(HEIGHT)
+                .totalFrames(frames)
+                .fps(30)
+                .build();
+    }
+
+    private static TeeEncoderProcess.Output output(EncoderProcess encoder, String suffix, int downscale) {
+        return new TeeEncoderProcess.Output(encoder, suffix, "mp4", downscale, DownscaleFilter.BOX);
+    }
+
+    private static void feed(TeeEncoderProcess tee, FramePool pool, int frames) throws Exception {
+        for (int i = 0; i < frames; i++) {
+            FrameBuffer frame = pool.acquire();
+            ByteBuffer pixels = frame.pixels();
+            for (int p = 0; p < pixels.capacity(); p += 4) {
+                pixels.putInt(p, i);
+            }
+            tee.accept(frame, i);
+        }
+    }
+
+    /**
+     * Outputs are stopped on whichever thread saw the failure, so the export can hear about it first.
+     */
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean(), message);
+    }
+
+    @Test
+    public void testOutputPath() {
+        Path dir = Path.of("renders");
+        assertEquals(dir.resolve("scene_proxy.mp4"),
+                TeeEncoderProcess.outputPath(dir.resolve("scene.mp4"), "_proxy", "mp4"));
+        assertEquals(dir.resolve("scene_master.mkv"),
+                TeeEncoderProcess.outputPath(dir.resolve("scene"), "_master", "mkv"));
+        assertEquals(dir.resolve("scene_frames"),
+                TeeEncoderProcess.outputPath(dir.resolve("scene.mp4"), "_frames", null));
+    }
+
+    @Test
+    public void testFansOutWithoutCopying() throws Exception {
+        RecordingEncoder a = new RecordingEncoder();
+        RecordingEncoder b = new RecordingEncoder();
+        TeeEncoderProcess tee = new TeeEncoderProcess(List.of(output(a, "_a", 1), output(b, "_b", 1)),
+                TeeFailurePolicy.ABORT, 2);
+        FramePool pool = createPool();
+
+        tee.start(metadata(20));
+        feed(tee, pool, 20);
+        tee.finish().get(5, TimeUnit.SECONDS);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) expected.add(i);
+        assertEquals(expected, a.frames);
+        assertEquals(expected, b.frames);
+        assertEquals(Path.of("out", "scene_a.mp4"), a.outPath);
+        assertEquals(Path.of("out", "scene_b.mp4"), b.outPath);
+
+        // Both outputs shared the pool's buffers; nothing else was ever allocated.
+        assertTrue(pool.getAllocated() <= 4);
+        assertEquals(0, pool.getLeased(), "Every frame should be back in the pool");
+    }
+
+    @Test
+    public void testDownscaledOutput() throws Exception {
+        RecordingEncoder full = new RecordingEncoder();
+        RecordingEncoder half = new RecordingEncoder();
+        TeeEncoderProcess tee = new TeeEncoderProcess(List.of(output(full, "", 1), output(half, "_proxy", 2)),
+                TeeFailurePolicy.ABORT, 2);
+        FramePool pool = createPool();
+
+        tee.start(metadata(5));
+        feed(tee, pool, 5);
+        tee.finish().get(5, TimeUnit.SECONDS);
+
+        assertEquals(WIDTH, full.width);
+        assertEquals(WIDTH / 2, half.width);
+        assertEquals(5, half.frames.size());
+        // A flat frame stays flat (and opaque) when it's downscaled.
+        assertEquals(0xFF000004, half.firstPixel);
+        assertEquals(0, pool.getLeased());
+    }
+
+    @Test
+    public void testDropOutputKeepsGoing() throws Exception {
+        RecordingEncoder good = new RecordingEncoder();
+        RecordingEncoder bad = new RecordingEncoder(3);
+        TeeEncoderProcess tee = new TeeEncoderProcess(List.of(output(good, "_good", 1), output(bad, "_bad", 1)),
+                TeeFailurePolicy.DROP_OUTPUT, 2);
+        FramePool pool = createPool();
+
+        tee.start(metadata(12));
+        feed(tee, pool, 12);
+        tee.finish().get(5, TimeUnit.SECONDS);
+
+        assertEquals(12, good.frames.size());
+        assertEquals(List.of(0, 1, 2), bad.frames);
+        assertTrue(bad.failed);
+        assertEquals(1, tee.getLiveOutputs());
+        assertNull(tee.getFailureReason());
+        await(() -> pool.getLeased() == 0, "Every frame should be back in the pool");
+    }
+
+    @Test
+    public void testDropOutputFailsOnceEveryOutputHas() throws Exception {
+        RecordingEncoder a = new RecordingEncoder(2);
+        RecordingEncoder b = new RecordingEncoder(4);
+        TeeEncoderProcess tee = new TeeEncoderProcess(List.of(output(a, "_a", 1), output(b, "_b", 1)),
+                TeeFailurePolicy.DROP_OUTPUT, 2);
+        FramePool pool = createPool();
+
+        tee.start(metadata(20));
+        // Depending on timing, either a later frame or finishing is what finds out.
+        assertThrows(RuntimeException.class, () -> {
+            feed(tee, pool, 20);
+            tee.finish().join();
+        });
+        assertEquals(EncoderProcess.EncodingState.FAILED, tee.getState());
+        assertEquals(0, tee.getLiveOutputs());
+        await(() -> pool.getLeased() == 0, "Every frame should be back in the pool");
+    }
+
+    @Test
+    public void testAbortFailsEverything() throws Exception {
+        RecordingEncoder good = new RecordingEncoder();
+        RecordingEncoder bad = new RecordingEncoder(3);
+        TeeEncoderProcess tee = new TeeEncoderProcess(List.of(output(good, "_good", 1), output(bad, "_bad", 1)),
+                TeeFailurePolicy.ABORT, 2);
+        FramePool pool = createPool();
+
+        tee.start(metadata(20));
+        assertThrows(EncoderException.class, () -> feed(tee, pool, 20));
+        assertEquals(EncoderProcess.EncodingState.FAILED, tee.getState());
+        await(() -> good.failed, "The other output should be stopped too");
+        assertTrue(good.frames.size() < 20);
+        await(() -> pool.getLeased() == 0, "Every frame should be back in the pool");
+    }
+}
@@ -0,0 +1,121 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.capture.TileGrid;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TiledCaptureTest {
+
+    @Test
+    public void testFit() {
+        TileGrid grid = TileGrid.fit(7680, 4320, 2048);
+        assertEquals(4, grid.columns());
+        assertEquals(3, grid.rows());
+        assertEquals(1920, grid.tileWidth());
+        assertEquals(1440, grid.tileHeight());
+        assertEquals(12, grid.size());
+
+        assertTrue(TileGrid.fit(1920, 1080, 2048).isSingle());
+        assertEquals(TileGrid.single(1920, 1080), TileGrid.fit(1920, 1080, 2048));
+
+        // Uneven splits hang off the right and bottom edges.
+        TileGrid uneven = TileGrid.fit(37, 23, 10);
+        assertEquals(4, uneven.columns());
+        assertEquals(3, uneven.rows());
+        TileGrid.Tile corner = uneven.tile(uneven.size() - 1);
+        assertEquals(30, corner.x());
+        assertEquals(16, corner.y());
+        assertEquals(7, corner.width());
+        assertEquals(7, corner.height());
+
+        assertThrows(IllegalArgumentException.class, () -> new TileGrid(100, 100, 10, 10, 5, 10));
+    }
+
+    @Test
+    public void testProjectionCoversTile() {
+        TileGrid grid = TileGrid.fit(3000, 1700, 1024);
+        for (int i = 0; i < grid.size(); i++) {
+            TileGrid.Tile tile = grid.tile(i);
+
+            // The tile's edges, in the frame's device coordinates, land on the edges of the tile's own.
+            double left = 2.0 * tile.x() / grid.width() - 1;
+            double right = 2.0 * (tile.x() + grid.tileWidth()) / grid.width() - 1;
+            double top = 1 - 2.0 * tile.y() / grid.height();
+            double bottom = 1 - 2.0 * (tile.y() + grid.tileHeight()) / grid.height();
+
+            assertEquals(-1, toTileX(grid, tile, left), 1e-5);
+            assertEquals(1, toTileX(grid, tile, right), 1e-5);
+            assertEquals(1, toTileY(grid, tile, top), 1e-5);
+            assertEquals(-1, toTileY(grid, tile, bottom), 1e-5);
+        }
+    }
+
+    @Test
+    public void testProjectionIsPixelExact() {
+        TileGrid grid = TileGrid.fit(1000, 600, 256);
+        TileGrid.Tile tile = grid.tile(6);
+        for (int px = 0; px < grid.tileWidth(); px++) {
+            double frameCenter = 2.0 * (tile.x() + px + 0.5) / grid.width() - 1;
+            double tileCenter = 2.0 * (px + 0.5) / grid.tileWidth() - 1;
+            assertEquals(tileCenter, toTileX(grid, tile, frameCenter), 1e-5);
+        }
+        for (int py = 0; py < grid.tileHeight(); py++) {
+            double frameCenter = 1 - 2.0 * (tile.y() + py + 0.5) / grid.height();
+            double tileCenter = 1 - 2.0 * (py + 0.5) / grid.tileHeight();
+            assertEquals(tileCenter, toTileY(grid, tile, frameCenter), 1e-5);
+        }
+    }
+
+    @Test
+    public void testStitch() {
+        TileGrid grid = TileGrid.fit(37, 23, 10);
+        ByteBuffer expected = ByteBuffer.allocate(grid.width() * grid.height() * 4);
+        for (int y = 0; y < grid.height(); y++) {
+            for (int x = 0; x < grid.width(); x++) {
+                expected.putInt(readbackOffset(grid.width(), grid.height(), x, y), pixel(x, y));
+            }
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(expected.capacity());
+        ByteBuffer tileData = ByteBuffer.allocate(grid.tileWidth() * grid.tileHeight() * 4);
+        for (int i = 0; i < grid.size(); i++) {
+            TileGrid.Tile tile = grid.tile(i);
+            // Render the tile as the GPU would, overhang included.
+            for (int y = 0; y < grid.tileHeight(); y++) {
+                for (int x = 0; x < grid.tileWidth(); x++) {
+                    int color = x < tile.width() && y < tile.height() ? pixel(tile.x() + x, tile.y() + y) : -1;
+                    tileData.putInt(readbackOffset(grid.tileWidth(), grid.tileHeight(), x, y), color);
+                }
+            }
+            grid.stitch(i, tileData, frame);
+        }
+
+        assertEquals(expected, frame);
+        assertEquals(0, frame.position());
+
+        assertThrows(IllegalArgumentException.class, () -> grid.stitch(0, ByteBuffer.allocate(16), frame));
+        assertThrows(IndexOutOfBoundsException.class, () -> grid.stitch(grid.size(), tileData, frame));
+    }
+
+    private static double toTileX(TileGrid grid, TileGrid.Tile tile, double x) {
+        return grid.getScaleX() * x + grid.getOffsetX(tile);
+    }
+
+    private static double toTileY(TileGrid grid, TileGrid.Tile tile, double y) {
+        return grid.getScaleY() * y + grid.getOffsetY(tile);
+    }
+
+    /**
+     * Where a pixel, counted from the top left, is in an image read back bottom row first.
+     */
+    private static int readbackOffset(int width, int height, int x, int y) {
+        return ((height - 1 - y) * width + x) * 4;
+    }
+
+    private static int pixel(int x, int y) {
+        return x << 16 | y << 8 | 0xFF;
+    }
+}
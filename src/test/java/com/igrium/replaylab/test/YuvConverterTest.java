@@ -0,0 +1,210 @@
+package com.igrium.replaylab.test;
+
+import com.igrium.replaylab.render.frame.YuvConverter;
+import com.igrium.replaylab.render.frame.YuvFormat;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class YuvConverterTest {
+
+    /**
+     * Straightforward floating-point BT.709 limited-range conversion to check the fixed-point one against.
+     */
+    private static double[] referenceYuv(double r, double g, double b) {
+        double y = 0.2126 * r + 0.7152 * g + 0.0722 * b;
+        double u = (b - y) / 1.8556;
+        double v = (r - y) / 1.5748;
+        return new double[]{16 + y * 219 / 255, 128 + u * 224 / 255, 128 + v * 224 / 255};
+    }
+
+    private static ByteBuffer referenceConvert(ByteBuffer rgba, int width, int height, YuvFormat format) {
+        ByteBuffer out = ByteBuffer.allocate(format.frameBytes(width, height));
+        int cw = format.chromaWidth(width);
+        int chromaPlane = cw * format.chromaHeight(height);
+        int luma = width * height;
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double[] yuv = referenceYuv(r(rgba, width, x, y), g(rgba, width, x, y), b(rgba, width, x, y));
+                out.put(y * width + x, (byte) Math.round(yuv[0]));
+                if (!format.isSubsampled()) {
+                    out.put(luma + y * width + x, (byte) Math.round(yuv[1]));
+                    out.put(luma + chromaPlane + y * width + x, (byte) Math.round(yuv[2]));
+                }
+            }
+        }
+
+        if (format.isSubsampled()) {
+            for (int cy = 0; cy < format.chromaHeight(height); cy++) {
+                for (int cx = 0; cx < cw; cx++) {
+                    double r = 0, g = 0, b = 0;
+                    for (int dy = 0; dy < 2; dy++) {
+                        for (int dx = 0; dx < 2; dx++) {
+                            int x = Math.min(cx * 2 + dx, width - 1);
+                            int y = Math.min(cy * 2 + dy, height - 1);
+                            r += r(rgba, width, x, y);
+                            g += g(rgba, width, x, y);
+                            b += b(rgba, width, x, y);
+                        }
+                    }
+                    double[] yuv = referenceYuv(r / 4, g / 4, b / 4);
+                    int idx = cy * cw + cx;
+                    if (format == YuvFormat.NV12) {
+                        out.put(luma + idx * 2, (byte) Math.round(yuv[1]));
+                        out.put(luma + idx * 2 + 1, (byte) Math.round(yuv[2]));
+                    } else {
+                        out.put(luma + idx, (byte) Math.round(yuv[1]));
+                        out.put(luma + chromaPlane + idx, (byte) Math.round(yuv[2]));
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private static int r(ByteBuffer rgba, int width, int x, int y) {
+        return rgba.get((y * width + x) * 4) & 0xFF;
+    }
+
+    private static int g(ByteBuffer rgba, int width, int x, int y) {
+        return rgba.get((y * width + x) * 4 + 1) & 0xFF;
+    }
+
+    private static int b(ByteBuffer rgba, int width, int x, int y) {
+        return rgba.get((y * width + x) * 4 + 2) & 0xFF;
+    }
+
+    private static ByteBuffer randomImage(int width, int height, long seed) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4);
+        Random random = new Random(seed);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) random.nextInt());
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer gradientImage(int width, int height) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = (y * width + x) * 4;
+                buffer.put(i, (byte) (x * 255 / Math.max(width - 1, 1)));
+                buffer.put(i + 1, (byte) (y * 255 / Math.max(height - 1, 1)));
+                buffer.put(i + 2, (byte) ((x + y) * 255 / Math.max(width + height - 2, 1)));
+                buffer.put(i + 3, (byte) 255);
+            }
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer solid(int r, int g, int b) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * 4 * 4);
+        for (int i = 0; i < 16; i++) {
+            buffer.put(i * 4, (byte) r).put(i * 4 + 1, (byte) g).put(i * 4 + 2, (byte) b).put(i * 4 + 3, (byte) 255);
+        }
+        return buffer;
+    }
+
+    private static void assertClose(ByteBuffer expected, ByteBuffer actual, int length) {
+        for (int i = 0; i < length; i++) {
+            int e = expected.get(i) & 0xFF;
+            int a = actual.get(i) & 0xFF;
+            assertTrue(Math.abs(e - a) <= 1, "Byte %d: expected %d, got %d".formatted(i, e, a));
+        }
+    }
+
+    private static ByteBuffer convert(ByteBuffer src, int width, int height, YuvFormat format, int parallelism) {
+        try (YuvConverter converter = new YuvConverter(format, width, height, parallelism)) {
+            ByteBuffer dst = ByteBuffer.allocateDirect(converter.getFrameBytes());
+            converter.convert(src, dst);
+            return dst;
+        }
+    }
+
+    @Test
+    public void testKnownColors() {
+        for (var format : YuvFormat.values()) {
+            ByteBuffer white = convert(solid(255, 255, 255), 4, 4, format, 1);
+            assertEquals(235, white.get(0) & 0xFF);
+            assertEquals(128, white.get(16) & 0xFF);
+
+            ByteBuffer black = convert(solid(0, 0, 0), 4, 4, format, 1);
+            assertEquals(16, black.get(0) & 0xFF);
+            assertEquals(128, black.get(16) & 0xFF);
+        }
+
+        // BT.709 limited-range red: (63, 102, 240)
+        ByteBuffer red = convert(solid(255, 0, 0), 4, 4, YuvFormat.YUV420P, 1);
+        assertEquals(63, red.get(0) & 0xFF);
+        assertEquals(102, red.get(16) & 0xFF);
+        assertEquals(240, red.get(20) & 0xFF);
+    }
+
+    @Test
+    public void testMatchesReference() {
+        int[][] sizes = {{64, 48}, {33, 17}, {1, 1}, {2, 3}};
+        for (var format : YuvFormat.values()) {
+            for (int[] size : sizes) {
+                ByteBuffer random = randomImage(size[0], size[1], size[0] * 31L + size[1]);
+                assertClose(referenceConvert(random, size[0], size[1], format),
+                        convert(random, size[0], size[1], format, 1), format.frameBytes(size[0], size[1]));
+
+                ByteBuffer gradient = gradientImage(size[0], size[1]);
+                assertClose(referenceConvert(gradient, size[0], size[1], format),
+                        convert(gradient, size[0], size[1], format, 1), format.frameBytes(size[0], size[1]));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        int width = 320;
+        int height = 181;
+        ByteBuffer src = randomImage(width, height, 7);
+        for (var format : YuvFormat.values()) {
+            assertEquals(convert(src, width, height, format, 1), convert(src, width, height, format, 6),
+                    format.name());
+        }
+    }
+
+    @Test
+    public void testConvertsOnlyChangedBands() {
+        int width = 320;
+        int height = 181;
+        for (var format : YuvFormat.values()) {
+            ByteBuffer src = randomImage(width, height, 11);
+            try (YuvConverter converter = new YuvConverter(format, width, height, 6)) {
+                YuvConverter.Target target = converter.createTarget();
+                int bands = converter.convertChanged(src, target);
+                assertTrue(bands > 1, format.name());
+                assertEquals(convert(src, width, height, format, 1), target.getBuffer(), format.name());
+
+                assertEquals(0, converter.convertChanged(src, target), format.name());
+
+                // One pixel in the middle of the frame only touches its own band.
+                ByteBuffer changed = randomImage(width, height, 11);
+                changed.put((100 * width + 7) * 4, (byte) (changed.get((100 * width + 7) * 4) + 1));
+                assertEquals(1, converter.convertChanged(changed, target), format.name());
+                assertEquals(convert(changed, width, height, format, 1), target.getBuffer(), format.name());
+
+                // Each target keeps track of its own frames.
+                YuvConverter.Target other = converter.createTarget();
+                assertEquals(bands, converter.convertChanged(src, other), format.name());
+                assertEquals(convert(src, width, height, format, 1), other.getBuffer(), format.name());
+                assertEquals(0, converter.convertChanged(changed, target), format.name());
+            }
+        }
+    }
+
+    @Test
+    public void testFrameSizes() {
+        assertEquals(1920 * 1080 * 3 / 2, YuvFormat.YUV420P.frameBytes(1920, 1080));
+        assertEquals(1920 * 1080 * 3 / 2, YuvFormat.NV12.frameBytes(1920, 1080));
+        assertEquals(1920 * 1080 * 3, YuvFormat.YUV444P.frameBytes(1920, 1080));
+        assertEquals(3 * 3 + 2 * 2 * 2, YuvFormat.YUV420P.frameBytes(3, 3));
+    }
+}